@@ -44,10 +44,35 @@ android {
         viewBinding = true
         buildConfig = true
     }
+    testOptions {
+        unitTests {
+            isIncludeAndroidResources = true
+            all {
+                // Benchmarks stay out of the regular run; passing one of their properties enables them
+                if (!project.hasProperty("daoBenchScales") && !project.hasProperty("daoBenchRecord")) {
+                    it.exclude("**/DaoLatencyBenchmarkTest*")
+                }
+                if (!project.hasProperty("hashBenchRuns")) {
+                    it.exclude("**/PasswordHashingBenchmarkTest*")
+                }
+                if (listOf("chatBenchRounds", "chatBenchLatency", "chatBenchFaults").none { name -> project.hasProperty(name) }) {
+                    it.exclude("**/ChatLatencyHarnessTest*")
+                }
+                it.systemProperty("dao.bench.scales", project.findProperty("daoBenchScales") ?: "1000,10000")
+                it.systemProperty("dao.bench.record", project.hasProperty("daoBenchRecord"))
+                it.systemProperty("hash.bench.runs", project.findProperty("hashBenchRuns") ?: "10")
+                it.systemProperty("chat.bench.rounds", project.findProperty("chatBenchRounds") ?: "2")
+                it.systemProperty("chat.bench.latency", project.findProperty("chatBenchLatency") ?: "50")
+                it.systemProperty("chat.bench.faults", project.findProperty("chatBenchFaults") ?: "0.2")
+                it.maxHeapSize = "2g"
+            }
+        }
+    }
 }
 
 dependencies {
 
+    implementation(project(":core"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.constraintlayout)
@@ -57,6 +82,7 @@ dependencies {
     implementation(libs.navigation.ui)
     implementation(libs.androidx.navigation.fragment)
     implementation(libs.androidx.navigation.ui)
+    implementation("androidx.recyclerview:recyclerview:1.4.0")
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     implementation("com.google.code.gson:gson:2.10.1")
     implementation("com.github.bumptech.glide:glide:4.16.0")
@@ -66,6 +92,9 @@ dependencies {
     annotationProcessor(libs.room.compiler)
     implementation("com.github.PhilJay:MPAndroidChart:v3.1.0")
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
+    testImplementation(libs.test.core)
+    testImplementation(libs.core.testing)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
 }
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.example.spending_management_app.presentation.dialog;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatAdapter;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Scroll jank over a 500-message conversation, raw text binding vs precomputed text
+ * Scrolls an offscreen RecyclerView of the sheet's size in fixed steps on the main thread and
+ * counts steps over one 60 Hz frame. Results go to logcat (tag ChatScrollJank)
+ */
+@RunWith(AndroidJUnit4.class)
+public class ChatScrollJankBenchmark {
+
+    private static final String TAG = "ChatScrollJank";
+    private static final int MESSAGES = 500;
+    private static final int STEP_PX = 120;
+    private static final long FRAME_NANOS = 16_666_667L;
+
+    private static final class Result {
+        int steps;
+        int janky;
+        long worstNanos;
+        long totalNanos;
+    }
+
+    @Test
+    public void scroll_rawVsPrecomputed() {
+        Result raw = scroll(false);
+        Result precomputed = scroll(true);
+
+        Log.i(TAG, describe("raw", raw));
+        Log.i(TAG, describe("precomputed", precomputed));
+        assertTrue(raw.steps > 0);
+        assertEquals(raw.steps, precomputed.steps);
+    }
+
+    private Result scroll(boolean precompute) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Context context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_Spendingmanagementapp);
+        List<ChatMessage> messages = conversation();
+        ChatTextPrecomputer precomputer = precompute ? new ChatTextPrecomputer() : null;
+        RecyclerView[] list = new RecyclerView[1];
+        int width = context.getResources().getDisplayMetrics().widthPixels;
+        int height = context.getResources().getDisplayMetrics().heightPixels * 3 / 4;
+
+        instrumentation.runOnMainSync(() -> {
+            RecyclerView recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            recyclerView.setAdapter(new ChatAdapter(messages, precomputer));
+            layout(recyclerView, width, height);
+            list[0] = recyclerView;
+        });
+        if (precomputer != null) {
+            // The first layout registered the bubbles' params; measure like ChatMessageList does
+            for (ChatMessage message : messages) {
+                precomputer.precomputeNow(message);
+            }
+        }
+
+        Result result = new Result();
+        boolean[] more = {true};
+        while (more[0]) {
+            instrumentation.runOnMainSync(() -> {
+                RecyclerView recyclerView = list[0];
+                long start = System.nanoTime();
+                recyclerView.scrollBy(0, STEP_PX);
+                layout(recyclerView, width, height);
+                long elapsed = System.nanoTime() - start;
+                result.steps++;
+                result.totalNanos += elapsed;
+                result.worstNanos = Math.max(result.worstNanos, elapsed);
+                if (elapsed > FRAME_NANOS) {
+                    result.janky++;
+                }
+                more[0] = recyclerView.canScrollVertically(1);
+            });
+        }
+        return result;
+    }
+
+    private static void layout(View view, int width, int height) {
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, width, height);
+    }
+
+    // Alternating short questions and long multi-paragraph replies, like a budget analysis chat
+    private static List<ChatMessage> conversation() {
+        List<ChatMessage> messages = new ArrayList<>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            if (i % 2 == 0) {
+                messages.add(new ChatMessage("Tháng này tôi đã chi bao nhiêu cho ăn uống? #" + i, true, "10:00"));
+            } else {
+                StringBuilder reply = new StringBuilder();
+                for (int p = 0; p < 6; p++) {
+                    reply.append("Chi tiêu ăn uống tháng này là 2.350.000 VND, tăng 12% so với tháng trước. ")
+                            .append("Bạn nên giảm các bữa ăn ngoài và theo dõi ngân sách hàng tuần. ")
+                            .append("Budget used: 78% of 3.000.000 VND.\n\n");
+                }
+                messages.add(new ChatMessage((CharSequence) reply.toString().trim(), false, "10:01"));
+            }
+        }
+        return messages;
+    }
+
+    private static String describe(String name, Result result) {
+        return String.format("%s: %d steps, %d over 16 ms, mean %.2f ms, worst %.2f ms", name, result.steps,
+                result.janky, result.totalNanos / 1e6 / result.steps, result.worstNanos / 1e6);
+    }
+}
@@ -2,8 +2,15 @@ package com.example.spending_management_app;
 
 import android.app.Application;
 import android.content.Context;
+import android.util.Log;
 
+import com.example.spending_management_app.data.repository.BudgetProgressTracker;
+import com.example.spending_management_app.domain.usecase.offline.OfflineOutboxReplayer;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.CorePlatform;
 import com.example.spending_management_app.utils.LocaleHelper;
+import com.example.spending_management_app.utils.PasswordHashingEngine;
+import com.example.spending_management_app.utils.SettingsHelper;
 
 /**
  * Application class to initialize app-wide settings
@@ -17,6 +24,56 @@ public class SpendingManagementApp extends Application {
         // Set the app's locale based on saved preference
         String language = LocaleHelper.getLanguage(this);
         LocaleHelper.setLocale(this, language);
+
+        // Parsers in :core log through android.util.Log and read their texts from resources
+        CorePlatform.install(new CorePlatform.Logger() {
+            @Override
+            public void d(String tag, String message) {
+                Log.d(tag, message);
+            }
+
+            @Override
+            public void e(String tag, String message, Throwable error) {
+                Log.e(tag, message, error);
+            }
+        }, this::coreText);
+
+        // Build the category label table once for the active locale
+        CategoryRegistry.warmUp(this);
+
+        initPasswordHashing();
+
+        // Custom budget alert levels are checked at write time, so load them before any expense is saved
+        BudgetProgressTracker.setCustomThresholds(SettingsHelper.getBudgetAlertThresholds(this));
+
+        // Chat requests queued while offline are sent whenever a network comes up
+        OfflineOutboxReplayer.getInstance(this).register();
+    }
+
+    /**
+     * Restore the calibrated PBKDF2 cost, or calibrate it in the background on first launch
+     */
+    private void initPasswordHashing() {
+        PasswordHashingEngine engine = PasswordHashingEngine.getInstance();
+        int storedIterations = SettingsHelper.getPasswordHashIterations(this);
+        if (storedIterations > 0) {
+            engine.setIterations(storedIterations);
+        } else {
+            engine.submit(() -> {
+                int iterations = engine.calibrate();
+                SettingsHelper.setPasswordHashIterations(this, iterations);
+                return iterations;
+            });
+        }
+    }
+
+    private String coreText(CorePlatform.Text text) {
+        switch (text) {
+            case REPLY_PROCESSED:
+                return getString(R.string.reply_processed);
+            default:
+                return null;
+        }
     }
 
     @Override
@@ -0,0 +1,175 @@
+package com.example.spending_management_app.data.local.cache;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded in-memory window of each user's newest transactions
+ * The window is always an exact prefix of "ORDER BY date DESC, id DESC" in the database:
+ * ExpenseRepositoryImpl writes through every insert/update/delete, and anything it can't
+ * apply precisely just drops the window so the next read reloads it
+ */
+public class RecentTransactionCache {
+
+    public static final int CAPACITY = 20; // Largest "recent" list any screen asks for, with headroom
+
+    /**
+     * Reads the newest rows from the database when a window is missing or too short
+     */
+    public interface Loader {
+        List<TransactionEntity> loadRecent(int userId, int limit);
+    }
+
+    // Same order as TransactionDao.getRecentTransactions
+    static final Comparator<TransactionEntity> NEWEST_FIRST = (a, b) -> {
+        int byDate = compareDates(b, a);
+        return byDate != 0 ? byDate : Integer.compare(b.id, a.id);
+    };
+
+    private static RecentTransactionCache instance;
+
+    private final Map<Integer, Window> windows = new ConcurrentHashMap<>();
+    private final int capacity;
+
+    RecentTransactionCache(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public static synchronized RecentTransactionCache getInstance() {
+        if (instance == null) {
+            instance = new RecentTransactionCache(CAPACITY);
+        }
+        return instance;
+    }
+
+    /**
+     * Get the newest transactions of a user, loading the window on first use
+     */
+    public List<TransactionEntity> getRecent(int userId, int limit, Loader loader) {
+        if (limit > capacity) {
+            return loader.loadRecent(userId, limit);
+        }
+        Window window = windowFor(userId);
+        synchronized (window) {
+            if (window.loaded && (window.complete || window.rows.size() >= limit)) {
+                return new ArrayList<>(window.rows.subList(0, Math.min(limit, window.rows.size())));
+            }
+        }
+
+        long version;
+        synchronized (window) {
+            version = window.version;
+        }
+        List<TransactionEntity> rows = loader.loadRecent(userId, capacity);
+        synchronized (window) {
+            // A write that landed while we were reading makes this result unsafe to keep
+            if (window.version == version) {
+                window.rows.clear();
+                window.rows.addAll(rows);
+                window.complete = rows.size() < capacity;
+                window.loaded = true;
+            }
+        }
+        return new ArrayList<>(rows.subList(0, Math.min(limit, rows.size())));
+    }
+
+    public void onInserted(TransactionEntity transaction) {
+        Window window = windowFor(transaction.userId);
+        synchronized (window) {
+            window.version++;
+            if (window.loaded) {
+                removeById(window, transaction.id); // Idempotent if a reload already picked it up
+                place(window, transaction);
+            }
+        }
+    }
+
+    public void onUpdated(TransactionEntity transaction) {
+        Window window = windowFor(transaction.userId);
+        synchronized (window) {
+            window.version++;
+            if (window.loaded) {
+                removeById(window, transaction.id);
+                place(window, transaction);
+            }
+        }
+    }
+
+    public void onDeleted(TransactionEntity transaction) {
+        Window window = windowFor(transaction.userId);
+        synchronized (window) {
+            window.version++;
+            if (window.loaded) {
+                removeById(window, transaction.id);
+            }
+        }
+    }
+
+    /**
+     * Drop a user's window, for writes that don't go through ExpenseRepositoryImpl
+     */
+    public void invalidate(int userId) {
+        Window window = windowFor(userId);
+        synchronized (window) {
+            window.version++;
+            window.loaded = false;
+            window.rows.clear();
+        }
+    }
+
+    public void clear() {
+        for (Integer userId : windows.keySet()) {
+            invalidate(userId);
+        }
+    }
+
+    private Window windowFor(int userId) {
+        return windows.computeIfAbsent(userId, id -> new Window());
+    }
+
+    // Insert in order, but only if the row belongs to the known prefix
+    private void place(Window window, TransactionEntity transaction) {
+        List<TransactionEntity> rows = window.rows;
+        int index = 0;
+        while (index < rows.size() && NEWEST_FIRST.compare(rows.get(index), transaction) < 0) {
+            index++;
+        }
+        if (index == rows.size() && !window.complete) {
+            return; // Older than everything cached; rows below the window are unknown
+        }
+        rows.add(index, transaction);
+        if (rows.size() > capacity) {
+            rows.remove(rows.size() - 1);
+            window.complete = false;
+        }
+    }
+
+    private static void removeById(Window window, int id) {
+        for (int i = 0; i < window.rows.size(); i++) {
+            if (window.rows.get(i).id == id) {
+                window.rows.remove(i);
+                return;
+            }
+        }
+    }
+
+    private static int compareDates(TransactionEntity a, TransactionEntity b) {
+        // SQLite sorts NULL before any value, so NULL dates come last in DESC order
+        if (a.date == null || b.date == null) {
+            return a.date == null ? (b.date == null ? 0 : -1) : 1;
+        }
+        return a.date.compareTo(b.date);
+    }
+
+    private static final class Window {
+        final List<TransactionEntity> rows = new ArrayList<>();
+        boolean loaded;
+        boolean complete; // True when the user has no rows beyond the window
+        long version;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.spending_management_app.data.local.cache;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-user {@link TransactionColumns} snapshots kept in step with the database
+ * Loaded once per user, then refreshed incrementally: ExpenseRepositoryImpl reports every
+ * insert/update/delete, and pending changes are merged into a new snapshot on the next read.
+ * Snapshots are immutable, so a reader keeps a consistent view while writes go on
+ */
+public class TransactionColumnStore {
+
+    /**
+     * Reads a user's rows from the database when no snapshot is loaded
+     */
+    public interface Loader {
+        TransactionColumns loadColumns(int userId);
+    }
+
+    private static TransactionColumnStore instance;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    TransactionColumnStore() {
+    }
+
+    public static synchronized TransactionColumnStore getInstance() {
+        if (instance == null) {
+            instance = new TransactionColumnStore();
+        }
+        return instance;
+    }
+
+    /**
+     * Current snapshot of a user, loading it on first use
+     */
+    public TransactionColumns getColumns(int userId, Loader loader) {
+        Entry entry = entryFor(userId);
+        long version;
+        synchronized (entry) {
+            if (entry.columns != null) {
+                if (!entry.pending.isEmpty()) {
+                    entry.columns = entry.columns.withChanges(entry.pending);
+                    entry.pending.clear();
+                }
+                return entry.columns;
+            }
+            version = entry.version;
+        }
+
+        TransactionColumns loaded = loader.loadColumns(userId);
+        synchronized (entry) {
+            // A write that landed while we were reading makes this result unsafe to keep
+            if (entry.version == version && entry.columns == null) {
+                entry.columns = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    public void onInserted(TransactionEntity transaction) {
+        record(transaction.userId, transaction.id, transaction);
+    }
+
+    public void onUpdated(TransactionEntity transaction) {
+        record(transaction.userId, transaction.id, transaction);
+    }
+
+    public void onDeleted(TransactionEntity transaction) {
+        record(transaction.userId, transaction.id, null);
+    }
+
+    /**
+     * Drop a user's snapshot, for writes that don't go through ExpenseRepositoryImpl
+     */
+    public void invalidate(int userId) {
+        Entry entry = entryFor(userId);
+        synchronized (entry) {
+            entry.version++;
+            entry.columns = null;
+            entry.pending.clear();
+        }
+    }
+
+    public void clear() {
+        for (Integer userId : entries.keySet()) {
+            invalidate(userId);
+        }
+    }
+
+    private void record(int userId, int id, TransactionEntity row) {
+        Entry entry = entryFor(userId);
+        synchronized (entry) {
+            entry.version++;
+            if (entry.columns != null) {
+                entry.pending.remove(id); // Keep the latest state of a row, in write order
+                entry.pending.put(id, row);
+            }
+        }
+    }
+
+    private Entry entryFor(int userId) {
+        return entries.computeIfAbsent(userId, id -> new Entry());
+    }
+
+    private static final class Entry {
+        TransactionColumns columns; // Null until loaded
+        final Map<Integer, TransactionEntity> pending = new LinkedHashMap<>(); // id -> row, null if deleted
+        long version;
+    }
+}
@@ -0,0 +1,435 @@
+package com.example.spending_management_app.data.local.cache;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Immutable column-oriented copy of one user's transactions, sorted by date then id
+ * One primitive array per field instead of an entity per row (~29 bytes a row instead of
+ * a Date, a description and a type string), so statistics, reports and AI context can
+ * aggregate years of data without touching the database or the heap much.
+ * Range bounds use epoch millis like the date BETWEEN queries; grouping uses the persisted
+ * local-time epochDay, like the yearMonth/epochDay queries.
+ * Amounts are summed as absolute values, as the statistics queries do (SUM(ABS(amount)))
+ */
+public final class TransactionColumns {
+
+    public static final byte TYPE_EXPENSE = 0;
+    public static final byte TYPE_INCOME = 1;
+    public static final byte TYPE_OTHER = 2;
+
+    // Below this many rows a range is aggregated on the calling thread
+    static final int PARALLEL_THRESHOLD = 8192;
+
+    public static final TransactionColumns EMPTY = new Builder(0).build();
+
+    private final int[] ids;
+    private final long[] epochMillis;
+    private final long[] amounts;
+    private final int[] categoryIds;
+    private final byte[] types;
+    private final int[] epochDays;
+    private final int size;
+    private final int maxCategoryId;
+
+    private TransactionColumns(int[] ids, long[] epochMillis, long[] amounts, int[] categoryIds,
+                               byte[] types, int[] epochDays, int size) {
+        this.ids = ids;
+        this.epochMillis = epochMillis;
+        this.amounts = amounts;
+        this.categoryIds = categoryIds;
+        this.types = types;
+        this.epochDays = epochDays;
+        this.size = size;
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, categoryIds[i]);
+        }
+        this.maxCategoryId = max;
+    }
+
+    public static byte typeCode(String type) {
+        if ("expense".equals(type)) {
+            return TYPE_EXPENSE;
+        }
+        return "income".equals(type) ? TYPE_INCOME : TYPE_OTHER;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Largest category id present, the last index of {@link #sumByCategory} results
+     */
+    public int maxCategoryId() {
+        return maxCategoryId;
+    }
+
+    /**
+     * Total of one type between two instants (inclusive)
+     */
+    public long total(long fromMillis, long toMillis, byte type) {
+        return aggregate(fromMillis, toMillis, new Aggregation(1) {
+            @Override
+            void accept(long[] acc, int row) {
+                if (types[row] == type) {
+                    acc[0] += Math.abs(amounts[row]);
+                }
+            }
+        })[0];
+    }
+
+    /**
+     * Totals of one type per local month
+     * @return index 0 is fromYearMonth, one slot per month up to toYearMonth (yyyyMM)
+     */
+    public long[] sumByMonth(int fromYearMonth, int toYearMonth, byte type) {
+        int months = monthIndex(toYearMonth, fromYearMonth) + 1;
+        if (months <= 0) {
+            return new long[0];
+        }
+        int firstDay = (int) LocalDate.of(fromYearMonth / 100, fromYearMonth % 100, 1).toEpochDay();
+        int lastDay = (int) LocalDate.of(toYearMonth / 100, toYearMonth % 100, 1).plusMonths(1).toEpochDay() - 1;
+        // Rows are sorted by date, not by day, so map each day of the range to its month up front
+        int[] slotByDay = new int[lastDay - firstDay + 1];
+        LocalDate day = LocalDate.ofEpochDay(firstDay);
+        for (int i = 0; i < slotByDay.length; i++, day = day.plusDays(1)) {
+            slotByDay[i] = monthIndex(day.getYear() * 100 + day.getMonthValue(), fromYearMonth);
+        }
+        return aggregate(dayRangeStart(firstDay), dayRangeEnd(lastDay), new Aggregation(months) {
+            @Override
+            void accept(long[] acc, int row) {
+                int offset = epochDays[row] - firstDay;
+                if (types[row] == type && offset >= 0 && offset < slotByDay.length) {
+                    acc[slotByDay[offset]] += Math.abs(amounts[row]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Totals of one type per category id between two instants (inclusive)
+     * @return indexed by category id, length maxCategoryId() + 1
+     */
+    public long[] sumByCategory(long fromMillis, long toMillis, byte type) {
+        return aggregate(fromMillis, toMillis, new Aggregation(maxCategoryId + 1) {
+            @Override
+            void accept(long[] acc, int row) {
+                if (types[row] == type) {
+                    acc[categoryIds[row]] += Math.abs(amounts[row]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Totals of one type per local day
+     * @return index 0 is fromEpochDay, one slot per day up to toEpochDay
+     */
+    public long[] sumByDay(int fromEpochDay, int toEpochDay, byte type) {
+        int days = toEpochDay - fromEpochDay + 1;
+        if (days <= 0) {
+            return new long[0];
+        }
+        return aggregate(dayRangeStart(fromEpochDay), dayRangeEnd(toEpochDay), new Aggregation(days) {
+            @Override
+            void accept(long[] acc, int row) {
+                int slot = epochDays[row] - fromEpochDay;
+                if (types[row] == type && slot >= 0 && slot < days) {
+                    acc[slot] += Math.abs(amounts[row]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Nearest-rank percentile of single amounts of one type between two instants
+     * @param percent 0-100, e.g. 50 for the median
+     * @return 0 when there are no matching rows
+     */
+    public long percentile(long fromMillis, long toMillis, byte type, double percent) {
+        int from = lowerBound(fromMillis);
+        int to = upperBound(toMillis);
+        long[] values = new long[Math.max(0, to - from)];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (types[i] == type) {
+                values[count++] = Math.abs(amounts[i]);
+            }
+        }
+        if (count == 0) {
+            return 0;
+        }
+        Arrays.sort(values, 0, count);
+        double clamped = Math.max(0, Math.min(100, percent));
+        int rank = (int) Math.ceil(clamped / 100.0 * count);
+        return values[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * A new snapshot with some rows replaced, added or removed, for write-through refreshes
+     * @param changes id -> current row, or null when the row was deleted
+     */
+    public TransactionColumns withChanges(Map<Integer, TransactionEntity> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        Set<Integer> touched = new HashSet<>(changes.keySet());
+        List<TransactionEntity> added = new ArrayList<>();
+        for (TransactionEntity row : changes.values()) {
+            if (row != null && row.date != null) {
+                added.add(row);
+            }
+        }
+        added.sort((a, b) -> {
+            int byDate = Long.compare(a.date.getTime(), b.date.getTime());
+            return byDate != 0 ? byDate : Integer.compare(a.id, b.id);
+        });
+
+        // Merge the kept rows with the sorted new ones in one pass
+        Builder builder = new Builder(size + added.size());
+        int next = 0;
+        for (int i = 0; i < size; i++) {
+            if (touched.contains(ids[i])) {
+                continue;
+            }
+            while (next < added.size() && comesBefore(added.get(next), i)) {
+                builder.add(added.get(next++));
+            }
+            builder.add(ids[i], epochMillis[i], amounts[i], categoryIds[i], types[i], epochDays[i]);
+        }
+        while (next < added.size()) {
+            builder.add(added.get(next++));
+        }
+        return builder.build();
+    }
+
+    private boolean comesBefore(TransactionEntity row, int index) {
+        long millis = row.date.getTime();
+        return millis < epochMillis[index] || (millis == epochMillis[index] && row.id < ids[index]);
+    }
+
+    // First row at or after the instant
+    int lowerBound(long millis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochMillis[mid] < millis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // First row after the instant
+    int upperBound(long millis) {
+        return millis == Long.MAX_VALUE ? size : lowerBound(millis + 1);
+    }
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    // Rows are found by date, then filtered by their stored local day. Any time zone is within
+    // a day of UTC, so a day of margin on each side catches every row of the days asked for
+    private static long dayRangeStart(int fromEpochDay) {
+        return (fromEpochDay - 1L) * DAY_MILLIS;
+    }
+
+    private static long dayRangeEnd(int toEpochDay) {
+        return (toEpochDay + 2L) * DAY_MILLIS - 1;
+    }
+
+    private static int monthIndex(int yearMonth, int fromYearMonth) {
+        return (yearMonth / 100 - fromYearMonth / 100) * 12 + (yearMonth % 100 - fromYearMonth % 100);
+    }
+
+    private long[] aggregate(long fromMillis, long toMillis, Aggregation aggregation) {
+        int from = lowerBound(fromMillis);
+        int to = upperBound(toMillis);
+        if (from >= to) {
+            return new long[aggregation.slots];
+        }
+        if (to - from <= PARALLEL_THRESHOLD) {
+            return aggregation.run(from, to);
+        }
+        return ForkJoinPool.commonPool().invoke(new AggregateTask(aggregation, from, to));
+    }
+
+    /**
+     * Stateless per-row fold into a long[] accumulator; each leaf of a parallel run has its own
+     */
+    private abstract static class Aggregation {
+        final int slots;
+
+        Aggregation(int slots) {
+            this.slots = slots;
+        }
+
+        abstract void accept(long[] acc, int row);
+
+        long[] run(int from, int to) {
+            long[] acc = new long[slots];
+            for (int row = from; row < to; row++) {
+                accept(acc, row);
+            }
+            return acc;
+        }
+    }
+
+    private static final class AggregateTask extends RecursiveTask<long[]> {
+        private final Aggregation aggregation;
+        private final int from;
+        private final int to;
+
+        AggregateTask(Aggregation aggregation, int from, int to) {
+            this.aggregation = aggregation;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return aggregation.run(from, to);
+            }
+            int mid = (from + to) >>> 1;
+            AggregateTask left = new AggregateTask(aggregation, from, mid);
+            left.fork();
+            long[] right = new AggregateTask(aggregation, mid, to).compute();
+            long[] result = left.join();
+            for (int i = 0; i < result.length; i++) {
+                result[i] += right[i];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Collects rows into growable arrays; sorts them if they weren't added in order
+     */
+    public static final class Builder {
+        private int[] ids;
+        private long[] epochMillis;
+        private long[] amounts;
+        private int[] categoryIds;
+        private byte[] types;
+        private int[] epochDays;
+        private int size;
+        private boolean sorted = true;
+
+        public Builder(int expectedRows) {
+            int capacity = Math.max(16, expectedRows);
+            ids = new int[capacity];
+            epochMillis = new long[capacity];
+            amounts = new long[capacity];
+            categoryIds = new int[capacity];
+            types = new byte[capacity];
+            epochDays = new int[capacity];
+        }
+
+        /**
+         * Rows without a date are skipped, no date range can match them
+         */
+        public Builder add(TransactionEntity row) {
+            if (row.date != null) {
+                add(row.id, row.date.getTime(), row.amount, row.categoryId, typeCode(row.type), row.epochDay);
+            }
+            return this;
+        }
+
+        public Builder add(int id, long millis, long amount, int categoryId, byte type, int epochDay) {
+            if (size == ids.length) {
+                grow();
+            }
+            if (size > 0 && (millis < epochMillis[size - 1]
+                    || (millis == epochMillis[size - 1] && id < ids[size - 1]))) {
+                sorted = false;
+            }
+            ids[size] = id;
+            epochMillis[size] = millis;
+            amounts[size] = amount;
+            categoryIds[size] = Math.max(0, categoryId);
+            types[size] = type;
+            epochDays[size] = epochDay;
+            size++;
+            return this;
+        }
+
+        public TransactionColumns build() {
+            if (!sorted) {
+                sortRows();
+            }
+            // Trim so an idle snapshot holds no spare capacity
+            return new TransactionColumns(Arrays.copyOf(ids, size), Arrays.copyOf(epochMillis, size),
+                    Arrays.copyOf(amounts, size), Arrays.copyOf(categoryIds, size),
+                    Arrays.copyOf(types, size), Arrays.copyOf(epochDays, size), size);
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            epochMillis = Arrays.copyOf(epochMillis, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            categoryIds = Arrays.copyOf(categoryIds, capacity);
+            types = Arrays.copyOf(types, capacity);
+            epochDays = Arrays.copyOf(epochDays, capacity);
+        }
+
+        private void sortRows() {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> {
+                int byDate = Long.compare(epochMillis[a], epochMillis[b]);
+                return byDate != 0 ? byDate : Integer.compare(ids[a], ids[b]);
+            });
+            int[] newIds = new int[size];
+            long[] newMillis = new long[size];
+            long[] newAmounts = new long[size];
+            int[] newCategories = new int[size];
+            byte[] newTypes = new byte[size];
+            int[] newDays = new int[size];
+            for (int i = 0; i < size; i++) {
+                int from = order[i];
+                newIds[i] = ids[from];
+                newMillis[i] = epochMillis[from];
+                newAmounts[i] = amounts[from];
+                newCategories[i] = categoryIds[from];
+                newTypes[i] = types[from];
+                newDays[i] = epochDays[from];
+            }
+            ids = newIds;
+            epochMillis = newMillis;
+            amounts = newAmounts;
+            categoryIds = newCategories;
+            types = newTypes;
+            epochDays = newDays;
+            sorted = true;
+        }
+    }
+
+    /**
+     * Convenience for tests and small lists: build from entities in any order
+     */
+    public static TransactionColumns of(Collection<TransactionEntity> rows) {
+        Builder builder = new Builder(rows.size());
+        for (TransactionEntity row : rows) {
+            builder.add(row);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.spending_management_app.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.spending_management_app.data.local.entity.AiOutboxEntity;
+
+import java.util.List;
+
+@Dao
+public interface AiOutboxDao {
+    /**
+     * @return Row id, or -1 when the same request is already queued
+     */
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insert(AiOutboxEntity request);
+
+    @Query("UPDATE ai_outbox SET dedupeKey = :dedupeKey WHERE id = :id")
+    void setDedupeKey(int id, String dedupeKey);
+
+    @Query("SELECT * FROM ai_outbox WHERE userId = :userId AND status = 0 ORDER BY createdAt ASC, id ASC LIMIT :limit")
+    List<AiOutboxEntity> getPending(int userId, int limit);
+
+    @Query("UPDATE ai_outbox SET status = :status, result = :result WHERE id IN (:ids)")
+    void setResult(List<Integer> ids, int status, String result);
+
+    @Query("UPDATE ai_outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    void incrementAttempts(List<Integer> ids);
+
+    @Query("SELECT * FROM ai_outbox WHERE userId = :userId AND status = 1 ORDER BY createdAt ASC, id ASC")
+    List<AiOutboxEntity> getAnswered(int userId);
+
+    // Once shown (or merged into another row's answer) a request is gone and may be queued again
+    @Query("DELETE FROM ai_outbox WHERE id IN (:ids)")
+    void delete(List<Integer> ids);
+}
@@ -0,0 +1,28 @@
+package com.example.spending_management_app.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.example.spending_management_app.data.local.entity.BudgetAlertEntity;
+
+import java.util.List;
+
+@Dao
+public interface BudgetAlertDao {
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insert(BudgetAlertEntity alert);
+
+    @Query("SELECT threshold FROM budget_alerts WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId = :categoryId")
+    List<Integer> getCrossedThresholds(int userId, int yearMonth, int categoryId);
+
+    @Query("DELETE FROM budget_alerts WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId = :categoryId AND threshold = :threshold")
+    void delete(int userId, int yearMonth, int categoryId, int threshold);
+
+    @Query("SELECT * FROM budget_alerts WHERE userId = :userId AND notified = 0 ORDER BY crossedAt ASC")
+    List<BudgetAlertEntity> getPendingAlerts(int userId);
+
+    @Query("UPDATE budget_alerts SET notified = 1 WHERE id IN (:ids)")
+    void markNotified(List<Integer> ids);
+}
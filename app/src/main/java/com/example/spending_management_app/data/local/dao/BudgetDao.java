@@ -4,7 +4,9 @@ import androidx.lifecycle.LiveData;
 import androidx.room.Dao;
 import androidx.room.Delete;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
@@ -18,6 +20,21 @@ public interface BudgetDao {
 
     @Update
     void update(BudgetEntity budget);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long insertOrIgnore(BudgetEntity budget);
+
+    @Query("UPDATE budgets SET monthlyLimit = :monthlyLimit, date = :date WHERE userId = :userId AND yearMonth = :yearMonth")
+    void updateLimit(int userId, int yearMonth, long monthlyLimit, java.util.Date date);
+
+    // Insert or replace the limit of the (userId, yearMonth) row without reading it first
+    // (@Upsert only resolves primary key conflicts, not the unique month index)
+    @Transaction
+    default void upsert(BudgetEntity budget) {
+        if (insertOrIgnore(budget) == -1) {
+            updateLimit(budget.userId, budget.yearMonth, budget.monthlyLimit, budget.date);
+        }
+    }
     
     @Delete
     void delete(BudgetEntity budget);
@@ -42,6 +59,10 @@ public interface BudgetDao {
     @Query("SELECT SUM(monthlyLimit) FROM budgets WHERE userId = :userId")
     LiveData<Long> getTotalBudgetLive(int userId);
     
+    // Keep currentSpent of the month's budget rows in step with transaction writes
+    @Query("UPDATE budgets SET currentSpent = currentSpent + :delta WHERE userId = :userId AND date >= :startDate AND date <= :endDate")
+    void addCurrentSpent(int userId, java.util.Date startDate, java.util.Date endDate, long delta);
+
     // Get total budget by date range
     @Query("SELECT SUM(monthlyLimit) FROM budgets WHERE userId = :userId AND date >= :startDate AND date <= :endDate")
     Long getTotalBudgetByDateRange(int userId, java.util.Date startDate, java.util.Date endDate);
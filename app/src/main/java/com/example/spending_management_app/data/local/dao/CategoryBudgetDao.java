@@ -2,7 +2,9 @@ package com.example.spending_management_app.data.local.dao;
 
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.Transaction;
 import androidx.room.Update;
 import androidx.room.Delete;
 
@@ -18,17 +20,40 @@ public interface CategoryBudgetDao {
     
     @Update
     void update(CategoryBudgetEntity categoryBudget);
+
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    long[] insertOrIgnore(List<CategoryBudgetEntity> categoryBudgets);
+
+    @Query("UPDATE category_budgets SET budgetAmount = :budgetAmount WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId = :categoryId")
+    void updateAmount(int userId, int yearMonth, int categoryId, long budgetAmount);
+
+    // Insert or replace every (userId, yearMonth, categoryId) row in one transaction, without reading first
+    // (@Upsert only resolves primary key conflicts, not the unique month index)
+    @Transaction
+    default void upsertAll(List<CategoryBudgetEntity> categoryBudgets) {
+        long[] rowIds = insertOrIgnore(categoryBudgets);
+        for (int i = 0; i < rowIds.length; i++) {
+            if (rowIds[i] == -1) {
+                CategoryBudgetEntity budget = categoryBudgets.get(i);
+                updateAmount(budget.userId, budget.yearMonth, budget.categoryId, budget.budgetAmount);
+            }
+        }
+    }
+
+    @Query("DELETE FROM category_budgets WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId IN (:categoryIds)")
+    void deleteCategories(int userId, int yearMonth, List<Integer> categoryIds);
     
     @Delete
     void delete(CategoryBudgetEntity categoryBudget);
     
-    @Query("SELECT * FROM category_budgets WHERE userId = :userId AND category = :category AND date >= :startDate AND date <= :endDate ORDER BY date DESC LIMIT 1")
-    CategoryBudgetEntity getCategoryBudgetForMonth(int userId, String category, Date startDate, Date endDate);
+    @Query("SELECT * FROM category_budgets WHERE userId = :userId AND categoryId = :categoryId AND date >= :startDate AND date <= :endDate ORDER BY date DESC LIMIT 1")
+    CategoryBudgetEntity getCategoryBudgetForMonth(int userId, int categoryId, Date startDate, Date endDate);
     
-    @Query("SELECT * FROM category_budgets WHERE userId = :userId AND date >= :startDate AND date <= :endDate ORDER BY category ASC")
+    @Query("SELECT category_budgets.* FROM category_budgets INNER JOIN categories ON categories.id = category_budgets.categoryId " +
+           "WHERE userId = :userId AND date >= :startDate AND date <= :endDate ORDER BY categories.name ASC")
     List<CategoryBudgetEntity> getAllCategoryBudgetsForMonth(int userId, Date startDate, Date endDate);
     
-    @Query("SELECT DISTINCT category FROM category_budgets WHERE userId = :userId ORDER BY category ASC")
+    @Query("SELECT name FROM categories WHERE id IN (SELECT categoryId FROM category_budgets WHERE userId = :userId) ORDER BY name ASC")
     List<String> getAllCategories(int userId);
     
     @Query("DELETE FROM category_budgets WHERE userId = :userId AND date >= :startDate AND date <= :endDate")
@@ -0,0 +1,24 @@
+package com.example.spending_management_app.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.example.spending_management_app.data.local.entity.CategoryEntity;
+
+import java.util.List;
+
+@Dao
+public interface CategoryDao {
+    @Query("SELECT * FROM categories ORDER BY id ASC")
+    List<CategoryEntity> getAllCategories();
+
+    @Query("SELECT id FROM categories WHERE name = :name LIMIT 1")
+    Integer getIdByName(String name);
+
+    @Query("SELECT MAX(id) FROM categories")
+    Integer getMaxId();
+
+    @Insert
+    void insert(CategoryEntity category);
+}
@@ -0,0 +1,38 @@
+package com.example.spending_management_app.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import com.example.spending_management_app.data.local.entity.CategorySpending;
+
+import java.util.Date;
+import java.util.List;
+
+@Dao
+public interface CategorySpendDao {
+    // Create the counter row if needed, then apply the delta
+    @Query("INSERT OR IGNORE INTO category_spend (userId, yearMonth, categoryId, spent) VALUES (:userId, :yearMonth, :categoryId, 0)")
+    void ensureRow(int userId, int yearMonth, int categoryId);
+
+    @Query("UPDATE category_spend SET spent = spent + :delta WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId = :categoryId")
+    void addSpent(int userId, int yearMonth, int categoryId, long delta);
+
+    @Query("SELECT spent FROM category_spend WHERE userId = :userId AND yearMonth = :yearMonth AND categoryId = :categoryId")
+    Long getSpent(int userId, int yearMonth, int categoryId);
+
+    @Query("SELECT SUM(spent) FROM category_spend WHERE userId = :userId AND yearMonth = :yearMonth")
+    Long getMonthTotal(int userId, int yearMonth);
+
+    @Query("SELECT categoryId FROM category_spend WHERE userId = :userId AND yearMonth = :yearMonth")
+    List<Integer> getCategoryIds(int userId, int yearMonth);
+
+    // Spending per category from the counters, joined with that month's category budgets
+    @Query("SELECT categoryId, SUM(spending) as spending, MAX(budget) as budget FROM (" +
+           "SELECT categoryId, spent as spending, 0 as budget FROM category_spend " +
+           "WHERE userId = :userId AND yearMonth = :yearMonth AND spent <> 0 " +
+           "UNION ALL " +
+           "SELECT categoryId, 0 as spending, budgetAmount as budget FROM category_budgets " +
+           "WHERE userId = :userId AND date BETWEEN :startDate AND :endDate" +
+           ") GROUP BY categoryId")
+    List<CategorySpending> getCategorySpendingWithBudgets(int userId, int yearMonth, Date startDate, Date endDate);
+}
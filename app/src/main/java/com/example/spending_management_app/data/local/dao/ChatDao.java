@@ -0,0 +1,36 @@
+package com.example.spending_management_app.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import com.example.spending_management_app.data.local.entity.ChatConversationEntity;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+
+import java.util.Date;
+import java.util.List;
+
+@Dao
+public interface ChatDao {
+    @Query("SELECT id FROM chat_conversations WHERE userId = :userId AND mode = :mode")
+    Integer getConversationId(int userId, String mode);
+
+    @Insert
+    long insertConversation(ChatConversationEntity conversation);
+
+    @Insert
+    long insertMessage(ChatMessageEntity message);
+
+    @Query("UPDATE chat_messages SET role = :role, text = :text, tokenCount = :tokenCount WHERE id = :id")
+    void updateMessage(long id, String role, String text, int tokenCount);
+
+    @Query("UPDATE chat_conversations SET updatedAt = :updatedAt, tokenCount = tokenCount + :tokenDelta WHERE id = :id")
+    void touchConversation(int id, Date updatedAt, int tokenDelta);
+
+    @Query("SELECT tokenCount FROM chat_messages WHERE id = :id")
+    int getTokenCount(long id);
+
+    // Newest first; pass Long.MAX_VALUE for the latest page
+    @Query("SELECT * FROM chat_messages WHERE conversationId = :conversationId AND id < :beforeId ORDER BY id DESC LIMIT :limit")
+    List<ChatMessageEntity> getMessagesBefore(int conversationId, long beforeId, int limit);
+}
@@ -8,6 +8,7 @@ import androidx.room.Query;
 import androidx.room.Update;
 
 import com.example.spending_management_app.data.local.entity.CategorySummary;
+import com.example.spending_management_app.data.local.entity.DailySpending;
 import com.example.spending_management_app.data.local.entity.MonthlySpending;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 
@@ -16,7 +17,7 @@ import java.util.List;
 @Dao
 public interface TransactionDao {
     @Insert
-    void insert(TransactionEntity transaction);
+    long insert(TransactionEntity transaction);
     
     @Update
     void update(TransactionEntity transaction);
@@ -30,7 +31,7 @@ public interface TransactionDao {
     @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY date DESC")
     List<TransactionEntity> getAllTransactions(int userId);
 
-    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY date DESC LIMIT :limit")
+    @Query("SELECT * FROM transactions WHERE userId = :userId ORDER BY date DESC, id DESC LIMIT :limit")
     List<TransactionEntity> getRecentTransactions(int userId, int limit);
 
     @Query("SELECT * FROM transactions WHERE userId = :userId AND type = 'expense' ORDER BY date DESC")
@@ -61,33 +62,51 @@ public interface TransactionDao {
     @Query("SELECT SUM(amount) FROM transactions WHERE userId = :userId AND type = 'income' AND date BETWEEN :startDate AND :endDate")
     Long getTotalIncomeByDateRange(int userId, java.util.Date startDate, java.util.Date endDate);
 
-    @Query("SELECT * FROM transactions WHERE userId = :userId AND date(date) = date(:specificDate) ORDER BY date DESC")
-    List<TransactionEntity> getTransactionsBySpecificDate(int userId, java.util.Date specificDate);
+    // Day, month and year lookups scan the local-time epochDay / yearMonth indexes
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND epochDay = :epochDay ORDER BY date DESC")
+    List<TransactionEntity> getTransactionsByEpochDay(int userId, int epochDay);
+
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND yearMonth BETWEEN :fromYearMonth AND :toYearMonth ORDER BY date DESC")
+    List<TransactionEntity> getTransactionsByYearMonthRange(int userId, int fromYearMonth, int toYearMonth);
+
+    // Per-day expense totals for calendar views: one grouped scan of the (userId, epochDay) index,
+    // at most one row per day of the range
+    @Query("SELECT epochDay, SUM(ABS(amount)) AS total, COUNT(*) AS count FROM transactions " +
+           "WHERE userId = :userId AND type = 'expense' AND epochDay BETWEEN :fromEpochDay AND :toEpochDay " +
+           "GROUP BY epochDay ORDER BY epochDay ASC")
+    List<DailySpending> getDailySpending(int userId, int fromEpochDay, int toEpochDay);
+
+    // Description/category search within a day range, newest first; pattern is a LIKE pattern with '\' as escape
+    @Query("SELECT * FROM transactions WHERE userId = :userId AND epochDay BETWEEN :fromEpochDay AND :toEpochDay " +
+           "AND (description LIKE :pattern ESCAPE '\\' " +
+           "OR categoryId IN (SELECT id FROM categories WHERE name LIKE :pattern ESCAPE '\\')) " +
+           "ORDER BY date DESC LIMIT :limit")
+    List<TransactionEntity> searchTransactions(int userId, String pattern, int fromEpochDay, int toEpochDay, int limit);
 
     @Query("SELECT COUNT(*) FROM transactions WHERE userId = :userId AND type = 'expense' AND date BETWEEN :startDate AND :endDate")
     int getExpenseCountByDateRange(int userId, java.util.Date startDate, java.util.Date endDate);
 
-    @Query("SELECT category, SUM(ABS(amount)) as total FROM transactions WHERE userId = :userId AND type = 'expense' AND date BETWEEN :startDate AND :endDate GROUP BY category ORDER BY total DESC")
+    @Query("SELECT categoryId, SUM(ABS(amount)) as total FROM transactions WHERE userId = :userId AND type = 'expense' AND date BETWEEN :startDate AND :endDate GROUP BY categoryId ORDER BY total DESC")
     List<CategorySummary> getExpensesByCategory(int userId, java.util.Date startDate, java.util.Date endDate);
 
     // Get monthly spending for chart (non-observable)
-    @Query("SELECT strftime('%Y-%m', date / 1000, 'unixepoch') as month, SUM(ABS(amount)) as total " +
+    @Query("SELECT printf('%04d-%02d', yearMonth / 100, yearMonth % 100) as month, SUM(ABS(amount)) as total " +
            "FROM transactions WHERE userId = :userId AND type = 'expense' " +
-           "GROUP BY month ORDER BY month ASC")
+           "GROUP BY yearMonth ORDER BY yearMonth ASC")
     List<MonthlySpending> getMonthlySpending(int userId);
 
     // Get monthly spending for chart (LiveData for real-time updates)
-    @Query("SELECT strftime('%Y-%m', date / 1000, 'unixepoch') as month, SUM(ABS(amount)) as total " +
+    @Query("SELECT printf('%04d-%02d', yearMonth / 100, yearMonth % 100) as month, SUM(ABS(amount)) as total " +
            "FROM transactions WHERE userId = :userId AND type = 'expense' " +
-           "GROUP BY month ORDER BY month ASC")
+           "GROUP BY yearMonth ORDER BY yearMonth ASC")
     LiveData<List<MonthlySpending>> getMonthlySpendingLive(int userId);
 
     // Get monthly spending by year (LiveData for real-time updates)
-    @Query("SELECT strftime('%Y-%m', date / 1000, 'unixepoch') as month, SUM(ABS(amount)) as total " +
+    @Query("SELECT printf('%04d-%02d', yearMonth / 100, yearMonth % 100) as month, SUM(ABS(amount)) as total " +
            "FROM transactions WHERE userId = :userId AND type = 'expense' " +
-           "AND strftime('%Y', date / 1000, 'unixepoch') = :year " +
-           "GROUP BY month ORDER BY month ASC")
-    LiveData<List<MonthlySpending>> getMonthlySpendingByYearLive(int userId, String year);
+           "AND yearMonth BETWEEN :year * 100 + 1 AND :year * 100 + 12 " +
+           "GROUP BY yearMonth ORDER BY yearMonth ASC")
+    LiveData<List<MonthlySpending>> getMonthlySpendingByYearLive(int userId, int year);
 
     // Get total income/expense as LiveData for real-time updates
     @Query("SELECT SUM(amount) FROM transactions WHERE userId = :userId AND type = 'income'")
@@ -97,7 +116,7 @@ public interface TransactionDao {
     LiveData<Long> getTotalExpenseLive(int userId);
 
     // Get distinct years from transactions for year dropdown
-    @Query("SELECT DISTINCT strftime('%Y', date / 1000, 'unixepoch') as year " +
+    @Query("SELECT DISTINCT CAST(yearMonth / 100 AS TEXT) as year " +
            "FROM transactions WHERE userId = :userId AND type = 'expense' " +
            "ORDER BY year DESC")
     List<String> getDistinctYears(int userId);
@@ -1,27 +1,49 @@
 package com.example.spending_management_app.data.local.database;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
 
 import com.example.spending_management_app.data.local.converter.DateConverter;
+import com.example.spending_management_app.data.local.dao.AiOutboxDao;
+import com.example.spending_management_app.data.local.dao.BudgetAlertDao;
 import com.example.spending_management_app.data.local.dao.BudgetDao;
 import com.example.spending_management_app.data.local.dao.BudgetHistoryDao;
+import com.example.spending_management_app.data.local.dao.CategoryDao;
+import com.example.spending_management_app.data.local.dao.ChatDao;
 import com.example.spending_management_app.data.local.dao.CategoryBudgetDao;
+import com.example.spending_management_app.data.local.dao.CategorySpendDao;
 import com.example.spending_management_app.data.local.dao.RecurringExpenseDao;
 import com.example.spending_management_app.data.local.dao.TransactionDao;
 import com.example.spending_management_app.data.local.dao.UserDao;
 import com.example.spending_management_app.data.local.entity.UserEntity;
+import com.example.spending_management_app.data.local.entity.AiOutboxEntity;
+import com.example.spending_management_app.data.local.entity.BudgetAlertEntity;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.data.local.entity.BudgetHistoryEntity;
 import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategoryEntity;
+import com.example.spending_management_app.data.local.entity.CategorySpendEntity;
+import com.example.spending_management_app.data.local.entity.ChatConversationEntity;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
 import com.example.spending_management_app.data.local.entity.RecurringExpenseEntity;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
 
-@Database(entities = {TransactionEntity.class, BudgetEntity.class, RecurringExpenseEntity.class, CategoryBudgetEntity.class, BudgetHistoryEntity.class, UserEntity.class}, version = 6)
+import java.util.Date;
+
+@Database(entities = {TransactionEntity.class, BudgetEntity.class, RecurringExpenseEntity.class, CategoryBudgetEntity.class, BudgetHistoryEntity.class, UserEntity.class, CategoryEntity.class, CategorySpendEntity.class, BudgetAlertEntity.class, AiOutboxEntity.class, ChatConversationEntity.class, ChatMessageEntity.class}, version = 12)
 @TypeConverters(DateConverter.class)
 public abstract class AppDatabase extends RoomDatabase {
     private static AppDatabase instance;
@@ -30,16 +52,277 @@ public abstract class AppDatabase extends RoomDatabase {
         if (instance == null) {
             instance = Room.databaseBuilder(context.getApplicationContext(),
                     AppDatabase.class, "spending_management_db")
+                    .addMigrations(MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11, MIGRATION_11_12)
+                    .addCallback(CATEGORY_CALLBACK)
+                    .setJournalMode(JournalMode.WRITE_AHEAD_LOGGING) // Đọc song song trong khi UserWriteQueue ghi
                     .fallbackToDestructiveMigration() // Sẽ xóa và tạo lại DB khi schema thay đổi
                     .build();
         }
         return instance;
     }
 
+    /**
+     * Keep the categories table in sync with CategoryRegistry and load custom categories into it
+     */
+    static final Callback CATEGORY_CALLBACK = new Callback() {
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            seedCategories(db);
+            try (Cursor cursor = db.query("SELECT id, name FROM categories WHERE id >= " + CategoryRegistry.CUSTOM_ID_BASE)) {
+                while (cursor.moveToNext()) {
+                    CategoryRegistry.registerCustom(cursor.getInt(0), cursor.getString(1));
+                }
+            }
+        }
+    };
+
+    /**
+     * Version 7: category strings are replaced by categoryId, a foreign key to the new categories table
+     * Existing rows are back-filled; names CategoryRegistry doesn't know become custom categories
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `categories` (`id` INTEGER NOT NULL, `name` TEXT NOT NULL, PRIMARY KEY(`id`))");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_categories_name` ON `categories` (`name`)");
+            seedCategories(db);
+
+            // Map every stored category string to an id once, then rewrite the tables with a join
+            db.execSQL("CREATE TEMP TABLE `category_map` (`name` TEXT PRIMARY KEY, `id` INTEGER NOT NULL)");
+            int nextCustomId = CategoryRegistry.CUSTOM_ID_BASE;
+            try (Cursor cursor = db.query("SELECT category FROM transactions UNION SELECT category FROM category_budgets "
+                    + "UNION SELECT category FROM budget_history")) {
+                while (cursor.moveToNext()) {
+                    if (cursor.isNull(0)) {
+                        continue;
+                    }
+                    String name = cursor.getString(0);
+                    int id = CategoryRegistry.idOf(name);
+                    if (id == CategoryRegistry.UNKNOWN_ID) {
+                        id = nextCustomId++;
+                        ContentValues category = new ContentValues();
+                        category.put("id", id);
+                        category.put("name", name);
+                        db.insert("categories", SQLiteDatabase.CONFLICT_IGNORE, category);
+                        CategoryRegistry.registerCustom(id, name);
+                    }
+                    ContentValues mapping = new ContentValues();
+                    mapping.put("name", name);
+                    mapping.put("id", id);
+                    db.insert("category_map", SQLiteDatabase.CONFLICT_IGNORE, mapping);
+                }
+            }
+            int otherId = CategoryRegistry.otherId();
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `transactions_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `description` TEXT, `categoryId` INTEGER NOT NULL, `amount` INTEGER NOT NULL, "
+                    + "`date` INTEGER, `type` TEXT, FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            db.execSQL("INSERT INTO transactions_new (id, userId, description, categoryId, amount, date, type) "
+                    + "SELECT t.id, t.userId, t.description, COALESCE(m.id, " + otherId + "), t.amount, t.date, t.type "
+                    + "FROM transactions t LEFT JOIN category_map m ON m.name = t.category");
+            db.execSQL("DROP TABLE transactions");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO transactions");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_categoryId` ON `transactions` (`categoryId`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `category_budgets_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `categoryId` INTEGER NOT NULL, `budgetAmount` INTEGER NOT NULL, `date` INTEGER, "
+                    + "FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            db.execSQL("INSERT INTO category_budgets_new (id, userId, categoryId, budgetAmount, date) "
+                    + "SELECT b.id, b.userId, COALESCE(m.id, " + otherId + "), b.budgetAmount, b.date "
+                    + "FROM category_budgets b LEFT JOIN category_map m ON m.name = b.category");
+            db.execSQL("DROP TABLE category_budgets");
+            db.execSQL("ALTER TABLE category_budgets_new RENAME TO category_budgets");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_category_budgets_categoryId` ON `category_budgets` (`categoryId`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `budget_history_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `action` TEXT, `budgetType` TEXT, `categoryId` INTEGER, `amount` INTEGER NOT NULL, "
+                    + "`date` INTEGER, `description` TEXT, FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) "
+                    + "ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            db.execSQL("INSERT INTO budget_history_new (id, userId, action, budgetType, categoryId, amount, date, description) "
+                    + "SELECT h.id, h.userId, h.action, h.budgetType, m.id, h.amount, h.date, h.description "
+                    + "FROM budget_history h LEFT JOIN category_map m ON m.name = h.category");
+            db.execSQL("DROP TABLE budget_history");
+            db.execSQL("ALTER TABLE budget_history_new RENAME TO budget_history");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_budget_history_categoryId` ON `budget_history` (`categoryId`)");
+
+            db.execSQL("DROP TABLE category_map");
+        }
+    };
+
+    /**
+     * Version 8: local-time epochDay / yearMonth buckets on transactions, back-filled in the device time zone
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `epochDay` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE transactions ADD COLUMN `yearMonth` INTEGER NOT NULL DEFAULT 0");
+
+            // Same conversion as TransactionEntity so old and new rows bucket identically
+            SupportSQLiteStatement update = db.compileStatement("UPDATE transactions SET epochDay = ?, yearMonth = ? WHERE id = ?");
+            try (Cursor cursor = db.query("SELECT id, date FROM transactions WHERE date IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    Date date = new Date(cursor.getLong(1));
+                    update.bindLong(1, DateBuckets.epochDay(date));
+                    update.bindLong(2, DateBuckets.yearMonth(date));
+                    update.bindLong(3, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                    update.clearBindings();
+                }
+            }
+
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_userId_epochDay` ON `transactions` (`userId`, `epochDay`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_transactions_userId_yearMonth` ON `transactions` (`userId`, `yearMonth`)");
+        }
+    };
+
+    /**
+     * Version 9: per-category monthly spend counters and persisted budget alert state
+     * Counters and budgets.currentSpent are rebuilt from the existing expenses
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `category_spend` (`userId` INTEGER NOT NULL, `yearMonth` INTEGER NOT NULL, "
+                    + "`categoryId` INTEGER NOT NULL, `spent` INTEGER NOT NULL, PRIMARY KEY(`userId`, `yearMonth`, `categoryId`), "
+                    + "FOREIGN KEY(`categoryId`) REFERENCES `categories`(`id`) ON UPDATE NO ACTION ON DELETE NO ACTION )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_category_spend_categoryId` ON `category_spend` (`categoryId`)");
+
+            db.execSQL("CREATE TABLE IF NOT EXISTS `budget_alerts` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `yearMonth` INTEGER NOT NULL, `categoryId` INTEGER NOT NULL, "
+                    + "`threshold` INTEGER NOT NULL, `spent` INTEGER NOT NULL, `budgetAmount` INTEGER NOT NULL, "
+                    + "`crossedAt` INTEGER, `notified` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_budget_alerts_userId_yearMonth_categoryId_threshold` "
+                    + "ON `budget_alerts` (`userId`, `yearMonth`, `categoryId`, `threshold`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_budget_alerts_userId_notified` ON `budget_alerts` (`userId`, `notified`)");
+
+            db.execSQL("INSERT INTO category_spend (userId, yearMonth, categoryId, spent) "
+                    + "SELECT userId, yearMonth, categoryId, SUM(ABS(amount)) FROM transactions "
+                    + "WHERE type = 'expense' GROUP BY userId, yearMonth, categoryId");
+
+            // Budget dates are plain timestamps, bucket them in Java like the transactions
+            SupportSQLiteStatement update = db.compileStatement("UPDATE budgets SET currentSpent = "
+                    + "COALESCE((SELECT SUM(spent) FROM category_spend WHERE userId = ? AND yearMonth = ?), 0) WHERE id = ?");
+            try (Cursor cursor = db.query("SELECT id, userId, date FROM budgets WHERE date IS NOT NULL")) {
+                while (cursor.moveToNext()) {
+                    update.bindLong(1, cursor.getLong(1));
+                    update.bindLong(2, DateBuckets.yearMonth(new Date(cursor.getLong(2))));
+                    update.bindLong(3, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                    update.clearBindings();
+                }
+            }
+        }
+    };
+
+    /**
+     * Version 10: budgets and category budgets are keyed by yearMonth with unique indexes
+     * Duplicate rows of the same month are collapsed to the most recently written one
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE budgets ADD COLUMN `yearMonth` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE category_budgets ADD COLUMN `yearMonth` INTEGER NOT NULL DEFAULT 0");
+            backfillYearMonth(db, "budgets");
+            backfillYearMonth(db, "category_budgets");
+
+            db.execSQL("DELETE FROM budgets WHERE id NOT IN (SELECT MAX(id) FROM budgets GROUP BY userId, yearMonth)");
+            db.execSQL("DELETE FROM category_budgets WHERE id NOT IN "
+                    + "(SELECT MAX(id) FROM category_budgets GROUP BY userId, yearMonth, categoryId)");
+
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_budgets_userId_yearMonth` ON `budgets` (`userId`, `yearMonth`)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_category_budgets_userId_yearMonth_categoryId` "
+                    + "ON `category_budgets` (`userId`, `yearMonth`, `categoryId`)");
+        }
+    };
+
+    /**
+     * Version 11: outbox of chat requests made while offline
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `ai_outbox` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `kind` TEXT, `text` TEXT, `dedupeKey` TEXT, `createdAt` INTEGER, "
+                    + "`attempts` INTEGER NOT NULL, `status` INTEGER NOT NULL, `result` TEXT)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_ai_outbox_userId_dedupeKey` ON `ai_outbox` (`userId`, `dedupeKey`)");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_ai_outbox_userId_status` ON `ai_outbox` (`userId`, `status`)");
+        }
+    };
+
+    /**
+     * Version 12: chat conversations and their messages
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `chat_conversations` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, `mode` TEXT, `createdAt` INTEGER, `updatedAt` INTEGER, `tokenCount` INTEGER NOT NULL)");
+            db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_chat_conversations_userId_mode` ON `chat_conversations` (`userId`, `mode`)");
+            db.execSQL("CREATE TABLE IF NOT EXISTS `chat_messages` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`conversationId` INTEGER NOT NULL, `role` TEXT, `text` TEXT, `createdAt` INTEGER, `tokenCount` INTEGER NOT NULL, "
+                    + "FOREIGN KEY(`conversationId`) REFERENCES `chat_conversations`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_chat_messages_conversationId` ON `chat_messages` (`conversationId`)");
+        }
+    };
+
+    private static void backfillYearMonth(SupportSQLiteDatabase db, String table) {
+        SupportSQLiteStatement update = db.compileStatement("UPDATE " + table + " SET yearMonth = ? WHERE id = ?");
+        try (Cursor cursor = db.query("SELECT id, date FROM " + table + " WHERE date IS NOT NULL")) {
+            while (cursor.moveToNext()) {
+                update.bindLong(1, DateBuckets.yearMonth(new Date(cursor.getLong(1))));
+                update.bindLong(2, cursor.getLong(0));
+                update.executeUpdateDelete();
+                update.clearBindings();
+            }
+        }
+    }
+
+    private static void seedCategories(SupportSQLiteDatabase db) {
+        for (int id = 1; id < CategoryRegistry.size(); id++) {
+            ContentValues values = new ContentValues();
+            values.put("id", id);
+            values.put("name", CategoryRegistry.keyOf(id));
+            db.insert("categories", SQLiteDatabase.CONFLICT_IGNORE, values);
+        }
+    }
+
+    /**
+     * Id to store for a category name, adding names CategoryRegistry doesn't know (AI suggestions,
+     * categories the user typed) to the categories table as custom categories
+     * Call from the writer thread; the lookup and insert share one transaction
+     */
+    public int categoryIdFor(String name) {
+        int id = CategoryRegistry.storageIdOf(name);
+        if (id != CategoryRegistry.UNKNOWN_ID) {
+            return id;
+        }
+        return runInTransaction(() -> {
+            Integer existing = categoryDao().getIdByName(name);
+            int resolved;
+            if (existing != null) {
+                resolved = existing;
+            } else {
+                Integer maxId = categoryDao().getMaxId();
+                resolved = Math.max(CategoryRegistry.CUSTOM_ID_BASE, maxId != null ? maxId + 1 : 0);
+                categoryDao().insert(new CategoryEntity(resolved, name));
+            }
+            CategoryRegistry.registerCustom(resolved, name);
+            return resolved;
+        });
+    }
+
     public abstract TransactionDao transactionDao();
     public abstract BudgetDao budgetDao();
     public abstract RecurringExpenseDao recurringExpenseDao();
     public abstract CategoryBudgetDao categoryBudgetDao();
     public abstract BudgetHistoryDao budgetHistoryDao();
     public abstract UserDao userDao();
+    public abstract CategoryDao categoryDao();
+    public abstract CategorySpendDao categorySpendDao();
+    public abstract BudgetAlertDao budgetAlertDao();
+    public abstract AiOutboxDao aiOutboxDao();
+    public abstract ChatDao chatDao();
 }
\ No newline at end of file
@@ -0,0 +1,254 @@
+package com.example.spending_management_app.data.local.database;
+
+import android.content.Context;
+
+import com.example.spending_management_app.data.local.cache.RecentTransactionCache;
+import com.example.spending_management_app.data.local.cache.TransactionColumnStore;
+import com.example.spending_management_app.utils.ChatTrace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-user single writer for database mutations
+ * Commands of one user run one at a time in submission order, so read-modify-write sequences from
+ * chat, bulk edits, offline handling and history logging can't interleave and lose updates.
+ * Whatever is queued when the writer picks up work is applied as one group commit; users don't
+ * block each other in app code, and reads don't go through here at all (they run on Room's WAL
+ * reader pool)
+ *
+ * Rules for commands:
+ * - Don't hide database errors: let them propagate, or call {@link #markRollbackOnly()} before
+ *   handling them, otherwise a failed nested write could roll back the whole group silently
+ * - Post UI updates and refreshes with {@link #afterCommit} so they only run once the data is visible
+ *
+ * A group that fails is rolled back and its commands are re-run one by one outside the group
+ * transaction, so one bad command doesn't take the others down
+ */
+public final class UserWriteQueue {
+
+    static final int MAX_BATCH = 32; // Commands per group commit
+
+    /**
+     * Runs a body in one database transaction, rolling back if it throws
+     */
+    public interface Transactor {
+        void runInTransaction(Runnable body);
+    }
+
+    /**
+     * Notified after a group was rolled back, to drop state cached during it
+     */
+    public interface RollbackListener {
+        void onRollback(int userId);
+    }
+
+    private static final ThreadLocal<Batch> CURRENT_BATCH = new ThreadLocal<>();
+
+    private static UserWriteQueue instance;
+
+    private final Transactor transactor;
+    private final RollbackListener rollbackListener;
+    private final Executor executor;
+    private final int maxBatch;
+    private final ConcurrentHashMap<Integer, Lane> lanes = new ConcurrentHashMap<>();
+
+    UserWriteQueue(Transactor transactor, RollbackListener rollbackListener, Executor executor, int maxBatch) {
+        this.transactor = transactor;
+        this.rollbackListener = rollbackListener;
+        this.executor = executor;
+        this.maxBatch = maxBatch;
+    }
+
+    public static synchronized UserWriteQueue getInstance(Context context) {
+        if (instance == null) {
+            AppDatabase appDatabase = AppDatabase.getInstance(context);
+            instance = new UserWriteQueue(
+                    appDatabase::runInTransaction,
+                    userId -> {
+                        RecentTransactionCache.getInstance().invalidate(userId);
+                        TransactionColumnStore.getInstance().invalidate(userId);
+                    },
+                    Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "user-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }),
+                    MAX_BATCH);
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a command for a user
+     * Called from inside another command, the new one is only queued if that command commits
+     * @return Future completed with the command's result after its group has committed
+     */
+    public <T> CompletableFuture<T> submit(int userId, Callable<T> command) {
+        Pending<T> pending = new Pending<>(command);
+        Batch batch = CURRENT_BATCH.get();
+        if (batch != null) {
+            batch.deferred.add(() -> enqueue(userId, pending));
+            batch.discarded.add(() -> pending.future.cancel(false));
+        } else {
+            enqueue(userId, pending);
+        }
+        return pending.future;
+    }
+
+    public CompletableFuture<Void> execute(int userId, Runnable command) {
+        return submit(userId, () -> {
+            command.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run an action once the current group has committed (immediately when not inside a command)
+     * e.g. afterCommit(activity::runOnUiThread, () -> ...)
+     */
+    public static void afterCommit(Executor target, Runnable action) {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch != null) {
+            batch.deferred.add(() -> target.execute(action));
+        } else {
+            target.execute(action);
+        }
+    }
+
+    /**
+     * Tell the queue the current command caught a database error, so the group must not commit
+     */
+    public static void markRollbackOnly() {
+        Batch batch = CURRENT_BATCH.get();
+        if (batch != null) {
+            batch.rollbackOnly = true;
+        }
+    }
+
+    private void enqueue(int userId, Pending<?> pending) {
+        Lane lane = lanes.computeIfAbsent(userId, id -> new Lane());
+        boolean schedule;
+        synchronized (lane) {
+            lane.queue.add(pending);
+            schedule = !lane.scheduled;
+            lane.scheduled = true;
+        }
+        if (schedule) {
+            executor.execute(() -> drain(userId, lane));
+        }
+    }
+
+    // Only one drain runs per lane at a time; it keeps going while commands arrive
+    private void drain(int userId, Lane lane) {
+        while (true) {
+            List<Pending<?>> commands = new ArrayList<>();
+            synchronized (lane) {
+                while (commands.size() < maxBatch && !lane.queue.isEmpty()) {
+                    commands.add(lane.queue.poll());
+                }
+                if (commands.isEmpty()) {
+                    lane.scheduled = false;
+                    return;
+                }
+            }
+            commit(userId, commands);
+        }
+    }
+
+    private void commit(int userId, List<Pending<?>> commands) {
+        Batch batch = new Batch();
+        CURRENT_BATCH.set(batch);
+        ChatTrace.mark(ChatTrace.Stage.WRITE_STARTED, commands.size(), "commands");
+        try {
+            transactor.runInTransaction(() -> {
+                for (Pending<?> pending : commands) {
+                    pending.call();
+                }
+                if (batch.rollbackOnly) {
+                    throw new IllegalStateException("Group marked rollback-only");
+                }
+            });
+        } catch (RuntimeException e) {
+            CURRENT_BATCH.remove();
+            ChatTrace.mark(ChatTrace.Stage.WRITE_FINISHED, "rollback");
+            for (Runnable discard : batch.discarded) {
+                discard.run();
+            }
+            rollbackListener.onRollback(userId);
+            for (Pending<?> pending : commands) {
+                runAlone(pending);
+            }
+            return;
+        } finally {
+            CURRENT_BATCH.remove();
+        }
+        ChatTrace.mark(ChatTrace.Stage.WRITE_FINISHED, "commit");
+
+        for (Runnable action : batch.deferred) {
+            action.run();
+        }
+        for (Pending<?> pending : commands) {
+            pending.complete();
+        }
+    }
+
+    // Same as before the queue existed: the command manages its own transactions
+    private static void runAlone(Pending<?> pending) {
+        try {
+            pending.call();
+            pending.complete();
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CommandFailedException ? e.getCause() : e;
+            pending.future.completeExceptionally(cause);
+        }
+    }
+
+    private static final class Lane {
+        final ArrayDeque<Pending<?>> queue = new ArrayDeque<>();
+        boolean scheduled; // A drain is queued or running
+    }
+
+    // State of the group commit running on the current writer thread
+    private static final class Batch {
+        final List<Runnable> deferred = new ArrayList<>(); // After-commit actions and nested submits
+        final List<Runnable> discarded = new ArrayList<>(); // Clean-up if the group rolls back
+        boolean rollbackOnly;
+    }
+
+    private static final class Pending<T> {
+        final Callable<T> command;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        T result;
+
+        Pending(Callable<T> command) {
+            this.command = command;
+        }
+
+        void call() {
+            try {
+                result = command.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CommandFailedException(e);
+            }
+        }
+
+        void complete() {
+            future.complete(result);
+        }
+    }
+
+    private static final class CommandFailedException extends RuntimeException {
+        CommandFailedException(Exception cause) {
+            super(cause);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * A chat request that needed the network while offline
+ * Rows are replayed when connectivity returns; the answer is kept on the row until the chat
+ * has shown it
+ */
+@Entity(tableName = "ai_outbox",
+        indices = {@Index(value = {"userId", "dedupeKey"}, unique = true),
+                @Index({"userId", "status"})})
+public class AiOutboxEntity {
+    public static final String KIND_EXPENSE = "expense";
+    public static final String KIND_ANALYSIS = "analysis";
+    public static final String KIND_BUDGET = "budget";
+
+    public static final int STATUS_PENDING = 0;
+    public static final int STATUS_ANSWERED = 1; // result waits for the chat, then the row is deleted
+
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+
+    public int userId;
+    public String kind;
+    public String text;
+    public String dedupeKey; // kind plus normalized text, and the row id for expenses; see OfflineOutboxReplayer.dedupeKey
+    public Date createdAt; // Relative dates in the text ("hôm qua") are read against this
+    public int attempts;
+    public int status;
+    public String result; // Reply to show in the chat, markdown
+
+    public AiOutboxEntity(int userId, String kind, String text, String dedupeKey, Date createdAt) {
+        this.userId = userId;
+        this.kind = kind;
+        this.text = text;
+        this.dedupeKey = dedupeKey;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * A budget threshold that has been crossed in a month
+ * The row exists while spending stays at or above the threshold; dropping below deletes it,
+ * so the next crossing raises a new alert
+ */
+@Entity(tableName = "budget_alerts",
+        indices = {@Index(value = {"userId", "yearMonth", "categoryId", "threshold"}, unique = true),
+                @Index({"userId", "notified"})})
+public class BudgetAlertEntity {
+    public static final int MONTHLY_SCOPE = 0; // categoryId used for the monthly budget
+
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+
+    public int userId;
+    public int yearMonth;
+    public int categoryId; // MONTHLY_SCOPE for the monthly budget
+    public int threshold; // Percent of the budget, e.g. 80 or 100
+    public long spent; // Spending when the threshold was crossed
+    public long budgetAmount;
+    public Date crossedAt;
+    public boolean notified; // Warning already shown to the user
+
+    public BudgetAlertEntity(int userId, int yearMonth, int categoryId, int threshold, long spent, long budgetAmount, Date crossedAt) {
+        this.userId = userId;
+        this.yearMonth = yearMonth;
+        this.categoryId = categoryId;
+        this.threshold = threshold;
+        this.spent = spent;
+        this.budgetAmount = budgetAmount;
+        this.crossedAt = crossedAt;
+    }
+
+    public boolean isMonthly() {
+        return categoryId == MONTHLY_SCOPE;
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.spending_management_app.data.local.entity;
 
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.spending_management_app.utils.DateBuckets;
+
 import java.util.Date;
 
-@Entity(tableName = "budgets")
+@Entity(tableName = "budgets",
+        indices = {@Index(value = {"userId", "yearMonth"}, unique = true)})
 public class BudgetEntity {
     @PrimaryKey(autoGenerate = true)
     public int id;
@@ -15,12 +19,14 @@ public class BudgetEntity {
     public long monthlyLimit;
     public long currentSpent;
     public Date date;
+    public int yearMonth; // yyyyMM của date, mỗi user chỉ có một ngân sách mỗi tháng
 
     public BudgetEntity(String category, long monthlyLimit, long currentSpent, Date date) {
         this.category = category;
         this.monthlyLimit = monthlyLimit;
         this.currentSpent = currentSpent;
         this.date = date;
+        this.yearMonth = date != null ? DateBuckets.yearMonth(date) : 0;
         this.userId = 1; // Default user ID
     }
 
@@ -31,6 +37,7 @@ public class BudgetEntity {
     public long getMonthlyLimit() { return monthlyLimit; }
     public long getCurrentSpent() { return currentSpent; }
     public Date getDate() { return date; }
+    public int getYearMonth() { return yearMonth; }
 
     // Setters
     public void setId(int id) { this.id = id; }
@@ -38,5 +45,8 @@ public class BudgetEntity {
     public void setCategory(String category) { this.category = category; }
     public void setMonthlyLimit(long monthlyLimit) { this.monthlyLimit = monthlyLimit; }
     public void setCurrentSpent(long currentSpent) { this.currentSpent = currentSpent; }
-    public void setDate(Date date) { this.date = date; }
+    public void setDate(Date date) {
+        this.date = date;
+        this.yearMonth = date != null ? DateBuckets.yearMonth(date) : 0;
+    }
 }
\ No newline at end of file
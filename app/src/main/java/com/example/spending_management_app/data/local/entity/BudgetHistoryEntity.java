@@ -1,14 +1,20 @@
 package com.example.spending_management_app.data.local.entity;
 
 import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import androidx.room.TypeConverters;
 
 import com.example.spending_management_app.data.local.converter.DateConverter;
+import com.example.spending_management_app.utils.CategoryRegistry;
 
 import java.util.Date;
 
-@Entity(tableName = "budget_history")
+@Entity(tableName = "budget_history",
+        foreignKeys = @ForeignKey(entity = CategoryEntity.class, parentColumns = "id", childColumns = "categoryId"),
+        indices = {@Index("categoryId")})
 @TypeConverters({DateConverter.class})
 public class BudgetHistoryEntity {
     @PrimaryKey(autoGenerate = true)
@@ -17,20 +23,31 @@ public class BudgetHistoryEntity {
     public int userId; // ID của user sở hữu budget history này
     public String action; // "create", "update", "delete"
     public String budgetType; // "monthly" or "category"
-    public String category; // For category budget, null for monthly budget
+    public Integer categoryId; // FK to categories, null for monthly budget
+
+    @Ignore
+    public String category; // Derived from categoryId, null for monthly budget
     public long amount; // Budget amount
     public Date date; // When the action was performed
     public String description; // Auto-generated description
     
+    @Ignore
     public BudgetHistoryEntity(String action, String budgetType, String category, long amount, Date date, String description) {
         this.action = action;
         this.budgetType = budgetType;
         this.category = category;
+        this.categoryId = category != null ? CategoryRegistry.storageIdOf(category) : null;
         this.amount = amount;
         this.date = date;
         this.description = description;
         this.userId = 1; // Default user ID
     }
+
+    // Used by Room when reading rows
+    public BudgetHistoryEntity(Integer categoryId, String action, String budgetType, long amount, Date date, String description) {
+        this(action, budgetType, categoryId != null ? CategoryRegistry.keyOf(categoryId) : null, amount, date, description);
+        this.categoryId = categoryId;
+    }
     
     // Getters
     public int getId() { return id; }
@@ -39,6 +56,7 @@ public class BudgetHistoryEntity {
     public String getAction() { return action; }
     public String getBudgetType() { return budgetType; }
     public String getCategory() { return category; }
+    public Integer getCategoryId() { return categoryId; }
     public long getAmount() { return amount; }
     public Date getDate() { return date; }
     public String getDescription() { return description; }
@@ -1,26 +1,47 @@
 package com.example.spending_management_app.data.local.entity;
 
 import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
+
 import java.util.Date;
 
-@Entity(tableName = "category_budgets")
+@Entity(tableName = "category_budgets",
+        foreignKeys = @ForeignKey(entity = CategoryEntity.class, parentColumns = "id", childColumns = "categoryId"),
+        indices = {@Index("categoryId"), @Index(value = {"userId", "yearMonth", "categoryId"}, unique = true)})
 public class CategoryBudgetEntity {
     @PrimaryKey(autoGenerate = true)
     public long id;
     
     public int userId; // ID của user sở hữu category budget này
-    public String category;
+    public int categoryId; // FK tới bảng categories
+
+    @Ignore
+    public String category; // Suy ra từ categoryId
     public long budgetAmount;
     public Date date;
+    public int yearMonth; // yyyyMM của date, mỗi danh mục chỉ có một ngân sách mỗi tháng
     
+    @Ignore
     public CategoryBudgetEntity(String category, long budgetAmount, Date date) {
         this.category = category;
+        this.categoryId = CategoryRegistry.storageIdOf(category);
         this.budgetAmount = budgetAmount;
         this.date = date;
+        this.yearMonth = date != null ? DateBuckets.yearMonth(date) : 0;
         this.userId = 1; // Default user ID
     }
+
+    // Used by Room when reading rows
+    public CategoryBudgetEntity(int categoryId, long budgetAmount, Date date) {
+        this(CategoryRegistry.keyOf(categoryId), budgetAmount, date);
+        this.categoryId = categoryId;
+    }
     
     public long getId() {
         return id;
@@ -37,6 +58,10 @@ public class CategoryBudgetEntity {
     public String getCategory() {
         return category;
     }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
     
     public long getBudgetAmount() {
         return budgetAmount;
@@ -45,4 +70,8 @@ public class CategoryBudgetEntity {
     public Date getDate() {
         return date;
     }
+
+    public int getYearMonth() {
+        return yearMonth;
+    }
 }
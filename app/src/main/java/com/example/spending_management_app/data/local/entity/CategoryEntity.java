@@ -0,0 +1,24 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * Normalized category row, referenced by categoryId from transactions and budgets
+ * Ids below CategoryRegistry.CUSTOM_ID_BASE are the built-in categories of CategoryRegistry
+ */
+@Entity(tableName = "categories", indices = {@Index(value = {"name"}, unique = true)})
+public class CategoryEntity {
+    @PrimaryKey
+    public int id;
+
+    @NonNull
+    public String name;
+
+    public CategoryEntity(int id, @NonNull String name) {
+        this.id = id;
+        this.name = name;
+    }
+}
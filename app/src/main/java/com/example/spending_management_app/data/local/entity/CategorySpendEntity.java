@@ -0,0 +1,26 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Running expense total of one category in one month, maintained when transactions are written
+ */
+@Entity(tableName = "category_spend",
+        primaryKeys = {"userId", "yearMonth", "categoryId"},
+        foreignKeys = @ForeignKey(entity = CategoryEntity.class, parentColumns = "id", childColumns = "categoryId"),
+        indices = {@Index("categoryId")})
+public class CategorySpendEntity {
+    public int userId;
+    public int yearMonth; // yyyyMM, same bucket as TransactionEntity.yearMonth
+    public int categoryId;
+    public long spent; // Sum of ABS(amount) of the month's expenses
+
+    public CategorySpendEntity(int userId, int yearMonth, int categoryId, long spent) {
+        this.userId = userId;
+        this.yearMonth = yearMonth;
+        this.categoryId = categoryId;
+        this.spent = spent;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Ignore;
+
+import com.example.spending_management_app.utils.CategoryRegistry;
+
+/**
+ * Spending and budget of one category in a month, joined on categoryId
+ */
+public class CategorySpending {
+    public int categoryId;
+    public long spending;
+    public long budget;
+
+    @Ignore
+    public String category;
+
+    public CategorySpending(int categoryId, long spending, long budget) {
+        this.categoryId = categoryId;
+        this.spending = spending;
+        this.budget = budget;
+        this.category = CategoryRegistry.keyOf(categoryId);
+    }
+}
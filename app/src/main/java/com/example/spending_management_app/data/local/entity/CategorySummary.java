@@ -1,11 +1,26 @@
 package com.example.spending_management_app.data.local.entity;
 
+import androidx.room.Ignore;
+
+import com.example.spending_management_app.utils.CategoryRegistry;
+
 public class CategorySummary {
-    public String category;
+    public int categoryId;
     public long total;
 
+    @Ignore
+    public String category;
+
+    public CategorySummary(int categoryId, long total) {
+        this.categoryId = categoryId;
+        this.total = total;
+        this.category = CategoryRegistry.keyOf(categoryId);
+    }
+
+    @Ignore
     public CategorySummary(String category, long total) {
+        this.categoryId = CategoryRegistry.idOf(category);
         this.category = category;
         this.total = total;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,30 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * One continuing chat thread per user and chat mode (expense, budget management, ...)
+ */
+@Entity(tableName = "chat_conversations",
+        indices = {@Index(value = {"userId", "mode"}, unique = true)})
+public class ChatConversationEntity {
+    @PrimaryKey(autoGenerate = true)
+    public int id;
+
+    public int userId;
+    public String mode;
+    public Date createdAt;
+    public Date updatedAt; // Time of the last message
+    public int tokenCount; // Sum of the messages' estimated tokens
+
+    public ChatConversationEntity(int userId, String mode, Date createdAt) {
+        this.userId = userId;
+        this.mode = mode;
+        this.createdAt = createdAt;
+        this.updatedAt = createdAt;
+    }
+}
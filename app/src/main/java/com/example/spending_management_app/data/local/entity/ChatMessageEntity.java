@@ -0,0 +1,45 @@
+package com.example.spending_management_app.data.local.entity;
+
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * A stored chat message; ids grow with time, so pages are read by id (keyset paging)
+ */
+@Entity(tableName = "chat_messages",
+        foreignKeys = @ForeignKey(entity = ChatConversationEntity.class,
+                parentColumns = "id", childColumns = "conversationId", onDelete = ForeignKey.CASCADE),
+        indices = {@Index("conversationId")})
+public class ChatMessageEntity {
+    public static final String ROLE_USER = "user";
+    public static final String ROLE_MODEL = "model";
+    public static final String ROLE_NOTICE = "notice"; // Status and error lines, never sent to Gemini
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+
+    public int conversationId;
+    public String role;
+    public String text;
+    public Date createdAt;
+    public int tokenCount; // Estimated, see estimateTokens
+
+    public ChatMessageEntity(int conversationId, String role, String text, Date createdAt, int tokenCount) {
+        this.conversationId = conversationId;
+        this.role = role;
+        this.text = text;
+        this.createdAt = createdAt;
+        this.tokenCount = tokenCount;
+    }
+
+    /**
+     * Rough Gemini token count: about four characters per token, at least one for any text
+     */
+    public static int estimateTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : (text.length() + 3) / 4;
+    }
+}
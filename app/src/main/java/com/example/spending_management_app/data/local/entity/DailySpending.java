@@ -0,0 +1,13 @@
+package com.example.spending_management_app.data.local.entity;
+
+/**
+ * POJO class for spending per local day (one row per day with expenses)
+ */
+public class DailySpending {
+    public int epochDay; // LocalDate.toEpochDay in the device time zone
+    public long total;   // Total spending amount
+    public int count;    // Number of expense transactions
+
+    public DailySpending() {
+    }
+}
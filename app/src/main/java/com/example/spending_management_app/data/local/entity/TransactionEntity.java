@@ -1,31 +1,56 @@
 package com.example.spending_management_app.data.local.entity;
 
 import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
+
 import java.util.Date;
 
-@Entity(tableName = "transactions")
+@Entity(tableName = "transactions",
+        foreignKeys = @ForeignKey(entity = CategoryEntity.class, parentColumns = "id", childColumns = "categoryId"),
+        indices = {@Index("categoryId"), @Index({"userId", "epochDay"}), @Index({"userId", "yearMonth"})})
 public class TransactionEntity {
     @PrimaryKey(autoGenerate = true)
     public int id;
 
     public int userId; // ID của user sở hữu transaction này
     public String description;
-    public String category;
+    public int categoryId; // FK tới bảng categories
+
+    @Ignore
+    public String category; // Tên danh mục, không lưu trong DB mà suy ra từ categoryId
     public long amount;
     public Date date;
+    public int epochDay; // Ngày theo giờ địa phương (LocalDate.toEpochDay), tính khi ghi
+    public int yearMonth; // yyyyMM theo giờ địa phương, tính khi ghi
     public String type; // "expense" or "income"
 
+    @Ignore
     public TransactionEntity(String description, String category, long amount, Date date, String type) {
         this.description = description;
         this.category = category;
+        this.categoryId = CategoryRegistry.storageIdOf(category);
         this.amount = amount;
         this.date = date;
+        if (date != null) {
+            this.epochDay = DateBuckets.epochDay(date);
+            this.yearMonth = DateBuckets.yearMonth(date);
+        }
         this.type = type;
         this.userId = 1; // Default user ID
     }
 
+    // Used by Room when reading rows
+    public TransactionEntity(String description, int categoryId, long amount, Date date, String type) {
+        this(description, CategoryRegistry.keyOf(categoryId), amount, date, type);
+        this.categoryId = categoryId;
+    }
+
     public int getUserId() {
         return userId;
     }
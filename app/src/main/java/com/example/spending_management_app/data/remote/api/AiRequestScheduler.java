@@ -0,0 +1,537 @@
+package com.example.spending_management_app.data.remote.api;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduler every Gemini request goes through
+ * - Single-flight per conversation: one request of a chat is on the wire at a time, later ones
+ *   queue behind it in order, and a request with the same key as one still pending (double tap,
+ *   voice re-trigger) is dropped
+ * - Cancellation per ticket or per conversation (when its chat sheet closes); cancelled requests
+ *   are aborted and don't call back
+ * - Lanes: interactive chat always starts before background work, and background work never
+ *   takes the last free slot or the last token
+ * - Token bucket for the request rate, with jittered exponential backoff (at least Retry-After)
+ *   when the API answers 429 or 503; a 429 also empties the bucket for everyone
+ *
+ * A conversation is any object identifying one chat, compared by identity (the chat's message list)
+ */
+public final class AiRequestScheduler {
+
+    public enum Lane { INTERACTIVE, BACKGROUND }
+
+    /**
+     * Starts one HTTP POST; must not call back on the calling thread
+     */
+    public interface Transport {
+        Exchange send(String url, String body, ExchangeCallback callback);
+    }
+
+    /**
+     * Handle to abort a request on the wire
+     */
+    public interface Exchange {
+        void cancel();
+    }
+
+    public interface ExchangeCallback {
+        /**
+         * HTTP response; body is only readable during the call
+         */
+        void onResponse(int code, long retryAfterMillis, Reader body);
+
+        void onFailure(IOException e);
+    }
+
+    /**
+     * Result of a request, called on the transport's thread
+     */
+    public interface ResponseHandler {
+        /**
+         * 2xx response; body is only readable during the call
+         */
+        void onResponse(Ticket ticket, Reader body) throws IOException;
+
+        /**
+         * Network error (code 0), a non-retryable status, retries used up, or onResponse threw
+         */
+        void onFailure(int code, IOException error);
+    }
+
+    static final int MAX_CONCURRENT = 2;
+    static final int BURST = 6; // Requests that may go out back to back
+    static final long REFILL_INTERVAL_MILLIS = 2_000; // One token every 2 s, 30 requests per minute
+    static final long BASE_BACKOFF_MILLIS = 1_000;
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+    static final int MAX_ATTEMPTS = 4;
+
+    private static AiRequestScheduler instance;
+
+    private final Transport transport;
+    private final ScheduledExecutorService timer;
+    private final int maxConcurrent;
+    private final int burst;
+    private final long refillIntervalMillis;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+    private final Random random = new Random();
+
+    private final ArrayDeque<Ticket> interactive = new ArrayDeque<>();
+    private final ArrayDeque<Ticket> background = new ArrayDeque<>();
+    // Queued, on the wire or being handled, per conversation
+    private final Map<Object, List<Ticket>> pending = new IdentityHashMap<>();
+    // Conversations with a ticket on the wire or being handled
+    private final Set<Object> busy = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int inFlight;
+    private int backgroundInFlight;
+    private double tokens;
+    private long refilledAt;
+    private long wakeAt = Long.MAX_VALUE;
+
+    AiRequestScheduler(Transport transport, ScheduledExecutorService timer, int maxConcurrent, int burst,
+                       long refillIntervalMillis, long baseBackoffMillis, long maxBackoffMillis, int maxAttempts) {
+        this.transport = transport;
+        this.timer = timer;
+        this.maxConcurrent = maxConcurrent;
+        this.burst = burst;
+        this.refillIntervalMillis = refillIntervalMillis;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.maxAttempts = maxAttempts;
+        this.tokens = burst;
+        this.refilledAt = now();
+    }
+
+    public static synchronized AiRequestScheduler getInstance() {
+        if (instance == null) {
+            instance = new AiRequestScheduler(
+                    OkHttpTransport.create(),
+                    Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "ai-scheduler");
+                        thread.setDaemon(true);
+                        return thread;
+                    }),
+                    MAX_CONCURRENT, BURST, REFILL_INTERVAL_MILLIS,
+                    BASE_BACKOFF_MILLIS, MAX_BACKOFF_MILLIS, MAX_ATTEMPTS);
+        }
+        return instance;
+    }
+
+    /**
+     * Replace the shared scheduler, e.g. with one on a stand-in server's transport
+     */
+    static synchronized void setInstance(AiRequestScheduler scheduler) {
+        instance = scheduler;
+    }
+
+    /**
+     * Queue a POST
+     *
+     * @param conversation Chat the request belongs to, or null for work outside any chat
+     * @param dedupeKey Requests of one conversation with the same key are coalesced; null to never coalesce
+     * @return The ticket, or null if an identical request of the conversation is still pending
+     */
+    public Ticket submit(Object conversation, String dedupeKey, Lane lane, String url, String body,
+                         ResponseHandler handler) {
+        Ticket ticket;
+        List<Ticket> toStart;
+        synchronized (this) {
+            if (conversation != null && dedupeKey != null) {
+                List<Ticket> tickets = pending.get(conversation);
+                if (tickets != null) {
+                    for (Ticket other : tickets) {
+                        if (dedupeKey.equals(other.dedupeKey)) {
+                            return null;
+                        }
+                    }
+                }
+            }
+            ticket = new Ticket(conversation, dedupeKey, lane, url, body, handler);
+            enqueue(ticket, false);
+            toStart = takeStartable();
+        }
+        start(toStart);
+        return ticket;
+    }
+
+    /**
+     * Queue the next request of a multi-round exchange (e.g. function call results) from inside
+     * the previous ticket's onResponse; it keeps the previous ticket's conversation, lane and
+     * dedupe key and goes first in its lane
+     *
+     * @return The ticket, or null if the previous ticket was cancelled meanwhile
+     */
+    public Ticket submitFollowUp(Ticket previous, String body, ResponseHandler handler) {
+        Ticket ticket;
+        synchronized (this) {
+            if (previous.cancelled) {
+                return null;
+            }
+            ticket = new Ticket(previous.conversation, previous.dedupeKey, previous.lane, previous.url, body, handler);
+            enqueue(ticket, true);
+        }
+        // Starts once the previous ticket's handler returns and frees the conversation
+        return ticket;
+    }
+
+    /**
+     * Cancel every pending request of a conversation, e.g. when its chat closes
+     */
+    public void cancelConversation(Object conversation) {
+        List<Ticket> tickets;
+        synchronized (this) {
+            List<Ticket> current = pending.get(conversation);
+            if (current == null) {
+                return;
+            }
+            tickets = new ArrayList<>(current);
+        }
+        cancel(tickets);
+    }
+
+    /**
+     * Seconds form of a Retry-After header in milliseconds; 0 if absent or an HTTP date
+     */
+    public static long parseRetryAfter(String header) {
+        if (header == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(header.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void enqueue(Ticket ticket, boolean first) {
+        ArrayDeque<Ticket> queue = ticket.lane == Lane.INTERACTIVE ? interactive : background;
+        if (first) {
+            queue.addFirst(ticket);
+        } else {
+            queue.addLast(ticket);
+        }
+        if (ticket.conversation != null && !pending.containsKey(ticket.conversation)) {
+            pending.put(ticket.conversation, new ArrayList<>());
+        }
+        if (ticket.conversation != null) {
+            pending.get(ticket.conversation).add(ticket);
+        }
+    }
+
+    // Removes and returns what may start now; arms the timer for what waits on time or tokens
+    private List<Ticket> takeStartable() {
+        List<Ticket> startable = new ArrayList<>();
+        long now = now();
+        refill(now);
+        long nextWake = Long.MAX_VALUE;
+        dropCancelled(interactive);
+        dropCancelled(background);
+        while (inFlight < maxConcurrent) {
+            Ticket next = null;
+            ArrayDeque<Ticket> from = null;
+            long waitUntil = Long.MAX_VALUE;
+
+            for (Ticket ticket : interactive) {
+                if (ticket.conversation != null && busy.contains(ticket.conversation)) {
+                    continue;
+                }
+                if (ticket.notBefore > now) {
+                    waitUntil = Math.min(waitUntil, ticket.notBefore);
+                    continue;
+                }
+                next = ticket;
+                from = interactive;
+                break;
+            }
+            // Background only with a slot and a token to spare, and never ahead of interactive work
+            boolean interactiveWaiting = next != null || waitUntil != Long.MAX_VALUE;
+            if (next == null && !interactiveWaiting && backgroundInFlight == 0
+                    && inFlight < Math.max(1, maxConcurrent - 1)) {
+                for (Ticket ticket : background) {
+                    if (ticket.conversation != null && busy.contains(ticket.conversation)) {
+                        continue;
+                    }
+                    if (ticket.notBefore > now) {
+                        waitUntil = Math.min(waitUntil, ticket.notBefore);
+                        continue;
+                    }
+                    next = ticket;
+                    from = background;
+                    break;
+                }
+            }
+
+            if (next == null) {
+                nextWake = Math.min(nextWake, waitUntil);
+                break;
+            }
+            double needed = next.lane == Lane.BACKGROUND && burst > 1 ? 2 : 1;
+            if (tokens < needed) {
+                nextWake = Math.min(nextWake, now + (long) Math.ceil((needed - tokens) * refillIntervalMillis));
+                break;
+            }
+
+            tokens -= 1;
+            from.remove(next);
+            next.onWire = true;
+            inFlight++;
+            if (next.lane == Lane.BACKGROUND) {
+                backgroundInFlight++;
+            }
+            if (next.conversation != null) {
+                busy.add(next.conversation);
+            }
+            next.attempts++;
+            startable.add(next);
+        }
+        if (nextWake != Long.MAX_VALUE && nextWake < wakeAt) {
+            wakeAt = nextWake;
+            timer.schedule(this::wake, Math.max(0, nextWake - now), TimeUnit.MILLISECONDS);
+        }
+        return startable;
+    }
+
+    // Cancelled tickets never start, whatever queued them
+    private void dropCancelled(ArrayDeque<Ticket> queue) {
+        Iterator<Ticket> tickets = queue.iterator();
+        while (tickets.hasNext()) {
+            Ticket ticket = tickets.next();
+            if (ticket.cancelled) {
+                tickets.remove();
+                complete(ticket);
+            }
+        }
+    }
+
+    private void wake() {
+        synchronized (this) {
+            wakeAt = Long.MAX_VALUE;
+        }
+        drain();
+    }
+
+    private void drain() {
+        List<Ticket> toStart;
+        synchronized (this) {
+            toStart = takeStartable();
+        }
+        start(toStart);
+    }
+
+    private void start(List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            Exchange exchange;
+            try {
+                exchange = transport.send(ticket.url, ticket.body, new TicketCallback(ticket));
+            } catch (RuntimeException e) {
+                // Fail on the timer thread like any transport failure, never inside submit(): callers
+                // add their placeholder message after submit() returns
+                timer.execute(() -> new TicketCallback(ticket).onFailure(new IOException(e)));
+                continue;
+            }
+            boolean abort;
+            synchronized (this) {
+                abort = ticket.cancelled;
+                ticket.exchange = exchange;
+            }
+            if (abort) {
+                exchange.cancel();
+            }
+        }
+    }
+
+    private void refill(long now) {
+        if (tokens < burst) {
+            tokens = Math.min(burst, tokens + (double) (now - refilledAt) / refillIntervalMillis);
+        }
+        refilledAt = now;
+    }
+
+    // Frees the ticket's slot; false if it was cancelled and must not call back
+    private synchronized boolean leaveWire(Ticket ticket) {
+        if (ticket.cancelled || !ticket.onWire) {
+            return false;
+        }
+        ticket.onWire = false;
+        inFlight--;
+        if (ticket.lane == Lane.BACKGROUND) {
+            backgroundInFlight--;
+        }
+        return true;
+    }
+
+    // Ticket handled: frees its conversation and drops it from pending
+    private synchronized void complete(Ticket ticket) {
+        ticket.done = true;
+        if (ticket.conversation != null) {
+            busy.remove(ticket.conversation);
+            List<Ticket> tickets = pending.get(ticket.conversation);
+            if (tickets != null) {
+                tickets.remove(ticket);
+                if (tickets.isEmpty()) {
+                    pending.remove(ticket.conversation);
+                }
+            }
+        }
+    }
+
+    private void retry(Ticket ticket, int code, long retryAfterMillis) {
+        synchronized (this) {
+            if (ticket.cancelled) {
+                // Cancelled between leaving the wire and here: nothing calls back, so free the conversation
+                complete(ticket);
+            } else {
+                long backoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(20, ticket.attempts - 1));
+                // Equal jitter: half fixed, half random, so retries of different requests spread out
+                long delay = backoff / 2 + (long) (random.nextDouble() * (backoff / 2 + 1));
+                ticket.notBefore = now() + Math.max(retryAfterMillis, delay);
+                if (code == 429) {
+                    tokens = 0;
+                }
+                if (ticket.conversation != null) {
+                    busy.remove(ticket.conversation);
+                }
+                (ticket.lane == Lane.INTERACTIVE ? interactive : background).addFirst(ticket);
+            }
+        }
+        drain();
+    }
+
+    // Marks all tickets cancelled before anything is drained, so a conversation's queued
+    // ticket can't start in the slot its cancelled predecessor frees
+    private void cancel(List<Ticket> tickets) {
+        List<Exchange> exchanges = new ArrayList<>();
+        List<Ticket> finished = new ArrayList<>();
+        synchronized (this) {
+            for (Ticket ticket : tickets) {
+                if (ticket.cancelled || ticket.done) {
+                    continue;
+                }
+                ticket.cancelled = true;
+                if (ticket.onWire) {
+                    ticket.onWire = false;
+                    inFlight--;
+                    if (ticket.lane == Lane.BACKGROUND) {
+                        backgroundInFlight--;
+                    }
+                    if (ticket.exchange != null) {
+                        exchanges.add(ticket.exchange);
+                    }
+                    finished.add(ticket);
+                } else if (interactive.remove(ticket) || background.remove(ticket)) {
+                    finished.add(ticket);
+                }
+                // Otherwise its response is being handled: the handler completes it, follow-ups are refused
+            }
+            for (Ticket ticket : finished) {
+                complete(ticket);
+            }
+        }
+        for (Exchange exchange : exchanges) {
+            exchange.cancel();
+        }
+        drain();
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    /**
+     * One queued request; cancel it to abort it and drop its callbacks
+     */
+    public final class Ticket {
+        final Object conversation;
+        final String dedupeKey;
+        final Lane lane;
+        final String url;
+        final String body;
+        final ResponseHandler handler;
+        int attempts;
+        long notBefore;
+        boolean onWire;
+        boolean cancelled;
+        boolean done;
+        Exchange exchange;
+
+        Ticket(Object conversation, String dedupeKey, Lane lane, String url, String body, ResponseHandler handler) {
+            this.conversation = conversation;
+            this.dedupeKey = dedupeKey;
+            this.lane = lane;
+            this.url = url;
+            this.body = body;
+            this.handler = handler;
+        }
+
+        public void cancel() {
+            AiRequestScheduler.this.cancel(Collections.singletonList(this));
+        }
+
+        public boolean isCancelled() {
+            synchronized (AiRequestScheduler.this) {
+                return cancelled;
+            }
+        }
+    }
+
+    private final class TicketCallback implements ExchangeCallback {
+        private final Ticket ticket;
+
+        TicketCallback(Ticket ticket) {
+            this.ticket = ticket;
+        }
+
+        @Override
+        public void onResponse(int code, long retryAfterMillis, Reader body) {
+            if (!leaveWire(ticket)) {
+                return;
+            }
+            if ((code == 429 || code == 503) && ticket.attempts < maxAttempts) {
+                retry(ticket, code, retryAfterMillis);
+                return;
+            }
+            // The conversation stays busy until the handler returns, so a follow-up it submits goes next
+            try {
+                if (code >= 200 && code < 300) {
+                    try {
+                        ticket.handler.onResponse(ticket, body);
+                    } catch (IOException e) {
+                        ticket.handler.onFailure(code, e);
+                    }
+                } else {
+                    ticket.handler.onFailure(code, null);
+                }
+            } finally {
+                complete(ticket);
+                drain();
+            }
+        }
+
+        @Override
+        public void onFailure(IOException e) {
+            if (!leaveWire(ticket)) {
+                return;
+            }
+            try {
+                ticket.handler.onFailure(0, e);
+            } finally {
+                complete(ticket);
+                drain();
+            }
+        }
+    }
+}
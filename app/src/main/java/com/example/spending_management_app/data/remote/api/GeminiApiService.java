@@ -6,48 +6,47 @@ import android.os.Looper;
 
 import com.example.spending_management_app.BuildConfig;
 import com.example.spending_management_app.R;
-import com.example.spending_management_app.domain.usecase.ai.AiSystemInstructions;
-import com.example.spending_management_app.utils.LocaleHelper;
+import com.example.spending_management_app.utils.ChatTrace;
 import com.example.spending_management_app.utils.TextFormatHelper;
-import com.example.spending_management_app.utils.SettingsHelper;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
+import java.io.Reader;
+import java.util.function.Supplier;
 
 /**
  * Service class for Gemini AI API interactions
- * Handles budget analysis requests with proper callback pattern
+ * Handles one-shot prompts and function-calling conversations with a callback pattern;
+ * every request goes through AiRequestScheduler
  */
 public final class GeminiApiService {
-    
+
+    public static final String GENERATE_CONTENT_URL =
+            "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=" + BuildConfig.GEMINI_API_KEY;
+    public static final String CACHED_CONTENTS_URL =
+            "https://generativelanguage.googleapis.com/v1beta/cachedContents?key=" + BuildConfig.GEMINI_API_KEY;
+
     // Private constructor to prevent instantiation
     private GeminiApiService() {
         throw new UnsupportedOperationException("Utility class");
     }
-    
+
     /**
      * Callback interface for AI response
      */
     public interface AIResponseCallback {
-        void onSuccess(String formattedResponse);
+        void onSuccess(CharSequence formattedResponse);
         void onFailure(String errorMessage);
     }
 
     /**
      * Send a simple one-shot prompt to Gemini and get textual response.
+     * Runs in the background lane, behind any interactive chat request
      */
     public static void sendSimplePrompt(Context context, String prompt, AIResponseCallback callback) {
-        OkHttpClient client = new OkHttpClient();
         Handler mainHandler = new Handler(Looper.getMainLooper());
 
         try {
@@ -65,176 +64,259 @@ public final class GeminiApiService {
             contents.put(userContent);
             json.put("contents", contents);
 
-            RequestBody body = RequestBody.create(json.toString(), MediaType.parse("application/json"));
-            Request request = new Request.Builder()
-                    .url("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=" + BuildConfig.GEMINI_API_KEY)
-                    .post(body)
-                    .build();
-
-            client.newCall(request).enqueue(new Callback() {
+            AiRequestScheduler.getInstance().submit(null, null, AiRequestScheduler.Lane.BACKGROUND,
+                    GENERATE_CONTENT_URL, json.toString(), new AiRequestScheduler.ResponseHandler() {
                 @Override
-                public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_connection_error)));
+                public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) {
+                    try {
+                        JSONObject content = firstCandidateContent(body);
+                        String aiText = content.getJSONArray("parts").getJSONObject(0).getString("text").trim();
+
+                        CharSequence formattedText = TextFormatHelper.renderMarkdown(aiText);
+
+                        mainHandler.post(() -> callback.onSuccess(formattedText));
+                    } catch (Exception e) {
+                        mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_processing_error)));
+                    }
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        try {
-                            String responseBody = response.body().string();
-                            JSONObject jsonResponse = new JSONObject(responseBody);
-                            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-                            JSONObject candidate = candidates.getJSONObject(0);
-                            JSONObject content = candidate.getJSONObject("content");
-                            JSONArray parts = content.getJSONArray("parts");
-                            String aiText = parts.getJSONObject(0).getString("text").trim();
-
-                            String formattedText = TextFormatHelper.formatMarkdownText(aiText);
-
-                            mainHandler.post(() -> callback.onSuccess(formattedText));
-                        } catch (Exception e) {
-                            mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_processing_error)));
-                        }
-                    } else {
-                        mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_send_error) + " " + response.code()));
-                    }
+                public void onFailure(int code, IOException e) {
+                    mainHandler.post(() -> callback.onFailure(errorMessage(context, code)));
                 }
             });
         } catch (Exception e) {
             mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_send_error)));
         }
     }
-    
+
     /**
-     * Send prompt to AI with budget context
-     * 
-     * @param context Application context for getting app language
-     * @param userQuery The user's query
-     * @param budgetContext The budget context data
-     * @param messages The list of chat messages for conversation history
-     * @param analyzingIndex The index of the analyzing message
-     * @param callback Callback for handling response
+     * Runs the model's function calls on the device and returns a JSON result for each
+     * Called on the HTTP callback thread, so it may query the database directly
      */
-    public static void sendPromptWithBudgetContext(
-            Context context,
-            String userQuery, 
-            String budgetContext,
-            java.util.List<com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage> messages,
-            int analyzingIndex,
-            AIResponseCallback callback) {
-        
-        OkHttpClient client = new OkHttpClient();
-        Handler mainHandler = new Handler(Looper.getMainLooper());
-        
-        try {
-            JSONObject json = new JSONObject();
+    public interface ToolExecutor {
+        JSONObject execute(String name, JSONObject args) throws Exception;
+    }
 
-            // Get current date for AI context
-            java.util.Calendar currentCalendar = java.util.Calendar.getInstance();
-            int currentDay = currentCalendar.get(java.util.Calendar.DAY_OF_MONTH);
-            int currentMonth = currentCalendar.get(java.util.Calendar.MONTH) + 1;
-            int currentYear = currentCalendar.get(java.util.Calendar.YEAR);
-            String currentDateInfo = String.format("Hôm nay là ngày %d/%d/%d", currentDay, currentMonth, currentYear);
+    // Rounds per question; the last one is sent with function calling off to force a text answer
+    private static final int MAX_TOOL_ROUNDS = 5;
 
-            // System instruction for budget analysis
-            JSONObject systemInstruction = new JSONObject();
-            JSONArray systemParts = new JSONArray();
-            JSONObject systemPart = new JSONObject();
+    /**
+     * Send a conversation with function declarations; every functionCall the model makes is
+     * executed locally and answered with a functionResponse until the model replies with text
+     *
+     * @param context Application context for error strings
+     * @param conversation Chat the request belongs to, see AiRequestScheduler
+     * @param dedupeKey Usually the user's query; the same query pending in the chat is not sent again
+     * @param systemInstruction System instruction text
+     * @param contents Conversation so far, ending with the user's query; extended in place
+     * @param tools Gemini "tools" array with the function declarations
+     * @param executor Runs one function call
+     * @param callback Receives the rendered final answer on the main thread
+     * @return False if an identical request of the conversation is still pending
+     */
+    public static boolean sendPromptWithTools(
+            Context context,
+            Object conversation,
+            String dedupeKey,
+            String systemInstruction,
+            JSONArray contents,
+            JSONArray tools,
+            ToolExecutor executor,
+            AIResponseCallback callback) throws JSONException {
+        return sendPromptWithTools(context, conversation, dedupeKey, AiRequestScheduler.Lane.INTERACTIVE,
+                systemInstruction, contents, tools, executor, callback);
+    }
+
+    /**
+     * Same as above in the given scheduler lane; work nobody is waiting on uses BACKGROUND
+     */
+    public static boolean sendPromptWithTools(
+            Context context,
+            Object conversation,
+            String dedupeKey,
+            AiRequestScheduler.Lane lane,
+            String systemInstruction,
+            JSONArray contents,
+            JSONArray tools,
+            ToolExecutor executor,
+            AIResponseCallback callback) throws JSONException {
+        return sendPromptWithTools(context, conversation, dedupeKey, lane, null, () -> systemInstruction,
+                contents, tools, executor, callback);
+    }
 
-            // Get app language and currency
-            String appLanguage = LocaleHelper.getLanguage(context);
-            String appCurrency = SettingsHelper.getSelectedCurrency(context);
-            if (appCurrency == null || appCurrency.isEmpty()) appCurrency = "VND";
+    /**
+     * Same as above with the instruction and tools kept in Gemini cached content, so each turn
+     * uploads only the conversation; see GeminiContextCache
+     *
+     * @param instructionKey Changes whenever the instruction or the tools change; null sends them inline
+     * @param systemInstruction Builds the instruction, only for a key not seen before
+     */
+    public static boolean sendPromptWithTools(
+            Context context,
+            Object conversation,
+            String dedupeKey,
+            AiRequestScheduler.Lane lane,
+            String instructionKey,
+            Supplier<String> systemInstruction,
+            JSONArray contents,
+            JSONArray tools,
+            ToolExecutor executor,
+            AIResponseCallback callback) throws JSONException {
+        ToolRequest request = new ToolRequest(conversation, lane, instructionKey, systemInstruction, tools, contents);
+        GeminiContextCache.Turn turn = request.turn(false, MAX_TOOL_ROUNDS == 1);
+        ToolRound firstRound = new ToolRound(context, request, turn.cached, executor, callback, 0);
+        return AiRequestScheduler.getInstance().submit(conversation, dedupeKey, lane,
+                GENERATE_CONTENT_URL, turn.body, firstRound) != null;
+    }
 
-            String instruction = AiSystemInstructions.getBudgetAnalysisInstruction(currentDateInfo, budgetContext, appLanguage, appCurrency);
+    /**
+     * A function-calling conversation; contents grow with every round
+     */
+    private static final class ToolRequest {
+        final Object conversation;
+        final AiRequestScheduler.Lane lane;
+        final String instructionKey;
+        final Supplier<String> systemInstruction;
+        final JSONArray tools;
+        final JSONArray contents;
 
-            systemPart.put("text", instruction);
-            systemParts.put(systemPart);
-            systemInstruction.put("parts", systemParts);
-            json.put("system_instruction", systemInstruction);
+        ToolRequest(Object conversation, AiRequestScheduler.Lane lane, String instructionKey,
+                    Supplier<String> systemInstruction, JSONArray tools, JSONArray contents) {
+            this.conversation = conversation;
+            this.lane = lane;
+            this.instructionKey = instructionKey;
+            this.systemInstruction = systemInstruction;
+            this.tools = tools;
+            this.contents = contents;
+        }
 
-            // Build conversation history
-            JSONArray contents = new JSONArray();
-            
-            // Add previous messages (excluding the current analyzing message and welcome messages)
-            for (int i = 0; i < analyzingIndex; i++) {
-                com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage msg = messages.get(i);
-                // Skip welcome messages or system messages that are not part of conversation
-                if (msg.message.startsWith("📊") || msg.message.startsWith("💰") || 
-                    msg.message.startsWith("📅") || msg.message.contains("Đang phân tích") ||
-                    msg.message.contains("Lỗi") || msg.message.contains("Offline")) {
-                    continue;
+        /**
+         * @param inline The cache reference was rejected, send the instruction inline
+         * @param lastRound Function calling is turned off, so the model must answer in text
+         */
+        GeminiContextCache.Turn turn(boolean inline, boolean lastRound) throws JSONException {
+            if (instructionKey == null) {
+                JSONObject json = new JSONObject();
+                JSONObject instruction = new JSONObject();
+                instruction.put("parts", new JSONArray().put(new JSONObject().put("text", systemInstruction.get())));
+                json.put("system_instruction", instruction);
+                json.put("tools", tools);
+                if (lastRound) {
+                    json.put("tool_config", new JSONObject().put("function_calling_config",
+                            new JSONObject().put("mode", "NONE")));
                 }
-                
-                JSONObject contentObj = new JSONObject();
-                JSONArray parts = new JSONArray();
-                JSONObject part = new JSONObject();
-                part.put("text", msg.message);
-                parts.put(part);
-                contentObj.put("parts", parts);
-                contentObj.put("role", msg.isUser ? "user" : "model");
-                contents.put(contentObj);
+                json.put("contents", contents);
+                return new GeminiContextCache.Turn(json.toString(), false);
             }
-            
-            // Add current user query
-            JSONObject userContent = new JSONObject();
-            JSONArray userParts = new JSONArray();
-            JSONObject userPart = new JSONObject();
-            userPart.put("text", userQuery);
-            userParts.put(userPart);
-            userContent.put("parts", userParts);
-            userContent.put("role", "user");
-            contents.put(userContent);
-            
-            json.put("contents", contents);
+            GeminiContextCache cache = GeminiContextCache.getInstance();
+            if (lastRound) {
+                return cache.finalTurn(instructionKey, systemInstruction, tools::toString, contents.toString());
+            }
+            return inline
+                    ? cache.inlineTurn(instructionKey, systemInstruction, tools::toString, contents.toString())
+                    : cache.turn(instructionKey, systemInstruction, tools::toString, contents.toString());
+        }
+    }
+
+    /**
+     * One generateContent round of a function-calling conversation
+     */
+    private static final class ToolRound implements AiRequestScheduler.ResponseHandler {
+        private final Context context;
+        private final ToolRequest request;
+        private final boolean cached; // This round referenced the context cache
+        private final ToolExecutor executor;
+        private final AIResponseCallback callback;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final int round;
+
+        ToolRound(Context context, ToolRequest request, boolean cached, ToolExecutor executor,
+                  AIResponseCallback callback, int round) {
+            this.context = context;
+            this.request = request;
+            this.cached = cached;
+            this.executor = executor;
+            this.callback = callback;
+            this.round = round;
+        }
 
-            RequestBody body = RequestBody.create(json.toString(), MediaType.parse("application/json"));
-            Request request = new Request.Builder()
-                    .url("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=" + BuildConfig.GEMINI_API_KEY)
-                    .post(body)
-                    .build();
+        @Override
+        public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) {
+            try {
+                JSONObject content = firstCandidateContent(body);
+                JSONArray parts = content.getJSONArray("parts");
 
-            client.newCall(request).enqueue(new Callback() {
-                @Override
-                public void onFailure(Call call, IOException e) {
-                    mainHandler.post(() -> {
-                        callback.onFailure("Lỗi kết nối AI.");
-                    });
+                // Answer every functionCall of this turn in one user turn
+                JSONArray functionResponses = new JSONArray();
+                StringBuilder text = new StringBuilder();
+                for (int i = 0; i < parts.length(); i++) {
+                    JSONObject part = parts.getJSONObject(i);
+                    JSONObject functionCall = part.optJSONObject("functionCall");
+                    if (functionCall != null) {
+                        String name = functionCall.getString("name");
+                        JSONObject args = functionCall.optJSONObject("args");
+                        JSONObject result = executor.execute(name, args != null ? args : new JSONObject());
+                        functionResponses.put(new JSONObject().put("functionResponse",
+                                new JSONObject().put("name", name).put("response", result)));
+                    } else if (part.has("text")) {
+                        text.append(part.getString("text"));
+                    }
                 }
 
-                @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        try {
-                            String responseBody = response.body().string();
-                            JSONObject jsonResponse = new JSONObject(responseBody);
-                            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-                            JSONObject candidate = candidates.getJSONObject(0);
-                            JSONObject content = candidate.getJSONObject("content");
-                            JSONArray parts = content.getJSONArray("parts");
-                            String aiText = parts.getJSONObject(0).getString("text").trim();
-
-                            String formattedText = TextFormatHelper.formatMarkdownText(aiText);
-
-                            mainHandler.post(() -> {
-                                callback.onSuccess(formattedText);
-                            });
-                        } catch (Exception e) {
-                            mainHandler.post(() -> {
-                                callback.onFailure("Lỗi xử lý phản hồi AI.");
-                            });
-                        }
-                    } else {
-                        mainHandler.post(() -> {
-                            callback.onFailure("Lỗi từ AI: " + response.code());
-                        });
+                if (functionResponses.length() == 0 || round + 1 >= MAX_TOOL_ROUNDS) {
+                    if (text.length() == 0) {
+                        throw new IllegalStateException("No text after " + (round + 1) + " rounds");
                     }
+                    CharSequence formattedText = TextFormatHelper.renderMarkdown(text.toString().trim());
+                    ChatTrace.mark(ChatTrace.Stage.REPLY_PARSED, round + 1, "rounds");
+                    mainHandler.post(() -> callback.onSuccess(formattedText));
+                    return;
                 }
-            });
-        } catch (Exception e) {
-            mainHandler.post(() -> {
-                callback.onFailure("Lỗi gửi tin nhắn.");
-            });
+
+                request.contents.put(content.put("role", "model"));
+                request.contents.put(new JSONObject().put("role", "user").put("parts", functionResponses));
+                // The last allowed round goes without function calling, so it can only end in text
+                GeminiContextCache.Turn next = request.turn(false, round + 2 >= MAX_TOOL_ROUNDS);
+                // Null when the chat was closed meanwhile: nobody is waiting for the answer
+                AiRequestScheduler.getInstance().submitFollowUp(ticket, next.body,
+                        new ToolRound(context, request, next.cached, executor, callback, round + 1));
+            } catch (Exception e) {
+                mainHandler.post(() -> callback.onFailure(context.getString(R.string.ai_processing_error)));
+            }
+        }
+
+        @Override
+        public void onFailure(int code, IOException e) {
+            // Expired or deleted cache: send the same round again with the instruction inline
+            if (cached && (code == 400 || code == 403 || code == 404)) {
+                try {
+                    GeminiContextCache.Turn inline = request.turn(true, round + 1 >= MAX_TOOL_ROUNDS);
+                    AiRequestScheduler.getInstance().submit(request.conversation, null, request.lane,
+                            GENERATE_CONTENT_URL, inline.body,
+                            new ToolRound(context, request, false, executor, callback, round));
+                    return;
+                } catch (JSONException ignored) {
+                    // Report the original failure
+                }
+            }
+            mainHandler.post(() -> callback.onFailure(errorMessage(context, code)));
+        }
+    }
+
+    private static JSONObject firstCandidateContent(Reader body) throws IOException, JSONException {
+        StringBuilder responseBody = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int read; (read = body.read(buffer)) != -1; ) {
+            responseBody.append(buffer, 0, read);
         }
+        return new JSONObject(responseBody.toString())
+                .getJSONArray("candidates").getJSONObject(0).getJSONObject("content");
+    }
+
+    private static String errorMessage(Context context, int code) {
+        return code == 0
+                ? context.getString(R.string.ai_connection_error)
+                : context.getString(R.string.ai_send_error) + " " + code;
     }
 }
@@ -0,0 +1,209 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Gemini cached content for the static part of tool conversations: the system instruction and the
+ * function declarations, created once per instruction key (kind, language, currency, day)
+ * Turns then send only "cachedContent" and the conversation contents. Until the cache exists, after
+ * it expires, or when the API refuses to create one (too few tokens for the model), turns carry the
+ * instruction inline; the serialized inline prefix is also built only once per key
+ */
+public final class GeminiContextCache {
+
+    static final String MODEL = "models/gemini-2.0-flash"; // Must match GENERATE_CONTENT_URL
+    static final long TTL_SECONDS = 3_600;
+    static final long EXPIRY_MARGIN_MILLIS = 60_000; // Stop referencing a cache shortly before it expires
+    static final long RETRY_MILLIS = 60_000; // After a network or server error creating one
+    static final int MAX_ENTRIES = 8;
+    // Requests that reference a cache may not set tool_config, so a turn without function calls goes inline
+    static final String NO_FUNCTION_CALLS = "\"tool_config\":{\"function_calling_config\":{\"mode\":\"NONE\"}},";
+
+    private static GeminiContextCache instance;
+
+    private final AiRequestScheduler scheduler;
+    private final String createUrl;
+    private final LongSupplier clock;
+
+    // Least recently used first; yesterday's keys fall out on their own
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    /**
+     * Body of one generateContent turn
+     */
+    public static final class Turn {
+        public final String body;
+        public final boolean cached; // References the cache, so a 400/403/404 may mean it expired
+
+        Turn(String body, boolean cached) {
+            this.body = body;
+            this.cached = cached;
+        }
+    }
+
+    private static final class Entry {
+        final String inlinePrefix; // {"system_instruction":...,"tools":...,
+        final String createBody;
+        String name; // cachedContents/...; null until created
+        long expiresAt;
+        boolean creating;
+        boolean unsupported; // Creation was refused; this key always goes inline
+        long retryAt;
+
+        Entry(String instruction, String toolsJson) {
+            String parts = "{\"parts\":[{\"text\":" + new JsonPrimitive(instruction) + "}]}";
+            inlinePrefix = "{\"system_instruction\":" + parts + ",\"tools\":" + toolsJson + ",";
+            createBody = "{\"model\":\"" + MODEL + "\",\"systemInstruction\":" + parts
+                    + ",\"tools\":" + toolsJson + ",\"ttl\":\"" + TTL_SECONDS + "s\"}";
+        }
+    }
+
+    GeminiContextCache(AiRequestScheduler scheduler, String createUrl, LongSupplier clock) {
+        this.scheduler = scheduler;
+        this.createUrl = createUrl;
+        this.clock = clock;
+    }
+
+    public static synchronized GeminiContextCache getInstance() {
+        if (instance == null) {
+            instance = new GeminiContextCache(AiRequestScheduler.getInstance(),
+                    GeminiApiService.CACHED_CONTENTS_URL, System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Request body for one turn; starts creating the cache in the background lane when there is none
+     *
+     * @param key Identifies the instruction and tools, e.g. "financial|vi|VND|2025-11-02"
+     * @param instruction Builds the system instruction; only called the first time a key is seen
+     * @param toolsJson Builds the "tools" array; only called the first time a key is seen
+     * @param contentsJson Serialized "contents" array of the conversation so far
+     */
+    public Turn turn(String key, Supplier<String> instruction, Supplier<String> toolsJson, String contentsJson) {
+        Entry entry;
+        boolean create = false;
+        String cachedName = null;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(instruction.get(), toolsJson.get());
+                entries.put(key, entry);
+            }
+            long now = clock.getAsLong();
+            if (entry.name != null && now < entry.expiresAt - EXPIRY_MARGIN_MILLIS) {
+                cachedName = entry.name;
+            } else if (!entry.unsupported && !entry.creating && now >= entry.retryAt) {
+                entry.name = null;
+                entry.creating = true;
+                create = true;
+            }
+        }
+        if (create) {
+            create(entry);
+        }
+        if (cachedName != null) {
+            return new Turn("{\"cachedContent\":" + new JsonPrimitive(cachedName) + ",\"contents\":" + contentsJson + "}", true);
+        }
+        return new Turn(entry.inlinePrefix + "\"contents\":" + contentsJson + "}", false);
+    }
+
+    /**
+     * Same turn with the instruction inline, after the API rejected the cache reference
+     * The cache is forgotten and created again on the next turn
+     */
+    public Turn inlineTurn(String key, Supplier<String> instruction, Supplier<String> toolsJson, String contentsJson) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(instruction.get(), toolsJson.get());
+                entries.put(key, entry);
+            }
+            entry.name = null;
+            entry.retryAt = 0;
+        }
+        return new Turn(entry.inlinePrefix + "\"contents\":" + contentsJson + "}", false);
+    }
+
+    /**
+     * Last turn of a tool conversation: instruction inline and function calling off, so the model
+     * has to answer in text; unlike {@link #inlineTurn} the cache stays in use for other turns
+     */
+    public Turn finalTurn(String key, Supplier<String> instruction, Supplier<String> toolsJson, String contentsJson) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(instruction.get(), toolsJson.get());
+                entries.put(key, entry);
+            }
+        }
+        return new Turn(entry.inlinePrefix + NO_FUNCTION_CALLS + "\"contents\":" + contentsJson + "}", false);
+    }
+
+    private void create(Entry entry) {
+        scheduler.submit(null, null, AiRequestScheduler.Lane.BACKGROUND, createUrl, entry.createBody,
+                new AiRequestScheduler.ResponseHandler() {
+            @Override
+            public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) throws IOException {
+                JsonObject cache;
+                try {
+                    cache = JsonParser.parseReader(body).getAsJsonObject();
+                } catch (RuntimeException e) {
+                    throw new IOException("Unreadable cachedContents reply", e);
+                }
+                JsonElement name = cache.get("name");
+                if (name == null || !name.isJsonPrimitive()) {
+                    throw new IOException("cachedContents reply without a name");
+                }
+                long expiresAt = expireTime(cache.get("expireTime"));
+                synchronized (GeminiContextCache.this) {
+                    entry.name = name.getAsString();
+                    entry.expiresAt = expiresAt;
+                    entry.creating = false;
+                }
+            }
+
+            @Override
+            public void onFailure(int code, IOException error) {
+                synchronized (GeminiContextCache.this) {
+                    entry.creating = false;
+                    if (code >= 400 && code < 500 && code != 429) {
+                        entry.unsupported = true; // Below the model's minimum size, or caching unavailable
+                    } else {
+                        entry.retryAt = clock.getAsLong() + RETRY_MILLIS;
+                    }
+                }
+            }
+        });
+    }
+
+    private long expireTime(JsonElement value) {
+        if (value != null && value.isJsonPrimitive()) {
+            try {
+                return Instant.parse(value.getAsString()).toEpochMilli();
+            } catch (DateTimeParseException ignored) {
+                // Fall through to the requested TTL
+            }
+        }
+        return clock.getAsLong() + TTL_SECONDS * 1_000;
+    }
+}
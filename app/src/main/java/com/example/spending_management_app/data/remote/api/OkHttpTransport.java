@@ -0,0 +1,56 @@
+package com.example.spending_management_app.data.remote.api;
+
+import java.io.IOException;
+
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * AiRequestScheduler transport on one shared OkHttpClient, so all AI calls reuse its
+ * connection pool and dispatcher
+ */
+final class OkHttpTransport implements AiRequestScheduler.Transport {
+
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final OkHttpClient client;
+
+    OkHttpTransport(OkHttpClient client) {
+        this.client = client;
+    }
+
+    static OkHttpTransport create() {
+        return new OkHttpTransport(new OkHttpClient());
+    }
+
+    @Override
+    public AiRequestScheduler.Exchange send(String url, String body, AiRequestScheduler.ExchangeCallback callback) {
+        Request request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(body, JSON))
+                .build();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callback.onFailure(e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (ResponseBody responseBody = response.body()) {
+                    callback.onResponse(response.code(),
+                            AiRequestScheduler.parseRetryAfter(response.header("Retry-After")),
+                            responseBody.charStream());
+                }
+            }
+        });
+        return call::cancel;
+    }
+}
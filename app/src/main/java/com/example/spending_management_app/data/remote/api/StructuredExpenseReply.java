@@ -0,0 +1,232 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.example.spending_management_app.domain.model.ExpenseOperation;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reply of the expense chat in Gemini's structured output mode: display text plus typed
+ * operations. The response body is streamed with a JsonReader, so neither the envelope nor
+ * the reply is built as a JSON tree, and unknown fields are skipped without being parsed.
+ * A reply whose text isn't the expected JSON is kept as free text (structured == false); so is
+ * the "reply" of an object without an "expenses" list, which says nothing about transactions
+ */
+public final class StructuredExpenseReply {
+
+    /**
+     * generationConfig.responseSchema for the expense chat (OpenAPI subset Gemini accepts)
+     */
+    public static final String RESPONSE_SCHEMA = schema("");
+
+    /**
+     * Same for a batch of numbered offline messages: each operation also names its message
+     */
+    public static final String BATCH_RESPONSE_SCHEMA = schema(",\"message\":{\"type\":\"INTEGER\"}");
+
+    private static String schema(String extraProperties) {
+        return "{"
+                + "\"type\":\"OBJECT\","
+                + "\"properties\":{"
+                + "\"reply\":{\"type\":\"STRING\"},"
+                + "\"expenses\":{\"type\":\"ARRAY\",\"items\":{"
+                + "\"type\":\"OBJECT\","
+                + "\"properties\":{"
+                + "\"type\":{\"type\":\"STRING\",\"enum\":[\"expense\",\"income\"]},"
+                + "\"name\":{\"type\":\"STRING\"},"
+                + "\"amount\":{\"type\":\"NUMBER\"},"
+                + "\"currency\":{\"type\":\"STRING\"},"
+                + "\"category\":{\"type\":\"STRING\"},"
+                + "\"day\":{\"type\":\"INTEGER\"},"
+                + "\"month\":{\"type\":\"INTEGER\"},"
+                + "\"year\":{\"type\":\"INTEGER\"}" + extraProperties + "},"
+                + "\"required\":[\"type\",\"name\",\"amount\",\"category\"]}}},"
+                + "\"required\":[\"reply\",\"expenses\"]}";
+    }
+
+    public final String reply;
+    public final List<ExpenseOperation> expenses;
+    public final boolean structured;
+
+    private StructuredExpenseReply(String reply, List<ExpenseOperation> expenses, boolean structured) {
+        this.reply = reply;
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.structured = structured;
+    }
+
+    /**
+     * Read a generateContent response body; the caller closes the reader
+     */
+    public static StructuredExpenseReply read(Reader responseBody) throws IOException {
+        String text = readCandidateText(new JsonReader(responseBody));
+        try {
+            return parse(text);
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return new StructuredExpenseReply(text.trim(), new ArrayList<>(), false);
+        }
+    }
+
+    /**
+     * Parse the model's JSON text: {"reply": "...", "expenses": [{...}]}
+     */
+    public static StructuredExpenseReply parse(String json) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(json));
+        String reply = "";
+        List<ExpenseOperation> expenses = new ArrayList<>();
+        boolean listed = false;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "reply":
+                    reply = nextString(reader, "");
+                    break;
+                case "expenses":
+                    listed = true;
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        expenses.add(readOperation(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new StructuredExpenseReply(reply, expenses, listed);
+    }
+
+    /**
+     * Parse one free-standing operation object, e.g. JSON embedded in a free-text reply
+     */
+    public static ExpenseOperation parseOperation(String json) throws IOException {
+        return readOperation(new JsonReader(new StringReader(json)));
+    }
+
+    // candidates[0].content.parts[*].text, everything else skipped
+    private static String readCandidateText(JsonReader reader) throws IOException {
+        StringBuilder text = new StringBuilder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("candidates")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            boolean first = true;
+            while (reader.hasNext()) {
+                if (!first) {
+                    reader.skipValue();
+                    continue;
+                }
+                first = false;
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (!reader.nextName().equals("content")) {
+                        reader.skipValue();
+                        continue;
+                    }
+                    readParts(reader, text);
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+        if (text.length() == 0) {
+            throw new IOException("Response has no candidate text");
+        }
+        return text.toString();
+    }
+
+    private static void readParts(JsonReader reader, StringBuilder text) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (!reader.nextName().equals("parts")) {
+                reader.skipValue();
+                continue;
+            }
+            reader.beginArray();
+            while (reader.hasNext()) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    if (reader.nextName().equals("text")) {
+                        text.append(nextString(reader, ""));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            }
+            reader.endArray();
+        }
+        reader.endObject();
+    }
+
+    private static ExpenseOperation readOperation(JsonReader reader) throws IOException {
+        String type = "expense";
+        String name = "";
+        double amount = 0;
+        String currency = "VND";
+        String category = "";
+        int day = 0;
+        int month = 0;
+        int year = 0;
+        int message = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String field = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "type":
+                    type = reader.nextString();
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    break;
+                case "amount":
+                    amount = reader.nextDouble(); // Also accepts "50000" as a string
+                    break;
+                case "currency":
+                    currency = reader.nextString();
+                    break;
+                case "category":
+                    category = reader.nextString();
+                    break;
+                case "day":
+                    day = reader.nextInt();
+                    break;
+                case "month":
+                    month = reader.nextInt();
+                    break;
+                case "year":
+                    year = reader.nextInt();
+                    break;
+                case "message":
+                    message = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new ExpenseOperation(type, name, amount, currency, category, day, month, year, message);
+    }
+
+    private static String nextString(JsonReader reader, String fallback) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return fallback;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.spending_management_app.data.repository;
+
+import com.example.spending_management_app.data.local.dao.BudgetAlertDao;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.BudgetAlertEntity;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.utils.DateBuckets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Keeps budget progress current at write time
+ * Every expense write adjusts the per-category counters in category_spend and
+ * BudgetEntity.currentSpent in the same Room transaction, then re-checks only the two budgets
+ * it touched (its category and the month). Crossed thresholds are stored in budget_alerts
+ * and shown once by whoever calls {@link #takePendingAlerts}
+ */
+public class BudgetProgressTracker {
+
+    private static final int[] DEFAULT_THRESHOLDS = {80, 100};
+
+    private static volatile int[] thresholds = DEFAULT_THRESHOLDS;
+
+    private final AppDatabase appDatabase;
+
+    public BudgetProgressTracker(AppDatabase appDatabase) {
+        this.appDatabase = appDatabase;
+    }
+
+    /**
+     * Add custom alert levels (percent of budget) on top of 80% and 100%
+     */
+    public static void setCustomThresholds(int... custom) {
+        Set<Integer> merged = new TreeSet<>();
+        for (int threshold : DEFAULT_THRESHOLDS) {
+            merged.add(threshold);
+        }
+        if (custom != null) {
+            for (int threshold : custom) {
+                if (threshold > 0) {
+                    merged.add(threshold);
+                }
+            }
+        }
+        int[] result = new int[merged.size()];
+        int i = 0;
+        for (int threshold : merged) {
+            result[i++] = threshold;
+        }
+        thresholds = result;
+    }
+
+    public static int[] getThresholds() {
+        return Arrays.copyOf(thresholds, thresholds.length);
+    }
+
+    /**
+     * Apply an expense to the counters; sign is +1 when the row appears and -1 when it goes away
+     * Must run inside the transaction that writes the row
+     */
+    void applyExpense(TransactionEntity transaction, int sign) {
+        if (transaction == null || !"expense".equals(transaction.type)) {
+            return;
+        }
+        long delta = sign * Math.abs(transaction.amount);
+        if (delta == 0) {
+            return;
+        }
+        int userId = transaction.userId;
+        int yearMonth = transaction.yearMonth;
+
+        appDatabase.categorySpendDao().ensureRow(userId, yearMonth, transaction.categoryId);
+        appDatabase.categorySpendDao().addSpent(userId, yearMonth, transaction.categoryId, delta);
+        appDatabase.budgetDao().addCurrentSpent(userId,
+                DateBuckets.startOfMonth(yearMonth), DateBuckets.endOfMonth(yearMonth), delta);
+
+        evaluateCategory(userId, yearMonth, transaction.categoryId);
+        evaluateMonthly(userId, yearMonth);
+    }
+
+    /**
+     * Re-check every budget of a month after budgets themselves were created, changed or deleted
+     */
+    public void onBudgetsChanged(int userId, Date monthDate) {
+        int yearMonth = DateBuckets.yearMonth(monthDate);
+        Date startOfMonth = DateBuckets.startOfMonth(yearMonth);
+        Date endOfMonth = DateBuckets.endOfMonth(yearMonth);
+        appDatabase.runInTransaction(() -> {
+            // Budgets created or rebuilt by the caller start from the counters, not from 0
+            Long total = appDatabase.categorySpendDao().getMonthTotal(userId, yearMonth);
+            for (BudgetEntity budget : appDatabase.budgetDao().getBudgetsByDateRange(userId, startOfMonth, endOfMonth)) {
+                long spent = total != null ? total : 0;
+                if (budget.currentSpent != spent) {
+                    budget.currentSpent = spent;
+                    appDatabase.budgetDao().update(budget);
+                }
+            }
+
+            Set<Integer> categoryIds = new LinkedHashSet<>(appDatabase.categorySpendDao().getCategoryIds(userId, yearMonth));
+            for (CategoryBudgetEntity budget : appDatabase.categoryBudgetDao()
+                    .getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth)) {
+                categoryIds.add(budget.categoryId);
+            }
+            for (int categoryId : categoryIds) {
+                evaluateCategory(userId, yearMonth, categoryId);
+            }
+            evaluateMonthly(userId, yearMonth);
+        });
+    }
+
+    /**
+     * Get the alerts that haven't been shown yet and mark them as shown
+     */
+    public List<BudgetAlertEntity> takePendingAlerts(int userId) {
+        List<BudgetAlertEntity> pending = new ArrayList<>();
+        appDatabase.runInTransaction(() -> {
+            pending.addAll(appDatabase.budgetAlertDao().getPendingAlerts(userId));
+            if (!pending.isEmpty()) {
+                List<Integer> ids = new ArrayList<>();
+                for (BudgetAlertEntity alert : pending) {
+                    ids.add(alert.id);
+                }
+                appDatabase.budgetAlertDao().markNotified(ids);
+            }
+        });
+        return pending;
+    }
+
+    private void evaluateCategory(int userId, int yearMonth, int categoryId) {
+        CategoryBudgetEntity budget = appDatabase.categoryBudgetDao().getCategoryBudgetForMonth(userId, categoryId,
+                DateBuckets.startOfMonth(yearMonth), DateBuckets.endOfMonth(yearMonth));
+        Long spent = appDatabase.categorySpendDao().getSpent(userId, yearMonth, categoryId);
+        evaluate(userId, yearMonth, categoryId, spent != null ? spent : 0, budget != null ? budget.budgetAmount : 0);
+    }
+
+    private void evaluateMonthly(int userId, int yearMonth) {
+        List<BudgetEntity> budgets = appDatabase.budgetDao().getBudgetsByDateRangeOrdered(userId,
+                DateBuckets.startOfMonth(yearMonth), DateBuckets.endOfMonth(yearMonth));
+        Long spent = appDatabase.categorySpendDao().getMonthTotal(userId, yearMonth);
+        long limit = budgets != null && !budgets.isEmpty() ? budgets.get(0).monthlyLimit : 0;
+        evaluate(userId, yearMonth, BudgetAlertEntity.MONTHLY_SCOPE, spent != null ? spent : 0, limit);
+    }
+
+    // Insert rows for thresholds just reached, delete rows for thresholds no longer reached
+    private void evaluate(int userId, int yearMonth, int categoryId, long spent, long budgetAmount) {
+        BudgetAlertDao alertDao = appDatabase.budgetAlertDao();
+        List<Integer> recorded = alertDao.getCrossedThresholds(userId, yearMonth, categoryId);
+        for (int threshold : thresholds) {
+            boolean reached = isReached(spent, budgetAmount, threshold);
+            boolean known = recorded.contains(threshold);
+            if (reached && !known) {
+                alertDao.insert(new BudgetAlertEntity(userId, yearMonth, categoryId, threshold, spent, budgetAmount, new Date()));
+            } else if (!reached && known) {
+                alertDao.delete(userId, yearMonth, categoryId, threshold);
+            }
+        }
+    }
+
+    static boolean isReached(long spent, long budgetAmount, int threshold) {
+        return budgetAmount > 0 && spent * 100 >= budgetAmount * threshold;
+    }
+}
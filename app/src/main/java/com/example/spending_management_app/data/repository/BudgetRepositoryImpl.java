@@ -13,9 +13,11 @@ import java.util.List;
 public class BudgetRepositoryImpl implements BudgetRepository {
 
     private final AppDatabase appDatabase;
+    private final BudgetProgressTracker budgetTracker;
 
     public BudgetRepositoryImpl(AppDatabase appDatabase) {
         this.appDatabase = appDatabase;
+        this.budgetTracker = new BudgetProgressTracker(appDatabase);
     }
 
     @Override
@@ -31,15 +33,30 @@ public class BudgetRepositoryImpl implements BudgetRepository {
     @Override
     public void update(BudgetEntity budget) {
         appDatabase.budgetDao().update(budget);
+        budgetTracker.onBudgetsChanged(budget.userId, budget.date);
     }
 
     @Override
     public void insert(BudgetEntity budget) {
         appDatabase.budgetDao().insert(budget);
+        budgetTracker.onBudgetsChanged(budget.userId, budget.date);
+    }
+
+    @Override
+    public void upsert(BudgetEntity budget) {
+        appDatabase.budgetDao().upsert(budget);
+        budgetTracker.onBudgetsChanged(budget.userId, budget.date);
+    }
+
+    @Override
+    public void delete(BudgetEntity budget) {
+        appDatabase.budgetDao().delete(budget);
+        budgetTracker.onBudgetsChanged(budget.userId, budget.date);
     }
 
     @Override
     public void deleteBudgetsByDateRange(int userId, Date startDate, Date endDate) {
         appDatabase.budgetDao().deleteBudgetsByDateRange(userId, startDate, endDate);
+        budgetTracker.onBudgetsChanged(userId, startDate);
     }
 }
\ No newline at end of file
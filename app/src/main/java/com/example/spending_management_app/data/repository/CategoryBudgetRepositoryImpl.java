@@ -3,7 +3,10 @@ package com.example.spending_management_app.data.repository;
 import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
 import com.example.spending_management_app.domain.repository.CategoryBudgetRepository;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -13,9 +16,11 @@ import java.util.List;
 public class CategoryBudgetRepositoryImpl implements CategoryBudgetRepository {
 
     private final AppDatabase appDatabase;
+    private final BudgetProgressTracker budgetTracker;
 
     public CategoryBudgetRepositoryImpl(AppDatabase appDatabase) {
         this.appDatabase = appDatabase;
+        this.budgetTracker = new BudgetProgressTracker(appDatabase);
     }
 
     @Override
@@ -26,25 +31,69 @@ public class CategoryBudgetRepositoryImpl implements CategoryBudgetRepository {
     @Override
     public void delete(CategoryBudgetEntity categoryBudget) {
         appDatabase.categoryBudgetDao().delete(categoryBudget);
+        budgetTracker.onBudgetsChanged(categoryBudget.userId, categoryBudget.date);
     }
 
     @Override
     public void deleteAllForMonth(int userId, Date startDate, Date endDate) {
         appDatabase.categoryBudgetDao().deleteAllForMonth(userId, startDate, endDate);
+        budgetTracker.onBudgetsChanged(userId, startDate);
     }
 
     @Override
     public CategoryBudgetEntity getCategoryBudgetForMonth(int userId, String category, Date startDate, Date endDate) {
-        return appDatabase.categoryBudgetDao().getCategoryBudgetForMonth(userId, category, startDate, endDate);
+        return appDatabase.categoryBudgetDao().getCategoryBudgetForMonth(userId, CategoryRegistry.storageIdOf(category), startDate, endDate);
     }
 
     @Override
     public void update(CategoryBudgetEntity categoryBudget) {
+        resolveCategory(categoryBudget);
         appDatabase.categoryBudgetDao().update(categoryBudget);
+        budgetTracker.onBudgetsChanged(categoryBudget.userId, categoryBudget.date);
     }
 
     @Override
     public void insert(CategoryBudgetEntity categoryBudget) {
+        resolveCategory(categoryBudget);
         appDatabase.categoryBudgetDao().insert(categoryBudget);
+        budgetTracker.onBudgetsChanged(categoryBudget.userId, categoryBudget.date);
     }
-}
\ No newline at end of file
+
+    @Override
+    public void upsertAll(int userId, Date month, List<CategoryBudgetEntity> categoryBudgets) {
+        if (categoryBudgets.isEmpty()) {
+            return;
+        }
+        appDatabase.runInTransaction(() -> {
+            for (CategoryBudgetEntity categoryBudget : categoryBudgets) {
+                resolveCategory(categoryBudget);
+            }
+            appDatabase.categoryBudgetDao().upsertAll(categoryBudgets);
+        });
+        budgetTracker.onBudgetsChanged(userId, month);
+    }
+
+    @Override
+    public void deleteCategories(int userId, Date month, List<String> categories) {
+        if (categories.isEmpty()) {
+            return;
+        }
+        List<Integer> categoryIds = new ArrayList<>();
+        for (String category : categories) {
+            categoryIds.add(CategoryRegistry.storageIdOf(category));
+        }
+        appDatabase.categoryBudgetDao().deleteCategories(userId, DateBuckets.yearMonth(month), categoryIds);
+        budgetTracker.onBudgetsChanged(userId, month);
+    }
+
+    @Override
+    public int categoryIdFor(String category) {
+        return appDatabase.categoryIdFor(category);
+    }
+
+    private void resolveCategory(CategoryBudgetEntity categoryBudget) {
+        if (categoryBudget.categoryId == CategoryRegistry.UNKNOWN_ID) {
+            categoryBudget.categoryId = appDatabase.categoryIdFor(categoryBudget.category);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.spending_management_app.data.repository;
+
+import com.example.spending_management_app.data.local.dao.ChatDao;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.ChatConversationEntity;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+import com.example.spending_management_app.domain.repository.ChatHistoryRepository;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Implementation of ChatHistoryRepository
+ */
+public class ChatHistoryRepositoryImpl implements ChatHistoryRepository {
+
+    private final ChatDao chatDao;
+
+    public ChatHistoryRepositoryImpl(AppDatabase appDatabase) {
+        this.chatDao = appDatabase.chatDao();
+    }
+
+    @Override
+    public int getOrCreateConversation(int userId, String mode) {
+        Integer id = chatDao.getConversationId(userId, mode);
+        if (id != null) {
+            return id;
+        }
+        return (int) chatDao.insertConversation(new ChatConversationEntity(userId, mode, new Date()));
+    }
+
+    @Override
+    public long addMessage(int conversationId, String role, String text, Date createdAt) {
+        int tokens = ChatMessageEntity.estimateTokens(text);
+        long id = chatDao.insertMessage(new ChatMessageEntity(conversationId, role, text, createdAt, tokens));
+        chatDao.touchConversation(conversationId, createdAt, tokens);
+        return id;
+    }
+
+    @Override
+    public void updateMessage(int conversationId, long messageId, String role, String text) {
+        int tokens = ChatMessageEntity.estimateTokens(text);
+        int delta = tokens - chatDao.getTokenCount(messageId);
+        chatDao.updateMessage(messageId, role, text, tokens);
+        chatDao.touchConversation(conversationId, new Date(), delta);
+    }
+
+    @Override
+    public List<ChatMessageEntity> getMessagesBefore(int conversationId, long beforeId, int limit) {
+        List<ChatMessageEntity> page = chatDao.getMessagesBefore(conversationId, beforeId, limit);
+        Collections.reverse(page);
+        return page;
+    }
+}
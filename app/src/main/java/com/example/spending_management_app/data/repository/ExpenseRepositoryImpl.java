@@ -1,10 +1,17 @@
 package com.example.spending_management_app.data.repository;
 
+import android.database.Cursor;
+
+import com.example.spending_management_app.data.local.cache.RecentTransactionCache;
+import com.example.spending_management_app.data.local.cache.TransactionColumnStore;
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.DailySpending;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
 
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 
@@ -14,24 +21,93 @@ import java.util.List;
 public class ExpenseRepositoryImpl implements ExpenseRepository {
 
     private final AppDatabase appDatabase;
+    private final RecentTransactionCache recentCache;
+    private final TransactionColumnStore columnStore;
+    private final BudgetProgressTracker budgetTracker;
 
     public ExpenseRepositoryImpl(AppDatabase appDatabase) {
+        this(appDatabase, RecentTransactionCache.getInstance(), TransactionColumnStore.getInstance());
+    }
+
+    ExpenseRepositoryImpl(AppDatabase appDatabase, RecentTransactionCache recentCache, TransactionColumnStore columnStore) {
         this.appDatabase = appDatabase;
+        this.recentCache = recentCache;
+        this.columnStore = columnStore;
+        this.budgetTracker = new BudgetProgressTracker(appDatabase);
     }
 
+    // Row and budget counters change in one transaction so they can't drift apart.
+    // The column snapshot is told before commit, so anything reacting to Room's invalidation
+    // already reads the new row; a failed transaction drops the snapshot instead
+
     @Override
     public void insert(TransactionEntity transaction) {
-        appDatabase.transactionDao().insert(transaction);
+        inTransaction(transaction.userId, () -> {
+            resolveCategory(transaction);
+            transaction.id = (int) appDatabase.transactionDao().insert(transaction);
+            budgetTracker.applyExpense(transaction, 1);
+            columnStore.onInserted(transaction);
+        });
+        recentCache.onInserted(transaction);
+    }
+
+    @Override
+    public void insertAll(List<TransactionEntity> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // One transaction for the whole batch, e.g. every expense of one AI reply
+        inTransaction(transactions.get(0).userId, () -> {
+            for (TransactionEntity transaction : transactions) {
+                resolveCategory(transaction);
+                transaction.id = (int) appDatabase.transactionDao().insert(transaction);
+                budgetTracker.applyExpense(transaction, 1);
+                columnStore.onInserted(transaction);
+            }
+        });
+        for (TransactionEntity transaction : transactions) {
+            recentCache.onInserted(transaction);
+        }
     }
 
     @Override
     public void update(TransactionEntity transaction) {
-        appDatabase.transactionDao().update(transaction);
+        inTransaction(transaction.userId, () -> {
+            TransactionEntity previous = appDatabase.transactionDao().getTransactionById(transaction.userId, transaction.id);
+            resolveCategory(transaction);
+            appDatabase.transactionDao().update(transaction);
+            budgetTracker.applyExpense(previous, -1);
+            budgetTracker.applyExpense(transaction, 1);
+            columnStore.onUpdated(transaction);
+        });
+        recentCache.onUpdated(transaction);
     }
 
     @Override
     public void delete(TransactionEntity transaction) {
-        appDatabase.transactionDao().delete(transaction);
+        inTransaction(transaction.userId, () -> {
+            TransactionEntity stored = appDatabase.transactionDao().getTransactionById(transaction.userId, transaction.id);
+            appDatabase.transactionDao().delete(transaction);
+            budgetTracker.applyExpense(stored, -1);
+            columnStore.onDeleted(transaction);
+        });
+        recentCache.onDeleted(transaction);
+    }
+
+    // Names the registry didn't know when the entity was built become custom categories
+    private void resolveCategory(TransactionEntity transaction) {
+        if (transaction.categoryId == CategoryRegistry.UNKNOWN_ID) {
+            transaction.categoryId = appDatabase.categoryIdFor(transaction.category);
+        }
+    }
+
+    private void inTransaction(int userId, Runnable body) {
+        try {
+            appDatabase.runInTransaction(body);
+        } catch (RuntimeException e) {
+            columnStore.invalidate(userId);
+            throw e;
+        }
     }
 
     @Override
@@ -46,31 +122,63 @@ public class ExpenseRepositoryImpl implements ExpenseRepository {
 
     @Override
     public List<TransactionEntity> getRecentTransactions(int userId, int limit) {
-        return appDatabase.transactionDao().getRecentTransactions(userId, limit);
+        // Served from the in-memory window; only the first read per user hits Room
+        return recentCache.getRecent(userId, limit, appDatabase.transactionDao()::getRecentTransactions);
     }
 
     @Override
     public List<TransactionEntity> getTransactionsByDate(int userId, Date date) {
-        // Create date range for the same day (from start of day to end of day)
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        Date startOfDay = calendar.getTime();
+        // Same local day, looked up by the persisted epochDay instead of a millis range
+        return appDatabase.transactionDao().getTransactionsByEpochDay(userId, DateBuckets.epochDay(date));
+    }
 
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        Date endOfDay = calendar.getTime();
+    @Override
+    public List<TransactionEntity> getTransactionsByMonth(int userId, int year, int month) {
+        int yearMonth = DateBuckets.yearMonth(year, month);
+        return appDatabase.transactionDao().getTransactionsByYearMonthRange(userId, yearMonth, yearMonth);
+    }
 
-        return appDatabase.transactionDao().getTransactionsByDateRange(userId, startOfDay, endOfDay);
+    @Override
+    public List<TransactionEntity> getTransactionsByYear(int userId, int year) {
+        return appDatabase.transactionDao().getTransactionsByYearMonthRange(userId,
+                DateBuckets.firstMonthOf(year), DateBuckets.lastMonthOf(year));
     }
 
     @Override
     public List<TransactionEntity> getAllTransactions(int userId) {
         return appDatabase.transactionDao().getAllTransactions(userId);
     }
+
+    @Override
+    public List<DailySpending> getDailySpending(int userId, int fromEpochDay, int toEpochDay) {
+        return appDatabase.transactionDao().getDailySpending(userId, fromEpochDay, toEpochDay);
+    }
+
+    @Override
+    public List<TransactionEntity> searchTransactions(int userId, String query, int fromEpochDay, int toEpochDay, int limit) {
+        // Wildcards typed by the user match literally; an empty query matches every row of the range
+        String escaped = query.trim().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+        String pattern = "%" + escaped + "%";
+        return appDatabase.transactionDao().searchTransactions(userId, pattern, fromEpochDay, toEpochDay, limit);
+    }
+
+    @Override
+    public TransactionColumns getColumns(int userId) {
+        return columnStore.getColumns(userId, this::loadColumns);
+    }
+
+    // Reads straight from a cursor into the column arrays, without an entity per row
+    private TransactionColumns loadColumns(int userId) {
+        try (Cursor cursor = appDatabase.query(
+                "SELECT id, date, amount, categoryId, type, epochDay FROM transactions "
+                        + "WHERE userId = ? AND date IS NOT NULL ORDER BY date, id",
+                new Object[]{userId})) {
+            TransactionColumns.Builder builder = new TransactionColumns.Builder(cursor.getCount());
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getInt(0), cursor.getLong(1), cursor.getLong(2), cursor.getInt(3),
+                        TransactionColumns.typeCode(cursor.getString(4)), cursor.getInt(5));
+            }
+            return builder.build();
+        }
+    }
 }
\ No newline at end of file
@@ -3,7 +3,7 @@ package com.example.spending_management_app.data.repository;
 import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.local.entity.UserEntity;
 import com.example.spending_management_app.domain.repository.UserRepository;
-import com.example.spending_management_app.utils.PasswordUtils;
+import com.example.spending_management_app.utils.PasswordHashingEngine;
 
 /**
  * Implementation of UserRepository
@@ -28,10 +28,22 @@ public class UserRepositoryImpl implements UserRepository {
     @Override
     public UserEntity loginUser(String emailOrPhone, String password) {
         UserEntity user = appDatabase.userDao().getUserByEmailOrPhone(emailOrPhone);
-        if (user != null && PasswordUtils.verifyPassword(password, user.getPasswordHash())) {
-            return user;
+        if (user == null) {
+            return null;
         }
-        return null;
+
+        PasswordHashingEngine.VerifyResult result =
+                PasswordHashingEngine.getInstance().verifyNow(password, user.getPasswordHash());
+        if (!result.matches) {
+            return null;
+        }
+
+        // Stored hash uses outdated parameters - upgrade it while we still have the plain password
+        if (result.upgradedHash != null) {
+            user.setPasswordHash(result.upgradedHash);
+            appDatabase.userDao().update(user);
+        }
+        return user;
     }
 
     @Override
@@ -0,0 +1,220 @@
+package com.example.spending_management_app.data.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.room.InvalidationTracker;
+
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.MonthlySpending;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Year bundles for the statistics screen (totals, monthly series, category split)
+ * Computed bundles are kept in a small LRU cache and the years next to the selected one are
+ * prefetched, so switching years doesn't hit the database again. One Room invalidation
+ * observer on transactions/budgets drops the cache on any write; the screen observes a single
+ * LiveData that always carries the selected year
+ */
+public class YearStatsRepository {
+
+    private static final String TAG = "YearStatsRepository";
+
+    static final int CACHE_SIZE = 6; // Selected year, both neighbours and a few recent ones
+
+    /**
+     * Everything the statistics screen shows for one year
+     */
+    public static final class YearStats {
+        public final int userId;
+        public final int year;
+        public final long totalBudget;
+        public final long totalExpense;
+        public final List<MonthlySpending> monthlySpending; // Months with spending, oldest first
+        public final List<CategoryTotal> categories; // Highest spending first
+
+        YearStats(int userId, int year, long totalBudget, long totalExpense,
+                  List<MonthlySpending> monthlySpending, List<CategoryTotal> categories) {
+            this.userId = userId;
+            this.year = year;
+            this.totalBudget = totalBudget;
+            this.totalExpense = totalExpense;
+            this.monthlySpending = Collections.unmodifiableList(monthlySpending);
+            this.categories = Collections.unmodifiableList(categories);
+        }
+    }
+
+    public static final class CategoryTotal {
+        public final String category;
+        public final long spending;
+
+        CategoryTotal(String category, long spending) {
+            this.category = category;
+            this.spending = spending;
+        }
+    }
+
+    private static YearStatsRepository instance;
+
+    private final AppDatabase appDatabase;
+    private final ExpenseRepositoryImpl expenseRepository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final MutableLiveData<YearStats> selectedStats = new MutableLiveData<>();
+
+    private final Map<Long, YearStats> cache = new LinkedHashMap<Long, YearStats>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, YearStats> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private long generation; // Bumped on every invalidation, guarded by cache
+    private volatile long selectedKey = -1;
+
+    private YearStatsRepository(AppDatabase appDatabase) {
+        this.appDatabase = appDatabase;
+        this.expenseRepository = new ExpenseRepositoryImpl(appDatabase);
+        appDatabase.getInvalidationTracker().addObserver(new InvalidationTracker.Observer(new String[]{"transactions", "budgets"}) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        });
+    }
+
+    public static synchronized YearStatsRepository getInstance(Context context) {
+        if (instance == null) {
+            instance = new YearStatsRepository(AppDatabase.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Stats of the selected year; emits again when the selection or the data changes
+     */
+    public LiveData<YearStats> getSelectedYearStats() {
+        return selectedStats;
+    }
+
+    /**
+     * Select a year: cached bundles are published right away, others once computed
+     */
+    public void selectYear(int userId, int year) {
+        long key = key(userId, year);
+        selectedKey = key;
+        YearStats cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            selectedStats.postValue(cached);
+        } else {
+            executor.execute(() -> load(userId, year));
+        }
+        // Neighbours after the selected year, on the same single thread
+        executor.execute(() -> load(userId, year - 1));
+        executor.execute(() -> load(userId, year + 1));
+    }
+
+    private void invalidate() {
+        synchronized (cache) {
+            generation++;
+            cache.clear();
+        }
+        long key = selectedKey;
+        if (key >= 0) {
+            selectYear(userIdOf(key), yearOf(key));
+        }
+    }
+
+    private void load(int userId, int year) {
+        long key = key(userId, year);
+        YearStats stats;
+        long startGeneration;
+        synchronized (cache) {
+            stats = cache.get(key);
+            startGeneration = generation;
+        }
+        if (stats == null) {
+            try {
+                stats = compute(userId, year);
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading statistics for " + year, e);
+                return;
+            }
+            synchronized (cache) {
+                // Computed from data that has changed since; the invalidation reloads it
+                if (generation != startGeneration) {
+                    return;
+                }
+                cache.put(key, stats);
+            }
+        }
+        if (selectedKey == key) {
+            selectedStats.postValue(stats);
+        }
+    }
+
+    private YearStats compute(int userId, int year) {
+        Date startOfYear = DateBuckets.startOfMonth(DateBuckets.firstMonthOf(year));
+        Date endOfYear = DateBuckets.endOfMonth(DateBuckets.lastMonthOf(year));
+        long from = startOfYear.getTime();
+        long to = endOfYear.getTime();
+
+        Long totalBudget = appDatabase.budgetDao().getTotalBudgetByDateRange(userId, startOfYear, endOfYear);
+
+        TransactionColumns columns = expenseRepository.getColumns(userId);
+        long totalExpense = columns.total(from, to, TransactionColumns.TYPE_EXPENSE);
+
+        long[] byMonth = columns.sumByMonth(DateBuckets.firstMonthOf(year), DateBuckets.lastMonthOf(year),
+                TransactionColumns.TYPE_EXPENSE);
+        List<MonthlySpending> monthlySpending = new ArrayList<>();
+        for (int month = 1; month <= byMonth.length; month++) {
+            if (byMonth[month - 1] > 0) {
+                MonthlySpending spending = new MonthlySpending();
+                spending.setMonth(String.format(Locale.US, "%04d-%02d", year, month));
+                spending.setTotal(byMonth[month - 1]);
+                monthlySpending.add(spending);
+            }
+        }
+
+        long[] byCategory = columns.sumByCategory(from, to, TransactionColumns.TYPE_EXPENSE);
+        List<CategoryTotal> categories = new ArrayList<>();
+        for (int categoryId = 0; categoryId < byCategory.length; categoryId++) {
+            if (byCategory[categoryId] > 0) {
+                categories.add(new CategoryTotal(CategoryRegistry.keyOf(categoryId), byCategory[categoryId]));
+            }
+        }
+        categories.sort((a, b) -> Long.compare(b.spending, a.spending));
+
+        return new YearStats(userId, year, totalBudget != null ? totalBudget : 0, totalExpense,
+                monthlySpending, categories);
+    }
+
+    private static long key(int userId, int year) {
+        return ((long) userId << 32) | (year & 0xFFFFFFFFL);
+    }
+
+    private static int userIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int yearOf(long key) {
+        return (int) key;
+    }
+}
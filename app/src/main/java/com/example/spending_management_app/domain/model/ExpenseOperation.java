@@ -0,0 +1,75 @@
+package com.example.spending_management_app.domain.model;
+
+/**
+ * One transaction the AI extracted from a chat message, before it is saved
+ * Day, month and year are 0 when the model didn't give them, and so is message outside an offline batch
+ */
+public class ExpenseOperation {
+    private final String type; // "expense" or "income"
+    private final String name;
+    private final double amount;
+    private final String currency;
+    private final String category;
+    private final int day;
+    private final int month;
+    private final int year;
+    private final int message; // 1-based line of the offline batch prompt it came from
+
+    public ExpenseOperation(String type, String name, double amount, String currency, String category,
+                            int day, int month, int year) {
+        this(type, name, amount, currency, category, day, month, year, 0);
+    }
+
+    public ExpenseOperation(String type, String name, double amount, String currency, String category,
+                            int day, int month, int year, int message) {
+        this.type = type;
+        this.name = name;
+        this.amount = amount;
+        this.currency = currency;
+        this.category = category;
+        this.day = day;
+        this.month = month;
+        this.year = year;
+        this.message = message;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isExpense() {
+        return !"income".equals(type);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getDay() {
+        return day;
+    }
+
+    public int getMonth() {
+        return month;
+    }
+
+    public int getYear() {
+        return year;
+    }
+
+    public int getMessage() {
+        return message;
+    }
+}
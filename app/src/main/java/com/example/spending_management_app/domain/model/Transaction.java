@@ -4,11 +4,13 @@ import java.util.Date;
 import java.text.SimpleDateFormat;
 import java.util.Locale;
 import android.content.Context;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.CurrencyFormatter;
 
 public class Transaction {
     private String description;
     private String category;
+    private int categoryId; // CategoryRegistry id, resolved once so adapters never look up strings
     private long amount;
     private String iconResName;
     private Date date;
@@ -17,6 +19,7 @@ public class Transaction {
     public Transaction(String description, String category, long amount, String iconResName, Date date, String type) {
         this.description = description;
         this.category = category;
+        this.categoryId = CategoryRegistry.idOf(category);
         this.amount = amount;
         this.iconResName = iconResName;
         this.date = date;
@@ -31,6 +34,10 @@ public class Transaction {
         return category;
     }
 
+    public int getCategoryId() {
+        return categoryId;
+    }
+
     public long getAmount() {
         return amount;
     }
@@ -13,5 +13,7 @@ public interface BudgetRepository {
     List<BudgetEntity> getBudgetsByDateRangeOrdered(int userId, Date startDate, Date endDate);
     void update(BudgetEntity budget);
     void insert(BudgetEntity budget);
+    void upsert(BudgetEntity budget);
+    void delete(BudgetEntity budget);
     void deleteBudgetsByDateRange(int userId, Date startDate, Date endDate);
 }
\ No newline at end of file
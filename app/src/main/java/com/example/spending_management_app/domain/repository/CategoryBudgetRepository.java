@@ -15,4 +15,11 @@ public interface CategoryBudgetRepository {
     CategoryBudgetEntity getCategoryBudgetForMonth(int userId, String category, Date startDate, Date endDate);
     void update(CategoryBudgetEntity categoryBudget);
     void insert(CategoryBudgetEntity categoryBudget);
+    void upsertAll(int userId, Date month, List<CategoryBudgetEntity> categoryBudgets);
+    void deleteCategories(int userId, Date month, List<String> categories);
+
+    /**
+     * Id to store for a category name; names not known yet are added as custom categories
+     */
+    int categoryIdFor(String category);
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.example.spending_management_app.domain.repository;
+
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Repository interface for stored AI chat conversations
+ * Call from a background thread; writes go through UserWriteQueue
+ */
+public interface ChatHistoryRepository {
+
+    /**
+     * Get the conversation of a chat mode, creating it on first use
+     * @return Conversation ID
+     */
+    int getOrCreateConversation(int userId, String mode);
+
+    /**
+     * Append a message
+     * @param role ChatMessageEntity.ROLE_*
+     * @return Message ID
+     */
+    long addMessage(int conversationId, String role, String text, Date createdAt);
+
+    /**
+     * Replace a message's text and role, e.g. an "analyzing" line with the answer
+     */
+    void updateMessage(int conversationId, long messageId, String role, String text);
+
+    /**
+     * One page of messages older than beforeId, oldest first
+     * @param beforeId Long.MAX_VALUE for the latest page
+     */
+    List<ChatMessageEntity> getMessagesBefore(int conversationId, long beforeId, int limit);
+}
@@ -1,5 +1,7 @@
 package com.example.spending_management_app.domain.repository;
 
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
+import com.example.spending_management_app.data.local.entity.DailySpending;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 
 import java.util.Date;
@@ -10,11 +12,21 @@ import java.util.List;
  */
 public interface ExpenseRepository {
     void insert(TransactionEntity transaction);
+    void insertAll(List<TransactionEntity> transactions);
     void update(TransactionEntity transaction);
     void delete(TransactionEntity transaction);
     TransactionEntity getTransactionById(int userId, int id);
     List<TransactionEntity> getTransactionsByDateRange(int userId, Date startDate, Date endDate);
     List<TransactionEntity> getTransactionsByDate(int userId, Date date);
+    List<TransactionEntity> getTransactionsByMonth(int userId, int year, int month);
+    List<TransactionEntity> getTransactionsByYear(int userId, int year);
     List<TransactionEntity> getRecentTransactions(int userId, int limit);
     List<TransactionEntity> getAllTransactions(int userId);
+    List<DailySpending> getDailySpending(int userId, int fromEpochDay, int toEpochDay);
+    List<TransactionEntity> searchTransactions(int userId, String query, int fromEpochDay, int toEpochDay, int limit);
+
+    /**
+     * Column snapshot of all the user's transactions, for aggregations over long ranges
+     */
+    TransactionColumns getColumns(int userId);
 }
\ No newline at end of file
@@ -16,6 +16,7 @@ public interface UserRepository {
 
     /**
      * Authenticate user login
+     * Re-hashes the stored password when it was created with outdated parameters
      * @param emailOrPhone Email or phone number
      * @param password Plain text password
      * @return UserEntity if authentication successful, null otherwise
@@ -39,7 +39,7 @@ public class AiSystemInstructions {
                 languageInstruction + "\n\n" +
                 "KHI THÊM CHI TIÊU:\n" +
                 "- Nếu user nói 'Tôi muốn thêm chi tiêu', trả lời thân thiện với VÍ DỤ cụ thể\n" +
-                "- Khi user cung cấp thông tin chi tiêu, trích xuất CHÍNH XÁC và trả về JSON: {\"type\": \"expense\", \"name\": \"tên\", \"amount\": số, \"currency\": \"" + ("en".equals(appLanguage) ? appCurrency : "VND") + "\", \"category\": \"danh mục\", \"day\": ngày, \"month\": tháng, \"year\": năm}\n" +
+                "- Khi user cung cấp thông tin chi tiêu, trích xuất CHÍNH XÁC mỗi giao dịch thành một phần tử của 'expenses': {\"type\": \"expense\", \"name\": \"tên\", \"amount\": số, \"currency\": \"" + ("en".equals(appLanguage) ? appCurrency : "VND") + "\", \"category\": \"danh mục\", \"day\": ngày, \"month\": tháng, \"year\": năm}\n" +
                 "- Chọn ĐÚNG danh mục từ danh sách trên, KHÔNG tự tạo danh mục mới\n" +
                 "- Kèm theo câu trả lời ngắn gọn, hài hước\n\n" +
                 "KHI PHÂN TÍCH/BÁO CÁO CHI TIÊU:\n" +
@@ -53,6 +53,8 @@ public class AiSystemInstructions {
                 ", 'hôm qua'=" + yesterdayDay + "/" + yesterdayMonth + "/" + yesterdayYear + 
                 ", 'ngày X/Y'=ngày X tháng Y năm " + currentYear + 
                 ". Mặc định dùng ngày hiện tại.\n\n" +
+                "ĐỊNH DẠNG TRẢ VỀ: một object JSON với 'reply' là câu trả lời hiển thị cho user " +
+                "và 'expenses' là danh sách giao dịch trích xuất được (mảng rỗng nếu không có)\n\n" +
                 "QUAN TRỌNG:\n" +
                 "- KHÔNG dùng markdown (*, **, ###)\n" +
                 "- Dùng XUỐNG DÒNG để tách các mục\n" +
@@ -65,12 +67,11 @@ public class AiSystemInstructions {
     /**
      * Get system instruction for financial analysis
      * @param currentDateInfo Current date information string
-     * @param financialContext Financial data context from database
      * @param appLanguage Current app language (e.g., "vi", "en")
      * @param appCurrency Current app currency (e.g., "VND", "USD")
      * @return Complete system instruction for financial analysis
      */
-    public static String getFinancialAnalysisInstruction(String currentDateInfo, String financialContext, String appLanguage, String appCurrency) {
+    public static String getFinancialAnalysisInstruction(String currentDateInfo, String appLanguage, String appCurrency) {
         String languageInstruction = "";
         if ("en".equals(appLanguage)) {
             languageInstruction = "RESPOND IN ENGLISH ONLY. Use English category names and English date formats. Use " + appCurrency + " as currency.";
@@ -81,14 +82,14 @@ public class AiSystemInstructions {
         return "Bạn là trợ lý tài chính thông minh. " + currentDateInfo + ".\n\n" +
                 CategoryHelper.getCategoriesDescription() + "\n\n" +
                 languageInstruction + "\n\n" +
-                "QUYỀN TRUY CẬP: Bạn có TOÀN BỘ dữ liệu tài chính của người dùng.\n\n" +
+                "QUYỀN TRUY CẬP: Bạn truy vấn được TOÀN BỘ dữ liệu tài chính của người dùng qua các hàm.\n\n" +
                 "KHẢ NĂNG PHÂN TÍCH:\n" +
                 "- Chi tiêu theo ngày/tuần/tháng cụ thể\n" +
                 "- So sánh chi tiêu giữa các thời kỳ\n" +
                 "- Phân tích chi tiêu theo danh mục\n" +
                 "- Tư vấn tiết kiệm và quản lý ngân sách\n" +
                 "- Dự báo và cảnh báo chi tiêu\n\n" +
-                "DỮ LIỆU TÀI CHÍNH:\n" + financialContext + "\n\n" +
+                getToolsInstruction() +
                 "QUY TẮC TRẢ LỜI:\n" +
                 "1. FORMAT RÕ RÀNG:\n" +
                 "   - Mỗi mục chi tiêu trên MỘT DÒNG riêng\n" +
@@ -117,12 +118,11 @@ public class AiSystemInstructions {
     /**
      * Get system instruction for budget analysis and consultation
      * @param currentDateInfo Current date information string
-     * @param budgetContext Budget data context from database
      * @param appLanguage Current app language (e.g., "vi", "en")
      * @param appCurrency Current app currency (e.g., "VND", "USD")
      * @return Complete system instruction for budget analysis
      */
-    public static String getBudgetAnalysisInstruction(String currentDateInfo, String budgetContext, String appLanguage, String appCurrency) {
+    public static String getBudgetAnalysisInstruction(String currentDateInfo, String appLanguage, String appCurrency) {
         String languageInstruction = "";
         if ("en".equals(appLanguage)) {
             languageInstruction = "RESPOND IN ENGLISH ONLY. Use English date formats and " + appCurrency + " as currency. All responses must be in English.";
@@ -132,8 +132,8 @@ public class AiSystemInstructions {
         
         return "Bạn là chuyên gia tư vấn ngân sách tài chính. " + currentDateInfo + ".\n\n" +
                 languageInstruction + "\n\n" +
-                "QUYỀN TRUY CẬP: Bạn có TOÀN BỘ dữ liệu ngân sách của người dùng.\n\n" +
-                "DỮ LIỆU NGÂN SÁCH:\n" + budgetContext + "\n\n" +
+                "QUYỀN TRUY CẬP: Bạn truy vấn được TOÀN BỘ dữ liệu ngân sách của người dùng qua các hàm.\n\n" +
+                getToolsInstruction() +
                 "NGUYÊN TẮC TRẢ LỜI - QUAN TRỌNG:\n" +
                 "1. PHÂN BIỆT LOẠI CÂU HỎI:\n" +
                 "   - Nếu câu hỏi bắt đầu với \"[CHỈ XEM THÔNG TIN]\" → TRẢ LỜI NGẮN GỌN, chỉ liệt kê dữ liệu\n" +
@@ -143,7 +143,7 @@ public class AiSystemInstructions {
                 "     + Chỉ có \"xem\", \"bao nhiêu\", \"tất cả\" → Trả lời ngắn gọn\n\n" +
                 "2. XỬ LÝ CÂU HỎI VỀ NĂM:\n" +
                 "   - Khi hỏi \"ngân sách năm 2025\", \"tất cả ngân sách năm này\", \"toàn bộ ngân sách 2025\":\n" +
-                "     → PHẢI LIỆT KÊ TẤT CẢ các tháng của năm đó có trong dữ liệu\n" +
+                "     → Gọi getBudgets cho TỪNG tháng của năm đó (gọi song song trong một lượt) và PHẢI LIỆT KÊ TẤT CẢ các tháng có ngân sách\n" +
                 "   - KHÔNG chỉ liệt kê 3-4 tháng mẫu, phải liệt kê ĐẦY ĐỦ tất cả tháng có dữ liệu\n" +
                 "   - Nếu không có dữ liệu cho năm đó → \"Chưa có ngân sách nào cho năm [XXXX]\"\n" +
                 "   - Ví dụ: \"năm 2025\" → kiểm tra dữ liệu và liệt kê HẾT 01/2025, 02/2025... đến 12/2025 (nếu có)\n\n" +
@@ -236,4 +236,30 @@ public class AiSystemInstructions {
                 "   Nếu CHỈ hỏi xem → Trả lời ngắn gọn như mục 3!\n\n" +
                 "HÃY NHỚ: Phân biệt rõ XEM (ngắn) vs PHÂN TÍCH/TƯ VẤN (chi tiết)!";
     }
+
+    /**
+     * Appended to the expense tracking instruction when replaying phrases queued offline
+     */
+    public static String getOfflineBatchInstruction() {
+        return "\n\nTIN NHẮN GỬI LÚC OFFLINE:\n" +
+                "- Người dùng gửi NHIỀU tin nhắn khi mất mạng, mỗi dòng một tin, dạng: số thứ tự. [ngày gửi dd/MM/yyyy] nội dung\n" +
+                "- Hiểu 'hôm nay', 'hôm qua', 'sáng nay'... THEO NGÀY GỬI của từng tin, KHÔNG theo hôm nay\n" +
+                "- Trích xuất giao dịch của TẤT CẢ các tin vào một danh sách 'expenses'\n" +
+                "- Ghi số thứ tự của tin chứa giao dịch vào 'message'\n" +
+                "- Tin không phải chi tiêu/thu nhập thì bỏ qua; 'reply' tóm tắt ngắn các giao dịch đã ghi";
+    }
+
+    /**
+     * Shared paragraph describing the read-only FinanceTools functions
+     */
+    private static String getToolsInstruction() {
+        return "CÔNG CỤ DỮ LIỆU (chỉ đọc):\n" +
+                "- getTotals(from, to): tổng chi, tổng thu, số dư\n" +
+                "- getCategoryBreakdown(from, to): chi tiêu theo danh mục\n" +
+                "- searchTransactions(query, from, to, limit): tìm giao dịch theo mô tả/danh mục\n" +
+                "- getBudgets(month): ngân sách tháng, ngân sách danh mục và số đã chi\n" +
+                "Ngày dạng yyyy-MM-dd, tháng dạng yyyy-MM. Số tiền trả về là số nguyên, chi tiêu là số dương.\n" +
+                "Khi cần số liệu, LUÔN gọi hàm với đúng khoảng thời gian người dùng hỏi; " +
+                "KHÔNG đoán số liệu. Có thể gọi nhiều hàm trong một lượt.\n\n";
+    }
 }
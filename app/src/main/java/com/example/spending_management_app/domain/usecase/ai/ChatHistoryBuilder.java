@@ -0,0 +1,77 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
+import com.example.spending_management_app.presentation.dialog.ChatMessageList;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Gemini "contents" for a chat: the most recent user and model turns that fit a token budget,
+ * stored history included, followed by the current query. Notices (welcome, status and error
+ * lines) are marked when they are created, so nothing is filtered by its text
+ */
+public final class ChatHistoryBuilder {
+
+    static final int MAX_HISTORY_TOKENS = 4_000;
+
+    private ChatHistoryBuilder() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * @param messages Chat messages, a ChatMessageList for stored history
+     * @param end Index of the first message not to include, e.g. the "analyzing" placeholder
+     */
+    public static JSONArray contents(List<AiChatBottomSheet.ChatMessage> messages, int end,
+                                     String userQuery) throws JSONException {
+        // The sheet adds the user's message before sending it; it goes last, once
+        if (end > 0 && messages.get(end - 1).isUser && userQuery.equals(messages.get(end - 1).message)) {
+            end--;
+        }
+        List<AiChatBottomSheet.ChatMessage> turns = new ArrayList<>();
+        int budget = MAX_HISTORY_TOKENS - ChatMessageEntity.estimateTokens(userQuery);
+        budget = collect(messages, end, budget, turns);
+        if (budget > 0 && messages instanceof ChatMessageList) {
+            List<AiChatBottomSheet.ChatMessage> history = ((ChatMessageList) messages).history();
+            collect(history, history.size(), budget, turns);
+        }
+
+        // Collected newest first
+        JSONArray contents = new JSONArray();
+        for (int i = turns.size() - 1; i >= 0; i--) {
+            AiChatBottomSheet.ChatMessage message = turns.get(i);
+            contents.put(textContent(message.isUser ? "user" : "model", message.message));
+        }
+        contents.put(textContent("user", userQuery));
+        return contents;
+    }
+
+    // Walk back from end adding turns until the budget is spent; returns what is left
+    private static int collect(List<AiChatBottomSheet.ChatMessage> messages, int end, int budget,
+                               List<AiChatBottomSheet.ChatMessage> turns) {
+        for (int i = end - 1; i >= 0 && budget > 0; i--) {
+            AiChatBottomSheet.ChatMessage message = messages.get(i);
+            if (message.notice || message.message == null || message.message.isEmpty()) {
+                continue;
+            }
+            budget -= ChatMessageEntity.estimateTokens(message.message);
+            if (budget < 0) {
+                return 0;
+            }
+            turns.add(message);
+        }
+        return budget;
+    }
+
+    static JSONObject textContent(String role, String text) throws JSONException {
+        return new JSONObject()
+                .put("role", role)
+                .put("parts", new JSONArray().put(new JSONObject().put("text", text)));
+    }
+}
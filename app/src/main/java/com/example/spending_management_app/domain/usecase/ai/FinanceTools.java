@@ -0,0 +1,239 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import android.content.Context;
+
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.domain.repository.BudgetRepository;
+import com.example.spending_management_app.domain.repository.CategoryBudgetRepository;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
+import com.example.spending_management_app.utils.UserSession;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read-only tools Gemini can call while answering financial and budget questions
+ * The model asks for exactly the data it needs (any date range) instead of receiving a
+ * precomputed context blob on every question. Results are compact JSON: amounts in the stored
+ * currency unit, dates as yyyy-MM-dd, categories by name
+ */
+public class FinanceTools {
+
+    static final int DEFAULT_SEARCH_LIMIT = 20;
+    static final int MAX_SEARCH_LIMIT = 50;
+
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final CategoryBudgetRepository categoryBudgetRepository;
+    private final UserSession userSession;
+
+    public FinanceTools(ExpenseRepository expenseRepository, BudgetRepository budgetRepository,
+                        CategoryBudgetRepository categoryBudgetRepository, Context context) {
+        this.expenseRepository = expenseRepository;
+        this.budgetRepository = budgetRepository;
+        this.categoryBudgetRepository = categoryBudgetRepository;
+        this.userSession = UserSession.getInstance(context);
+    }
+
+    /**
+     * Gemini "tools" entry declaring every function below
+     */
+    public static JSONArray declarations() throws JSONException {
+        JSONArray functions = new JSONArray()
+                .put(function("getTotals",
+                        "Tổng chi tiêu, thu nhập và số dư trong một khoảng ngày (bao gồm hai đầu)",
+                        rangeParameters(), "from", "to"))
+                .put(function("getCategoryBreakdown",
+                        "Chi tiêu theo danh mục trong một khoảng ngày, cao nhất trước",
+                        rangeParameters(), "from", "to"))
+                .put(function("searchTransactions",
+                        "Tìm giao dịch theo mô tả hoặc danh mục, mới nhất trước; query rỗng trả về mọi giao dịch của khoảng ngày",
+                        rangeParameters()
+                                .put("query", property("STRING", "Từ khóa, ví dụ 'cà phê' hoặc 'Ăn uống'"))
+                                .put("limit", property("INTEGER", "Số giao dịch tối đa, mặc định "
+                                        + DEFAULT_SEARCH_LIMIT + ", tối đa " + MAX_SEARCH_LIMIT)),
+                        "query"))
+                .put(function("getBudgets",
+                        "Ngân sách tháng và ngân sách từng danh mục của một tháng, kèm số đã chi",
+                        new JSONObject().put("month", property("STRING", "Tháng dạng yyyy-MM")),
+                        "month"));
+        return new JSONArray().put(new JSONObject().put("functionDeclarations", functions));
+    }
+
+    /**
+     * Run one function call from the model; unknown names and bad arguments come back as
+     * {"error": ...} so the model can correct itself
+     */
+    public JSONObject execute(String name, JSONObject args) throws JSONException {
+        int userId = userSession.getCurrentUserId();
+        try {
+            switch (name) {
+                case "getTotals":
+                    return getTotals(userId, args);
+                case "getCategoryBreakdown":
+                    return getCategoryBreakdown(userId, args);
+                case "searchTransactions":
+                    return searchTransactions(userId, args);
+                case "getBudgets":
+                    return getBudgets(userId, args);
+                default:
+                    return new JSONObject().put("error", "Unknown function " + name);
+            }
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            return new JSONObject().put("error", e.getMessage());
+        }
+    }
+
+    private JSONObject getTotals(int userId, JSONObject args) throws JSONException {
+        LocalDate from = dateArg(args, "from", YearMonth.now().atDay(1));
+        LocalDate to = dateArg(args, "to", LocalDate.now());
+        TransactionColumns columns = expenseRepository.getColumns(userId);
+        long expense = columns.total(startMillis(from), endMillis(to), TransactionColumns.TYPE_EXPENSE);
+        long income = columns.total(startMillis(from), endMillis(to), TransactionColumns.TYPE_INCOME);
+        return new JSONObject()
+                .put("from", from.toString())
+                .put("to", to.toString())
+                .put("expense", expense)
+                .put("income", income)
+                .put("balance", income - expense);
+    }
+
+    private JSONObject getCategoryBreakdown(int userId, JSONObject args) throws JSONException {
+        LocalDate from = dateArg(args, "from", YearMonth.now().atDay(1));
+        LocalDate to = dateArg(args, "to", LocalDate.now());
+        long[] byCategory = expenseRepository.getColumns(userId)
+                .sumByCategory(startMillis(from), endMillis(to), TransactionColumns.TYPE_EXPENSE);
+
+        List<Integer> categoryIds = new ArrayList<>();
+        long total = 0;
+        for (int categoryId = 0; categoryId < byCategory.length; categoryId++) {
+            if (byCategory[categoryId] > 0) {
+                categoryIds.add(categoryId);
+                total += byCategory[categoryId];
+            }
+        }
+        categoryIds.sort((a, b) -> Long.compare(byCategory[b], byCategory[a]));
+
+        JSONArray categories = new JSONArray();
+        for (int categoryId : categoryIds) {
+            categories.put(new JSONObject()
+                    .put("category", CategoryRegistry.keyOf(categoryId))
+                    .put("amount", byCategory[categoryId])
+                    .put("percent", Math.round(byCategory[categoryId] * 1000.0 / total) / 10.0));
+        }
+        return new JSONObject()
+                .put("from", from.toString())
+                .put("to", to.toString())
+                .put("totalExpense", total)
+                .put("categories", categories);
+    }
+
+    private JSONObject searchTransactions(int userId, JSONObject args) throws JSONException {
+        String query = args.optString("query", "");
+        // Without a range, search the last year
+        LocalDate to = dateArg(args, "to", LocalDate.now());
+        LocalDate from = dateArg(args, "from", to.minusYears(1));
+        int limit = Math.max(1, Math.min(MAX_SEARCH_LIMIT, args.optInt("limit", DEFAULT_SEARCH_LIMIT)));
+
+        List<TransactionEntity> rows = expenseRepository.searchTransactions(userId, query,
+                (int) from.toEpochDay(), (int) to.toEpochDay(), limit);
+        JSONArray transactions = new JSONArray();
+        for (TransactionEntity row : rows) {
+            transactions.put(new JSONObject()
+                    .put("date", LocalDate.ofEpochDay(row.epochDay).toString())
+                    .put("description", row.description)
+                    .put("category", row.category)
+                    .put("type", row.type)
+                    .put("amount", Math.abs(row.amount)));
+        }
+        return new JSONObject()
+                .put("from", from.toString())
+                .put("to", to.toString())
+                .put("count", rows.size())
+                .put("limited", rows.size() == limit)
+                .put("transactions", transactions);
+    }
+
+    private JSONObject getBudgets(int userId, JSONObject args) throws JSONException {
+        YearMonth month = args.has("month") ? YearMonth.parse(args.getString("month")) : YearMonth.now();
+        int yearMonth = DateBuckets.yearMonth(month.getYear(), month.getMonthValue());
+        Date start = DateBuckets.startOfMonth(yearMonth);
+        Date end = DateBuckets.endOfMonth(yearMonth);
+
+        TransactionColumns columns = expenseRepository.getColumns(userId);
+        long spent = columns.total(start.getTime(), end.getTime(), TransactionColumns.TYPE_EXPENSE);
+        long[] spentByCategory = columns.sumByCategory(start.getTime(), end.getTime(), TransactionColumns.TYPE_EXPENSE);
+
+        JSONObject result = new JSONObject().put("month", month.toString()).put("spent", spent);
+        List<BudgetEntity> budgets = budgetRepository.getBudgetsByDateRange(userId, start, end);
+        if (!budgets.isEmpty()) {
+            long limit = budgets.get(0).getMonthlyLimit();
+            result.put("monthlyBudget", limit).put("remaining", limit - spent);
+        } else {
+            result.put("monthlyBudget", JSONObject.NULL);
+        }
+
+        JSONArray categories = new JSONArray();
+        for (CategoryBudgetEntity budget : categoryBudgetRepository.getAllCategoryBudgetsForMonth(userId, start, end)) {
+            int categoryId = budget.getCategoryId();
+            long categorySpent = categoryId >= 0 && categoryId < spentByCategory.length ? spentByCategory[categoryId] : 0;
+            categories.put(new JSONObject()
+                    .put("category", budget.getCategory())
+                    .put("budget", budget.getBudgetAmount())
+                    .put("spent", categorySpent));
+        }
+        return result.put("categoryBudgets", categories);
+    }
+
+    private static LocalDate dateArg(JSONObject args, String name, LocalDate fallback) {
+        String value = args.optString(name, "");
+        return value.isEmpty() ? fallback : LocalDate.parse(value);
+    }
+
+    private static long startMillis(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long endMillis(LocalDate day) {
+        return startMillis(day.plusDays(1)) - 1;
+    }
+
+    private static JSONObject function(String name, String description, JSONObject properties,
+                                       String... required) throws JSONException {
+        JSONObject parameters = new JSONObject()
+                .put("type", "OBJECT")
+                .put("properties", properties);
+        JSONArray requiredNames = new JSONArray();
+        for (String property : required) {
+            requiredNames.put(property);
+        }
+        parameters.put("required", requiredNames);
+        return new JSONObject()
+                .put("name", name)
+                .put("description", description)
+                .put("parameters", parameters);
+    }
+
+    private static JSONObject rangeParameters() throws JSONException {
+        return new JSONObject()
+                .put("from", property("STRING", "Ngày bắt đầu yyyy-MM-dd"))
+                .put("to", property("STRING", "Ngày kết thúc yyyy-MM-dd"));
+    }
+
+    private static JSONObject property(String type, String description) throws JSONException {
+        return new JSONObject().put("type", type).put("description", description);
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import android.app.Activity;
+import android.content.Context;
+import android.speech.tts.TextToSpeech;
+import android.util.Log;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.domain.repository.BudgetRepository;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.CurrencyFormatter;
+import com.example.spending_management_app.utils.SettingsHelper;
+import com.example.spending_management_app.utils.UserSession;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Answers the questions LocalQuestion recognizes from the cached transaction columns, without Gemini
+ * Works offline and costs no API call; everything else still goes to the AI
+ */
+public class LocalAnswerUseCase {
+
+    private static final String TAG = "LocalAnswerUseCase";
+    private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int MAX_BREAKDOWN_LINES = 8;
+
+    // Column reads are in memory once loaded, but the first one per user hits the database
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final ExpenseRepository expenseRepository;
+    private final BudgetRepository budgetRepository;
+    private final UserSession userSession;
+
+    public LocalAnswerUseCase(ExpenseRepository expenseRepository, BudgetRepository budgetRepository, Context context) {
+        this.expenseRepository = expenseRepository;
+        this.budgetRepository = budgetRepository;
+        this.userSession = UserSession.getInstance(context);
+    }
+
+    /**
+     * Answer text locally if it is one of the recognized questions
+     * Call on the main thread; the reply is added to messages once computed
+     *
+     * @return false when the question needs the AI
+     */
+    public boolean tryAnswer(String text, Activity activity, List<AiChatBottomSheet.ChatMessage> messages,
+                             AiChatBottomSheet.ChatAdapter chatAdapter, RecyclerView messagesRecycler,
+                             TextToSpeech textToSpeech) {
+        LocalQuestion question = LocalQuestion.parse(text, LocalDate.now(), categoryNames(activity));
+        if (question == null) {
+            return false;
+        }
+        long startedAt = System.nanoTime();
+        int userId = userSession.getCurrentUserId();
+        Context context = activity.getApplicationContext();
+        CompletableFuture.supplyAsync(() -> answer(question, userId, context), EXECUTOR)
+                .whenComplete((answer, error) -> activity.runOnUiThread(() -> {
+                    AiChatBottomSheet.ChatMessage reply;
+                    if (error != null) {
+                        Log.e(TAG, "Error answering " + question.intent, error);
+                        reply = AiChatBottomSheet.ChatMessage.notice(activity.getString(R.string.ai_send_error),
+                                activity.getString(R.string.now_label));
+                    } else {
+                        Log.d(TAG, question.intent + " " + question.period + " answered in "
+                                + (System.nanoTime() - startedAt) / 1_000 + "µs");
+                        reply = new AiChatBottomSheet.ChatMessage(answer, false, activity.getString(R.string.now_label));
+                    }
+                    messages.add(reply);
+                    chatAdapter.notifyItemInserted(messages.size() - 1);
+                    messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+                    if (error == null && SettingsHelper.isChatFeedbackEnabled(context)) {
+                        textToSpeech.speak(answer, TextToSpeech.QUEUE_FLUSH, null, null);
+                    }
+                }));
+        return true;
+    }
+
+    String answer(LocalQuestion question, int userId, Context context) {
+        TransactionColumns columns = expenseRepository.getColumns(userId);
+        LocalQuestion.Period period = question.period;
+        String label = periodLabel(context, period);
+        switch (question.intent) {
+            case TOTAL_EXPENSE:
+                return context.getString(R.string.local_answer_expense, label,
+                        money(context, expense(columns, period)));
+            case TOTAL_INCOME:
+                return context.getString(R.string.local_answer_income, label,
+                        money(context, total(columns, period, TransactionColumns.TYPE_INCOME)));
+            case BALANCE: {
+                long expense = expense(columns, period);
+                long income = total(columns, period, TransactionColumns.TYPE_INCOME);
+                return context.getString(R.string.local_answer_balance, label, money(context, income),
+                        money(context, expense), signed(context, income - expense));
+            }
+            case CATEGORY_TOTAL: {
+                int categoryId = CategoryRegistry.idOf(question.category);
+                long[] byCategory = byCategory(columns, period);
+                long spent = categoryId >= 0 && categoryId < byCategory.length ? byCategory[categoryId] : 0;
+                return context.getString(R.string.local_answer_category, CategoryRegistry.emojiOf(categoryId),
+                        CategoryRegistry.labelOf(context, question.category), label, money(context, spent));
+            }
+            case TOP_CATEGORY:
+            case CATEGORY_BREAKDOWN:
+                return breakdown(question, columns, label, context);
+            case COMPARE: {
+                long current = expense(columns, period);
+                long previous = expense(columns, question.comparedTo);
+                String previousLabel = periodLabel(context, question.comparedTo);
+                String change;
+                if (current == previous) {
+                    change = context.getString(R.string.local_answer_compare_same);
+                } else {
+                    String difference = money(context, Math.abs(current - previous));
+                    String percent = previous > 0 ? " (" + Math.round(Math.abs(current - previous) * 100.0 / previous) + "%)" : "";
+                    change = context.getString(current > previous ? R.string.local_answer_compare_more
+                            : R.string.local_answer_compare_less, difference + percent, previousLabel);
+                }
+                return context.getString(R.string.local_answer_compare, label, money(context, current),
+                        previousLabel, money(context, previous), change);
+            }
+            case BUDGET_STATUS:
+            default: {
+                List<BudgetEntity> budgets = budgetRepository.getBudgetsByDateRange(userId,
+                        new Date(startMillis(period.from)), new Date(endMillis(period.to)));
+                if (budgets.isEmpty() || budgets.get(0).getMonthlyLimit() <= 0) {
+                    return context.getString(R.string.local_answer_no_budget, label);
+                }
+                long limit = budgets.get(0).getMonthlyLimit();
+                long spent = expense(columns, period);
+                String status = spent <= limit
+                        ? context.getString(R.string.local_answer_budget_remaining, money(context, limit - spent),
+                                (int) Math.round((limit - spent) * 100.0 / limit))
+                        : context.getString(R.string.local_answer_budget_over, money(context, spent - limit));
+                return context.getString(R.string.local_answer_budget, label, money(context, limit),
+                        money(context, spent), status);
+            }
+        }
+    }
+
+    private String breakdown(LocalQuestion question, TransactionColumns columns, String label, Context context) {
+        long[] byCategory = byCategory(columns, question.period);
+        List<Integer> categoryIds = new ArrayList<>();
+        long total = 0;
+        for (int categoryId = 0; categoryId < byCategory.length; categoryId++) {
+            if (byCategory[categoryId] > 0) {
+                categoryIds.add(categoryId);
+                total += byCategory[categoryId];
+            }
+        }
+        if (categoryIds.isEmpty()) {
+            return context.getString(R.string.local_answer_no_spending, label);
+        }
+        categoryIds.sort((a, b) -> Long.compare(byCategory[b], byCategory[a]));
+
+        if (question.intent == LocalQuestion.Intent.TOP_CATEGORY) {
+            int top = categoryIds.get(0);
+            return context.getString(R.string.local_answer_top_category, label, CategoryRegistry.emojiOf(top),
+                    categoryLabel(context, top), money(context, byCategory[top]),
+                    (int) Math.round(byCategory[top] * 100.0 / total));
+        }
+        StringBuilder answer = new StringBuilder(context.getString(R.string.local_answer_breakdown_header,
+                label, money(context, total)));
+        for (int i = 0; i < categoryIds.size() && i < MAX_BREAKDOWN_LINES; i++) {
+            int categoryId = categoryIds.get(i);
+            answer.append('\n').append(context.getString(R.string.local_answer_breakdown_line,
+                    CategoryRegistry.emojiOf(categoryId), categoryLabel(context, categoryId),
+                    money(context, byCategory[categoryId]), (int) Math.round(byCategory[categoryId] * 100.0 / total)));
+        }
+        return answer.toString();
+    }
+
+    /**
+     * Lowercase keys and labels of every known category → category key
+     */
+    private static Map<String, String> categoryNames(Context context) {
+        Map<String, String> names = new HashMap<>();
+        for (int id = CategoryRegistry.UNKNOWN_ID + 1; id < CategoryRegistry.size(); id++) {
+            String key = CategoryRegistry.keyOf(id);
+            names.put(key.toLowerCase(Locale.ROOT), key);
+            String label = CategoryRegistry.labelOf(context, id);
+            if (label != null) {
+                names.put(label.toLowerCase(Locale.ROOT), key);
+            }
+        }
+        return names;
+    }
+
+    private static String periodLabel(Context context, LocalQuestion.Period period) {
+        LocalDate today = LocalDate.now();
+        LocalQuestion.Period current = LocalQuestion.Period.of(period.unit, today);
+        boolean isCurrent = period.equals(current);
+        boolean isPrevious = period.equals(current.previous());
+        switch (period.unit) {
+            case DAY:
+                if (isCurrent || isPrevious) {
+                    return context.getString(isCurrent ? R.string.local_period_today : R.string.local_period_yesterday);
+                }
+                return context.getString(R.string.local_period_day, period.from.format(DAY));
+            case WEEK:
+                if (isCurrent || isPrevious) {
+                    return context.getString(isCurrent ? R.string.local_period_this_week : R.string.local_period_last_week);
+                }
+                return context.getString(R.string.local_period_week, period.from.format(DAY));
+            case MONTH:
+                if (isCurrent || isPrevious) {
+                    return context.getString(isCurrent ? R.string.local_period_this_month : R.string.local_period_last_month);
+                }
+                return context.getString(R.string.local_period_month, period.from.getMonthValue(), period.from.getYear());
+            default:
+                if (isCurrent || isPrevious) {
+                    return context.getString(isCurrent ? R.string.local_period_this_year : R.string.local_period_last_year);
+                }
+                return context.getString(R.string.local_period_year, period.from.getYear());
+        }
+    }
+
+    private static String categoryLabel(Context context, int categoryId) {
+        String label = CategoryRegistry.labelOf(context, categoryId);
+        return label != null ? label : CategoryRegistry.keyOf(categoryId);
+    }
+
+    private static long expense(TransactionColumns columns, LocalQuestion.Period period) {
+        return total(columns, period, TransactionColumns.TYPE_EXPENSE);
+    }
+
+    private static long total(TransactionColumns columns, LocalQuestion.Period period, byte type) {
+        return columns.total(startMillis(period.from), endMillis(period.to), type);
+    }
+
+    private static long[] byCategory(TransactionColumns columns, LocalQuestion.Period period) {
+        return columns.sumByCategory(startMillis(period.from), endMillis(period.to), TransactionColumns.TYPE_EXPENSE);
+    }
+
+    private static String money(Context context, long amount) {
+        return CurrencyFormatter.formatCurrency(context, amount);
+    }
+
+    private static String signed(Context context, long amount) {
+        return (amount < 0 ? "-" : "") + money(context, amount);
+    }
+
+    private static long startMillis(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long endMillis(LocalDate day) {
+        return startMillis(day.plusDays(1)) - 1;
+    }
+}
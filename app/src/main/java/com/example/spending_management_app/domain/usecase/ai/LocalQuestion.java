@@ -0,0 +1,374 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import java.text.Normalizer;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A financial question simple enough to answer from local aggregates, in Vietnamese or English
+ * parse() recognizes a fixed catalogue of intents and the period they ask about; anything
+ * open-ended (analysis, advice, forecasts), commands and messages with amounts return null and
+ * stay with Gemini
+ */
+public final class LocalQuestion {
+
+    public enum Intent {
+        TOTAL_EXPENSE,      // "tháng này tôi chi bao nhiêu", "how much did I spend this week"
+        TOTAL_INCOME,       // "thu nhập tháng trước", "how much did I earn this year"
+        BALANCE,            // "số dư tháng này", "what's my balance this month"
+        CATEGORY_TOTAL,     // "tháng này ăn uống hết bao nhiêu", "how much on transport today"
+        TOP_CATEGORY,       // "danh mục chi nhiều nhất năm nay", "top category this year"
+        CATEGORY_BREAKDOWN, // "chi tiêu theo danh mục tháng này", "spending by category last month"
+        COMPARE,            // "so với tháng trước", "compare with last month"
+        BUDGET_STATUS       // "ngân sách tháng này còn bao nhiêu", "how much budget is left"
+    }
+
+    public enum Unit { DAY, WEEK, MONTH, YEAR }
+
+    /**
+     * Inclusive range of whole days
+     */
+    public static final class Period {
+        public final Unit unit;
+        public final LocalDate from;
+        public final LocalDate to;
+
+        Period(Unit unit, LocalDate from, LocalDate to) {
+            this.unit = unit;
+            this.from = from;
+            this.to = to;
+        }
+
+        static Period of(Unit unit, LocalDate day) {
+            switch (unit) {
+                case DAY:
+                    return new Period(unit, day, day);
+                case WEEK:
+                    LocalDate monday = day.with(DayOfWeek.MONDAY);
+                    return new Period(unit, monday, monday.plusDays(6));
+                case MONTH:
+                    YearMonth month = YearMonth.from(day);
+                    return new Period(unit, month.atDay(1), month.atEndOfMonth());
+                default:
+                    return new Period(unit, LocalDate.of(day.getYear(), 1, 1), LocalDate.of(day.getYear(), 12, 31));
+            }
+        }
+
+        public Period previous() {
+            switch (unit) {
+                case DAY:
+                    return of(unit, from.minusDays(1));
+                case WEEK:
+                    return of(unit, from.minusWeeks(1));
+                case MONTH:
+                    return of(unit, from.minusMonths(1));
+                default:
+                    return of(unit, from.minusYears(1));
+            }
+        }
+
+        public Period next() {
+            switch (unit) {
+                case DAY:
+                    return of(unit, from.plusDays(1));
+                case WEEK:
+                    return of(unit, from.plusWeeks(1));
+                case MONTH:
+                    return of(unit, from.plusMonths(1));
+                default:
+                    return of(unit, from.plusYears(1));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Period)) {
+                return false;
+            }
+            Period other = (Period) o;
+            return unit == other.unit && from.equals(other.from) && to.equals(other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return from.hashCode() * 31 + to.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return unit + " " + from + ".." + to;
+        }
+    }
+
+    public final Intent intent;
+    public final Period period;
+    public final Period comparedTo; // COMPARE only
+    public final String category;   // CATEGORY_TOTAL only, as a category key
+
+    private LocalQuestion(Intent intent, Period period, Period comparedTo, String category) {
+        this.intent = intent;
+        this.period = period;
+        this.comparedTo = comparedTo;
+        this.category = category;
+    }
+
+    // Needs a person or a model: explanations, advice, plans, forecasts
+    private static final Pattern OPEN_ENDED = words(
+            "phân tích", "tư vấn", "đánh giá", "xu hướng", "dự báo", "dự đoán", "nhận xét", "góp ý",
+            "tại sao", "vì sao", "làm sao", "làm thế nào", "lời khuyên", "gợi ý", "kế hoạch", "nên",
+            "analy[sz]e", "analysis", "advice", "advise", "suggest", "suggestion", "recommend", "recommendation",
+            "why", "how can", "how should", "should", "predict", "prediction", "forecast", "trend", "plan",
+            "planning", "tip");
+    private static final Pattern COMMANDS = words(
+            "thêm", "đặt", "sửa", "xóa", "xoá", "thay đổi", "thiết lập", "tăng", "giảm", "cập nhật",
+            "set", "add", "delete", "remove", "edit", "update", "change", "increase", "decrease");
+    private static final Pattern QUESTION = words(
+            "bao nhiêu", "mấy", "tổng", "\\?", "nhiều nhất", "cao nhất", "so với", "so sánh", "theo danh mục",
+            "từng danh mục", "còn lại", "còn", "là gì", "thế nào",
+            "how much", "total", "top", "most", "biggest", "highest", "compare", "vs", "versus", "by category",
+            "per category", "breakdown", "left", "remaining", "what", "which");
+    private static final Pattern BUDGET = words("ngân sách", "budget");
+    private static final Pattern COMPARE = words("so với", "so sánh", "compare", "vs", "versus", "than last",
+            "hơn tháng", "hơn tuần", "hơn năm");
+    private static final Pattern TOP = words("nhiều nhất", "cao nhất", "lớn nhất", "top", "most", "biggest", "largest",
+            "highest");
+    private static final Pattern BREAKDOWN = words("theo danh mục", "từng danh mục", "các danh mục", "mỗi danh mục",
+            "by category", "per category", "each category", "breakdown", "categories");
+    private static final Pattern INCOME = words("thu nhập", "thu về", "kiếm được", "income", "earn", "earnings");
+    private static final Pattern BALANCE = words("số dư", "tiết kiệm được", "dư bao nhiêu", "balance", "saved", "net");
+    private static final Pattern SPENDING = words("chi", "chi tiêu", "tiêu hết", "tiêu bao nhiêu", "hết bao nhiêu",
+            "tốn", "xài", "spend", "spent", "expense", "cost", "pay", "paid");
+    // "chi bao nhiêu cho cà phê": a description, not a category, so the AI searches transactions
+    private static final Pattern TARGET = words("cho", "vào", "on", "for");
+
+    // An amount means a transaction or a budget value, not a question about totals
+    private static final Pattern AMOUNT = Pattern.compile(
+            "\\d+(?:[.,]\\d+)?\\s*(?:k\\b|nghìn|ngàn|tr\\b|triệu|củ|đ\\b|đồng|vnd|usd|\\$)");
+
+    private static final String NOT_IN_WORD_BEFORE = "(?<![\\p{L}\\p{M}\\p{N}])";
+    private static final String NOT_IN_WORD_AFTER = "(?![\\p{L}\\p{M}\\p{N}])";
+    // Year a month is named with: "/2024", "năm 2024", "of 2024", "2024", or "năm ngoái", "this year"
+    private static final String MONTH_YEAR = "(?:(?:\\s*[/-]\\s*|\\s+(?:năm\\s+|of\\s+|,\\s+)?)(\\d{4})"
+            + "|\\s+(năm nay|năm ngoái|năm trước|năm rồi|this year|last year))?" + NOT_IN_WORD_AFTER;
+    private static final Pattern MONTH_NUMBER = Pattern.compile(
+            NOT_IN_WORD_BEFORE + "(?:tháng|month)\\s+(\\d{1,2})" + MONTH_YEAR);
+    private static final List<String> MONTH_NAMES = List.of("january", "february", "march", "april", "may", "june",
+            "july", "august", "september", "october", "november", "december");
+    // "may" only where it can't be the verb: "in may", "may 2024"
+    private static final Pattern MONTH_NAME = Pattern.compile(NOT_IN_WORD_BEFORE
+            + "(january|february|march|april|june|july|august|september|october|november|december"
+            + "|(?<=(?:in|of|during) )may|may(?= (?:of )?\\d{4}))" + MONTH_YEAR);
+    private static final Pattern DAY_DATE = Pattern.compile("(?:ngày|on)\\s+\\d|\\b\\d{1,2}[/-]\\d{1,2}\\b");
+    private static final Pattern YEAR_NUMBER = Pattern.compile(
+            NOT_IN_WORD_BEFORE + "(?:năm|year|in|of)\\s+(\\d{4})" + NOT_IN_WORD_AFTER);
+    // Period words parse() can't place ("tháng sau", "mỗi tuần", "quý 2", "từ tháng 3"); left over after
+    // the mentions it read, they send the question to the AI rather than answer for the wrong period
+    private static final Pattern OTHER_PERIOD = Pattern.compile(NOT_IN_WORD_BEFORE
+            + "(?:(?:(?:19|20)\\d{2}|(?:tháng|month|tuần|week|năm|year|ngày|day|quý|quarter)s?|tomorrow|since|until"
+            + "|between)" + NOT_IN_WORD_AFTER + "|(?:từ|đến|tới|from|to|through) (?=tháng|tuần|năm|ngày|hôm|month|week"
+            + "|year|day|\\d|january|february|march|april|may|june|july|august|september|october|november|december))");
+
+    /**
+     * Relative period phrases; "previous" ones name the period before the current one
+     */
+    private static final Object[][] RELATIVE = {
+            {"hôm nay", Unit.DAY, 0}, {"today", Unit.DAY, 0},
+            {"hôm qua", Unit.DAY, -1}, {"yesterday", Unit.DAY, -1},
+            {"tuần này", Unit.WEEK, 0}, {"this week", Unit.WEEK, 0},
+            {"tuần trước", Unit.WEEK, -1}, {"tuần rồi", Unit.WEEK, -1}, {"last week", Unit.WEEK, -1},
+            {"tháng này", Unit.MONTH, 0}, {"this month", Unit.MONTH, 0},
+            {"tháng trước", Unit.MONTH, -1}, {"tháng rồi", Unit.MONTH, -1}, {"last month", Unit.MONTH, -1},
+            {"năm nay", Unit.YEAR, 0}, {"this year", Unit.YEAR, 0},
+            {"năm ngoái", Unit.YEAR, -1}, {"năm trước", Unit.YEAR, -1}, {"năm rồi", Unit.YEAR, -1}, {"last year", Unit.YEAR, -1}
+    };
+
+    /**
+     * @param today Day relative periods are read against
+     * @param categories Lowercase category name or label → category key
+     * @return The question, or null when Gemini should answer it
+     */
+    public static LocalQuestion parse(String text, LocalDate today, Map<String, String> categories) {
+        String lower = " " + Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT)
+                .replaceAll("[?!.,]", " $0 ").trim().replaceAll("\\s+", " ") + " ";
+        if (containsAny(lower, OPEN_ENDED) || containsAny(lower, COMMANDS) || AMOUNT.matcher(lower).find()
+                || DAY_DATE.matcher(lower).find() || !containsAny(lower, QUESTION)) {
+            return null;
+        }
+
+        List<Mention> mentions = mentions(lower, today);
+        if (mentions == null) {
+            return null;
+        }
+        Period period = mentions.isEmpty() ? Period.of(Unit.MONTH, today) : mentions.get(0).period;
+
+        if (containsAny(lower, BUDGET)) {
+            // Monthly budget only; comparisons and category budgets need the full picture
+            if (containsAny(lower, COMPARE) || containsAny(lower, BREAKDOWN)) {
+                return null;
+            }
+            return new LocalQuestion(Intent.BUDGET_STATUS, Period.of(Unit.MONTH, period.from), null, null);
+        }
+        if (containsAny(lower, COMPARE)) {
+            if (mentions.size() >= 2) {
+                return new LocalQuestion(Intent.COMPARE, mentions.get(0).period, mentions.get(1).period, null);
+            }
+            if (!mentions.isEmpty() && mentions.get(0).previous) {
+                // "compare with last month": this month against the one named
+                return new LocalQuestion(Intent.COMPARE, period.next(), period, null);
+            }
+            return new LocalQuestion(Intent.COMPARE, period, period.previous(), null);
+        }
+        if (containsAny(lower, TOP)) {
+            return new LocalQuestion(Intent.TOP_CATEGORY, period, null, null);
+        }
+        if (containsAny(lower, BREAKDOWN)) {
+            return new LocalQuestion(Intent.CATEGORY_BREAKDOWN, period, null, null);
+        }
+        if (containsAny(lower, INCOME)) {
+            return new LocalQuestion(Intent.TOTAL_INCOME, period, null, null);
+        }
+        if (containsAny(lower, BALANCE)) {
+            return new LocalQuestion(Intent.BALANCE, period, null, null);
+        }
+        String category = category(lower, categories);
+        if (category != null) {
+            return new LocalQuestion(Intent.CATEGORY_TOTAL, period, null, category);
+        }
+        if (containsAny(lower, SPENDING) && !containsAny(lower, TARGET)) {
+            return new LocalQuestion(Intent.TOTAL_EXPENSE, period, null, null);
+        }
+        return null;
+    }
+
+    private static final class Mention {
+        final int at;
+        final int end;
+        final Period period;
+        final boolean previous;
+
+        Mention(int at, int end, Period period, boolean previous) {
+            this.at = at;
+            this.end = end;
+            this.period = period;
+            this.previous = previous;
+        }
+    }
+
+    // Every period the text names, in the order they appear; null when it names one that can't be read
+    private static List<Mention> mentions(String lower, LocalDate today) {
+        List<Mention> mentions = new ArrayList<>();
+        if (!months(MONTH_NUMBER.matcher(lower), today, mentions) || !months(MONTH_NAME.matcher(lower), today, mentions)) {
+            return null;
+        }
+        List<Mention> months = new ArrayList<>(mentions);
+        for (Object[] phrase : RELATIVE) {
+            String words = (String) phrase[0];
+            for (int at = wordAt(lower, words, 0); at >= 0; at = wordAt(lower, words, at + 1)) {
+                if (covers(months, at)) {
+                    continue; // The year of "tháng 3 năm ngoái"
+                }
+                Unit unit = (Unit) phrase[1];
+                Period current = Period.of(unit, today);
+                boolean previous = (int) phrase[2] < 0;
+                mentions.add(new Mention(at, at + words.length(), previous ? current.previous() : current, previous));
+            }
+        }
+        Matcher year = YEAR_NUMBER.matcher(lower);
+        while (year.find()) {
+            int number = Integer.parseInt(year.group(1));
+            if (number >= 1970 && !covers(months, year.start())) {
+                mentions.add(new Mention(year.start(), year.end(), Period.of(Unit.YEAR, LocalDate.of(number, 1, 1)), false));
+            }
+        }
+        Matcher other = OTHER_PERIOD.matcher(lower);
+        while (other.find()) {
+            if (!covers(mentions, other.start())) {
+                return null;
+            }
+        }
+        mentions.sort((a, b) -> Integer.compare(a.at, b.at));
+        // "tháng này" said twice is still one period
+        List<Mention> distinct = new ArrayList<>();
+        for (Mention mention : mentions) {
+            if (distinct.isEmpty() || !distinct.get(distinct.size() - 1).period.equals(mention.period)) {
+                distinct.add(mention);
+            }
+        }
+        return distinct;
+    }
+
+    // "tháng 3", "tháng 3/2024", "tháng 3 năm 2024", "march 2024", "march last year"; false on "tháng 13"
+    private static boolean months(Matcher month, LocalDate today, List<Mention> mentions) {
+        while (month.find()) {
+            String name = month.group(1);
+            int number = Character.isDigit(name.charAt(0)) ? Integer.parseInt(name) : MONTH_NAMES.indexOf(name) + 1;
+            if (number < 1 || number > 12) {
+                return false;
+            }
+            int year = today.getYear();
+            if (month.group(2) != null) {
+                year = Integer.parseInt(month.group(2));
+            } else if (month.group(3) != null && !month.group(3).equals("năm nay") && !month.group(3).equals("this year")) {
+                year--;
+            }
+            mentions.add(new Mention(month.start(), month.end(), Period.of(Unit.MONTH, LocalDate.of(year, number, 1)), false));
+        }
+        return true;
+    }
+
+    private static boolean covers(List<Mention> mentions, int at) {
+        for (Mention mention : mentions) {
+            if (mention.at <= at && at < mention.end) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Longest name wins, so "ăn ngoài & cafe" isn't read as "ăn uống"'s shorter alias
+    private static String category(String lower, Map<String, String> categories) {
+        String best = null;
+        int bestLength = 0;
+        for (Map.Entry<String, String> entry : categories.entrySet()) {
+            String name = entry.getKey();
+            if (name.length() > bestLength && containsWord(lower, name)) {
+                best = entry.getValue();
+                bestLength = name.length();
+            }
+        }
+        return best;
+    }
+
+    private static boolean containsWord(String text, String word) {
+        return wordAt(text, word, 0) >= 0;
+    }
+
+    private static int wordAt(String text, String word, int from) {
+        for (int at = text.indexOf(word, from); at >= 0; at = text.indexOf(word, at + 1)) {
+            int end = at + word.length();
+            if ((at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1)))
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                return at;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean containsAny(String text, Pattern words) {
+        return words.matcher(text).find();
+    }
+
+    // Whole words only, so "net" isn't found in "internet" nor "most" in "almost"; English words may
+    // carry a plural or verb ending ("costs", "spending")
+    private static Pattern words(String... phrases) {
+        return Pattern.compile(NOT_IN_WORD_BEFORE + "(?:" + String.join("|", phrases) + ")(?:s|es|d|ed|ing)?"
+                + NOT_IN_WORD_AFTER);
+    }
+}
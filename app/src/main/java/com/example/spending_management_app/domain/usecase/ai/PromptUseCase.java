@@ -2,18 +2,24 @@ package com.example.spending_management_app.domain.usecase.ai;
 
 import android.app.Activity;
 import android.speech.tts.TextToSpeech;
-import android.util.Log;
 
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.spending_management_app.BuildConfig;
 import com.example.spending_management_app.R;
 import com.example.spending_management_app.domain.usecase.expense.ExpenseBulkUseCase;
 import com.example.spending_management_app.domain.repository.ExpenseRepository;
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.remote.api.AiRequestScheduler;
+import com.example.spending_management_app.data.remote.api.GeminiApiService;
+import com.example.spending_management_app.data.remote.api.StructuredExpenseReply;
 import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.domain.model.ExpenseOperation;
 import com.example.spending_management_app.domain.usecase.expense.ExpenseUseCase;
+import com.example.spending_management_app.domain.usecase.expense.SpeculativeExpenseUseCase;
 import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
+import com.example.spending_management_app.utils.ChatTrace;
+import com.example.spending_management_app.utils.CurrencyFormatter;
 import com.example.spending_management_app.utils.ExtractorHelper;
 import com.example.spending_management_app.utils.LocaleHelper;
 import com.example.spending_management_app.utils.TextFormatHelper;
@@ -22,16 +28,11 @@ import com.example.spending_management_app.utils.SettingsHelper;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import java.util.ArrayList;
 import java.util.List;
 
-import okhttp3.Call;
-import okhttp3.Callback;
-import okhttp3.MediaType;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.RequestBody;
-import okhttp3.Response;
 import java.io.IOException;
+import java.io.Reader;
 
 /**
  * Service class for handling AI prompt sending operations
@@ -39,9 +40,15 @@ import java.io.IOException;
 public class PromptUseCase {
 
     private final ExpenseUseCase expenseUseCase;
+    private final SpeculativeExpenseUseCase speculativeExpenseUseCase; // null: always wait for the AI
 
     public PromptUseCase(ExpenseUseCase expenseUseCase) {
+        this(expenseUseCase, null);
+    }
+
+    public PromptUseCase(ExpenseUseCase expenseUseCase, SpeculativeExpenseUseCase speculativeExpenseUseCase) {
         this.expenseUseCase = expenseUseCase;
+        this.speculativeExpenseUseCase = speculativeExpenseUseCase;
     }
 
     /**
@@ -59,11 +66,13 @@ public class PromptUseCase {
             return;
         }
 
-        // Add temporary "Đang phân tích..." message
+        // Index of the "Đang phân tích..." message added once the request is queued
         int analyzingIndex = messages.size();
-        messages.add(new AiChatBottomSheet.ChatMessage(activity.getString(R.string.analyzing), false, activity.getString(R.string.now_label)));
-        chatAdapter.notifyItemInserted(messages.size() - 1);
-        messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+
+        // Speculative mode: a plain expense the offline parser understands is saved right away,
+        // the AI reply then confirms or corrects it
+        SpeculativeExpenseUseCase.Provisional provisional = speculativeExpenseUseCase != null
+                ? speculativeExpenseUseCase.parse(text, activity) : null;
 
         // Prepare JSON for Gemini API with system instruction
         try {
@@ -104,54 +113,32 @@ public class PromptUseCase {
             systemInstruction.put("parts", systemParts);
             json.put("system_instruction", systemInstruction);
 
-            // Build conversation history
-            JSONArray contents = new JSONArray();
-            
-            // Add previous messages (excluding the current analyzing message and welcome messages)
-            for (int i = 0; i < analyzingIndex; i++) {
-                AiChatBottomSheet.ChatMessage msg = messages.get(i);
-                // Skip welcome messages or system messages that are not part of conversation
-                if (msg.message.startsWith("📊") || msg.message.startsWith("💰") || 
-                    msg.message.startsWith("📅") || msg.message.contains("Đang phân tích") ||
-                    msg.message.contains("Lỗi") || msg.message.contains("Offline")) {
-                    continue;
-                }
-                
-                JSONObject contentObj = new JSONObject();
-                JSONArray parts = new JSONArray();
-                JSONObject part = new JSONObject();
-                part.put("text", msg.message);
-                parts.put(part);
-                contentObj.put("parts", parts);
-                contentObj.put("role", msg.isUser ? "user" : "model");
-                contents.put(contentObj);
-            }
-            
-            // Add current user message
-            JSONObject userContent = new JSONObject();
-            JSONArray userParts = new JSONArray();
-            JSONObject userPart = new JSONObject();
-            userPart.put("text", text);
-            userParts.put(userPart);
-            userContent.put("parts", userParts);
-            userContent.put("role", "user");
-            contents.put(userContent);
-            
+            // Conversation history within the token budget, then the current user message
+            JSONArray contents = ChatHistoryBuilder.contents(messages, analyzingIndex, text);
             json.put("contents", contents);
 
-            RequestBody body = RequestBody.create(json.toString(), MediaType.parse("application/json"));
-            Request request = new Request.Builder()
-                    .url("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=" + BuildConfig.GEMINI_API_KEY)
-                    .post(body)
-                    .build();
+            // Ask for JSON matching the schema instead of free text with embedded objects
+            JSONObject generationConfig = new JSONObject();
+            generationConfig.put("responseMimeType", "application/json");
+            generationConfig.put("responseSchema", new JSONObject(StructuredExpenseReply.RESPONSE_SCHEMA));
+            json.put("generationConfig", generationConfig);
 
-            OkHttpClient client = new OkHttpClient();
-            client.newCall(request).enqueue(new Callback() {
+            // One request per chat at a time; a double send of the same text is dropped
+            AiRequestScheduler.Ticket ticket = AiRequestScheduler.getInstance().submit(
+                    messages, text, AiRequestScheduler.Lane.INTERACTIVE,
+                    GeminiApiService.GENERATE_CONTENT_URL, json.toString(), new AiRequestScheduler.ResponseHandler() {
                 @Override
-                public void onFailure(Call call, IOException e) {
+                public void onFailure(int code, IOException e) {
+                    String failure = code == 0
+                            ? activity.getString(R.string.ai_connection_error)
+                            : activity.getString(R.string.ai_send_error) + " " + code;
+                    // The provisional transaction stays, as if it had been entered offline
+                    String error = provisional != null
+                            ? failure + "\n" + activity.getString(R.string.speculative_expense_kept)
+                            : failure;
                     activity.runOnUiThread(() -> {
                         // Replace analyzing message with error
-                        messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(activity.getString(R.string.ai_connection_error), false, "Bây giờ"));
+                        messages.set(analyzingIndex, AiChatBottomSheet.ChatMessage.notice(error, "Bây giờ"));
                         chatAdapter.notifyItemChanged(analyzingIndex);
                         // Update network status
                         updateNetworkStatusCallback.run();
@@ -159,87 +146,133 @@ public class PromptUseCase {
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (response.isSuccessful()) {
-                        try {
-                            String responseBody = response.body().string();
-                            JSONObject jsonResponse = new JSONObject(responseBody);
-                            JSONArray candidates = jsonResponse.getJSONArray("candidates");
-                            JSONObject candidate = candidates.getJSONObject(0);
-                            JSONObject content = candidate.getJSONObject("content");
-                            JSONArray parts = content.getJSONArray("parts");
-                            String aiText = parts.getJSONObject(0).getString("text").trim();
-
-                            // Check if response contains JSON - extract ALL JSON objects
-                            List<String> allJsonParts = ExtractorHelper.extractAllJsonFromText(aiText);
-                            String displayText = ExtractorHelper.extractDisplayText(aiText);
-
-                            android.util.Log.d("PromptService", "AI full response: " + aiText);
-                            android.util.Log.d("PromptService", "Number of JSON objects found: " + allJsonParts.size());
-                            android.util.Log.d("PromptService", "Display text: " + displayText);
-
-                            activity.runOnUiThread(() -> {
-                                // Replace analyzing message with display text
-                                android.util.Log.d("PromptService", "Updating message at index: " + analyzingIndex + " with: " + displayText);
-
-                                // Format markdown text để dễ đọc hơn
-                                String formattedDisplayText = TextFormatHelper.formatMarkdownText(displayText);
-
-                                messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(formattedDisplayText, false, "Bây giờ"));
-                                chatAdapter.notifyItemChanged(analyzingIndex);
-                                Log.d("PromptService", "AI response: " + formattedDisplayText);
-
-                                messagesRecycler.smoothScrollToPosition(messages.size() - 1);
-                                
-                                // Check chat feedback setting before speaking
-                                if (SettingsHelper.isChatFeedbackEnabled(activity.getApplicationContext())) {
-                                    textToSpeech.speak(formattedDisplayText, TextToSpeech.QUEUE_FLUSH, null, null);
+                public void onResponse(AiRequestScheduler.Ticket current, Reader body) {
+                    try {
+                        // Structured output: stream the body straight into typed operations
+                        StructuredExpenseReply reply = StructuredExpenseReply.read(body);
+
+                        String displayText;
+                        List<ExpenseOperation> operations;
+                        if (reply.structured) {
+                            displayText = reply.reply.isEmpty() ? "✅ Đã xử lý!" : reply.reply;
+                            operations = reply.expenses;
+                        } else {
+                            // Model ignored the schema: fall back to JSON embedded in free text
+                            displayText = ExtractorHelper.extractDisplayText(reply.reply);
+                            operations = new ArrayList<>();
+                            for (String jsonPart : ExtractorHelper.extractAllJsonFromText(reply.reply)) {
+                                try {
+                                    operations.add(StructuredExpenseReply.parseOperation(jsonPart));
+                                } catch (IOException | IllegalStateException | NumberFormatException e) {
+                                    android.util.Log.e("PromptService", "Skipping malformed JSON object", e);
                                 }
+                            }
+                        }
+                        android.util.Log.d("PromptService", "AI reply: structured=" + reply.structured
+                                + ", operations=" + operations.size());
 
-                                // Process ALL JSON objects found
-                                if (!allJsonParts.isEmpty()) {
-                                    android.util.Log.d("PromptService", "Processing " + allJsonParts.size() + " JSON objects");
-
-                                    for (String jsonPart : allJsonParts) {
-                                        try {
-                                            android.util.Log.d("PromptService", "Routing to saveExpenseDirectly");
-                                            expenseUseCase.saveExpenseDirectly(jsonPart, activity, messages, chatAdapter, messagesRecycler, refreshExpenseWelcomeMessageCallback);
-                                        } catch (Exception e) {
-                                            android.util.Log.e("PromptService", "Error processing JSON: " + jsonPart, e);
-                                        }
-                                    }
-                                } else {
-                                    android.util.Log.d("PromptService", "No JSON found in AI response");
-                                }
+                        // Format markdown text để dễ đọc hơn
+                        CharSequence formattedDisplayText = TextFormatHelper.renderMarkdown(displayText);
+                        ChatTrace.mark(ChatTrace.Stage.REPLY_PARSED, operations.size(), "operations");
 
-                                // Update network status after successful response
-                                updateNetworkStatusCallback.run();
-                            });
-                        } catch (Exception e) {
-                            activity.runOnUiThread(() -> {
-                                // Replace analyzing message with error
-                                messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(activity.getString(R.string.ai_processing_error), false, "Bây giờ"));
-                                chatAdapter.notifyItemChanged(analyzingIndex);
-                                updateNetworkStatusCallback.run();
-                            });
-                        }
-                    } else {
+                        activity.runOnUiThread(() -> {
+                            // Replace analyzing message with display text
+                            messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(formattedDisplayText, false, "Bây giờ"));
+                            chatAdapter.notifyItemChanged(analyzingIndex);
+
+                            messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+                            
+                            // Check chat feedback setting before speaking
+                            if (SettingsHelper.isChatFeedbackEnabled(activity.getApplicationContext())) {
+                                textToSpeech.speak(formattedDisplayText, TextToSpeech.QUEUE_FLUSH, null, null);
+                            }
+
+                            if (provisional != null) {
+                                reconcileProvisional(provisional, operations, reply.structured, activity, messages,
+                                        chatAdapter, messagesRecycler, refreshExpenseWelcomeMessageCallback);
+                            } else {
+                                // All extracted transactions are saved as one batch
+                                expenseUseCase.saveExpenses(operations, activity, refreshExpenseWelcomeMessageCallback);
+                            }
+
+                            // Update network status after successful response
+                            updateNetworkStatusCallback.run();
+                        });
+                    } catch (Exception e) {
+                        // Unreadable reply: the provisional transaction stays, unconfirmed
+                        String error = provisional != null
+                                ? activity.getString(R.string.ai_processing_error) + "\n" + activity.getString(R.string.speculative_expense_kept)
+                                : activity.getString(R.string.ai_processing_error);
                         activity.runOnUiThread(() -> {
                             // Replace analyzing message with error
-                            messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(activity.getString(R.string.ai_send_error) + " " + response.code(), false, "Bây giờ"));
+                            messages.set(analyzingIndex, AiChatBottomSheet.ChatMessage.notice(error, "Bây giờ"));
                             chatAdapter.notifyItemChanged(analyzingIndex);
                             updateNetworkStatusCallback.run();
                         });
                     }
                 }
             });
+            if (ticket == null) {
+                android.util.Log.d("PromptService", "Same message already pending, skipping duplicate");
+                return;
+            }
+
+            if (provisional != null) {
+                // Save and show the local reading now; the AI reply replaces this message
+                speculativeExpenseUseCase.apply(provisional, activity, refreshExpenseWelcomeMessageCallback);
+                TransactionEntity transaction = provisional.transaction;
+                String pending = String.format(activity.getString(R.string.speculative_expense_pending),
+                        transaction.description,
+                        CurrencyFormatter.formatCurrency(activity, Math.abs(transaction.amount)),
+                        transaction.category);
+                messages.add(AiChatBottomSheet.ChatMessage.notice(pending, activity.getString(R.string.now_label)));
+                android.util.Log.d("PromptService", "Provisional expense shown after "
+                        + (System.nanoTime() - provisional.startedAt) / 1_000_000 + " ms");
+            } else {
+                // Add temporary "Đang phân tích..." message; responses are posted after this
+                messages.add(AiChatBottomSheet.ChatMessage.notice(activity.getString(R.string.analyzing), activity.getString(R.string.now_label)));
+            }
+            chatAdapter.notifyItemInserted(messages.size() - 1);
+            messagesRecycler.smoothScrollToPosition(messages.size() - 1);
         } catch (Exception e) {
-            // Replace analyzing message with error
-            messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(activity.getString(R.string.ai_send_error), false, "Bây giờ"));
-            chatAdapter.notifyItemChanged(analyzingIndex);
+            messages.add(AiChatBottomSheet.ChatMessage.notice(activity.getString(R.string.ai_send_error), "Bây giờ"));
+            chatAdapter.notifyItemInserted(messages.size() - 1);
         }
     }
 
+    /**
+     * Confirm or correct the provisional transaction with the AI's operations; a correction, a
+     * removal or a transaction left unconfirmed is reported below the AI reply
+     */
+    private void reconcileProvisional(SpeculativeExpenseUseCase.Provisional provisional, List<ExpenseOperation> operations,
+                                      boolean structured, Activity activity, List<AiChatBottomSheet.ChatMessage> messages,
+                                      AiChatBottomSheet.ChatAdapter chatAdapter, RecyclerView messagesRecycler,
+                                      Runnable refreshExpenseWelcomeMessageCallback) {
+        speculativeExpenseUseCase.reconcile(provisional, operations, structured, activity, refreshExpenseWelcomeMessageCallback)
+                .whenComplete((outcome, error) -> {
+                    if (error != null) {
+                        android.util.Log.e("PromptService", "Error reconciling provisional expense", error);
+                        return;
+                    }
+                    if (outcome == SpeculativeExpenseUseCase.Outcome.CONFIRMED) {
+                        return;
+                    }
+                    int notice;
+                    if (outcome == SpeculativeExpenseUseCase.Outcome.CORRECTED) {
+                        notice = R.string.speculative_expense_corrected;
+                    } else if (outcome == SpeculativeExpenseUseCase.Outcome.REMOVED) {
+                        notice = R.string.speculative_expense_removed;
+                    } else {
+                        notice = R.string.speculative_expense_kept;
+                    }
+                    activity.runOnUiThread(() -> {
+                        messages.add(AiChatBottomSheet.ChatMessage.notice(activity.getString(notice), activity.getString(R.string.now_label)));
+                        chatAdapter.notifyItemInserted(messages.size() - 1);
+                        messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+                    });
+                });
+    }
+
     /**
      * Check if the user input is a delete request
      */
@@ -3,12 +3,13 @@ package com.example.spending_management_app.domain.usecase.budget;
 import android.content.Context;
 
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
 import com.example.spending_management_app.data.local.entity.BudgetHistoryEntity;
 import com.example.spending_management_app.utils.CurrencyFormatter;
+import com.example.spending_management_app.utils.UserSession;
 
 import java.util.Date;
 import java.util.Locale;
-import java.util.concurrent.Executors;
 
 public class BudgetHistoryLogger {
     
@@ -118,20 +119,25 @@ public class BudgetHistoryLogger {
      */
     private static void logBudgetHistory(Context context, String action, String budgetType, 
                                         String category, long amount, Date date, String description) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                BudgetHistoryEntity history = new BudgetHistoryEntity(
-                        action, budgetType, category, amount, date, description
-                );
-                
-                AppDatabase.getInstance(context)
-                        .budgetHistoryDao()
-                        .insert(history);
-                
-                android.util.Log.d("BudgetHistoryLogger", "Logged: " + description);
-            } catch (Exception e) {
-                android.util.Log.e("BudgetHistoryLogger", "Error logging budget history", e);
+        int userId = UserSession.getInstance(context).getCurrentUserId();
+        // Same writer as the budget change itself, so the entry lands right after it commits
+        UserWriteQueue.getInstance(context).execute(userId, () -> {
+            BudgetHistoryEntity history = new BudgetHistoryEntity(
+                    action, budgetType, category, amount, date, description
+            );
+            history.setUserId(userId);
+            AppDatabase db = AppDatabase.getInstance(context);
+            if (category != null) {
+                history.categoryId = db.categoryIdFor(category);
             }
+            
+            db.budgetHistoryDao()
+                    .insert(history);
+            
+            android.util.Log.d("BudgetHistoryLogger", "Logged: " + description);
+        }).exceptionally(e -> {
+            android.util.Log.e("BudgetHistoryLogger", "Error logging budget history", e);
+            return null;
         });
     }
 }
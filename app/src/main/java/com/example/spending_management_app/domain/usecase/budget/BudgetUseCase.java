@@ -6,6 +6,7 @@ import android.content.Context;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.domain.repository.BudgetRepository;
 import com.example.spending_management_app.domain.usecase.ai.AiContextUseCase;
@@ -22,7 +23,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.Executors;
 
 /**
  * Service class for handling budget management operations
@@ -152,7 +152,7 @@ public class BudgetUseCase {
 
         if (amount > 0) {
             // Save budget to database
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     // Create calendar for target month
                     Calendar targetCal = Calendar.getInstance();
@@ -227,7 +227,7 @@ public class BudgetUseCase {
 
                         existing.monthlyLimit = calculatedFinalAmount;
                         existing.date = budgetDate;
-                        budgetRepository.update(existing);
+                        budgetRepository.upsert(existing);
 
                         // Log budget history
                         BudgetHistoryLogger.logMonthlyBudgetUpdated(
@@ -237,7 +237,7 @@ public class BudgetUseCase {
                         if (isIncrease || isDecrease) {
                             // No existing budget to increase/decrease
                             if (activity != null) {
-                                activity.runOnUiThread(() -> {
+                                UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                                     SimpleDateFormat monthYearFormat = new SimpleDateFormat("MM/yyyy", Locale.getDefault());
                                     String monthYearStr = monthYearFormat.format(budgetDate);
                                     messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(
@@ -256,7 +256,7 @@ public class BudgetUseCase {
                         BudgetEntity budget = new BudgetEntity("Ngân sách tháng", calculatedFinalAmount, 0L, budgetDate);
                         budget.setUserId(userSession.getCurrentUserId());
                         android.util.Log.d("BudgetService", "Inserting new budget: " + budget.date + " for userId: " + budget.getUserId());
-                        budgetRepository.insert(budget);
+                        budgetRepository.upsert(budget);
 
                         // Log budget history
                         BudgetHistoryLogger.logMonthlyBudgetCreated(
@@ -274,7 +274,7 @@ public class BudgetUseCase {
 
                     // Update UI
                     if (activity != null) {
-                        activity.runOnUiThread(() -> {
+                        UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                             String responseMessage;
                             String toastMessage;
 
@@ -306,10 +306,11 @@ public class BudgetUseCase {
                     }
 
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     android.util.Log.e("BudgetService", "Error saving budget", e);
 
                     if (activity != null) {
-                        activity.runOnUiThread(() -> {
+                        UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                             messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(
                                     context.getString(R.string.budget_save_error_message),
                                     false, context.getString(R.string.now_label)));
@@ -349,7 +350,7 @@ public class BudgetUseCase {
         int targetMonth = monthYear[0];
         int targetYear = monthYear[1];
 
-        Executors.newSingleThreadExecutor().execute(() -> {
+        UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
             try {
                 // Create calendar for target month
                 Calendar targetCal = Calendar.getInstance();
@@ -389,7 +390,7 @@ public class BudgetUseCase {
                     String monthYearStr = monthYearFormat.format(startOfMonth);
 
                     if (activity != null) {
-                        activity.runOnUiThread(() -> {
+                        UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                             String responseMessage = String.format(context.getString(R.string.budget_deleted_success), monthYearStr);
 
                             messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(responseMessage, false, context.getString(R.string.now_label)));
@@ -405,7 +406,7 @@ public class BudgetUseCase {
                     String monthYearStr = monthYearFormat.format(startOfMonth);
 
                     if (activity != null) {
-                        activity.runOnUiThread(() -> {
+                        UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                             String responseMessage = String.format(context.getString(R.string.budget_not_found_for_delete), monthYearStr);
 
                             messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(responseMessage, false, context.getString(R.string.now_label)));
@@ -415,10 +416,11 @@ public class BudgetUseCase {
                 }
 
             } catch (Exception e) {
+                UserWriteQueue.markRollbackOnly();
                 android.util.Log.e("BudgetService", "Error deleting budget", e);
 
                 if (activity != null) {
-                    activity.runOnUiThread(() -> {
+                    UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                         messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(
                                 context.getString(R.string.budget_delete_error_message),
                                 false, context.getString(R.string.now_label)));
@@ -441,40 +443,26 @@ public class BudgetUseCase {
                                           Runnable updateNetworkStatusCallback) {
         String lowerText = text.toLowerCase();
 
-        // User wants to view or analyze budget - get budget data and send to AI
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                String budgetContext = aiContextUseCase.getBudgetContext(context);
-
-                // Detect if user wants detailed analysis/consultation or just viewing
-                boolean needsDetailedAnalysis = lowerText.contains("phân tích") ||
-                                               lowerText.contains("tư vấn") ||
-                                               lowerText.contains("đánh giá") ||
-                                               lowerText.contains("so sánh") ||
-                                               lowerText.contains("xu hướng") ||
-                                               lowerText.contains("dự báo") ||
-                                               lowerText.contains("nhận xét") ||
-                                               lowerText.contains("góp ý");
-
-                // Add context prefix to help AI understand user's intent
-                String queryWithContext = text;
-                if (needsDetailedAnalysis) {
-                    queryWithContext = "[YÊU CẦU PHÂN TÍCH CHI TIẾT] " + text;
-                } else {
-                    queryWithContext = "[CHỈ XEM THÔNG TIN] " + text;
-                }
+        // Detect if user wants detailed analysis/consultation or just viewing
+        boolean needsDetailedAnalysis = lowerText.contains("phân tích") ||
+                                       lowerText.contains("tư vấn") ||
+                                       lowerText.contains("đánh giá") ||
+                                       lowerText.contains("so sánh") ||
+                                       lowerText.contains("xu hướng") ||
+                                       lowerText.contains("dự báo") ||
+                                       lowerText.contains("nhận xét") ||
+                                       lowerText.contains("góp ý");
+
+        // Add context prefix to help AI understand user's intent
+        String queryWithContext;
+        if (needsDetailedAnalysis) {
+            queryWithContext = "[YÊU CẦU PHÂN TÍCH CHI TIẾT] " + text;
+        } else {
+            queryWithContext = "[CHỈ XEM THÔNG TIN] " + text;
+        }
 
-                String finalQuery = queryWithContext;
-                activity.runOnUiThread(() -> {
-                    aiContextUseCase.sendPromptToAIWithBudgetContext(context, finalQuery, budgetContext, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
-                });
-            } catch (Exception e) {
-                android.util.Log.e("BudgetService", "Error getting budget context", e);
-                activity.runOnUiThread(() -> {
-                    promptUseCase.sendPromptToAI(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> {});
-                });
-            }
-        });
+        // Gemini fetches the budget data it needs through function calls
+        aiContextUseCase.sendPromptWithTools(queryWithContext, true, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
     }
 
     /**
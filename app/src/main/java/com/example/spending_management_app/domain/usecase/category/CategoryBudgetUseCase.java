@@ -6,6 +6,7 @@ import android.content.Context;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
 import com.example.spending_management_app.domain.repository.BudgetRepository;
@@ -13,14 +14,18 @@ import com.example.spending_management_app.domain.repository.CategoryBudgetRepos
 import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
 import com.example.spending_management_app.domain.usecase.budget.BudgetHistoryLogger;
 import com.example.spending_management_app.utils.CategoryIconHelper;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.ToastHelper;
 import com.example.spending_management_app.utils.CurrencyFormatter;
 import com.example.spending_management_app.utils.UserSession;
 
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
+import java.util.Map;
 
 /**
  * Service class for handling category budget management operations
@@ -89,7 +94,7 @@ public class CategoryBudgetUseCase {
                                                         RecyclerView messagesRecycler,
                                                         Runnable refreshHomeFragmentCallback,
                                                         Runnable refreshCategoryBudgetWelcomeMessageCallback) {
-        Executors.newSingleThreadExecutor().execute(() -> {
+        UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
             try {
                 // Get current month range
                 Calendar cal = Calendar.getInstance();
@@ -139,11 +144,6 @@ public class CategoryBudgetUseCase {
                             
                             counts[0] = budgetCount;
 
-                            // Verify deletion
-                            List<CategoryBudgetEntity> remainingBudgets = 
-                                categoryBudgetRepository.getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth);
-                            android.util.Log.d("CategoryBudgetUseCase", "After deletion, remaining budgets: " + (remainingBudgets != null ? remainingBudgets.size() : 0));
-
                             // Log budget history for delete all
                             BudgetHistoryLogger.logAllCategoryBudgetsDeleted(context);
 
@@ -159,7 +159,7 @@ public class CategoryBudgetUseCase {
                         String finalMessage = resultMessage.toString();
 
                         if (activity != null) {
-                            activity.runOnUiThread(() -> {
+                            UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                                 messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(finalMessage, false, "Bây giờ"));
                                 chatAdapter.notifyItemChanged(analyzingIndex);
 
@@ -174,10 +174,11 @@ public class CategoryBudgetUseCase {
                         }
 
                     } catch (Exception e) {
+                        UserWriteQueue.markRollbackOnly();
                         android.util.Log.e("CategoryBudgetService", "Error deleting all category budgets", e);
 
                         if (activity != null) {
-                            activity.runOnUiThread(() -> {
+                            UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                                 messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(
                                         "❌ Có lỗi xảy ra khi xóa tất cả ngân sách danh mục!",
                                         false, "Bây giờ"));
@@ -189,29 +190,38 @@ public class CategoryBudgetUseCase {
                     return; // Exit early, don't process other operations
                 }
 
+                // Read the month's budgets once, resolve every operation in memory,
+                // then write all changes as one batch (no read-before-write per category)
+                Map<Integer, CategoryBudgetEntity> budgetsById = new HashMap<>();
+                for (CategoryBudgetEntity cb : categoryBudgetRepository.getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth)) {
+                    budgetsById.put(cb.categoryId, cb);
+                }
+                Map<Integer, CategoryBudgetEntity> upserts = new LinkedHashMap<>();
+                Map<Integer, String> deletes = new LinkedHashMap<>();
+                List<Runnable> historyEntries = new ArrayList<>();
+
                 for (CategoryBudgetParserUseCase.CategoryBudgetOperation op : operations) {
                     try {
+                        // A budget for a category not seen before creates it; deleting one can't match anything
+                        int categoryId = op.type.equals("delete") ? CategoryRegistry.storageIdOf(op.category)
+                                : categoryBudgetRepository.categoryIdFor(op.category);
+                        CategoryBudgetEntity existing = budgetsById.get(categoryId);
+
                         if (op.type.equals("delete")) {
                             // Delete operation
                             android.util.Log.d("CategoryBudgetUseCase", "Delete operation for category: " + op.category);
-                            
-                            CategoryBudgetEntity existing =
-                                    categoryBudgetRepository
-                                            .getCategoryBudgetForMonth(userId, op.category, startOfMonth, endOfMonth);
 
                             if (existing != null) {
                                 long deletedAmount = existing.budgetAmount;
                                 android.util.Log.d("CategoryBudgetUseCase", "Found existing budget to delete: " + op.category + " - " + deletedAmount);
-                                
-                                categoryBudgetRepository.delete(existing);
-                                
-                                // Verify deletion
-                                CategoryBudgetEntity verifyDeleted = categoryBudgetRepository.getCategoryBudgetForMonth(userId, op.category, startOfMonth, endOfMonth);
-                                android.util.Log.d("CategoryBudgetUseCase", "After delete, verify: " + (verifyDeleted == null ? "Deleted successfully" : "Still exists!"));
+
+                                budgetsById.remove(categoryId);
+                                upserts.remove(categoryId);
+                                deletes.put(categoryId, op.category);
 
                                 // Log budget history
-                                BudgetHistoryLogger.logCategoryBudgetDeleted(
-                                        context, op.category, deletedAmount);
+                                historyEntries.add(() -> BudgetHistoryLogger.logCategoryBudgetDeleted(
+                                        context, op.category, deletedAmount));
 
                                 String icon = CategoryIconHelper.getIconEmoji(op.category);
                                 resultMessage.append("✅ Xóa ").append(icon).append(" ").append(op.category).append("\n");
@@ -223,21 +233,13 @@ public class CategoryBudgetUseCase {
                             }
                         } else {
                             // Add or Edit operation
-                            CategoryBudgetEntity existing =
-                                    categoryBudgetRepository
-                                            .getCategoryBudgetForMonth(userId, op.category, startOfMonth, endOfMonth);
-
                             boolean isUpdate = (existing != null);
 
                             // Check if adding/updating will exceed monthly budget
                             if (monthlyBudgetLimit > 0) {
-                                List<CategoryBudgetEntity> allCategoryBudgets =
-                                        categoryBudgetRepository
-                                                .getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth);
-
                                 long currentTotal = 0;
-                                for (CategoryBudgetEntity cb : allCategoryBudgets) {
-                                    if (!cb.getCategory().equals(op.category)) {
+                                for (CategoryBudgetEntity cb : budgetsById.values()) {
+                                    if (cb.categoryId != categoryId) {
                                         currentTotal += cb.getBudgetAmount();
                                     }
                                 }
@@ -254,24 +256,21 @@ public class CategoryBudgetUseCase {
                                 }
                             }
 
+                            CategoryBudgetEntity budget = new CategoryBudgetEntity(op.category, op.amount, startOfMonth);
+                            budget.categoryId = categoryId;
+                            budget.setUserId(userId);
+                            budgetsById.put(categoryId, budget);
+                            upserts.put(categoryId, budget);
+                            deletes.remove(categoryId);
+
+                            // Log budget history
                             if (isUpdate) {
                                 long oldAmount = existing.budgetAmount;
-                                existing.budgetAmount = op.amount;
-                                categoryBudgetRepository.update(existing);
-
-                                // Log budget history
-                                BudgetHistoryLogger.logCategoryBudgetUpdated(
-                                        context, op.category, oldAmount, op.amount);
+                                historyEntries.add(() -> BudgetHistoryLogger.logCategoryBudgetUpdated(
+                                        context, op.category, oldAmount, op.amount));
                             } else {
-                                CategoryBudgetEntity newBudget =
-                                        new CategoryBudgetEntity(
-                                                op.category, op.amount, startOfMonth);
-                                newBudget.setUserId(userId);
-                                categoryBudgetRepository.insert(newBudget);
-
-                                // Log budget history
-                                BudgetHistoryLogger.logCategoryBudgetCreated(
-                                        context, op.category, op.amount);
+                                historyEntries.add(() -> BudgetHistoryLogger.logCategoryBudgetCreated(
+                                        context, op.category, op.amount));
                             }
 
                             String icon = CategoryIconHelper.getIconEmoji(op.category);
@@ -288,6 +287,12 @@ public class CategoryBudgetUseCase {
                     }
                 }
 
+                categoryBudgetRepository.deleteCategories(userId, startOfMonth, new ArrayList<>(deletes.values()));
+                categoryBudgetRepository.upsertAll(userId, startOfMonth, new ArrayList<>(upserts.values()));
+                for (Runnable entry : historyEntries) {
+                    entry.run();
+                }
+
                 // Add summary
                 resultMessage.append("\n📊 Kết quả: ")
                         .append(counts[0]).append(" thành công");
@@ -297,13 +302,9 @@ public class CategoryBudgetUseCase {
 
                 // If there are successful operations, show remaining budget info
                 if (counts[0] > 0 && monthlyBudgetLimit > 0) {
-                    // Recalculate total after all operations
-                    List<CategoryBudgetEntity> updatedBudgets =
-                            categoryBudgetRepository
-                                    .getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth);
-
+                    // Total after all operations, from the in-memory state that was just written
                     long totalUsed = 0;
-                    for (CategoryBudgetEntity cb : updatedBudgets) {
+                    for (CategoryBudgetEntity cb : budgetsById.values()) {
                         totalUsed += cb.getBudgetAmount();
                     }
 
@@ -321,7 +322,7 @@ public class CategoryBudgetUseCase {
                 String finalMessage = resultMessage.toString();
 
                 if (activity != null) {
-                    activity.runOnUiThread(() -> {
+                    UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                         messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(finalMessage, false, "Bây giờ"));
                         chatAdapter.notifyItemChanged(analyzingIndex);
 
@@ -348,10 +349,11 @@ public class CategoryBudgetUseCase {
                 }
 
             } catch (Exception e) {
+                UserWriteQueue.markRollbackOnly();
                 android.util.Log.e("CategoryBudgetService", "Error processing category budget operations", e);
 
                 if (activity != null) {
-                    activity.runOnUiThread(() -> {
+                    UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
                         messages.set(analyzingIndex, new AiChatBottomSheet.ChatMessage(
                                 "❌ Có lỗi xảy ra khi xử lý yêu cầu!",
                                 false, "Bây giờ"));
@@ -3,20 +3,20 @@ package com.example.spending_management_app.domain.usecase.expense;
 import android.app.Activity;
 import android.content.Context;
 
-import androidx.recyclerview.widget.RecyclerView;
-
 import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.domain.model.ExpenseOperation;
 import com.example.spending_management_app.domain.repository.ExpenseRepository;
-import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
 import com.example.spending_management_app.utils.FragmentRefreshHelper;
 import com.example.spending_management_app.utils.ToastHelper;
 import com.example.spending_management_app.utils.UserSession;
 
-import org.json.JSONObject;
-
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Service class for handling expense operations
@@ -32,109 +32,97 @@ public class ExpenseUseCase {
     }
 
     /**
-     * Save expense directly from AI response JSON
+     * Save every transaction extracted from one AI reply as a single batch
+     */
+    public void saveExpenses(List<ExpenseOperation> operations, Activity activity,
+                             Runnable refreshExpenseWelcomeMessageCallback) {
+        if (operations.isEmpty()) {
+            return;
+        }
+        android.util.Log.d("ExpenseService", "saveExpenses called with " + operations.size() + " operations");
+
+        int userId = userSession.getCurrentUserId();
+        List<TransactionEntity> transactions = toTransactions(operations, userId);
+
+        // Một task trên hàng đợi ghi của user, một transaction cho cả lô
+        UserWriteQueue.getInstance(activity).execute(userId, () -> {
+            expenseRepository.insertAll(transactions);
+            android.util.Log.d("ExpenseService", "Saved " + transactions.size() + " transactions");
+
+            // Một toast và một lần refresh cho cả lô, sau khi dữ liệu đã commit
+            UserWriteQueue.afterCommit(activity::runOnUiThread, () -> {
+                ToastHelper.showToastOnTop(activity, toastMessage(activity, operations));
+
+                // Refresh HomeFragment if available
+                refreshHomeFragment(activity);
+
+                // Also refresh HistoryFragment if it exists
+                refreshHistoryFragment(activity);
+
+                // Refresh expense welcome message
+                if (refreshExpenseWelcomeMessageCallback != null) {
+                    refreshExpenseWelcomeMessageCallback.run();
+                }
+            });
+        }).exceptionally(e -> {
+            activity.runOnUiThread(() -> {
+                String errorMessage = String.format(activity.getString(R.string.save_data_error), e.getMessage());
+                ToastHelper.showErrorToast(activity, errorMessage);
+                android.util.Log.e("ExpenseService", "Error saving expenses", e);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * Transactions for the operations of one AI reply; missing dates default to today
+     */
+    public static List<TransactionEntity> toTransactions(List<ExpenseOperation> operations, int userId) {
+        return toTransactions(operations, userId, operation -> LocalDate.now());
+    }
+
+    /**
+     * Same, with missing day, month or year taken from the day the operation was sent on
      */
-    public void saveExpenseDirectly(String jsonString, Activity activity,
-                                         List<AiChatBottomSheet.ChatMessage> messages,
-                                         AiChatBottomSheet.ChatAdapter chatAdapter,
-                                         RecyclerView messagesRecycler,
-                                         Runnable refreshExpenseWelcomeMessageCallback) {
-        android.util.Log.d("ExpenseService", "saveExpenseDirectly called with: " + jsonString);
-
-        try {
-            // Parse JSON từ AI response
-            JSONObject json = new JSONObject(jsonString);
-            android.util.Log.d("ExpenseService", "JSON parsed successfully");
-
-            if (json != null) {
-                // Lấy giá trị từ JSON
-                String name = json.optString("name", "");
-                double amount = json.optDouble("amount", 0.0);
-                String category = json.optString("category", "");
-                String currency = json.optString("currency", "VND");
-                String type = json.optString("type", "expense");
-                int day = json.optInt("day", Calendar.getInstance().get(Calendar.DAY_OF_MONTH));
-                int month = json.optInt("month", Calendar.getInstance().get(Calendar.MONTH) + 1);
-                int year = json.optInt("year", Calendar.getInstance().get(Calendar.YEAR));
-
-                android.util.Log.d("ExpenseService", "Extracted data: name=" + name + ", amount=" + amount + ", category=" + category);
-
-                // Tạo Calendar object
-                Calendar calendar = Calendar.getInstance();
-                calendar.set(year, month - 1, day); // Month is 0-based
-
-                // Tạo TransactionEntity với constructor đúng
-                long transactionAmount = type.equals("expense") ? -Math.abs((long)amount) : (long)amount;
-                TransactionEntity transaction = new TransactionEntity(
-                    name,                    // description
-                    category,                // category
-                    transactionAmount,       // amount (negative for expense)
-                    calendar.getTime(),      // date
-                    type                     // type
-                );
-
-                android.util.Log.d("ExpenseService", "Transaction entity created, starting save process");
-
-                // Set userId cho transaction
-                transaction.setUserId(userSession.getCurrentUserId());
-                
-                // Lưu vào database trong background thread
-                new Thread(() -> {
-                    android.util.Log.d("ExpenseService", "Background thread started for database save, userId: " + transaction.getUserId());
-                    try {
-                        expenseRepository.insert(transaction);
-                        android.util.Log.d("ExpenseService", "Database save successful");
-
-                        // Hiển thị toast trên main thread với layer cao nhất
-                        activity.runOnUiThread(() -> {
-                            android.util.Log.d("ExpenseService", "Back on UI thread, preparing toast");
-                            String transactionType = type.equals("expense") ? 
-                                activity.getString(R.string.expense_type) :
-                                activity.getString(R.string.income_type);
-                            
-                            String toastMessage = String.format(activity.getString(R.string.expense_added_toast),
-                                transactionType, amount, currency, category);
-
-                            android.util.Log.d("ExpenseService", "Toast message: " + toastMessage);
-
-                            // Hiển thị 1 toast duy nhất ở TOP với UI đẹp
-                            ToastHelper.showToastOnTop(activity, toastMessage);
-
-                            // Refresh HomeFragment if available
-                            refreshHomeFragment(activity);
-
-                            // Also refresh HistoryFragment if it exists
-                            refreshHistoryFragment(activity);
-
-                            // Refresh expense welcome message
-                            if (refreshExpenseWelcomeMessageCallback != null) {
-                                refreshExpenseWelcomeMessageCallback.run();
-                            }
-                        });
-
-                        // Hiển thị message trong chat trên main thread
-                        activity.runOnUiThread(() -> {
-                            // Chỉ hiển thị toast, không thêm message nữa vì AI đã trả về display text rồi
-                            android.util.Log.d("ExpenseService", "Skipping additional chat message - AI already provided response");
-                        });
-
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                        activity.runOnUiThread(() -> {
-                            String errorMessage = String.format(activity.getString(R.string.save_data_error), e.getMessage());
-                            ToastHelper.showErrorToast(activity, errorMessage);
-                            android.util.Log.e("ExpenseService", "Error saving expense", e);
-                        });
-                    }
-                }).start();
-            }
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            String errorMessage = String.format(activity.getString(R.string.process_data_error), e.getMessage());
-            ToastHelper.showErrorToast(activity, errorMessage);
-            android.util.Log.e("ExpenseService", "Error processing data", e);
+    public static List<TransactionEntity> toTransactions(List<ExpenseOperation> operations, int userId,
+                                                         Function<ExpenseOperation, LocalDate> sentOn) {
+        List<TransactionEntity> transactions = new ArrayList<>(operations.size());
+        for (ExpenseOperation operation : operations) {
+            transactions.add(toEntity(operation, userId, sentOn.apply(operation)));
+        }
+        return transactions;
+    }
+
+    private static TransactionEntity toEntity(ExpenseOperation operation, int userId, LocalDate sentOn) {
+        // Ngày/tháng/năm thiếu thì dùng ngày gửi, giờ lấy theo hiện tại
+        Calendar calendar = Calendar.getInstance();
+        int year = operation.getYear() > 0 ? operation.getYear() : sentOn.getYear();
+        int month = operation.getMonth() > 0 ? operation.getMonth() : sentOn.getMonthValue();
+        int day = operation.getDay() > 0 ? operation.getDay() : sentOn.getDayOfMonth();
+        calendar.set(year, month - 1, day); // Month is 0-based
+
+        long amount = operation.isExpense() ? -Math.abs((long) operation.getAmount()) : (long) operation.getAmount();
+        TransactionEntity transaction = new TransactionEntity(
+            operation.getName(),         // description
+            operation.getCategory(),     // category
+            amount,                      // amount (negative for expense)
+            calendar.getTime(),          // date
+            operation.isExpense() ? "expense" : "income"
+        );
+        transaction.setUserId(userId);
+        return transaction;
+    }
+
+    private static String toastMessage(Activity activity, List<ExpenseOperation> operations) {
+        if (operations.size() > 1) {
+            return String.format(activity.getString(R.string.expenses_added_toast), operations.size());
         }
+        ExpenseOperation operation = operations.get(0);
+        String transactionType = operation.isExpense()
+            ? activity.getString(R.string.expense_type)
+            : activity.getString(R.string.income_type);
+        return String.format(activity.getString(R.string.expense_added_toast),
+            transactionType, operation.getAmount(), operation.getCurrency(), operation.getCategory());
     }
 
     /**
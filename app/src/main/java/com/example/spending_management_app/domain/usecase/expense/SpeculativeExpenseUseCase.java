@@ -0,0 +1,184 @@
+package com.example.spending_management_app.domain.usecase.expense;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.domain.model.ExpenseOperation;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.domain.usecase.offline.OfflineRequestHandler;
+import com.example.spending_management_app.utils.FragmentRefreshHelper;
+import com.example.spending_management_app.utils.SettingsHelper;
+import com.example.spending_management_app.utils.UserSession;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+/**
+ * Speculative expense entry: the offline parser's reading of a message is saved and shown at once,
+ * then the AI reply for the same message confirms or corrects it
+ * The provisional transaction is tracked by its row id. Both writes go through the user's write
+ * queue, so reconciliation always runs after the provisional insert has set that id
+ */
+public class SpeculativeExpenseUseCase {
+
+    private static final String TAG = "SpeculativeExpense";
+
+    // Separators between items of one message, e.g. "ăn sáng 25k và cafe 30k"
+    private static final Pattern ITEM_SEPARATOR = Pattern.compile("\\s+(?:và|and|với|with)\\s+|,\\s|[;+\\n]");
+    private static final Pattern DIGIT = Pattern.compile("\\d");
+
+    public enum Outcome {
+        CONFIRMED, // AI read the same transaction; only its description is kept
+        CORRECTED, // AI read something else; its transactions replace the provisional one
+        REMOVED,   // AI's structured reply listed no transaction
+        UNCONFIRMED // AI's reply had no readable transaction; the provisional one stays as saved
+    }
+
+    /**
+     * A locally parsed expense saved ahead of the AI reply
+     */
+    public static final class Provisional {
+        public final TransactionEntity transaction; // id is set once the insert has run
+        public final long startedAt; // System.nanoTime() when parsing started
+
+        Provisional(TransactionEntity transaction, long startedAt) {
+            this.transaction = transaction;
+            this.startedAt = startedAt;
+        }
+    }
+
+    private final ExpenseRepository expenseRepository;
+    private final UserSession userSession;
+
+    public SpeculativeExpenseUseCase(ExpenseRepository expenseRepository, Context context) {
+        this.expenseRepository = expenseRepository;
+        this.userSession = UserSession.getInstance(context);
+    }
+
+    /**
+     * Parse text as one expense the offline parser understands; null when speculation is off or
+     * the message isn't a single plain expense (several items, deletes, other currencies)
+     */
+    public Provisional parse(String text, Context context) {
+        if (!SettingsHelper.isSpeculativeExpenseEnabled(context)
+                || !"VND".equals(SettingsHelper.getSelectedCurrency(context))) {
+            return null; // The offline parser reads amounts as VND ("50k", "2 triệu")
+        }
+        long startedAt = System.nanoTime();
+        if (!isSingleExpense(text)) {
+            return null;
+        }
+        TransactionEntity transaction = OfflineRequestHandler.parseExpense(text, userSession.getCurrentUserId());
+        return transaction != null ? new Provisional(transaction, startedAt) : null;
+    }
+
+    /**
+     * Save the provisional transaction; Home and History refresh once it has committed
+     */
+    public void apply(Provisional provisional, Activity activity, Runnable refreshExpenseWelcomeMessageCallback) {
+        UserWriteQueue.getInstance(activity).execute(provisional.transaction.userId, () -> {
+            expenseRepository.insert(provisional.transaction);
+            android.util.Log.d(TAG, "Provisional transaction #" + provisional.transaction.id + " saved");
+            UserWriteQueue.afterCommit(activity::runOnUiThread,
+                    () -> refresh(activity, refreshExpenseWelcomeMessageCallback));
+        }).exceptionally(e -> {
+            android.util.Log.e(TAG, "Error saving provisional transaction", e);
+            return null;
+        });
+    }
+
+    /**
+     * Bring the provisional transaction in line with what the AI extracted from the same message
+     *
+     * @param structured Whether operations come from a reply that followed the response schema;
+     *                   only then does an empty list mean there was no transaction
+     */
+    public CompletableFuture<Outcome> reconcile(Provisional provisional, List<ExpenseOperation> operations,
+                                                boolean structured, Activity activity,
+                                                Runnable refreshExpenseWelcomeMessageCallback) {
+        TransactionEntity pending = provisional.transaction;
+        List<TransactionEntity> confirmed = ExpenseUseCase.toTransactions(operations, pending.userId);
+        return UserWriteQueue.getInstance(activity).submit(pending.userId, () -> {
+            Outcome outcome = outcomeOf(pending, confirmed, structured);
+            if (outcome == Outcome.UNCONFIRMED) {
+                android.util.Log.d(TAG, "Provisional transaction #" + pending.id + " kept unconfirmed");
+                return outcome;
+            }
+            if (pending.id == 0) {
+                // The provisional insert failed: the AI's reading is all there is
+                expenseRepository.insertAll(confirmed);
+            } else if (outcome == Outcome.CONFIRMED) {
+                String description = confirmed.get(0).description;
+                if (description != null && !description.isEmpty() && !description.equals(pending.description)) {
+                    pending.description = description;
+                    expenseRepository.update(pending);
+                }
+            } else if (outcome == Outcome.CORRECTED) {
+                TransactionEntity first = confirmed.get(0);
+                first.id = pending.id; // Keep the row the user already saw, with the AI's values
+                expenseRepository.update(first);
+                expenseRepository.insertAll(confirmed.subList(1, confirmed.size()));
+            } else {
+                expenseRepository.delete(pending);
+            }
+            android.util.Log.d(TAG, "Provisional transaction #" + pending.id + " " + outcome);
+            if (outcome != Outcome.CONFIRMED) {
+                UserWriteQueue.afterCommit(activity::runOnUiThread,
+                        () -> refresh(activity, refreshExpenseWelcomeMessageCallback));
+            }
+            return outcome;
+        });
+    }
+
+    /**
+     * One item with an amount, not a delete or edit command
+     */
+    static boolean isSingleExpense(String text) {
+        String lowerText = text.toLowerCase();
+        if (lowerText.contains("xóa") || lowerText.contains("xoá") || lowerText.contains("xoa")
+                || lowerText.contains("sửa") || lowerText.contains("delete") || lowerText.contains("remove")
+                || lowerText.contains("edit") || lowerText.contains("thu nhập") || lowerText.contains("lương")
+                || lowerText.contains("income") || lowerText.contains("salary")) {
+            return false;
+        }
+        if (!OfflineRequestHandler.containsExpenseKeywords(lowerText)) {
+            return false;
+        }
+        int itemsWithAmount = 0;
+        for (String item : ITEM_SEPARATOR.split(lowerText)) {
+            if (DIGIT.matcher(item).find()) {
+                itemsWithAmount++;
+            }
+        }
+        return itemsWithAmount == 1;
+    }
+
+    static Outcome outcomeOf(TransactionEntity provisional, List<TransactionEntity> confirmed, boolean structured) {
+        if (confirmed.isEmpty()) {
+            // Chat text or a reply that ignored the schema says nothing about the transaction
+            return structured ? Outcome.REMOVED : Outcome.UNCONFIRMED;
+        }
+        if (confirmed.size() == 1 && sameBooking(provisional, confirmed.get(0))) {
+            return Outcome.CONFIRMED;
+        }
+        return Outcome.CORRECTED;
+    }
+
+    // Same money on the same day in the same category; descriptions are free text
+    static boolean sameBooking(TransactionEntity a, TransactionEntity b) {
+        return a.amount == b.amount && a.categoryId == b.categoryId && a.epochDay == b.epochDay
+                && Objects.equals(a.type, b.type);
+    }
+
+    private static void refresh(Activity activity, Runnable refreshExpenseWelcomeMessageCallback) {
+        FragmentRefreshHelper.refreshHomeFragment(activity);
+        FragmentRefreshHelper.refreshHistoryFragment(activity);
+        if (refreshExpenseWelcomeMessageCallback != null) {
+            refreshExpenseWelcomeMessageCallback.run();
+        }
+    }
+}
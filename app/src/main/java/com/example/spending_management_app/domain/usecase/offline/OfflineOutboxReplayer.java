@@ -0,0 +1,432 @@
+package com.example.spending_management_app.domain.usecase.offline;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.dao.AiOutboxDao;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
+import com.example.spending_management_app.data.local.entity.AiOutboxEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.remote.api.AiRequestScheduler;
+import com.example.spending_management_app.data.remote.api.GeminiApiService;
+import com.example.spending_management_app.data.remote.api.StructuredExpenseReply;
+import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.CategoryBudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.domain.model.ExpenseOperation;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.domain.usecase.ai.AiContextUseCase;
+import com.example.spending_management_app.domain.usecase.ai.AiSystemInstructions;
+import com.example.spending_management_app.domain.usecase.expense.ExpenseUseCase;
+import com.example.spending_management_app.utils.LocaleHelper;
+import com.example.spending_management_app.utils.SettingsHelper;
+import com.example.spending_management_app.utils.UserSession;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Outbox for chat requests that need Gemini while the device is offline
+ * Requests are stored in Room (the same text twice is stored once) and replayed when a network
+ * becomes available: queued expense phrases go out together as one structured-output call,
+ * questions one by one through the function-calling conversation. Answers stay on their rows
+ * until a chat shows them
+ */
+public final class OfflineOutboxReplayer {
+
+    static final int EXPENSE_BATCH = 10; // Phrases per Gemini call
+    static final int MAX_ATTEMPTS = 5; // Replays before a request is answered with an error
+    static final long REPLY_TIMEOUT_SECONDS = 120;
+
+    private static final String TAG = "OfflineOutboxReplayer";
+
+    // Scheduler conversation of the replay, so batches go out one at a time
+    private static final Object REPLAY_CONVERSATION = new Object();
+
+    private static OfflineOutboxReplayer instance;
+
+    private final Context context;
+    private final AiOutboxDao outboxDao;
+    private final ExpenseRepository expenseRepository;
+    private final AiContextUseCase aiContextUseCase;
+    private final UserWriteQueue writeQueue;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "outbox-replay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Runnable answersListener;
+
+    OfflineOutboxReplayer(Context context, AppDatabase appDatabase, UserWriteQueue writeQueue) {
+        this.context = context.getApplicationContext();
+        this.outboxDao = appDatabase.aiOutboxDao();
+        this.expenseRepository = new ExpenseRepositoryImpl(appDatabase);
+        this.aiContextUseCase = new AiContextUseCase(expenseRepository, new BudgetRepositoryImpl(appDatabase),
+                new CategoryBudgetRepositoryImpl(appDatabase), this.context);
+        this.writeQueue = writeQueue;
+    }
+
+    public static synchronized OfflineOutboxReplayer getInstance(Context context) {
+        if (instance == null) {
+            instance = new OfflineOutboxReplayer(context, AppDatabase.getInstance(context),
+                    UserWriteQueue.getInstance(context));
+        }
+        return instance;
+    }
+
+    /**
+     * Replay whenever a default network comes up; the callback also fires right away if one is up
+     */
+    public void register() {
+        ConnectivityManager connectivityManager = context.getSystemService(ConnectivityManager.class);
+        if (connectivityManager == null) {
+            return;
+        }
+        connectivityManager.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(@NonNull Network network) {
+                replay();
+            }
+        });
+    }
+
+    /**
+     * Called on the replay thread when new answers are waiting; the open chat sets this
+     */
+    public void setAnswersListener(Runnable listener) {
+        answersListener = listener;
+    }
+
+    public void clearAnswersListener(Runnable listener) {
+        if (answersListener == listener) {
+            answersListener = null;
+        }
+    }
+
+    /**
+     * Queue a request
+     * @return Future of false when the same request is already waiting
+     */
+    public CompletableFuture<Boolean> enqueue(int userId, String kind, String text) {
+        if (!AiOutboxEntity.KIND_EXPENSE.equals(kind)) {
+            AiOutboxEntity request = new AiOutboxEntity(userId, kind, text, dedupeKey(kind, text), new Date());
+            return writeQueue.submit(userId, () -> outboxDao.insert(request) != -1);
+        }
+        // The same expense typed twice is two purchases, so its key gets the row id once inserted
+        AiOutboxEntity request = new AiOutboxEntity(userId, kind, text, dedupeKey(kind, text) + "#new", new Date());
+        return writeQueue.submit(userId, () -> {
+            int id = (int) outboxDao.insert(request);
+            outboxDao.setDedupeKey(id, dedupeKey(kind, text) + "#" + id);
+            return true;
+        });
+    }
+
+    /**
+     * Take the answers waiting for a user, oldest first; they are removed from the outbox
+     */
+    public CompletableFuture<List<String>> takeAnswers(int userId) {
+        return writeQueue.submit(userId, () -> {
+            List<AiOutboxEntity> answered = outboxDao.getAnswered(userId);
+            List<String> answers = new ArrayList<>(answered.size());
+            List<Integer> ids = new ArrayList<>(answered.size());
+            for (AiOutboxEntity request : answered) {
+                answers.add(request.result);
+                ids.add(request.id);
+            }
+            if (!ids.isEmpty()) {
+                outboxDao.delete(ids);
+            }
+            return answers;
+        });
+    }
+
+    /**
+     * Replay the current user's pending requests in the background
+     */
+    public void replay() {
+        worker.execute(() -> {
+            int userId = UserSession.getInstance(context).getCurrentUserId();
+            try {
+                if (replayPending(userId)) {
+                    Runnable listener = answersListener;
+                    if (listener != null) {
+                        listener.run();
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Replay failed", e);
+            }
+        });
+    }
+
+    // True when at least one request got an answer
+    boolean replayPending(int userId) throws Exception {
+        boolean answered = false;
+        while (true) {
+            List<AiOutboxEntity> pending = outboxDao.getPending(userId, EXPENSE_BATCH);
+            if (pending.isEmpty()) {
+                return answered;
+            }
+            List<AiOutboxEntity> batch = nextBatch(pending);
+            Log.d(TAG, "Replaying " + batch.size() + " " + batch.get(0).kind + " request(s)");
+
+            int failureCode;
+            try {
+                boolean sent = AiOutboxEntity.KIND_EXPENSE.equals(batch.get(0).kind)
+                        ? replayExpenses(userId, batch)
+                        : replayQuestion(userId, batch.get(0));
+                if (!sent) {
+                    // An earlier attempt is still pending: not a failure, try again on the next callback
+                    Log.d(TAG, "Request " + batch.get(0).id + " is still in flight");
+                    return answered;
+                }
+                answered = true;
+                continue;
+            } catch (ExecutionException e) {
+                failureCode = e.getCause() instanceof ReplayFailure ? ((ReplayFailure) e.getCause()).code : -1;
+                Log.w(TAG, "Replay attempt failed, code " + failureCode, e.getCause());
+            } catch (TimeoutException e) {
+                failureCode = 0;
+                Log.w(TAG, "Replay attempt timed out");
+            }
+
+            if (recordFailure(userId, batch)) {
+                answered = true;
+            }
+            if (failureCode == 0) {
+                // Connection lost again: wait for the next network callback
+                return answered;
+            }
+        }
+    }
+
+    /**
+     * Expense phrases go out together; anything else one request at a time, in queue order
+     */
+    static List<AiOutboxEntity> nextBatch(List<AiOutboxEntity> pending) {
+        List<AiOutboxEntity> batch = new ArrayList<>();
+        if (!AiOutboxEntity.KIND_EXPENSE.equals(pending.get(0).kind)) {
+            batch.add(pending.get(0));
+            return batch;
+        }
+        for (AiOutboxEntity request : pending) {
+            if (AiOutboxEntity.KIND_EXPENSE.equals(request.kind)) {
+                batch.add(request);
+            }
+        }
+        return batch;
+    }
+
+    // False if the batch wasn't sent because the same request is still pending in the scheduler
+    private boolean replayExpenses(int userId, List<AiOutboxEntity> batch) throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate yesterday = today.minusDays(1);
+        String appLanguage = LocaleHelper.getLanguage(context);
+        String appCurrency = SettingsHelper.getSelectedCurrency(context);
+        if (appCurrency == null || appCurrency.isEmpty()) appCurrency = "VND";
+        String instruction = AiSystemInstructions.getExpenseTrackingInstruction(
+                String.format(Locale.ROOT, "Hôm nay là ngày %d/%d/%d", today.getDayOfMonth(), today.getMonthValue(), today.getYear()),
+                today.getDayOfMonth(), today.getMonthValue(), today.getYear(),
+                yesterday.getDayOfMonth(), yesterday.getMonthValue(), yesterday.getYear(),
+                appLanguage, appCurrency) + AiSystemInstructions.getOfflineBatchInstruction();
+
+        JSONObject json = new JSONObject();
+        json.put("system_instruction", new JSONObject().put("parts",
+                new JSONArray().put(new JSONObject().put("text", instruction))));
+        json.put("contents", new JSONArray().put(new JSONObject()
+                .put("role", "user")
+                .put("parts", new JSONArray().put(new JSONObject().put("text", batchPrompt(batch))))));
+        json.put("generationConfig", new JSONObject()
+                .put("responseMimeType", "application/json")
+                .put("responseSchema", new JSONObject(StructuredExpenseReply.BATCH_RESPONSE_SCHEMA)));
+
+        CompletableFuture<StructuredExpenseReply> reply = new CompletableFuture<>();
+        AiRequestScheduler.Ticket ticket = AiRequestScheduler.getInstance().submit(
+                REPLAY_CONVERSATION, "outbox:" + batch.get(0).id, AiRequestScheduler.Lane.BACKGROUND,
+                GeminiApiService.GENERATE_CONTENT_URL, json.toString(),
+                new AiRequestScheduler.ResponseHandler() {
+                    @Override
+                    public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) throws IOException {
+                        reply.complete(StructuredExpenseReply.read(body));
+                    }
+
+                    @Override
+                    public void onFailure(int code, IOException error) {
+                        reply.completeExceptionally(new ReplayFailure(code, error));
+                    }
+                });
+        if (ticket == null) {
+            return false;
+        }
+        StructuredExpenseReply result;
+        try {
+            result = reply.get(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Nobody waits for this reply anymore; the next replay sends the rows again
+            ticket.cancel();
+            throw e;
+        }
+
+        // A date the model left out is relative to the phrase's send day, not to the replay
+        List<TransactionEntity> transactions = ExpenseUseCase.toTransactions(result.expenses, userId,
+                operation -> sentOn(messageOf(operation, batch)));
+        StringBuilder phrases = new StringBuilder();
+        for (AiOutboxEntity request : batch) {
+            phrases.append(phrases.length() > 0 ? "\n" : "").append("• ").append(request.text);
+        }
+        String answer = context.getString(R.string.outbox_expenses_result, batch.size(), phrases, result.reply);
+
+        // Transactions and the answer commit together, so a batch is never saved twice
+        List<Integer> merged = idsOf(batch.subList(1, batch.size()));
+        writeQueue.execute(userId, () -> {
+            if (!transactions.isEmpty()) {
+                expenseRepository.insertAll(transactions);
+            }
+            outboxDao.setResult(idsOf(batch.subList(0, 1)), AiOutboxEntity.STATUS_ANSWERED, answer);
+            if (!merged.isEmpty()) {
+                outboxDao.delete(merged);
+            }
+        }).get();
+        Log.d(TAG, "Saved " + transactions.size() + " transactions from " + batch.size() + " queued phrases");
+        return true;
+    }
+
+    private boolean replayQuestion(int userId, AiOutboxEntity request) throws Exception {
+        CompletableFuture<CharSequence> reply = new CompletableFuture<>();
+        LocalDate askedOn = sentOn(request);
+        boolean sent = aiContextUseCase.sendQuestionInBackground(request.text, AiOutboxEntity.KIND_BUDGET.equals(request.kind),
+                askedOn, context, REPLAY_CONVERSATION, "outbox:" + request.id,
+                new GeminiApiService.AIResponseCallback() {
+                    @Override
+                    public void onSuccess(CharSequence formattedResponse) {
+                        reply.complete(formattedResponse);
+                    }
+
+                    @Override
+                    public void onFailure(String errorMessage) {
+                        // Connection errors have no status code; the message alone tells them apart
+                        int code = errorMessage.equals(context.getString(R.string.ai_connection_error)) ? 0 : -1;
+                        reply.completeExceptionally(new ReplayFailure(code, new IOException(errorMessage)));
+                    }
+                });
+        if (!sent) {
+            return false;
+        }
+        CharSequence formatted;
+        try {
+            formatted = reply.get(REPLY_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            // Replays go one at a time, so the replay conversation holds only this question's rounds
+            AiRequestScheduler.getInstance().cancelConversation(REPLAY_CONVERSATION);
+            throw e;
+        }
+        String answer = context.getString(R.string.outbox_question_result, request.text, formatted);
+        writeQueue.execute(userId, () ->
+                outboxDao.setResult(idsOf(List.of(request)), AiOutboxEntity.STATUS_ANSWERED, answer)).get();
+        return true;
+    }
+
+    // Count a failed attempt; requests out of attempts are answered with an error. True if any was
+    private boolean recordFailure(int userId, List<AiOutboxEntity> batch) throws Exception {
+        List<Integer> exhausted = new ArrayList<>();
+        for (AiOutboxEntity request : batch) {
+            if (request.attempts + 1 >= MAX_ATTEMPTS) {
+                exhausted.add(request.id);
+            }
+        }
+        writeQueue.execute(userId, () -> {
+            outboxDao.incrementAttempts(idsOf(batch));
+            for (AiOutboxEntity request : batch) {
+                if (exhausted.contains(request.id)) {
+                    outboxDao.setResult(List.of(request.id), AiOutboxEntity.STATUS_ANSWERED,
+                            context.getString(R.string.outbox_failed, request.text));
+                }
+            }
+        }).get();
+        return !exhausted.isEmpty();
+    }
+
+    /**
+     * One user turn listing the queued phrases, numbered from 1 and each with the day it was sent
+     */
+    static String batchPrompt(List<AiOutboxEntity> batch) {
+        StringBuilder prompt = new StringBuilder();
+        for (int i = 0; i < batch.size(); i++) {
+            AiOutboxEntity request = batch.get(i);
+            LocalDate sentOn = sentOn(request);
+            prompt.append(prompt.length() > 0 ? "\n" : "")
+                    .append(String.format(Locale.ROOT, "%d. [%02d/%02d/%d] ", i + 1,
+                            sentOn.getDayOfMonth(), sentOn.getMonthValue(), sentOn.getYear()))
+                    .append(request.text.replace('\n', ' ').trim());
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Request an operation came from by its message number; the oldest one of the batch when
+     * the model didn't give a valid number
+     */
+    static AiOutboxEntity messageOf(ExpenseOperation operation, List<AiOutboxEntity> batch) {
+        int message = operation.getMessage();
+        return message >= 1 && message <= batch.size() ? batch.get(message - 1) : batch.get(0);
+    }
+
+    private static LocalDate sentOn(AiOutboxEntity request) {
+        return request.createdAt.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /**
+     * Kind plus the text lowercased, NFC-normalized and with whitespace collapsed, so a re-typed
+     * or re-spoken question is stored once; expense rows add their id to it
+     */
+    static String dedupeKey(String kind, String text) {
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC)
+                .toLowerCase(Locale.ROOT)
+                .trim()
+                .replaceAll("\\s+", " ");
+        return kind + ":" + normalized;
+    }
+
+    private static List<Integer> idsOf(List<AiOutboxEntity> requests) {
+        List<Integer> ids = new ArrayList<>(requests.size());
+        for (AiOutboxEntity request : requests) {
+            ids.add(request.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Failed Gemini call; code 0 means the network is gone
+     */
+    static final class ReplayFailure extends Exception {
+        final int code;
+
+        ReplayFailure(int code, IOException cause) {
+            super("Gemini call failed with code " + code, cause);
+            this.code = code;
+        }
+    }
+}
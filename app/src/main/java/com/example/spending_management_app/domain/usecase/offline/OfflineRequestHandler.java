@@ -5,21 +5,26 @@ import android.util.Log;
 
 import com.example.spending_management_app.R;
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.CategoryBudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
 import com.example.spending_management_app.domain.usecase.budget.BudgetHistoryLogger;
 import com.example.spending_management_app.utils.BudgetAmountParser;
 import com.example.spending_management_app.utils.CategoryHelper;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.CurrencyFormatter;
 import com.example.spending_management_app.utils.DateParser;
 import com.example.spending_management_app.utils.ExpenseDescriptionParser;
 import com.example.spending_management_app.utils.UserSession;
 
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.concurrent.Executors;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -50,9 +55,50 @@ public class OfflineRequestHandler {
     
     public OfflineRequestHandler(Context context, OfflineRequestCallback callback) {
         this.context = context;
-        this.callback = callback;
+        this.callback = callback != null ? new AfterCommitCallback(callback) : null;
         this.userSession = UserSession.getInstance(context);
     }
+
+    /**
+     * Holds callback results back until the write they report on has committed
+     */
+    private static class AfterCommitCallback implements OfflineRequestCallback {
+        private final OfflineRequestCallback delegate;
+
+        AfterCommitCallback(OfflineRequestCallback delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSuccess(String message) {
+            UserWriteQueue.afterCommit(Runnable::run, () -> delegate.onSuccess(message));
+        }
+
+        @Override
+        public void onError(String errorMessage) {
+            UserWriteQueue.afterCommit(Runnable::run, () -> delegate.onError(errorMessage));
+        }
+
+        @Override
+        public void onToast(String toastMessage, boolean isError) {
+            UserWriteQueue.afterCommit(Runnable::run, () -> delegate.onToast(toastMessage, isError));
+        }
+
+        @Override
+        public void refreshHomeFragment() {
+            UserWriteQueue.afterCommit(Runnable::run, delegate::refreshHomeFragment);
+        }
+
+        @Override
+        public void refreshExpenseWelcomeMessage() {
+            UserWriteQueue.afterCommit(Runnable::run, delegate::refreshExpenseWelcomeMessage);
+        }
+
+        @Override
+        public void refreshCategoryBudgetWelcomeMessage() {
+            UserWriteQueue.afterCommit(Runnable::run, delegate::refreshCategoryBudgetWelcomeMessage);
+        }
+    }
     
     /**
      * Main entry point for handling offline requests
@@ -136,7 +182,10 @@ public class OfflineRequestHandler {
         return false;
     }
     
-    private boolean containsExpenseKeywords(String lowerText) {
+    /**
+     * Whether lowercased text mentions something the offline parser books as an expense
+     */
+    public static boolean containsExpenseKeywords(String lowerText) {
         String[] keywords = {"chi tiêu", "mua", "đổ xăng", "ăn", "uống", "cafe", "cà phê", 
                             "nhà hàng", "siêu thị", "shopping", "mỹ phẩm", "quần áo",
                             "điện", "nước", "internet", "điện thoại", "taxi", "grab",
@@ -153,50 +202,59 @@ public class OfflineRequestHandler {
     
     // ==================== EXPENSE HANDLERS ====================
     
+    /**
+     * Parse one expense from text the way offline mode books it; null when there is no amount
+     * Missing date defaults to today, missing description to the category
+     */
+    public static TransactionEntity parseExpense(String text, int userId) {
+        // Extract amount using improved parser
+        Long amount = BudgetAmountParser.parseAmount(text);
+        if (amount == null) {
+            return null;
+        }
+
+        // Extract date
+        Date expenseDate = DateParser.parseDate(text);
+        if (expenseDate == null) {
+            expenseDate = new Date(); // Default to today
+        }
+
+        // Extract category (check if any category keyword exists)
+        String category = CategoryHelper.detectCategory(text);
+
+        // Extract description using proper method
+        String description = ExpenseDescriptionParser.extractDescriptionOffline(text, category, amount);
+
+        if (description.isEmpty()) {
+            description = category; // Use category as description if empty
+        }
+
+        TransactionEntity transaction = new TransactionEntity(
+                description,
+                category,
+                -Math.abs(amount), // Expense is negative
+                expenseDate,
+                "expense"
+        );
+        transaction.setUserId(userId);
+        return transaction;
+    }
+
     private boolean handleOfflineAddExpense(String text) {
         try {
-            // Extract amount using improved parser
-            Long amount = BudgetAmountParser.parseAmount(text);
-            if (amount == null) {
+            TransactionEntity transaction = parseExpense(text, userSession.getCurrentUserId());
+            if (transaction == null) {
                 return false;
             }
-            
-            // Extract date
-            Date expenseDate = DateParser.parseDate(text);
-            if (expenseDate == null) {
-                expenseDate = new Date(); // Default to today
-            }
-            
-            // Extract category (check if any category keyword exists)
-            String category = CategoryHelper.detectCategory(text);
-            
-            // Extract description using proper method
-            String description = ExpenseDescriptionParser.extractDescriptionOffline(text, category, amount);
-            
-            if (description.isEmpty()) {
-                description = category; // Use category as description if empty
-            }
-            
-            // Create transaction with proper constructor
-            final String finalDesc = description;
-            final String finalCategory = category;
-            final long finalAmount = amount;
-            final long expenseAmount = -Math.abs(amount); // Expense is negative
-            final Date finalDate = expenseDate;
-            
-            TransactionEntity transaction = new TransactionEntity(
-                    finalDesc,
-                    finalCategory,
-                    expenseAmount,
-                    finalDate,
-                    "expense"
-            );
+
+            final String finalDesc = transaction.description;
+            final String finalCategory = transaction.category;
+            final long finalAmount = Math.abs(transaction.amount);
             
             // Save to database
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
-                    AppDatabase.getInstance(context)
-                            .transactionDao()
+                    new ExpenseRepositoryImpl(AppDatabase.getInstance(context))
                             .insert(transaction);
                     
                     String formattedAmount = CurrencyFormatter.formatCurrency(context, finalAmount);
@@ -209,6 +267,7 @@ public class OfflineRequestHandler {
                         callback.refreshExpenseWelcomeMessage();
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error saving expense", e);
                     if (callback != null) {
                         callback.onError(String.format(context.getString(R.string.offline_expense_add_error), e.getMessage()));
@@ -238,17 +297,14 @@ public class OfflineRequestHandler {
             
             int id = Integer.parseInt(idMatcher.group(1));
             
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     int userId = userSession.getCurrentUserId();
-                    TransactionEntity transaction = AppDatabase.getInstance(context)
-                            .transactionDao()
-                            .getTransactionById(userId, id);
+                    ExpenseRepositoryImpl expenseRepository = new ExpenseRepositoryImpl(AppDatabase.getInstance(context));
+                    TransactionEntity transaction = expenseRepository.getTransactionById(userId, id);
                     
                     if (transaction != null) {
-                        AppDatabase.getInstance(context)
-                                .transactionDao()
-                                .delete(transaction);
+                        expenseRepository.delete(transaction);
                         
                         if (callback != null) {
                             callback.onSuccess(String.format(context.getString(R.string.offline_expense_deleted_success), id));
@@ -262,6 +318,7 @@ public class OfflineRequestHandler {
                         }
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error deleting expense", e);
                     if (callback != null) {
                         callback.onError("❌ Lỗi khi xóa chi tiêu: " + e.getMessage());
@@ -301,7 +358,7 @@ public class OfflineRequestHandler {
             final boolean finalIsIncrease = isIncrease;
             final boolean finalIsDecrease = isDecrease;
             
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     // Get current month
                     Calendar cal = Calendar.getInstance();
@@ -339,9 +396,7 @@ public class OfflineRequestHandler {
                         }
                         
                         budget.monthlyLimit = newAmount;
-                        AppDatabase.getInstance(context)
-                                .budgetDao()
-                                .update(budget);
+                        new BudgetRepositoryImpl(AppDatabase.getInstance(context)).upsert(budget);
                         
                         // Log budget history
                         BudgetHistoryLogger.logMonthlyBudgetUpdated(
@@ -355,9 +410,8 @@ public class OfflineRequestHandler {
                                 0,              // currentSpent (start at 0)
                                 startDate       // date
                         );
-                        AppDatabase.getInstance(context)
-                                .budgetDao()
-                                .insert(budget);
+                        budget.userId = userSession.getCurrentUserId();
+                        new BudgetRepositoryImpl(AppDatabase.getInstance(context)).upsert(budget);
                         
                         // Log budget history
                         BudgetHistoryLogger.logMonthlyBudgetCreated(
@@ -372,6 +426,7 @@ public class OfflineRequestHandler {
                         callback.refreshHomeFragment();
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error updating budget", e);
                     if (callback != null) {
                         callback.onError("❌ Lỗi khi cập nhật ngân sách: " + e.getMessage());
@@ -388,7 +443,7 @@ public class OfflineRequestHandler {
     
     private boolean handleOfflineDeleteBudget(String text) {
         try {
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     // Get current month
                     Calendar cal = Calendar.getInstance();
@@ -413,9 +468,7 @@ public class OfflineRequestHandler {
                         BudgetEntity budget = budgets.get(0);
                         long oldAmount = budget.monthlyLimit;
                         
-                        AppDatabase.getInstance(context)
-                                .budgetDao()
-                                .delete(budget);
+                        new BudgetRepositoryImpl(AppDatabase.getInstance(context)).delete(budget);
                         
                         // Log budget history
                         BudgetHistoryLogger.logMonthlyBudgetDeleted(
@@ -432,6 +485,7 @@ public class OfflineRequestHandler {
                         }
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error deleting budget", e);
                     if (callback != null) {
                         callback.onError("❌ Lỗi khi xóa ngân sách: " + e.getMessage());
@@ -480,7 +534,7 @@ public class OfflineRequestHandler {
             final String finalCategory = category;
             final long finalAmount = amount;
             
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     // Get current month
                     Calendar cal = Calendar.getInstance();
@@ -502,15 +556,14 @@ public class OfflineRequestHandler {
                     CategoryBudgetEntity existingBudget =
                             AppDatabase.getInstance(context)
                                     .categoryBudgetDao()
-                                    .getCategoryBudgetForMonth(userId, finalCategory, startDate, endDate);
+                                    .getCategoryBudgetForMonth(userId, CategoryRegistry.storageIdOf(finalCategory), startDate, endDate);
                     
                     if (existingBudget != null) {
                         // Update existing
                         long oldAmount = existingBudget.getBudgetAmount();
                         existingBudget.budgetAmount = finalAmount;  // Direct field access
-                        AppDatabase.getInstance(context)
-                                .categoryBudgetDao()
-                                .update(existingBudget);
+                        new CategoryBudgetRepositoryImpl(AppDatabase.getInstance(context))
+                                .upsertAll(userId, startDate, Collections.singletonList(existingBudget));
                         
                         // Log history
                         BudgetHistoryLogger.logCategoryBudgetUpdated(
@@ -520,9 +573,9 @@ public class OfflineRequestHandler {
                         CategoryBudgetEntity newBudget =
                                 new CategoryBudgetEntity(
                                         finalCategory, finalAmount, startDate);
-                        AppDatabase.getInstance(context)
-                                .categoryBudgetDao()
-                                .insert(newBudget);
+                        newBudget.userId = userId;
+                        new CategoryBudgetRepositoryImpl(AppDatabase.getInstance(context))
+                                .upsertAll(userId, startDate, Collections.singletonList(newBudget));
                         
                         // Log history
                         BudgetHistoryLogger.logCategoryBudgetCreated(
@@ -538,6 +591,7 @@ public class OfflineRequestHandler {
                         callback.refreshHomeFragment();
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error updating category budget", e);
                     if (callback != null) {
                         callback.onError(String.format(context.getString(R.string.offline_category_budget_update_error), e.getMessage()));
@@ -574,7 +628,7 @@ public class OfflineRequestHandler {
             
             final String finalCategory = category;
             
-            Executors.newSingleThreadExecutor().execute(() -> {
+            UserWriteQueue.getInstance(context).execute(userSession.getCurrentUserId(), () -> {
                 try {
                     // Get current month
                     Calendar cal = Calendar.getInstance();
@@ -595,14 +649,12 @@ public class OfflineRequestHandler {
                     CategoryBudgetEntity budget =
                             AppDatabase.getInstance(context)
                                     .categoryBudgetDao()
-                                    .getCategoryBudgetForMonth(userId, finalCategory, startDate, endDate);
+                                    .getCategoryBudgetForMonth(userId, CategoryRegistry.storageIdOf(finalCategory), startDate, endDate);
                     
                     if (budget != null) {
                         long oldAmount = budget.getBudgetAmount();
                         
-                        AppDatabase.getInstance(context)
-                                .categoryBudgetDao()
-                                .delete(budget);
+                        new CategoryBudgetRepositoryImpl(AppDatabase.getInstance(context)).delete(budget);
                         
                         // Log history
                         BudgetHistoryLogger.logCategoryBudgetDeleted(
@@ -620,6 +672,7 @@ public class OfflineRequestHandler {
                         }
                     }
                 } catch (Exception e) {
+                    UserWriteQueue.markRollbackOnly();
                     Log.e(TAG, "Error deleting category budget", e);
                     if (callback != null) {
                         callback.onError("❌ Lỗi khi xóa ngân sách danh mục: " + e.getMessage());
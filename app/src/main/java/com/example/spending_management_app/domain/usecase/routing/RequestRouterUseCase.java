@@ -6,7 +6,9 @@ import android.os.Bundle;
 import android.speech.tts.TextToSpeech;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.spending_management_app.R;
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.AiOutboxEntity;
 import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
 import com.example.spending_management_app.data.repository.CategoryBudgetRepositoryImpl;
 import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
@@ -14,6 +16,7 @@ import com.example.spending_management_app.domain.repository.BudgetRepository;
 import com.example.spending_management_app.domain.repository.CategoryBudgetRepository;
 import com.example.spending_management_app.domain.repository.ExpenseRepository;
 import com.example.spending_management_app.domain.usecase.ai.AiContextUseCase;
+import com.example.spending_management_app.domain.usecase.ai.LocalAnswerUseCase;
 import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet;
 import com.example.spending_management_app.utils.BudgetMessageHelper;
 import com.example.spending_management_app.domain.usecase.category.CategoryBudgetUseCase;
@@ -22,10 +25,13 @@ import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet
 import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatAdapter;
 import com.example.spending_management_app.domain.usecase.ai.PromptUseCase;
 import com.example.spending_management_app.domain.usecase.expense.ExpenseUseCase;
+import com.example.spending_management_app.domain.usecase.expense.SpeculativeExpenseUseCase;
 import com.example.spending_management_app.domain.usecase.budget.BudgetUseCase;
+import com.example.spending_management_app.domain.usecase.offline.OfflineOutboxReplayer;
+import com.example.spending_management_app.utils.ChatTrace;
+import com.example.spending_management_app.utils.UserSession;
 
 import java.util.List;
-import java.util.concurrent.Executors;
 
 public class RequestRouterUseCase {
 
@@ -53,7 +59,7 @@ public class RequestRouterUseCase {
         AiContextUseCase aiContextUseCase = new AiContextUseCase(expenseRepository, budgetRepository, categoryBudgetRepository, context);
         CategoryBudgetUseCase categoryBudgetUseCase = new CategoryBudgetUseCase(budgetRepository, categoryBudgetRepository, context);
         ExpenseUseCase expenseUseCase = new ExpenseUseCase(expenseRepository, context);
-        PromptUseCase promptUseCase = new PromptUseCase(expenseUseCase);
+        PromptUseCase promptUseCase = new PromptUseCase(expenseUseCase, new SpeculativeExpenseUseCase(expenseRepository, context));
         BudgetUseCase budgetUseCase = new BudgetUseCase(budgetRepository, promptUseCase, aiContextUseCase, context);
 
         // Check network connectivity first
@@ -64,6 +70,20 @@ public class RequestRouterUseCase {
         boolean isCategoryBudgetMode = args != null && "category_budget_management".equals(args.getString("mode"));
         boolean isExpenseBulkMode = args != null && "expense_bulk_management".equals(args.getString("mode"));
 
+        // Totals, comparisons and budget status are answered from local data, online or not
+        if (!isCategoryBudgetMode && new LocalAnswerUseCase(expenseRepository, budgetRepository, context)
+                .tryAnswer(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech)) {
+            android.util.Log.d("RequestRouterUseCase", "Answered locally: " + text);
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "local-answer");
+            return;
+        }
+
+        // Offline: commands OfflineRequestHandler understands run locally, AI requests are queued below
+        if (!isOnline && callback.handleOfflineRequest(text, isBudgetMode, isCategoryBudgetMode, isExpenseBulkMode)) {
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "offline");
+            return;
+        }
+
         // Lowercase text for heuristics
         String lowerText = text.toLowerCase();
 
@@ -109,6 +129,7 @@ public class RequestRouterUseCase {
 
             if (isBudgetSetAction) {
                 android.util.Log.d("RequestRouterUseCase", "Routing to BudgetUseCase for text: " + text);
+                ChatTrace.mark(ChatTrace.Stage.ROUTED, "budget");
                 budgetUseCase.handleBudgetQuery(text, context, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshHomeFragment());
                 return;
             }
@@ -136,6 +157,7 @@ public class RequestRouterUseCase {
              (explicitCategoryBudget && containsDigit && !isQuery) ||
              (containsDigit && !hasTimeIndicator && !isQuery))) {
             android.util.Log.d("RequestRouterUseCase", "Routing to CategoryBudgetUseCase for text: " + text);
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "category-budget");
             categoryBudgetUseCase.handleCategoryBudgetRequest(text, context, activity, messages, chatAdapter, messagesRecycler,
                     () -> callback.refreshHomeFragment(), () -> callback.refreshCategoryBudgetWelcomeMessage());
             return;
@@ -143,6 +165,11 @@ public class RequestRouterUseCase {
 
         if (containsDigit && hasTimeIndicator) {
             android.util.Log.d("RequestRouterUseCase", "Routing to expense AI for text: " + text);
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "expense-ai");
+            if (!isOnline) {
+                queueOffline(AiOutboxEntity.KIND_EXPENSE, text, context, activity, messages, chatAdapter, messagesRecycler);
+                return;
+            }
             promptUseCase.sendPromptToAI(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshExpenseWelcomeMessage());
             return;
         }
@@ -153,6 +180,7 @@ public class RequestRouterUseCase {
                 (lowerText.contains("ngân sách") || lowerText.contains("budget"));
         if (isBudgetDelete) {
             android.util.Log.d("RequestRouterUseCase", "Routing to BudgetUseCase for delete operation: " + text);
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "budget-delete");
             budgetUseCase.handleBudgetQuery(text, context, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshHomeFragment());
             return;
         }
@@ -162,37 +190,25 @@ public class RequestRouterUseCase {
         boolean isDeleteOperation = lowerText.contains("xóa") || lowerText.contains("xoá") ||
                 lowerText.contains("delete") || lowerText.contains("remove");
         if (!isBudgetMode && !isCategoryBudgetMode && !isDeleteOperation && BudgetMessageHelper.isBudgetQuery(text)) {
-            // Get comprehensive budget data from database
-            Executors.newSingleThreadExecutor().execute(() -> {
-                try {
-                    String budgetContext = aiContextUseCase.getBudgetContext(context);
-                    activity.runOnUiThread(() -> {
-                        aiContextUseCase.sendPromptToAIWithBudgetContext(context, text, budgetContext, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
-                    });
-                } catch (Exception e) {
-                    activity.runOnUiThread(() -> {
-                        promptUseCase.sendPromptToAI(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshExpenseWelcomeMessage());
-                    });
-                }
-            });
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "budget-analysis-ai");
+            if (!isOnline) {
+                queueOffline(AiOutboxEntity.KIND_BUDGET, text, context, activity, messages, chatAdapter, messagesRecycler);
+                return;
+            }
+            // Gemini fetches the budget data it needs through function calls
+            aiContextUseCase.sendPromptWithTools(text, true, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
             return;
         }
 
         // Check if user is asking for financial analysis or reports (before bulk operations)
         if (!isBudgetMode && ExpenseMessageHelper.isFinancialQuery(text)) {
-            // Get comprehensive financial data from database
-            Executors.newSingleThreadExecutor().execute(() -> {
-                try {
-                    String financialContext = aiContextUseCase.getFinancialContext(context);
-                    activity.runOnUiThread(() -> {
-                        aiContextUseCase.sendPromptToAIWithContext(text, financialContext, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
-                    });
-                } catch (Exception e) {
-                    activity.runOnUiThread(() -> {
-                        promptUseCase.sendPromptToAI(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshExpenseWelcomeMessage());
-                    });
-                }
-            });
+            ChatTrace.mark(ChatTrace.Stage.ROUTED, "financial-analysis-ai");
+            if (!isOnline) {
+                queueOffline(AiOutboxEntity.KIND_ANALYSIS, text, context, activity, messages, chatAdapter, messagesRecycler);
+                return;
+            }
+            // Gemini fetches the financial data it needs through function calls
+            aiContextUseCase.sendPromptWithTools(text, false, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback);
             return;
         }
 
@@ -229,6 +245,34 @@ public class RequestRouterUseCase {
         }
 
         // Normal send to AI for expense tracking
+        ChatTrace.mark(ChatTrace.Stage.ROUTED, isExpenseBulkMode ? "expense-bulk-ai" : "expense-ai");
+        if (!isOnline) {
+            queueOffline(AiOutboxEntity.KIND_EXPENSE, text, context, activity, messages, chatAdapter, messagesRecycler);
+            return;
+        }
         promptUseCase.sendPromptToAI(text, activity, messages, chatAdapter, messagesRecycler, textToSpeech, updateNetworkStatusCallback, () -> callback.refreshExpenseWelcomeMessage());
     }
+
+    /**
+     * Store a request that needs Gemini in the outbox; OfflineOutboxReplayer sends it once online
+     */
+    private static void queueOffline(String kind, String text, Context context, Activity activity,
+                                     List<ChatMessage> messages, ChatAdapter chatAdapter, RecyclerView messagesRecycler) {
+        android.util.Log.d("RequestRouterUseCase", "Offline, queueing " + kind + " request: " + text);
+        int userId = UserSession.getInstance(context).getCurrentUserId();
+        OfflineOutboxReplayer.getInstance(context).enqueue(userId, kind, text).whenComplete((queued, error) -> {
+            int reply;
+            if (error != null) {
+                android.util.Log.e("RequestRouterUseCase", "Error queueing offline request", error);
+                reply = R.string.ai_send_error;
+            } else {
+                reply = queued ? R.string.outbox_queued : R.string.outbox_already_queued;
+            }
+            activity.runOnUiThread(() -> {
+                messages.add(ChatMessage.notice(context.getString(reply), context.getString(R.string.now_label)));
+                chatAdapter.notifyItemInserted(messages.size() - 1);
+                messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+            });
+        });
+    }
 }
\ No newline at end of file
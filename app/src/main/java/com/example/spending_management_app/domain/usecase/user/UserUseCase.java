@@ -5,6 +5,7 @@ import android.content.Context;
 import com.example.spending_management_app.R;
 import com.example.spending_management_app.data.local.entity.UserEntity;
 import com.example.spending_management_app.domain.repository.UserRepository;
+import com.example.spending_management_app.utils.PasswordHashingEngine;
 import com.example.spending_management_app.utils.PasswordUtils;
 
 /**
@@ -46,7 +47,7 @@ public class UserUseCase {
         }
 
         // Generate user data
-        String hashedPassword = PasswordUtils.hashPassword(password);
+        String hashedPassword = PasswordHashingEngine.getInstance().hashNow(password);
         String name;
         String avatar;
 
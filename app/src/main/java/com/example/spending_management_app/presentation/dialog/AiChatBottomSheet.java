@@ -7,6 +7,7 @@ import android.os.Bundle;
 import java.util.Locale;
 
 import android.speech.RecognizerIntent;
+import android.text.PrecomputedText;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -20,6 +21,7 @@ import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
+import androidx.recyclerview.widget.ConcatAdapter;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -28,21 +30,24 @@ import com.example.spending_management_app.domain.usecase.expense.ExpenseBulkUse
 import com.example.spending_management_app.domain.usecase.common.WelcomeMessageUseCase;
 import com.example.spending_management_app.domain.usecase.budget.BudgetUseCase;
 import com.example.spending_management_app.domain.usecase.routing.RequestRouterUseCase;
+import com.example.spending_management_app.domain.usecase.offline.OfflineOutboxReplayer;
 import com.example.spending_management_app.domain.usecase.offline.OfflineRequestHandler;
 import com.example.spending_management_app.domain.usecase.expense.ExpenseUseCase;
 import com.example.spending_management_app.domain.usecase.ai.PromptUseCase;
 import com.example.spending_management_app.domain.usecase.ai.AiContextUseCase;
 import com.example.spending_management_app.utils.FragmentRefreshHelper;
+import com.example.spending_management_app.utils.TextFormatHelper;
 import com.example.spending_management_app.utils.ToastHelper;
+import com.example.spending_management_app.utils.UserSession;
 import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
 import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
+import com.example.spending_management_app.data.remote.api.AiRequestScheduler;
 import com.example.spending_management_app.data.repository.CategoryBudgetRepositoryImpl;
 import com.example.spending_management_app.domain.repository.ExpenseRepository;
 import com.example.spending_management_app.domain.repository.BudgetRepository;
 import com.example.spending_management_app.domain.repository.CategoryBudgetRepository;
 
-import okhttp3.OkHttpClient;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -63,10 +68,13 @@ public class AiChatBottomSheet extends DialogFragment {
     private ImageButton microBtn;
     private TextView statusText;
 
-    private List<ChatMessage> messages;
+    private static final int HISTORY_PREFETCH = 5; // Load older messages this many rows before the top
+
+    private ChatMessageList messages;
     private ChatAdapter chatAdapter;
+    private ChatAdapter historyAdapter;
+    private LinearLayoutManager layoutManager;
     private TextToSpeech textToSpeech;
-    private OkHttpClient client;
     private String spokenText = "";
 
     // Repositories and UseCases
@@ -79,6 +87,8 @@ public class AiChatBottomSheet extends DialogFragment {
     private ExpenseUseCase expenseUseCase;
     private PromptUseCase promptUseCase;
     private AiContextUseCase aiContextUseCase;
+    private OfflineOutboxReplayer outboxReplayer;
+    private final Runnable outboxAnswersListener = this::showOutboxAnswers;
 
     public void setSpokenText(String text) {
         this.spokenText = text;
@@ -100,13 +110,12 @@ public class AiChatBottomSheet extends DialogFragment {
         microBtn = view.findViewById(R.id.microBtn);
         statusText = view.findViewById(R.id.status_text);
 
-        // Initialize TTS and HTTP client
+        // Initialize TTS
         textToSpeech = new TextToSpeech(getContext(), status -> {
             if (status == TextToSpeech.SUCCESS) {
                 textToSpeech.setLanguage(Locale.getDefault());
             }
         });
-        client = new OkHttpClient();
 
         // Initialize repositories and use cases
         AppDatabase appDatabase = AppDatabase.getInstance(getContext());
@@ -126,6 +135,11 @@ public class AiChatBottomSheet extends DialogFragment {
         setupMessages();
         setupListeners();
 
+        // Answers to requests queued while offline: those already waiting, then as they arrive
+        outboxReplayer = OfflineOutboxReplayer.getInstance(getContext());
+        outboxReplayer.setAnswersListener(outboxAnswersListener);
+        showOutboxAnswers();
+
         // If spoken text, send to AI
         if (!spokenText.isEmpty()) {
             android.util.Log.d("AiChatBottomSheet", "Sending spoken text to AI: " + spokenText);
@@ -211,15 +225,41 @@ public class AiChatBottomSheet extends DialogFragment {
     }
 
     private void setupMessages() {
-        messages = new ArrayList<>();
-        
+        Bundle args = getArguments();
+        String chatMode = args != null && args.getString("mode") != null ? args.getString("mode") : "expense";
+        messages = new ChatMessageList(getContext(), UserSession.getInstance(getContext()).getCurrentUserId(), chatMode);
+
         // Initialize chatAdapter first before calling service methods
-        chatAdapter = new ChatAdapter(messages);
-        messagesRecycler.setLayoutManager(new LinearLayoutManager(getContext()));
-        messagesRecycler.setAdapter(chatAdapter);
-        
+        // Stored messages sit above this session's messages, in their own adapter
+        ChatTextPrecomputer textPrecomputer = new ChatTextPrecomputer();
+        messages.setTextPrecomputer(textPrecomputer);
+        chatAdapter = new ChatAdapter(messages, textPrecomputer);
+        historyAdapter = new ChatAdapter(messages.history(), textPrecomputer);
+        layoutManager = new LinearLayoutManager(getContext()) {
+            @Override
+            public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position) {
+                // Use cases scroll by index into messages
+                super.smoothScrollToPosition(recyclerView, state, position + historyAdapter.getItemCount());
+            }
+        };
+        messagesRecycler.setLayoutManager(layoutManager);
+        messagesRecycler.setAdapter(new ConcatAdapter(historyAdapter, chatAdapter));
+
+        // Open on the latest stored messages, then page older ones in while scrolling up
+        messages.loadOlder(messagesRecycler::post, count -> {
+            historyAdapter.notifyItemRangeInserted(0, count);
+            messagesRecycler.scrollToPosition(historyAdapter.getItemCount() + messages.size() - 1);
+        });
+        messagesRecycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= HISTORY_PREFETCH) {
+                    messages.loadOlder(messagesRecycler::post, count -> historyAdapter.notifyItemRangeInserted(0, count));
+                }
+            }
+        });
+
         // Check if this is budget management mode or category budget management mode
-        Bundle args = getArguments();
         if (args != null) {
             String mode = args.getString("mode");
             
@@ -301,6 +341,13 @@ public class AiChatBottomSheet extends DialogFragment {
     @Override
     public void onDestroy() {
         super.onDestroy();
+        // Drop this chat's queued and running AI requests; nobody is left to show the answers
+        if (messages != null) {
+            AiRequestScheduler.getInstance().cancelConversation(messages);
+        }
+        if (outboxReplayer != null) {
+            outboxReplayer.clearAnswersListener(outboxAnswersListener);
+        }
         if (textToSpeech != null) {
             textToSpeech.shutdown();
         }
@@ -453,6 +500,28 @@ public class AiChatBottomSheet extends DialogFragment {
         return handler.handleOfflineRequest(text, isBudgetMode, isCategoryBudgetMode, isExpenseBulkMode);
     }
 
+    // Post answers of replayed offline requests into the chat; any thread
+    private void showOutboxAnswers() {
+        android.app.Activity activity = getActivity();
+        if (activity == null || !isAdded()) {
+            return;
+        }
+        int userId = UserSession.getInstance(activity).getCurrentUserId();
+        outboxReplayer.takeAnswers(userId).thenAccept(answers -> {
+            if (answers.isEmpty()) {
+                return;
+            }
+            activity.runOnUiThread(() -> {
+                for (String answer : answers) {
+                    messages.add(new ChatMessage(TextFormatHelper.renderMarkdown(answer), false, activity.getString(R.string.now_label)));
+                }
+                chatAdapter.notifyItemRangeInserted(messages.size() - answers.size(), answers.size());
+                messagesRecycler.smoothScrollToPosition(messages.size() - 1);
+                refreshHomeFragment();
+            });
+        });
+    }
+
     // Handle budget queries (view, analyze, add, edit, delete)
     private void handleBudgetQuery(String text) {
         budgetUseCase.handleBudgetQuery(text, getContext(), getActivity(), messages, chatAdapter, messagesRecycler, textToSpeech, this::updateNetworkStatus, this::refreshHomeFragment);
@@ -488,35 +557,70 @@ public class AiChatBottomSheet extends DialogFragment {
 
     public static class ChatMessage {
         public String message;
+        public CharSequence display; // Rendered markdown for AI replies, null shows message as is
         public boolean isUser;
         public String time;
+        public boolean notice; // Welcome, status or error line: kept out of the Gemini history
+        public long id; // Stored message id, set once ChatMessageList has written it
+        public volatile PrecomputedText precomputed; // Measured text, see ChatTextPrecomputer
 
         public ChatMessage(String message, boolean isUser, String time) {
             this.message = message;
             this.isUser = isUser;
             this.time = time;
         }
+
+        public ChatMessage(CharSequence display, boolean isUser, String time) {
+            this(display != null ? display.toString() : null, isUser, time);
+            this.display = display;
+        }
+
+        public static ChatMessage notice(CharSequence text, String time) {
+            ChatMessage message = new ChatMessage(text, false, time);
+            message.notice = true;
+            return message;
+        }
     }
 
     public static class ChatAdapter extends RecyclerView.Adapter<ChatViewHolder> {
 
+        static final int VIEW_TYPE_USER = 0;
+        static final int VIEW_TYPE_AI = 1;
+
         private List<ChatMessage> messages;
+        private final ChatTextPrecomputer precomputer;
 
         public ChatAdapter(List<ChatMessage> messages) {
+            this(messages, null);
+        }
+
+        public ChatAdapter(List<ChatMessage> messages, ChatTextPrecomputer precomputer) {
             this.messages = messages;
+            this.precomputer = precomputer;
+        }
+
+        @Override
+        public int getItemViewType(int position) {
+            return messages.get(position).isUser ? VIEW_TYPE_USER : VIEW_TYPE_AI;
         }
 
         @NonNull
         @Override
         public ChatViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-            View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_chat_message, parent, false);
-            return new ChatViewHolder(view);
+            boolean user = viewType == VIEW_TYPE_USER;
+            View view = LayoutInflater.from(parent.getContext()).inflate(
+                    user ? R.layout.item_chat_message_user : R.layout.item_chat_message_ai, parent, false);
+            ChatViewHolder holder = new ChatViewHolder(view);
+            if (precomputer != null && precomputer.getParams(user) == null) {
+                precomputer.setParams(user, holder.messageText.getTextMetricsParams());
+            }
+            return holder;
         }
 
         @Override
         public void onBindViewHolder(@NonNull ChatViewHolder holder, int position) {
             ChatMessage message = messages.get(position);
-            holder.bind(message);
+            holder.bind(message, precomputer);
         }
 
         @Override
@@ -527,31 +631,51 @@ public class AiChatBottomSheet extends DialogFragment {
 
     public static class ChatViewHolder extends RecyclerView.ViewHolder {
 
-        private View messageBubble;
         private android.widget.TextView messageText;
         private android.widget.TextView timeText;
+        private ChatMessage boundMessage;
 
         public ChatViewHolder(@NonNull View itemView) {
             super(itemView);
-            messageBubble = itemView.findViewById(R.id.message_bubble);
             messageText = itemView.findViewById(R.id.message_text);
             timeText = itemView.findViewById(R.id.time_text);
         }
 
-        public void bind(ChatMessage message) {
-            messageText.setText(message.message);
+        // Bubble side and background come from the view type's layout
+        public void bind(ChatMessage message, ChatTextPrecomputer precomputer) {
+            boundMessage = message;
             timeText.setText(message.time);
 
-            if (message.isUser) {
-                // User message - align right
-                messageBubble.setBackgroundResource(R.drawable.user_message_background);
-                ((android.widget.LinearLayout.LayoutParams) messageBubble.getLayoutParams()).gravity = android.view.Gravity.END;
-                ((android.widget.LinearLayout.LayoutParams) timeText.getLayoutParams()).gravity = android.view.Gravity.END;
+            CharSequence text = ChatTextPrecomputer.textOf(message);
+            PrecomputedText.Params params = precomputer != null ? precomputer.getParams(message.isUser) : null;
+            if (params == null) {
+                messageText.setText(text);
+                return;
+            }
+
+            PrecomputedText precomputed = message.precomputed;
+            if (precomputed != null && precomputed.getParams() == params) {
+                setPrecomputed(precomputed, precomputer);
+            } else if (text.length() >= ChatTextPrecomputer.LONG_TEXT_CHARS) {
+                // Don't measure a long reply on the main thread: show it once measured
+                messageText.setText(null);
+                precomputer.precomputeThen(message, params, result -> {
+                    if (boundMessage == message) {
+                        setPrecomputed(result, precomputer);
+                    }
+                });
             } else {
-                // AI message - align left
-                messageBubble.setBackgroundResource(R.drawable.ai_message_background);
-                ((android.widget.LinearLayout.LayoutParams) messageBubble.getLayoutParams()).gravity = android.view.Gravity.START;
-                ((android.widget.LinearLayout.LayoutParams) timeText.getLayoutParams()).gravity = android.view.Gravity.START;
+                messageText.setText(text);
+            }
+        }
+
+        private void setPrecomputed(PrecomputedText text, ChatTextPrecomputer precomputer) {
+            try {
+                messageText.setText(text);
+            } catch (IllegalArgumentException e) {
+                // The TextView's metrics changed (e.g. text direction resolved differently): re-read them
+                precomputer.setParams(boundMessage.isUser, messageText.getTextMetricsParams());
+                messageText.setText(text.toString());
             }
         }
     }
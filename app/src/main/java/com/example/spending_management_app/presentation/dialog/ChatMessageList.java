@@ -0,0 +1,207 @@
+package com.example.spending_management_app.presentation.dialog;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+import com.example.spending_management_app.data.repository.ChatHistoryRepositoryImpl;
+import com.example.spending_management_app.domain.repository.ChatHistoryRepository;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+import com.example.spending_management_app.utils.TextFormatHelper;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+
+/**
+ * Messages of the open chat, written through to the stored conversation of its mode
+ * Item 0 is the sheet's welcome message: regenerated on every open, never stored. Older messages
+ * are paged into {@link #history()}, which the sheet shows above this list with its own adapter,
+ * so the indices use cases keep into this list stay valid while pages load
+ *
+ * add(ChatMessage) and set(int, ChatMessage) are written through; call them on the main thread
+ */
+public class ChatMessageList extends ArrayList<ChatMessage> {
+
+    static final int PAGE_SIZE = 30;
+
+    private static final String TAG = "ChatMessageList";
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+    private static final DateTimeFormatter DAY_TIME = DateTimeFormatter.ofPattern("dd/MM HH:mm");
+
+    // Older pages are plain reads, off the write queue
+    private static final ExecutorService PAGE_READER = Executors.newSingleThreadExecutor();
+
+    private final ChatHistoryRepository repository;
+    private final UserWriteQueue writeQueue;
+    private final int userId;
+    private final String mode;
+    private final List<ChatMessage> history = new ArrayList<>();
+    private volatile int conversationId; // Resolved by the first command on the user's write lane
+    private volatile ChatTextPrecomputer textPrecomputer;
+
+    // Main thread only
+    private long oldestLoadedId = Long.MAX_VALUE;
+    private boolean hasOlder = true;
+    private boolean loading;
+
+    public ChatMessageList(Context context, int userId, String mode) {
+        this(new ChatHistoryRepositoryImpl(AppDatabase.getInstance(context)), UserWriteQueue.getInstance(context),
+                userId, mode);
+    }
+
+    ChatMessageList(ChatHistoryRepository repository, UserWriteQueue writeQueue, int userId, String mode) {
+        this.repository = repository;
+        this.writeQueue = writeQueue;
+        this.userId = userId;
+        this.mode = mode;
+    }
+
+    /**
+     * Measure text of added, replaced and loaded messages off the main thread
+     */
+    public void setTextPrecomputer(ChatTextPrecomputer textPrecomputer) {
+        this.textPrecomputer = textPrecomputer;
+    }
+
+    /**
+     * Stored messages loaded so far, oldest first
+     */
+    public List<ChatMessage> history() {
+        return history;
+    }
+
+    @Override
+    public boolean add(ChatMessage message) {
+        boolean welcome = isEmpty();
+        super.add(message);
+        precompute(message);
+        if (welcome) {
+            message.notice = true;
+        } else {
+            String role = roleOf(message);
+            String text = message.message;
+            Date createdAt = new Date();
+            write(() -> message.id = repository.addMessage(conversationId(), role, text, createdAt));
+        }
+        return true;
+    }
+
+    @Override
+    public ChatMessage set(int index, ChatMessage message) {
+        ChatMessage previous = super.set(index, message);
+        precompute(message);
+        if (index == 0) {
+            message.notice = true;
+        } else {
+            String role = roleOf(message);
+            String text = message.message;
+            // Runs after the previous message's insert, so its id is known by then
+            write(() -> {
+                message.id = previous.id;
+                repository.updateMessage(conversationId(), previous.id, role, text);
+            });
+        }
+        return previous;
+    }
+
+    /**
+     * Load the next older page into history()
+     * The first page goes through the write queue, so it can't also contain messages added after
+     * opening the chat; later pages are strictly older than what is loaded
+     *
+     * @param mainThread Executor of the main thread
+     * @param onLoaded Number of messages inserted at the start of history(); not called when nothing is left
+     */
+    public void loadOlder(Executor mainThread, IntConsumer onLoaded) {
+        if (loading || !hasOlder) {
+            return;
+        }
+        loading = true;
+        long beforeId = oldestLoadedId;
+        CompletableFuture<List<ChatMessage>> page = beforeId == Long.MAX_VALUE
+                ? writeQueue.submit(userId, () -> readPage(beforeId))
+                : CompletableFuture.supplyAsync(() -> readPage(beforeId), PAGE_READER);
+        page.whenComplete((messages, error) -> mainThread.execute(() -> {
+            loading = false;
+            if (error != null) {
+                Log.e(TAG, "Error loading chat history", error);
+                hasOlder = false;
+                return;
+            }
+            hasOlder = messages.size() == PAGE_SIZE;
+            if (messages.isEmpty()) {
+                return;
+            }
+            oldestLoadedId = messages.get(0).id;
+            history.addAll(0, messages);
+            onLoaded.accept(messages.size());
+        }));
+    }
+
+    private List<ChatMessage> readPage(long beforeId) {
+        List<ChatMessageEntity> rows = repository.getMessagesBefore(conversationId(), beforeId, PAGE_SIZE);
+        List<ChatMessage> messages = new ArrayList<>(rows.size());
+        for (ChatMessageEntity row : rows) {
+            boolean user = ChatMessageEntity.ROLE_USER.equals(row.role);
+            ChatMessage message = user
+                    ? new ChatMessage(row.text, true, timeLabel(row.createdAt))
+                    : new ChatMessage(TextFormatHelper.renderMarkdown(row.text), false, timeLabel(row.createdAt));
+            message.id = row.id;
+            message.notice = ChatMessageEntity.ROLE_NOTICE.equals(row.role);
+            ChatTextPrecomputer precomputer = textPrecomputer;
+            if (precomputer != null) {
+                precomputer.precomputeNow(message);
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private void precompute(ChatMessage message) {
+        ChatTextPrecomputer precomputer = textPrecomputer;
+        if (precomputer != null) {
+            precomputer.precompute(message);
+        }
+    }
+
+    private int conversationId() {
+        if (conversationId == 0) {
+            conversationId = repository.getOrCreateConversation(userId, mode);
+        }
+        return conversationId;
+    }
+
+    private void write(Runnable command) {
+        writeQueue.execute(userId, command).exceptionally(e -> {
+            Log.e(TAG, "Error saving chat message", e);
+            return null;
+        });
+    }
+
+    private static String roleOf(ChatMessage message) {
+        if (message.isUser) {
+            return ChatMessageEntity.ROLE_USER;
+        }
+        return message.notice ? ChatMessageEntity.ROLE_NOTICE : ChatMessageEntity.ROLE_MODEL;
+    }
+
+    private static String timeLabel(Date createdAt) {
+        if (createdAt == null) {
+            return "";
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(createdAt.toInstant(), ZoneId.systemDefault());
+        return time.toLocalDate().equals(LocalDate.now()) ? time.format(TIME) : time.format(DAY_TIME);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.spending_management_app.presentation.dialog;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.PrecomputedText;
+
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Measures chat message text off the main thread with PrecomputedText
+ * Text metrics params are taken from the first TextView of each bubble type. Messages are measured
+ * on a background thread when they are added or replaced, so binding only has to place lines;
+ * a long message bound before its measurement is done is shown once it lands
+ */
+public class ChatTextPrecomputer {
+
+    static final int LONG_TEXT_CHARS = 400; // Shorter text is cheap enough to measure while binding
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-text-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile PrecomputedText.Params userParams;
+    private volatile PrecomputedText.Params aiParams;
+
+    public PrecomputedText.Params getParams(boolean user) {
+        return user ? userParams : aiParams;
+    }
+
+    /**
+     * Main thread; the params of a TextView of the bubble type
+     */
+    public void setParams(boolean user, PrecomputedText.Params params) {
+        if (user) {
+            userParams = params;
+        } else {
+            aiParams = params;
+        }
+    }
+
+    /**
+     * Measure a new or replaced message in the background; no-op until its bubble type has params
+     */
+    public void precompute(ChatMessage message) {
+        PrecomputedText.Params params = getParams(message.isUser);
+        if (params != null) {
+            EXECUTOR.execute(() -> measure(message, params));
+        }
+    }
+
+    /**
+     * Measure on the calling thread, for messages built on a background thread anyway
+     */
+    public void precomputeNow(ChatMessage message) {
+        PrecomputedText.Params params = getParams(message.isUser);
+        if (params != null) {
+            measure(message, params);
+        }
+    }
+
+    /**
+     * Measure (unless already done with these params) and hand the result to the main thread
+     */
+    void precomputeThen(ChatMessage message, PrecomputedText.Params params, Consumer<PrecomputedText> onMain) {
+        EXECUTOR.execute(() -> {
+            PrecomputedText text = measure(message, params);
+            mainHandler.post(() -> onMain.accept(text));
+        });
+    }
+
+    static CharSequence textOf(ChatMessage message) {
+        CharSequence text = message.display != null ? message.display : message.message;
+        return text != null ? text : "";
+    }
+
+    private static PrecomputedText measure(ChatMessage message, PrecomputedText.Params params) {
+        PrecomputedText current = message.precomputed;
+        if (current != null && current.getParams() == params) {
+            return current;
+        }
+        PrecomputedText text = PrecomputedText.create(textOf(message), params);
+        message.precomputed = text;
+        return text;
+    }
+}
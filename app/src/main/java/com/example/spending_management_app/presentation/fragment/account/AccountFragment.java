@@ -37,15 +37,18 @@ import com.bumptech.glide.Glide;
 import com.example.spending_management_app.R;
 import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.local.entity.UserEntity;
+import com.example.spending_management_app.data.repository.BudgetProgressTracker;
 import com.example.spending_management_app.data.repository.UserRepositoryImpl;
 import com.example.spending_management_app.databinding.FragmentAccountBinding;
 import com.example.spending_management_app.domain.repository.UserRepository;
 import com.example.spending_management_app.utils.LocaleHelper;
-import com.example.spending_management_app.utils.PasswordUtils;
+import com.example.spending_management_app.utils.PasswordHashingEngine;
 import com.example.spending_management_app.utils.SessionManager;
 import com.example.spending_management_app.utils.SettingsHelper;
 import com.example.spending_management_app.domain.usecase.currency.CurrencyConversionUseCase;
 
+import java.util.concurrent.Future;
+
 public class AccountFragment extends Fragment {
 
     private FragmentAccountBinding binding;
@@ -53,6 +56,7 @@ public class AccountFragment extends Fragment {
     private UserEntity currentUser;
     private Uri selectedAvatarUri;
     private UserRepository userRepository;
+    private Future<?> pendingPasswordCheck; // Live current-password check, replaced on each keystroke
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
@@ -207,6 +211,8 @@ public class AccountFragment extends Fragment {
         TextInputEditText confirmPasswordInput = dialogView.findViewById(R.id.confirm_password_input);
 
         // Add text change listener for real-time validation
+        // Key derivation is slow, so each keystroke cancels the previous check and verifies off the main thread
+        PasswordHashingEngine hashingEngine = PasswordHashingEngine.getInstance();
         currentPasswordInput.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
@@ -214,15 +220,34 @@ public class AccountFragment extends Fragment {
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
                 String password = s.toString();
+                if (pendingPasswordCheck != null) {
+                    pendingPasswordCheck.cancel(true);
+                    pendingPasswordCheck = null;
+                }
                 if (password.isEmpty()) {
                     currentPasswordLayout.setEndIconDrawable(null);
-                } else if (PasswordUtils.verifyPassword(password, currentUser.getPasswordHash())) {
-                    currentPasswordLayout.setEndIconDrawable(ContextCompat.getDrawable(getContext(), R.drawable.ic_check_green));
-                    currentPasswordLayout.setEndIconTintList(ColorStateList.valueOf(Color.parseColor("#4CAF50")));
-                } else {
-                    currentPasswordLayout.setEndIconDrawable(ContextCompat.getDrawable(getContext(), R.drawable.ic_check_red));
-                    currentPasswordLayout.setEndIconTintList(ColorStateList.valueOf(Color.parseColor("#F44336")));
+                    return;
                 }
+                String storedHash = currentUser.getPasswordHash();
+                pendingPasswordCheck = hashingEngine.submit(() -> {
+                    boolean matches = hashingEngine.matchesNow(password, storedHash);
+                    if (Thread.currentThread().isInterrupted() || getActivity() == null) {
+                        return null;
+                    }
+                    getActivity().runOnUiThread(() -> {
+                        if (getContext() == null || !password.equals(currentPasswordInput.getText().toString())) {
+                            return;
+                        }
+                        if (matches) {
+                            currentPasswordLayout.setEndIconDrawable(ContextCompat.getDrawable(getContext(), R.drawable.ic_check_green));
+                            currentPasswordLayout.setEndIconTintList(ColorStateList.valueOf(Color.parseColor("#4CAF50")));
+                        } else {
+                            currentPasswordLayout.setEndIconDrawable(ContextCompat.getDrawable(getContext(), R.drawable.ic_check_red));
+                            currentPasswordLayout.setEndIconTintList(ColorStateList.valueOf(Color.parseColor("#F44336")));
+                        }
+                    });
+                    return null;
+                });
             }
 
             @Override
@@ -243,31 +268,44 @@ public class AccountFragment extends Fragment {
                 return;
             }
 
-            if (!PasswordUtils.verifyPassword(currentPassword, currentUser.getPasswordHash())) {
-                Toast.makeText(getContext(), getString(R.string.current_password_incorrect), Toast.LENGTH_SHORT).show();
-                return;
-            }
-
             if (!newPassword.equals(confirmPassword)) {
                 Toast.makeText(getContext(), getString(R.string.passwords_not_match), Toast.LENGTH_SHORT).show();
                 return;
             }
 
-            // Update password
-            String hashedNewPassword = PasswordUtils.hashPassword(newPassword);
-            currentUser.setPasswordHash(hashedNewPassword);
+            // Verify, hash and save on the hashing thread
+            hashingEngine.submit(() -> {
+                if (!hashingEngine.matchesNow(currentPassword, currentUser.getPasswordHash())) {
+                    if (getActivity() != null) {
+                        getActivity().runOnUiThread(() ->
+                                Toast.makeText(getContext(), getString(R.string.current_password_incorrect), Toast.LENGTH_SHORT).show());
+                    }
+                    return null;
+                }
+
+                // Update password
+                currentUser.setPasswordHash(hashingEngine.hashNow(newPassword));
 
-            // Save to database
-            new Thread(() -> {
+                // Save to database
                 userRepository.updateUser(currentUser);
-                getActivity().runOnUiThread(() -> {
-                    // Update session
-                    sessionManager.updateUserData(currentUser);
+                if (getActivity() != null) {
+                    getActivity().runOnUiThread(() -> {
+                        // Update session
+                        sessionManager.updateUserData(currentUser);
 
-                    Toast.makeText(getContext(), getString(R.string.password_changed), Toast.LENGTH_SHORT).show();
-                    dialog.dismiss();
-                });
-            }).start();
+                        Toast.makeText(getContext(), getString(R.string.password_changed), Toast.LENGTH_SHORT).show();
+                        dialog.dismiss();
+                    });
+                }
+                return null;
+            });
+        });
+
+        dialog.setOnDismissListener(d -> {
+            if (pendingPasswordCheck != null) {
+                pendingPasswordCheck.cancel(true);
+                pendingPasswordCheck = null;
+            }
         });
 
         dialog.show();
@@ -282,8 +320,10 @@ public class AccountFragment extends Fragment {
         SwitchCompat notificationSwitch = dialogView.findViewById(R.id.notification_switch);
         SwitchCompat darkModeSwitch = dialogView.findViewById(R.id.dark_mode_switch);
         SwitchCompat chatFeedbackSwitch = dialogView.findViewById(R.id.chat_feedback_switch);
+        SwitchCompat speculativeExpenseSwitch = dialogView.findViewById(R.id.speculative_expense_switch);
         AutoCompleteTextView languageDropdown = dialogView.findViewById(R.id.language_dropdown);
         AutoCompleteTextView currencyDropdown = dialogView.findViewById(R.id.currency_dropdown);
+        TextInputEditText budgetAlertThresholdsInput = dialogView.findViewById(R.id.budget_alert_thresholds_input);
 
         // Setup language dropdown
         ArrayAdapter<String> languageAdapter = new ArrayAdapter<>(getContext(),
@@ -300,10 +340,14 @@ public class AccountFragment extends Fragment {
         boolean notificationsEnabled = true; // Default, can be loaded from preferences
         boolean darkModeEnabled = SettingsHelper.isDarkModeEnabled(getContext());
         boolean chatFeedbackEnabled = SettingsHelper.isChatFeedbackEnabled(getContext());
+        boolean speculativeExpenseEnabled = SettingsHelper.isSpeculativeExpenseEnabled(getContext());
 
         notificationSwitch.setChecked(notificationsEnabled);
         darkModeSwitch.setChecked(darkModeEnabled);
         chatFeedbackSwitch.setChecked(chatFeedbackEnabled);
+        speculativeExpenseSwitch.setChecked(speculativeExpenseEnabled);
+        budgetAlertThresholdsInput.setText(SettingsHelper.formatBudgetAlertThresholds(
+                SettingsHelper.getBudgetAlertThresholds(getContext())));
         languageDropdown.setText(currentLanguage.equals("vi") ? getString(R.string.vietnamese) : getString(R.string.english), false);
     // Set current selected currency from settings (supports VND, USD, ...)
     String selectedCurrency = SettingsHelper.getSelectedCurrency(getContext());
@@ -319,6 +363,9 @@ public class AccountFragment extends Fragment {
             String newSelectedCurrency = currencyDropdown.getText().toString();
             boolean darkModeSelected = darkModeSwitch.isChecked();
             boolean chatFeedbackSelected = chatFeedbackSwitch.isChecked();
+            boolean speculativeExpenseSelected = speculativeExpenseSwitch.isChecked();
+            int[] budgetAlertThresholds = SettingsHelper.parseBudgetAlertThresholds(
+                    String.valueOf(budgetAlertThresholdsInput.getText()));
 
             // Convert display text to language code
             String languageCode = selectedLanguage.equals(getString(R.string.vietnamese)) ? "vi" : "en";
@@ -332,6 +379,13 @@ public class AccountFragment extends Fragment {
             // Persist chat feedback setting
             SettingsHelper.setChatFeedbackEnabled(getContext(), chatFeedbackSelected);
 
+            // Persist speculative expense entry setting
+            SettingsHelper.setSpeculativeExpenseEnabled(getContext(), speculativeExpenseSelected);
+
+            // Persist extra budget alert levels and use them for the next crossing check
+            SettingsHelper.setBudgetAlertThresholds(getContext(), budgetAlertThresholds);
+            BudgetProgressTracker.setCustomThresholds(budgetAlertThresholds);
+
             // Apply theme change immediately
             applyTheme(darkModeSelected);
 
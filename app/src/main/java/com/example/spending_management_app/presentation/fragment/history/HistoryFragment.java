@@ -20,6 +20,7 @@ import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 import com.example.spending_management_app.presentation.viewmodel.history.HistoryViewModel;
 import com.google.android.material.tabs.TabLayout;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.CategoryUtils;
 import com.example.spending_management_app.utils.UserSession;
 
@@ -392,9 +393,7 @@ public class HistoryFragment extends Fragment implements DateRangePickerDialog.D
         if ("income".equals(type)) {
             return "ic_home";
         }
-        // For non-income types, use centralized CategoryUtils so localization updates reflect immediately
-        String localized = CategoryUtils.getLocalizedCategoryName(getContext(), category);
-        return CategoryUtils.getIconForCategory(localized);
+        return CategoryRegistry.emojiOf(category);
     }
 
     private String getLocalizedCategoryName(String category) {
@@ -11,7 +11,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.spending_management_app.R;
 import com.example.spending_management_app.domain.model.Transaction;
-import com.example.spending_management_app.utils.CategoryUtils;
+import com.example.spending_management_app.utils.CategoryRegistry;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -184,42 +184,26 @@ public class SectionedTransactionAdapter extends RecyclerView.Adapter<RecyclerVi
         }
 
         public void bind(Transaction transaction) {
+            Context ctx = itemView.getContext();
+            int categoryId = transaction.getCategoryId();
+
             titleTextView.setText(transaction.getDescription());
             // Display localized category name
-            categoryTextView.setText(CategoryUtils.getLocalizedCategoryName(itemView.getContext(), transaction.getCategory()));
+            String categoryLabel = CategoryRegistry.labelOf(ctx, categoryId);
+            categoryTextView.setText(categoryLabel != null ? categoryLabel : transaction.getCategory());
             dateTextView.setText(transaction.getFormattedDate());
-            amountTextView.setText(transaction.getFormattedAmount(itemView.getContext()));
+            amountTextView.setText(transaction.getFormattedAmount(ctx));
 
             // Set amount color based on type
             if (transaction.getAmount() >= 0) {
-                amountTextView.setTextColor(itemView.getContext().getColor(R.color.income_color));
+                amountTextView.setTextColor(ctx.getColor(R.color.income_color));
             } else {
-                amountTextView.setTextColor(itemView.getContext().getColor(R.color.expense_color));
+                amountTextView.setTextColor(ctx.getColor(R.color.expense_color));
             }
 
-            // Set icon emoji based on category
-            String iconEmoji = getIconEmoji(transaction.getCategory());
-            iconTextView.setText(iconEmoji);
-
-            // Set icon background color based on category
-            int backgroundColor = getCategoryColor(transaction.getCategory());
-            iconTextView.setBackgroundColor(backgroundColor);
-        }
-
-        private String getIconEmoji(String category) {
-            String localized = CategoryUtils.getLocalizedCategoryName(itemView.getContext(), category);
-            return CategoryUtils.getIconForCategory(localized);
-        }
-
-        private int getCategoryColor(String category) {
-            Context ctx = itemView.getContext();
-            String localized = CategoryUtils.getLocalizedCategoryName(ctx, category);
-            int colorRes = CategoryUtils.getColorForCategory(localized);
-            return ctx.getColor(colorRes);
-        }
-
-        private String getLocalizedCategoryName(String category) {
-            return CategoryUtils.getLocalizedCategoryName(itemView.getContext(), category);
+            // Set icon emoji and background color based on category id
+            iconTextView.setText(CategoryRegistry.emojiOf(categoryId));
+            iconTextView.setBackgroundColor(ctx.getColor(CategoryRegistry.colorResOf(categoryId)));
         }
     }
 
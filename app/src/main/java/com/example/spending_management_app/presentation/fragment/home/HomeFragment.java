@@ -1,6 +1,5 @@
 package com.example.spending_management_app.presentation.fragment.home;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -16,16 +15,21 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import com.example.spending_management_app.domain.model.Transaction;
 import com.example.spending_management_app.presentation.activity.MainActivity;
 import com.example.spending_management_app.R;
-import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategorySpending;
 import com.example.spending_management_app.databinding.FragmentHomeBinding;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.CategoryUtils;
 import com.example.spending_management_app.utils.ToastHelper;
 
 import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.BudgetAlertEntity;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.BudgetProgressTracker;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
 import com.example.spending_management_app.presentation.viewmodel.home.HomeViewModel;
 import com.example.spending_management_app.utils.CurrencyFormatter;
+import com.example.spending_management_app.utils.DateBuckets;
 import com.example.spending_management_app.utils.UserSession;
 
 import java.util.ArrayList;
@@ -41,8 +45,6 @@ public class HomeFragment extends Fragment {
     private TransactionAdapter transactionAdapter;
     private List<Transaction> transactions;
     private UserSession userSession;
-    private static final String PREFS_NAME = "BudgetWarnings";
-    private static final String KEY_WARNED_CATEGORIES = "warned_categories_";
 
     public View onCreateView(@NonNull LayoutInflater inflater,
                              ViewGroup container, Bundle savedInstanceState) {
@@ -113,10 +115,10 @@ public class HomeFragment extends Fragment {
                     }
                 }
                 
-                // Get total expense for THIS MONTH ONLY (not all time)
+                // Get total expense for THIS MONTH ONLY from the counters kept at write time
                 Long totalExpense = AppDatabase.getInstance(getContext())
-                        .transactionDao()
-                        .getTotalExpenseByDateRange(userId, startOfMonth, endOfMonth);
+                        .categorySpendDao()
+                        .getMonthTotal(userId, DateBuckets.yearMonth(startOfMonth));
                 
                 android.util.Log.d("HomeFragment", "Monthly expense from " + startOfMonth + " to " + endOfMonth + ": " + totalExpense);
                 
@@ -142,21 +144,7 @@ public class HomeFragment extends Fragment {
                         // Calculate and set remaining balance (budget - expense)
                         long remainingBalance = budgetValue - expenseValue;
                         binding.currentBalance.setText(CurrencyFormatter.formatCurrency(getContext(), remainingBalance));
-                        
-                        // Show warning toast if expense exceeds budget (only once per month)
-                        if (budgetValue > 0 && expenseValue > budgetValue) {
-                            Calendar calForKey = Calendar.getInstance();
-                            String monthKey = calForKey.get(Calendar.YEAR) + "_" + (calForKey.get(Calendar.MONTH) + 1);
-                            String monthlyBudgetKey = "monthly_budget_" + monthKey;
-                            
-                            SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, android.content.Context.MODE_PRIVATE);
-                            boolean alreadyWarned = prefs.getBoolean(monthlyBudgetKey, false);
-                            
-                            if (!alreadyWarned && getActivity() != null) {
-                                ToastHelper.showErrorToast(getActivity(), getString(R.string.budget_exceeded_warning));
-                                prefs.edit().putBoolean(monthlyBudgetKey, true).apply();
-                            }
-                        }
+
                         
                         android.util.Log.d("HomeFragment", "Balance updated - Budget: " + budgetValue + 
                                 ", Expense: " + expenseValue + ", Remaining: " + remainingBalance);
@@ -230,9 +218,8 @@ public class HomeFragment extends Fragment {
             try {
                 int userId = userSession.getCurrentUserId();
                 
-                // Get recent transactions from database (limit to 5)
-                List<TransactionEntity> transactionEntities = AppDatabase.getInstance(getContext())
-                        .transactionDao()
+                // Get recent transactions (limit to 5), served from the in-memory recent window
+                List<TransactionEntity> transactionEntities = new ExpenseRepositoryImpl(AppDatabase.getInstance(getContext()))
                         .getRecentTransactions(userId, 5);
                 
                 // Convert TransactionEntity to Transaction objects
@@ -332,66 +319,10 @@ public class HomeFragment extends Fragment {
                 
                 int userId = userSession.getCurrentUserId();
                 
-                // Get all transactions for this month by category
-                List<TransactionEntity> allTransactions = AppDatabase.getInstance(getContext())
-                        .transactionDao()
-                        .getTransactionsByDateRange(userId, startOfMonth, endOfMonth);
-                
-                android.util.Log.d("HomeFragment", "Found " + allTransactions.size() + " transactions in current month for userId: " + userId);
-                for (TransactionEntity transaction : allTransactions) {
-                    android.util.Log.d("HomeFragment", "Transaction: " + transaction.description + 
-                            " - " + transaction.category + " - " + transaction.amount + " - " + transaction.date);
-                }
-                
-                // Get all category budgets for this month
-                List<CategoryBudgetEntity> categoryBudgets =
-                        AppDatabase.getInstance(getContext()).categoryBudgetDao()
-                                .getAllCategoryBudgetsForMonth(userId, startOfMonth, endOfMonth);
-                
-                // Calculate spending by category
-                java.util.Map<String, Long> categorySpending = new java.util.HashMap<>();
-                long totalSpending = 0;
-                
-                for (TransactionEntity transaction : allTransactions) {
-                    if ("expense".equals(transaction.type)) {
-                        long amount = Math.abs(transaction.amount);
-                        categorySpending.put(transaction.category, 
-                                categorySpending.getOrDefault(transaction.category, 0L) + amount);
-                        totalSpending += amount;
-                    }
-                }
-                
-                // Create map of category budgets
-                java.util.Map<String, Long> budgetMap = new java.util.HashMap<>();
-                for (CategoryBudgetEntity budget : categoryBudgets) {
-                    budgetMap.put(budget.getCategory(), budget.getBudgetAmount());
-                }
-                
-                // Get all categories (with spending OR budget)
-                // Inner class must be static to avoid issues with field access
-                class CategoryData {
-                    public String category;
-                    public long spending;
-                    public long budget;
-                    
-                    CategoryData(String category, long spending, long budget) {
-                        this.category = category;
-                        this.spending = spending;
-                        this.budget = budget;
-                    }
-                }
-                
-                // Collect all unique categories (from spending or budgets)
-                java.util.Set<String> allCategories = new java.util.HashSet<>();
-                allCategories.addAll(categorySpending.keySet()); // Categories with spending
-                allCategories.addAll(budgetMap.keySet()); // Categories with budgets
-                
-                List<CategoryData> categoryDataList = new ArrayList<>();
-                for (String category : allCategories) {
-                    long spending = categorySpending.getOrDefault(category, 0L);
-                    long budget = budgetMap.getOrDefault(category, 0L);
-                    categoryDataList.add(new CategoryData(category, spending, budget));
-                }
+                // Spending and budget per category, grouped and joined on categoryId in SQLite
+                List<CategorySpending> categoryDataList = AppDatabase.getInstance(getContext())
+                        .categorySpendDao()
+                        .getCategorySpendingWithBudgets(userId, DateBuckets.yearMonth(startOfMonth), startOfMonth, endOfMonth);
                 
                 android.util.Log.d("HomeFragment", "Total categories found: " + categoryDataList.size());
                 
@@ -411,11 +342,11 @@ public class HomeFragment extends Fragment {
                 });
                 
                 // Take ALL categories (not just top 3)
-                List<CategoryData> allCategoryData = new ArrayList<>(categoryDataList);
+                List<CategorySpending> allCategoryData = new ArrayList<>(categoryDataList);
                 
                 // Calculate total spending of displayed categories (for percentage calculation)
                 long totalCategorySpending = 0;
-                for (CategoryData data : allCategoryData) {
+                for (CategorySpending data : allCategoryData) {
                     totalCategorySpending += data.spending;
                 }
                 
@@ -430,50 +361,22 @@ public class HomeFragment extends Fragment {
                 
                 long finalTotalCategorySpending = totalCategorySpending;
                 
-                // Get current month key for storing warnings
-                Calendar calForKey = Calendar.getInstance();
-                String monthKey = calForKey.get(Calendar.YEAR) + "_" + (calForKey.get(Calendar.MONTH) + 1);
-                
-                // Get SharedPreferences
-                SharedPreferences prefs = getContext().getSharedPreferences(PREFS_NAME, android.content.Context.MODE_PRIVATE);
-                java.util.Set<String> warnedCategories = prefs.getStringSet(KEY_WARNED_CATEGORIES + monthKey, new java.util.HashSet<>());
-                
-                // Check for NEW category budget warnings
-                List<String> newExceededCategories = new ArrayList<>();
-                java.util.Set<String> currentExceededCategories = new java.util.HashSet<>();
-                
-                for (CategoryData data : allCategoryData) {
-                    if (data.budget > 0 && data.spending > data.budget) {
-                        currentExceededCategories.add(data.category);
-                        
-                        // Only warn if this category hasn't been warned before this month
-                        if (!warnedCategories.contains(data.category)) {
-                            String localizedName = CategoryUtils.getLocalizedCategoryName(getContext(), data.category);
-                            newExceededCategories.add(localizedName);
-                        }
-                    }
-                }
-                
-                // Update warned categories in SharedPreferences
-                if (!newExceededCategories.isEmpty()) {
-                    java.util.Set<String> updatedWarnedCategories = new java.util.HashSet<>(warnedCategories);
-                    updatedWarnedCategories.addAll(currentExceededCategories);
-                    prefs.edit().putStringSet(KEY_WARNED_CATEGORIES + monthKey, updatedWarnedCategories).apply();
-                }
-                
                 // Update UI on main thread
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
+                android.app.Activity activity = getActivity();
+                if (activity != null) {
+                    // Thresholds were detected when the expenses were saved, only pick up the ones not shown yet.
+                    // Taking them marks them notified, so do it only once there is an activity to show them on
+                    List<BudgetAlertEntity> pendingAlerts = new BudgetProgressTracker(AppDatabase.getInstance(activity))
+                            .takePendingAlerts(userId);
+                    activity.runOnUiThread(() -> {
+                        // Each crossing is stored once in budget_alerts, so every alert is shown exactly once.
+                        // They are already marked, so show them first and on the captured activity
+                        for (BudgetAlertEntity alert : pendingAlerts) {
+                            ToastHelper.showErrorToast(activity, budgetAlertMessage(activity, alert));
+                        }
+                        
                         android.util.Log.d("HomeFragment", "Updating UI with " + allCategoryData.size() + " categories");
                         updateCategoryUI(allCategoryData, finalTotalCategorySpending);
-                        
-                        // Show warning toast ONLY for NEW exceeded category budgets
-                        if (!newExceededCategories.isEmpty() && getActivity() != null) {
-                            for (String categoryName : newExceededCategories) {
-                                String message = getString(R.string.category_budget_exceeded_warning, categoryName);
-                                ToastHelper.showErrorToast(getActivity(), message);
-                            }
-                        }
                     });
                 }
                 
@@ -484,7 +387,19 @@ public class HomeFragment extends Fragment {
         android.util.Log.d("HomeFragment", "=== loadCategorySpendingFromDatabase END ===");
     }
     
-    private void updateCategoryUI(List<?> allCategories, long totalSpending) {
+    private static String budgetAlertMessage(android.content.Context context, BudgetAlertEntity alert) {
+        if (alert.isMonthly()) {
+            return alert.threshold >= 100
+                    ? context.getString(R.string.budget_exceeded_warning)
+                    : context.getString(R.string.budget_threshold_warning, alert.threshold);
+        }
+        String categoryName = CategoryUtils.getLocalizedCategoryName(context, CategoryRegistry.keyOf(alert.categoryId));
+        return alert.threshold >= 100
+                ? context.getString(R.string.category_budget_exceeded_warning, categoryName)
+                : context.getString(R.string.category_budget_threshold_warning, categoryName, alert.threshold);
+    }
+
+    private void updateCategoryUI(List<CategorySpending> allCategories, long totalSpending) {
         android.util.Log.d("HomeFragment", "=== updateCategoryUI START ===");
         android.util.Log.d("HomeFragment", "updateCategoryUI called with " + allCategories.size() + " categories, totalSpending=" + totalSpending);
         
@@ -507,16 +422,12 @@ public class HomeFragment extends Fragment {
         
         // Add each category dynamically
         for (int i = 0; i < allCategories.size(); i++) {
-            Object obj = allCategories.get(i);
+            CategorySpending data = allCategories.get(i);
             
             try {
-                // Access public fields directly
-                String category = (String) obj.getClass().getField("category").get(obj);
-                Long spendingLong = (Long) obj.getClass().getField("spending").get(obj);
-                Long budgetLong = (Long) obj.getClass().getField("budget").get(obj);
-                
-                long spending = (spendingLong != null) ? spendingLong : 0L;
-                long budget = (budgetLong != null) ? budgetLong : 0L;
+                String category = data.category;
+                long spending = data.spending;
+                long budget = data.budget;
                 
                 android.util.Log.d("HomeFragment", "Adding category: " + category + 
                         ", spending=" + spending + ", budget=" + budget);
@@ -564,9 +475,10 @@ public class HomeFragment extends Fragment {
                 1.0f
         );
         nameView.setLayoutParams(nameParams);
-    String localizedName = CategoryUtils.getLocalizedCategoryName(getContext(), category);
-    String icon = CategoryUtils.getIconForCategory(localizedName);
-    nameView.setText(icon + " " + localizedName);
+        int categoryId = CategoryRegistry.idOf(category);
+        String localizedName = categoryId != CategoryRegistry.UNKNOWN_ID
+                ? CategoryRegistry.labelOf(getContext(), categoryId) : category;
+        nameView.setText(CategoryRegistry.emojiOf(categoryId) + " " + localizedName);
         nameView.setTextColor(androidx.core.content.ContextCompat.getColor(getContext(), R.color.text_primary));
         nameView.setTextSize(14);
         nameView.setTypeface(null, android.graphics.Typeface.BOLD);
@@ -658,8 +570,7 @@ public class HomeFragment extends Fragment {
     }
     
     private String getIconEmojiForCategory(String category) {
-        String localized = CategoryUtils.getLocalizedCategoryName(getContext(), category);
-        return CategoryUtils.getIconForCategory(localized);
+        return CategoryRegistry.emojiOf(category);
     }
 
     @Override
@@ -798,9 +709,8 @@ public class HomeFragment extends Fragment {
         if ("income".equals(type)) {
             return "ic_home";
         }
-        String localized = CategoryUtils.getLocalizedCategoryName(getContext(), category);
-        // Keep "income" behavior; for others return emoji/icon from CategoryUtils
-        return CategoryUtils.getIconForCategory(localized);
+        // Keep "income" behavior; for others return emoji from the registry
+        return CategoryRegistry.emojiOf(category);
     }
 
     private String getLocalizedCategoryName(String category) {
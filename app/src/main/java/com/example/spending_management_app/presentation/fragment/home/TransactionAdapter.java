@@ -10,7 +10,7 @@ import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.spending_management_app.R;
-import com.example.spending_management_app.utils.CategoryUtils;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.domain.model.Transaction;
 
 import java.util.List;
@@ -65,8 +65,11 @@ public class TransactionAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
             Transaction transaction = transactions.get(position);
 
             TransactionViewHolder transactionHolder = (TransactionViewHolder) holder;
+            int categoryId = transaction.getCategoryId();
+            String categoryLabel = CategoryRegistry.labelOf(context, categoryId);
+
             transactionHolder.titleTextView.setText(transaction.getDescription());
-            transactionHolder.categoryTextView.setText(CategoryUtils.getLocalizedCategoryName(context, transaction.getCategory()));
+            transactionHolder.categoryTextView.setText(categoryLabel != null ? categoryLabel : transaction.getCategory());
             transactionHolder.dateTextView.setText(transaction.getFormattedDate());
             transactionHolder.amountTextView.setText(transaction.getFormattedAmount(context));
 
@@ -77,13 +80,9 @@ public class TransactionAdapter extends RecyclerView.Adapter<RecyclerView.ViewHo
                 transactionHolder.amountTextView.setTextColor(context.getColor(R.color.expense_color));
             }
 
-            // Set icon emoji based on category
-            String iconEmoji = CategoryUtils.getIconForCategory(CategoryUtils.getLocalizedCategoryName(context, transaction.getCategory()));
-            transactionHolder.iconTextView.setText(iconEmoji);
-
-            // Set icon background color based on category
-            int backgroundColor = context.getColor(CategoryUtils.getColorForCategory(CategoryUtils.getLocalizedCategoryName(context, transaction.getCategory())));
-            transactionHolder.iconTextView.setBackgroundColor(backgroundColor);
+            // Set icon emoji and background color based on category id
+            transactionHolder.iconTextView.setText(CategoryRegistry.emojiOf(categoryId));
+            transactionHolder.iconTextView.setBackgroundColor(context.getColor(CategoryRegistry.colorResOf(categoryId)));
         }
         // Skeleton view holder doesn't need binding
     }
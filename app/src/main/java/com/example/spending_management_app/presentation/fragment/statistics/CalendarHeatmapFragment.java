@@ -0,0 +1,253 @@
+package com.example.spending_management_app.presentation.fragment.statistics;
+
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.navigation.Navigation;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.entity.DailySpending;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.databinding.FragmentCalendarHeatmapBinding;
+import com.example.spending_management_app.domain.model.Transaction;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.CurrencyFormatter;
+import com.example.spending_management_app.utils.UserSession;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Calendar heatmap of daily expense: a year strip and a month grid, tap a day to list it
+ * The whole year comes from one grouped query (at most 366 rows), so moving between months of
+ * the same year only re-slices the array already in memory
+ */
+public class CalendarHeatmapFragment extends Fragment {
+
+    private static final String TAG = "CalendarHeatmapFragment";
+
+    private FragmentCalendarHeatmapBinding binding;
+    private ExpenseRepository expenseRepository;
+    private UserSession userSession;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private YearMonth selectedMonth = YearMonth.now();
+    private int selectedDay = Integer.MIN_VALUE;
+
+    // Loaded year; index 0 of yearTotals is yearFromDay
+    private int loadedYear = Integer.MIN_VALUE;
+    private int yearFromDay;
+    private long[] yearTotals = new long[0];
+    private long yearMax;
+    private int loadGeneration; // Only the latest load is shown, main thread only
+
+    public View onCreateView(@NonNull LayoutInflater inflater,
+                             ViewGroup container, Bundle savedInstanceState) {
+        binding = FragmentCalendarHeatmapBinding.inflate(inflater, container, false);
+        View root = binding.getRoot();
+
+        expenseRepository = new ExpenseRepositoryImpl(AppDatabase.getInstance(requireContext()));
+        userSession = UserSession.getInstance(requireContext());
+
+        binding.btnBack.setOnClickListener(v -> Navigation.findNavController(requireView()).navigateUp());
+
+        binding.yearHeatmap.setMode(CalendarHeatmapView.MODE_YEAR);
+        binding.monthHeatmap.setMode(CalendarHeatmapView.MODE_MONTH);
+        binding.yearHeatmap.setOnDayClickListener(this::selectDay);
+        binding.monthHeatmap.setOnDayClickListener(this::selectDay);
+
+        binding.previousYearButton.setOnClickListener(v -> showMonth(selectedMonth.minusYears(1)));
+        binding.nextYearButton.setOnClickListener(v -> showMonth(selectedMonth.plusYears(1)));
+        binding.previousMonthButton.setOnClickListener(v -> showMonth(selectedMonth.minusMonths(1)));
+        binding.nextMonthButton.setOnClickListener(v -> showMonth(selectedMonth.plusMonths(1)));
+
+        return root;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Transactions may have changed on another screen
+        loadYear(selectedMonth.getYear());
+        if (selectedDay != Integer.MIN_VALUE) {
+            loadDay(selectedDay);
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        binding = null;
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        executor.shutdownNow();
+    }
+
+    private void showMonth(YearMonth month) {
+        selectedMonth = month;
+        if (month.getYear() != loadedYear) {
+            loadYear(month.getYear());
+        } else {
+            renderMonth();
+        }
+    }
+
+    private void loadYear(int year) {
+        int userId = userSession.getCurrentUserId();
+        int generation = ++loadGeneration;
+        int fromDay = (int) LocalDate.of(year, 1, 1).toEpochDay();
+        int toDay = (int) LocalDate.of(year, 12, 31).toEpochDay();
+
+        executor.execute(() -> {
+            long[] totals = new long[toDay - fromDay + 1];
+            long max = 0;
+            try {
+                List<DailySpending> days = expenseRepository.getDailySpending(userId, fromDay, toDay);
+                for (DailySpending day : days) {
+                    totals[day.epochDay - fromDay] = day.total;
+                    max = Math.max(max, day.total);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading daily spending for " + year, e);
+            }
+
+            long finalMax = max;
+            if (getActivity() == null) {
+                return;
+            }
+            requireActivity().runOnUiThread(() -> {
+                // Also dropped when the user has already moved back to another year
+                if (binding == null || generation != loadGeneration || year != selectedMonth.getYear()) {
+                    return;
+                }
+                loadedYear = year;
+                yearFromDay = fromDay;
+                yearTotals = totals;
+                yearMax = finalMax;
+                renderYear();
+                renderMonth();
+            });
+        });
+    }
+
+    private void renderYear() {
+        long total = 0;
+        for (long dayTotal : yearTotals) {
+            total += dayTotal;
+        }
+        binding.yearTitle.setText(String.valueOf(loadedYear));
+        binding.yearTotal.setText(getString(R.string.calendar_heatmap_total,
+                CurrencyFormatter.formatCurrency(requireContext(), total)));
+        binding.yearHeatmap.setDays(yearFromDay, yearFromDay + yearTotals.length - 1, yearTotals, yearMax);
+        binding.yearHeatmap.setSelectedDay(selectedDay);
+    }
+
+    private void renderMonth() {
+        int fromDay = (int) selectedMonth.atDay(1).toEpochDay();
+        int toDay = (int) selectedMonth.atEndOfMonth().toEpochDay();
+        long[] monthTotals = new long[toDay - fromDay + 1];
+        System.arraycopy(yearTotals, fromDay - yearFromDay, monthTotals, 0, monthTotals.length);
+        long total = 0;
+        for (long dayTotal : monthTotals) {
+            total += dayTotal;
+        }
+
+        binding.monthTitle.setText(selectedMonth.format(DateTimeFormatter.ofPattern("MM/yyyy", Locale.getDefault())));
+        binding.monthTotal.setText(getString(R.string.calendar_heatmap_total,
+                CurrencyFormatter.formatCurrency(requireContext(), total)));
+        // Same maximum as the year strip so a color means the same amount in both
+        binding.monthHeatmap.setDays(fromDay, toDay, monthTotals, yearMax);
+        binding.monthHeatmap.setSelectedDay(selectedDay);
+    }
+
+    private void selectDay(int epochDay) {
+        selectedDay = epochDay;
+        binding.yearHeatmap.setSelectedDay(epochDay);
+        YearMonth month = YearMonth.from(LocalDate.ofEpochDay(epochDay));
+        if (!month.equals(selectedMonth)) {
+            showMonth(month); // Tapped in the year strip
+        } else {
+            binding.monthHeatmap.setSelectedDay(epochDay);
+        }
+        loadDay(epochDay);
+    }
+
+    private void loadDay(int epochDay) {
+        int userId = userSession.getCurrentUserId();
+        LocalDate day = LocalDate.ofEpochDay(epochDay);
+        Date date = Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+        executor.execute(() -> {
+            List<TransactionEntity> transactions;
+            try {
+                transactions = expenseRepository.getTransactionsByDate(userId, date);
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading transactions for " + day, e);
+                return;
+            }
+            if (getActivity() == null) {
+                return;
+            }
+            requireActivity().runOnUiThread(() -> {
+                if (binding == null || epochDay != selectedDay) {
+                    return;
+                }
+                showDayTransactions(day, transactions);
+            });
+        });
+    }
+
+    private void showDayTransactions(LocalDate day, List<TransactionEntity> entities) {
+        binding.dayTitle.setText(getString(R.string.calendar_heatmap_day_title,
+                day.format(DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.getDefault()))));
+        binding.dayEmptyText.setVisibility(entities.isEmpty() ? View.VISIBLE : View.GONE);
+
+        ViewGroup container = binding.dayTransactionsContainer;
+        container.removeAllViews();
+        LayoutInflater inflater = LayoutInflater.from(requireContext());
+        for (TransactionEntity entity : entities) {
+            Transaction transaction = new Transaction(entity.description, entity.category, entity.amount,
+                    null, entity.date, entity.type);
+            View row = inflater.inflate(R.layout.item_transaction, container, false);
+            bindTransactionRow(row, transaction);
+            container.addView(row);
+        }
+    }
+
+    // Same binding as the home list's rows
+    private void bindTransactionRow(View row, Transaction transaction) {
+        int categoryId = transaction.getCategoryId();
+        String categoryLabel = CategoryRegistry.labelOf(requireContext(), categoryId);
+
+        TextView icon = row.findViewById(R.id.transaction_icon);
+        TextView amount = row.findViewById(R.id.transaction_amount);
+        ((TextView) row.findViewById(R.id.transaction_title)).setText(transaction.getDescription());
+        ((TextView) row.findViewById(R.id.transaction_category))
+                .setText(categoryLabel != null ? categoryLabel : transaction.getCategory());
+        ((TextView) row.findViewById(R.id.transaction_date)).setText(transaction.getFormattedDate());
+        amount.setText(transaction.getFormattedAmount(requireContext()));
+        amount.setTextColor(requireContext().getColor(transaction.getAmount() >= 0
+                ? R.color.income_color : R.color.expense_color));
+        icon.setText(CategoryRegistry.emojiOf(categoryId));
+        icon.setBackgroundColor(requireContext().getColor(CategoryRegistry.colorResOf(categoryId)));
+    }
+}
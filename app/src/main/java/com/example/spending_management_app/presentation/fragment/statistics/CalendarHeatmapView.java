@@ -0,0 +1,218 @@
+package com.example.spending_management_app.presentation.fragment.statistics;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.TextStyle;
+import java.util.Locale;
+
+/**
+ * Calendar cells colored by the day's total expense
+ * MODE_MONTH draws one month as a Monday-first grid with day numbers; MODE_YEAR draws a
+ * compact strip with a column per week and a row per weekday. Colors use a shared maximum,
+ * so a month and its year strip read the same
+ */
+public class CalendarHeatmapView extends View {
+
+    public static final int MODE_MONTH = 0;
+    public static final int MODE_YEAR = 1;
+
+    public interface OnDayClickListener {
+        void onDayClick(int epochDay);
+    }
+
+    // No spending, then five levels from light to dark red
+    private static final int[] LEVEL_COLORS = {
+            0xFFEEEEEE, 0xFFFFCDD2, 0xFFEF9A9A, 0xFFE57373, 0xFFE53935, 0xFFB71C1C
+    };
+
+    private final Paint cellPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint selectionPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cell = new RectF();
+    private final String[] weekdayLabels = new String[7];
+
+    private int mode = MODE_MONTH;
+    private int fromEpochDay;
+    private int toEpochDay = -1;
+    private long[] totals = new long[0];
+    private long maxTotal;
+    private int selectedDay = Integer.MIN_VALUE;
+    private OnDayClickListener listener;
+
+    private final float density;
+    private float cellSize;
+    private float gap;
+    private float headerHeight;
+
+    public CalendarHeatmapView(Context context) {
+        this(context, null);
+    }
+
+    public CalendarHeatmapView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        textPaint.setTextAlign(Paint.Align.CENTER);
+        textPaint.setTextSize(12 * density);
+        selectionPaint.setStyle(Paint.Style.STROKE);
+        selectionPaint.setStrokeWidth(2 * density);
+        selectionPaint.setColor(Color.parseColor("#1E88E5"));
+        for (int i = 0; i < 7; i++) {
+            weekdayLabels[i] = DayOfWeek.of(i + 1).getDisplayName(TextStyle.NARROW, Locale.getDefault());
+        }
+    }
+
+    public void setMode(int mode) {
+        this.mode = mode;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * @param totals expense per day, index 0 is fromEpochDay
+     * @param maxTotal value drawn with the darkest color
+     */
+    public void setDays(int fromEpochDay, int toEpochDay, long[] totals, long maxTotal) {
+        this.fromEpochDay = fromEpochDay;
+        this.toEpochDay = toEpochDay;
+        this.totals = totals;
+        this.maxTotal = maxTotal;
+        requestLayout();
+        invalidate();
+    }
+
+    public void setSelectedDay(int epochDay) {
+        selectedDay = epochDay;
+        invalidate();
+    }
+
+    public void setOnDayClickListener(OnDayClickListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        float usable = width - getPaddingLeft() - getPaddingRight();
+        int columns = columnCount();
+        gap = (mode == MODE_MONTH ? 3 : 1) * density; // ~53 week columns have to fit in the year strip
+        cellSize = columns > 0 ? (usable - gap * (columns - 1)) / columns : 0;
+        headerHeight = mode == MODE_MONTH ? textPaint.getTextSize() * 2 : 0;
+        int rows = rowCount();
+        float height = headerHeight + rows * cellSize + Math.max(0, rows - 1) * gap;
+        setMeasuredDimension(width, (int) Math.ceil(height) + getPaddingTop() + getPaddingBottom());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (toEpochDay < fromEpochDay) {
+            return;
+        }
+        if (mode == MODE_MONTH) {
+            textPaint.setColor(Color.parseColor("#757575"));
+            for (int column = 0; column < 7; column++) {
+                float centerX = getPaddingLeft() + column * (cellSize + gap) + cellSize / 2;
+                canvas.drawText(weekdayLabels[column], centerX, getPaddingTop() + textPaint.getTextSize(), textPaint);
+            }
+        }
+
+        float radius = cellSize / (mode == MODE_MONTH ? 6 : 4);
+        for (int day = fromEpochDay; day <= toEpochDay; day++) {
+            cellBounds(day, cell);
+            int level = level(totals[day - fromEpochDay]);
+            cellPaint.setColor(LEVEL_COLORS[level]);
+            canvas.drawRoundRect(cell, radius, radius, cellPaint);
+            if (day == selectedDay) {
+                canvas.drawRoundRect(cell, radius, radius, selectionPaint);
+            }
+            if (mode == MODE_MONTH) {
+                textPaint.setColor(level >= 4 ? Color.WHITE : Color.parseColor("#212121"));
+                float baseline = cell.centerY() - (textPaint.descent() + textPaint.ascent()) / 2;
+                canvas.drawText(String.valueOf(LocalDate.ofEpochDay(day).getDayOfMonth()), cell.centerX(), baseline, textPaint);
+            }
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (listener == null) {
+            return super.onTouchEvent(event);
+        }
+        if (event.getAction() == MotionEvent.ACTION_UP) {
+            int day = dayAt(event.getX(), event.getY());
+            if (day != Integer.MIN_VALUE) {
+                performClick();
+                listener.onDayClick(day);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private int level(long total) {
+        if (total <= 0 || maxTotal <= 0) {
+            return 0;
+        }
+        // Square root keeps ordinary days apart when one large payment sets the maximum
+        double ratio = Math.sqrt((double) total / maxTotal);
+        return 1 + Math.min(LEVEL_COLORS.length - 2, (int) (ratio * (LEVEL_COLORS.length - 1)));
+    }
+
+    // Monday-based position of the range's first day in its week
+    private int leadingDays() {
+        return LocalDate.ofEpochDay(fromEpochDay).getDayOfWeek().getValue() - 1;
+    }
+
+    private int weekCount() {
+        int days = Math.max(0, toEpochDay - fromEpochDay + 1);
+        return (leadingDays() + days + 6) / 7;
+    }
+
+    private int columnCount() {
+        return mode == MODE_MONTH ? 7 : weekCount();
+    }
+
+    private int rowCount() {
+        return mode == MODE_MONTH ? weekCount() : 7;
+    }
+
+    private void cellBounds(int epochDay, RectF out) {
+        int index = epochDay - fromEpochDay + leadingDays();
+        int week = index / 7;
+        int weekday = index % 7;
+        int column = mode == MODE_MONTH ? weekday : week;
+        int row = mode == MODE_MONTH ? week : weekday;
+        float left = getPaddingLeft() + column * (cellSize + gap);
+        float top = getPaddingTop() + headerHeight + row * (cellSize + gap);
+        out.set(left, top, left + cellSize, top + cellSize);
+    }
+
+    private int dayAt(float x, float y) {
+        if (cellSize <= 0) {
+            return Integer.MIN_VALUE;
+        }
+        int column = (int) ((x - getPaddingLeft()) / (cellSize + gap));
+        int row = (int) ((y - getPaddingTop() - headerHeight) / (cellSize + gap));
+        if (x < getPaddingLeft() || y < getPaddingTop() + headerHeight
+                || column >= columnCount() || row >= rowCount()) {
+            return Integer.MIN_VALUE;
+        }
+        int week = mode == MODE_MONTH ? row : column;
+        int weekday = mode == MODE_MONTH ? column : row;
+        int day = fromEpochDay + week * 7 + weekday - leadingDays();
+        return day >= fromEpochDay && day <= toEpochDay ? day : Integer.MIN_VALUE;
+    }
+}
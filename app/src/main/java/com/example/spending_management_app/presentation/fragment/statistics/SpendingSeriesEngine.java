@@ -0,0 +1,149 @@
+package com.example.spending_management_app.presentation.fragment.statistics;
+
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
+import com.example.spending_management_app.domain.repository.ExpenseRepository;
+import com.example.spending_management_app.utils.LttbDownsampler;
+import com.github.mikephil.charting.data.Entry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds chart series of daily or weekly spending off the main thread
+ * Per-day totals come from the column snapshot, are folded into weeks if asked, and are
+ * downsampled with LTTB to about one point per pixel, so the work and the number of Entry
+ * objects depend on the chart width rather than the size of the range.
+ * Only the latest request is delivered; x values are local epoch days
+ */
+public class SpendingSeriesEngine {
+
+    public enum Resolution { DAILY, WEEKLY }
+
+    public interface Listener {
+        void onSeriesReady(Series series);
+    }
+
+    public static final class Series {
+        public final Resolution resolution;
+        public final int fromEpochDay;
+        public final int toEpochDay;
+        public final List<Entry> entries;
+
+        Series(Resolution resolution, int fromEpochDay, int toEpochDay, List<Entry> entries) {
+            this.resolution = resolution;
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+            this.entries = entries;
+        }
+    }
+
+    private static final int MONDAY_EPOCH_DAY = 4; // 1970-01-05
+
+    private final ExpenseRepository expenseRepository;
+    private final Executor mainThread;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicLong latestRequest = new AtomicLong();
+
+    // Reused between requests, only touched on the worker thread
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+    private float[] sampledXs = new float[0];
+    private float[] sampledYs = new float[0];
+
+    public SpendingSeriesEngine(ExpenseRepository expenseRepository, Executor mainThread) {
+        this.expenseRepository = expenseRepository;
+        this.mainThread = mainThread;
+    }
+
+    /**
+     * Build a series for a range of local days; replaces any request still pending
+     * @param maxPoints usually the chart's width in pixels
+     */
+    public void request(int userId, int fromEpochDay, int toEpochDay, Resolution resolution,
+                        int maxPoints, Listener listener) {
+        long id = latestRequest.incrementAndGet();
+        worker.execute(() -> {
+            if (id != latestRequest.get()) {
+                return; // Superseded before it started, e.g. during a fling
+            }
+            Series series = build(userId, fromEpochDay, toEpochDay, resolution, maxPoints);
+            mainThread.execute(() -> {
+                if (id == latestRequest.get()) {
+                    listener.onSeriesReady(series);
+                }
+            });
+        });
+    }
+
+    public void shutdown() {
+        latestRequest.incrementAndGet();
+        worker.shutdownNow();
+    }
+
+    private Series build(int userId, int fromEpochDay, int toEpochDay, Resolution resolution, int maxPoints) {
+        long[] perDay = expenseRepository.getColumns(userId)
+                .sumByDay(fromEpochDay, toEpochDay, TransactionColumns.TYPE_EXPENSE);
+
+        int count = resolution == Resolution.WEEKLY
+                ? foldWeeks(perDay, fromEpochDay)
+                : copyDays(perDay, fromEpochDay);
+
+        ensureSampleCapacity(Math.min(count, Math.max(maxPoints, 3)));
+        int sampled = LttbDownsampler.downsample(xs, ys, count, Math.max(maxPoints, 3), sampledXs, sampledYs);
+
+        List<Entry> entries = new ArrayList<>(sampled);
+        for (int i = 0; i < sampled; i++) {
+            entries.add(new Entry(sampledXs[i], sampledYs[i]));
+        }
+        return new Series(resolution, fromEpochDay, toEpochDay, entries);
+    }
+
+    private int copyDays(long[] perDay, int fromEpochDay) {
+        ensureInputCapacity(perDay.length);
+        for (int i = 0; i < perDay.length; i++) {
+            xs[i] = fromEpochDay + i;
+            ys[i] = perDay[i];
+        }
+        return perDay.length;
+    }
+
+    // One point per Monday-based week, placed on the week's Monday
+    private int foldWeeks(long[] perDay, int fromEpochDay) {
+        int firstWeekStart = weekStart(fromEpochDay);
+        int weeks = perDay.length == 0 ? 0 : (weekStart(fromEpochDay + perDay.length - 1) - firstWeekStart) / 7 + 1;
+        ensureInputCapacity(weeks);
+        int day = 0;
+        for (int week = 0; week < weeks; week++) {
+            int weekEnd = firstWeekStart + week * 7 + 7 - fromEpochDay; // Exclusive, as an index into perDay
+            long total = 0; // Summed exactly, converted once
+            for (; day < perDay.length && day < weekEnd; day++) {
+                total += perDay[day];
+            }
+            xs[week] = firstWeekStart + week * 7;
+            ys[week] = total;
+        }
+        return weeks;
+    }
+
+    static int weekStart(int epochDay) {
+        return epochDay - Math.floorMod(epochDay - MONDAY_EPOCH_DAY, 7);
+    }
+
+    private void ensureInputCapacity(int size) {
+        if (xs.length < size) {
+            xs = new float[size];
+            ys = new float[size];
+        }
+    }
+
+    private void ensureSampleCapacity(int size) {
+        if (sampledXs.length < size) {
+            sampledXs = new float[size];
+            sampledYs = new float[size];
+        }
+    }
+}
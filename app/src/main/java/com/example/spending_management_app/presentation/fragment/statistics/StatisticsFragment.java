@@ -3,23 +3,31 @@ package com.example.spending_management_app.presentation.fragment.statistics;
 import android.graphics.Color;
 import android.os.Bundle;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
 import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.navigation.Navigation;
 
 import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.cache.TransactionColumns;
 import com.example.spending_management_app.data.local.database.AppDatabase;
-import com.example.spending_management_app.data.local.dao.BudgetDao;
 import com.example.spending_management_app.data.local.entity.MonthlySpending;
 import com.example.spending_management_app.data.local.dao.TransactionDao;
-import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.data.repository.YearStatsRepository;
 import com.example.spending_management_app.databinding.FragmentStatisticsBinding;
 import com.example.spending_management_app.presentation.viewmodel.statistics.StatisticsViewModel;
+import com.example.spending_management_app.utils.CategoryRegistry;
 import com.example.spending_management_app.utils.CategoryUtils;
 import com.example.spending_management_app.utils.CurrencyFormatter;
+import com.example.spending_management_app.utils.DateBuckets;
 import com.example.spending_management_app.utils.ToastHelper;
 import com.example.spending_management_app.utils.UserSession;
 import com.github.mikephil.charting.charts.LineChart;
@@ -29,15 +37,17 @@ import com.github.mikephil.charting.data.Entry;
 import com.github.mikephil.charting.data.LineData;
 import com.github.mikephil.charting.data.LineDataSet;
 import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.listener.ChartTouchListener;
+import com.github.mikephil.charting.listener.OnChartGestureListener;
+import com.google.android.material.tabs.TabLayout;
 
 import android.widget.PopupMenu;
 
-import androidx.lifecycle.LiveData;
-import androidx.lifecycle.Observer;
-
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.io.File;
 import java.io.FileWriter;
@@ -46,11 +56,20 @@ import java.text.SimpleDateFormat;
 
 public class StatisticsFragment extends Fragment {
 
+    private static final int[] TREND_RANGE_MONTHS = {3, 12, 60}; // Range tabs: 3 months, 1 year, 5 years
+
+    // Year list and report work for every instance of this screen, one task at a time
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor();
+
     private FragmentStatisticsBinding binding;
     private TransactionDao transactionDao;
-    private BudgetDao budgetDao;
+    private ExpenseRepositoryImpl expenseRepository;
+    private YearStatsRepository yearStatsRepository;
+    private SpendingSeriesEngine seriesEngine;
+    private SpendingSeriesEngine.Resolution trendResolution = SpendingSeriesEngine.Resolution.DAILY;
+    private int trendFromDay; // Whole selected range, local epoch days
+    private int trendToDay;
     private String selectedYear;
-    private Observer<List<MonthlySpending>> currentObserver;
     private UserSession userSession;
 
     public View onCreateView(@NonNull LayoutInflater inflater,
@@ -64,11 +83,15 @@ public class StatisticsFragment extends Fragment {
         // Initialize DAOs
         AppDatabase database = AppDatabase.getInstance(requireContext());
         transactionDao = database.transactionDao();
-        budgetDao = database.budgetDao();
+        expenseRepository = new ExpenseRepositoryImpl(database);
+        yearStatsRepository = YearStatsRepository.getInstance(requireContext());
         
         // Initialize UserSession
         userSession = UserSession.getInstance(requireContext());
 
+        // One subscription for the whole screen; it always carries the selected year
+        yearStatsRepository.getSelectedYearStats().observe(getViewLifecycleOwner(), this::showYearStats);
+
         // Setup year spinner
         setupYearSpinner();
 
@@ -77,15 +100,16 @@ public class StatisticsFragment extends Fragment {
         
         // Setup download report button
         setupDownloadReportButton();
+
+        // Day-by-day calendar of the same spending
+        binding.calendarHeatmapButton.setOnClickListener(v -> Navigation.findNavController(v)
+                .navigate(R.id.action_navigation_statistics_to_navigation_calendar_heatmap));
         
-        // Setup monthly spending chart (will be called after year is selected)
-        // setupMonthlySpendingChart() is now called from year spinner
-        
-        // Setup category spending (will be updated when year changes)
-        loadCategorySpendingForYear(selectedYear);
+        // Load chart, totals and category spending for the current year
+        selectYear(selectedYear);
 
-        // Load year statistics (will be updated when year changes)
-        loadYearStatistics(selectedYear);
+        // Daily / weekly trend over the last months or years
+        setupSpendingTrendChart();
 
         return root;
     }
@@ -97,9 +121,11 @@ public class StatisticsFragment extends Fragment {
         // Set initial year text
         binding.yearText.setText(selectedYear);
         
-        // Load available years from database in background
-        Executors.newSingleThreadExecutor().execute(() -> {
-            int userId = userSession.getCurrentUserId();
+        // Load available years from database in background, then post to this view only while it exists
+        int userId = userSession.getCurrentUserId();
+        LifecycleOwner viewOwner = getViewLifecycleOwner();
+        Executor mainExecutor = ContextCompat.getMainExecutor(requireContext());
+        BACKGROUND.execute(() -> {
             List<String> years = transactionDao.getDistinctYears(userId);
             
             // If no data, add current year
@@ -111,7 +137,10 @@ public class StatisticsFragment extends Fragment {
             List<String> finalYears = years;
             
             // Update UI on main thread
-            requireActivity().runOnUiThread(() -> {
+            mainExecutor.execute(() -> {
+                if (binding == null || !viewOwner.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.CREATED)) {
+                    return; // The view was destroyed while the years loaded
+                }
                 // Setup click listener for dropdown
                 binding.yearDropdownContainer.setOnClickListener(v -> {
                     // Change icon to arrow up when opening dropdown
@@ -133,14 +162,8 @@ public class StatisticsFragment extends Fragment {
                         // Update year text
                         binding.yearText.setText(selectedYear);
                         
-                        // Reload chart with selected year
-                        setupMonthlySpendingChart(selectedYear);
-                        
-                        // Reload category spending with selected year
-                        loadCategorySpendingForYear(selectedYear);
-                        
-                        // Reload year statistics with selected year
-                        loadYearStatistics(selectedYear);
+                        // Chart, totals and category spending follow the selection
+                        selectYear(selectedYear);
                         
                         return true;
                     });
@@ -153,190 +176,339 @@ public class StatisticsFragment extends Fragment {
                     // Show popup menu
                     popupMenu.show();
                 });
-                
-                // Initial chart load with current year
-                setupMonthlySpendingChart(selectedYear);
             });
         });
     }
 
     private void setupStatisticsData() {
-        // Will be loaded by year in loadYearStatistics()
+        // Will be loaded by year in showYearStats()
     }
     
-    private void loadYearStatistics(String year) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                // Calculate year range
-                Calendar cal = Calendar.getInstance();
-                cal.set(Calendar.YEAR, Integer.parseInt(year));
-                cal.set(Calendar.MONTH, Calendar.JANUARY);
-                cal.set(Calendar.DAY_OF_MONTH, 1);
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                cal.set(Calendar.MILLISECOND, 0);
-                java.util.Date startOfYear = cal.getTime();
-                
-                cal.set(Calendar.MONTH, Calendar.DECEMBER);
-                cal.set(Calendar.DAY_OF_MONTH, 31);
-                cal.set(Calendar.HOUR_OF_DAY, 23);
-                cal.set(Calendar.MINUTE, 59);
-                cal.set(Calendar.SECOND, 59);
-                cal.set(Calendar.MILLISECOND, 999);
-                java.util.Date endOfYear = cal.getTime();
-                
-                // Get total budget for the year
-                int userId = userSession.getCurrentUserId();
-                Long totalBudgetLong = budgetDao.getTotalBudgetByDateRange(userId, startOfYear, endOfYear);
-                long totalBudget = (totalBudgetLong != null) ? totalBudgetLong : 0;
-                
-                // Get total expense for the year
-                Long totalExpenseLong = transactionDao.getTotalExpenseByDateRange(userId, startOfYear, endOfYear);
-                long totalExpense = (totalExpenseLong != null) ? Math.abs(totalExpenseLong) : 0;
-                
-                android.util.Log.d("StatisticsFragment", "Year " + year + " - Budget: " + totalBudget + ", Expense: " + totalExpense);
-                
-                // Update UI on main thread
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        binding.totalIncome.setText(formatCurrency(totalBudget));
-                        binding.totalExpense.setText(formatCurrency(totalExpense));
-                    });
-                }
-                
-            } catch (Exception e) {
-                android.util.Log.e("StatisticsFragment", "Error loading year statistics", e);
-            }
-        });
+    private void selectYear(String year) {
+        yearStatsRepository.selectYear(userSession.getCurrentUserId(), Integer.parseInt(year));
     }
     
-    private void setupMonthlySpendingChart(String year) {
-        // Remove previous observer if exists
-        if (currentObserver != null) {
-            int userId = userSession.getCurrentUserId();
-            LiveData<List<MonthlySpending>> previousLiveData = 
-                    transactionDao.getMonthlySpendingByYearLive(userId, selectedYear);
-            previousLiveData.removeObserver(currentObserver);
+    private void showYearStats(YearStatsRepository.YearStats stats) {
+        // The repository is shared, so it may still carry another account's stats after a switch
+        if (binding == null || stats == null || !String.valueOf(stats.year).equals(selectedYear)
+                || stats.userId != userSession.getCurrentUserId()) {
+            return;
         }
+        binding.totalIncome.setText(formatCurrency(stats.totalBudget));
+        binding.totalExpense.setText(formatCurrency(stats.totalExpense));
+        showMonthlySpendingChart(stats.monthlySpending);
+        updateCategorySpendingUI(stats.categories, stats.totalExpense);
+    }
+    
+    private void showMonthlySpendingChart(List<MonthlySpending> monthlyData) {
+        LineChart chart = binding.monthlySpendingChart;
         
-        // Create new observer
-        currentObserver = monthlyData -> {
-            LineChart chart = binding.monthlySpendingChart;
+        if (monthlyData == null || monthlyData.isEmpty()) {
+            // No data available
+            chart.clear();
+            chart.setNoDataText(getString(R.string.no_expense_data));
+            chart.invalidate();
+            return;
+        }
+        
+        // Prepare data for chart
+        List<Entry> entries = new ArrayList<>();
+        List<String> monthLabels = new ArrayList<>();
+        
+        for (int i = 0; i < monthlyData.size(); i++) {
+            MonthlySpending data = monthlyData.get(i);
+            entries.add(new Entry(i, data.getTotal()));
             
-            if (monthlyData == null || monthlyData.isEmpty()) {
-                // No data available
-                chart.clear();
-                chart.setNoDataText(getString(R.string.no_expense_data));
-                chart.invalidate();
-                return;
+            // Format month label (e.g., "2024-11" -> "T11" or "M11")
+            String[] parts = data.getMonth().split("-");
+            if (parts.length == 2) {
+                monthLabels.add(getString(R.string.month_prefix) + parts[1]);
+            } else {
+                monthLabels.add(data.getMonth());
             }
-            
-            // Prepare data for chart
-            List<Entry> entries = new ArrayList<>();
-            List<String> monthLabels = new ArrayList<>();
-            
-            for (int i = 0; i < monthlyData.size(); i++) {
-                MonthlySpending data = monthlyData.get(i);
-                entries.add(new Entry(i, data.getTotal()));
-                
-                // Format month label (e.g., "2024-11" -> "T11" or "M11")
-                String[] parts = data.getMonth().split("-");
-                if (parts.length == 2) {
-                    monthLabels.add(getString(R.string.month_prefix) + parts[1]);
-                } else {
-                    monthLabels.add(data.getMonth());
+        }
+        
+        // Create dataset
+        LineDataSet dataSet = new LineDataSet(entries, getString(R.string.chart_expense_label));
+        dataSet.setColor(Color.parseColor("#F44336"));
+        dataSet.setCircleColor(Color.parseColor("#F44336"));
+        dataSet.setLineWidth(2.5f);
+        dataSet.setCircleRadius(5f);
+        dataSet.setDrawCircleHole(false);
+        dataSet.setValueTextSize(10f);
+        dataSet.setDrawFilled(true);
+        dataSet.setFillColor(Color.parseColor("#FFE5E5"));
+        dataSet.setMode(LineDataSet.Mode.CUBIC_BEZIER);
+        dataSet.setDrawValues(false);
+        dataSet.setHighLightColor(Color.parseColor("#D32F2F")); // Highlight color when touched
+        dataSet.setHighlightLineWidth(2f);
+        
+        // Set data to chart
+        LineData lineData = new LineData(dataSet);
+        chart.setData(lineData);
+        
+        // Set custom MarkerView to show values on touch
+        MonthMarkerView markerView = new MonthMarkerView(requireContext(),
+                com.example.spending_management_app.R.layout.marker_view, monthLabels);
+        markerView.setChartView(chart);
+        chart.setMarker(markerView);
+        
+        // Customize chart appearance
+        chart.getDescription().setEnabled(false);
+        chart.setDrawGridBackground(false);
+        chart.setTouchEnabled(true);
+        chart.setDragEnabled(true);
+        chart.setScaleEnabled(false);
+        chart.setPinchZoom(false);
+        chart.setDrawBorders(false);
+        chart.setHighlightPerTapEnabled(true); // Enable highlighting on tap
+        chart.setHighlightPerDragEnabled(false);
+        
+        // X axis
+        XAxis xAxis = chart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setDrawGridLines(false);
+        xAxis.setGranularity(1f);
+        xAxis.setLabelCount(monthLabels.size());
+        xAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                int index = (int) value;
+                if (index >= 0 && index < monthLabels.size()) {
+                    return monthLabels.get(index);
                 }
+                return "";
             }
-            
-            // Create dataset
-            LineDataSet dataSet = new LineDataSet(entries, getString(R.string.chart_expense_label));
-            dataSet.setColor(Color.parseColor("#F44336"));
-            dataSet.setCircleColor(Color.parseColor("#F44336"));
-            dataSet.setLineWidth(2.5f);
-            dataSet.setCircleRadius(5f);
-            dataSet.setDrawCircleHole(false);
-            dataSet.setValueTextSize(10f);
-            dataSet.setDrawFilled(true);
-            dataSet.setFillColor(Color.parseColor("#FFE5E5"));
-            dataSet.setMode(LineDataSet.Mode.CUBIC_BEZIER);
-            dataSet.setDrawValues(false);
-            dataSet.setHighLightColor(Color.parseColor("#D32F2F")); // Highlight color when touched
-            dataSet.setHighlightLineWidth(2f);
-            
-            // Set data to chart
-            LineData lineData = new LineData(dataSet);
-            chart.setData(lineData);
-            
-            // Set custom MarkerView to show values on touch
-            MonthMarkerView markerView = new MonthMarkerView(requireContext(),
-                    com.example.spending_management_app.R.layout.marker_view, monthLabels);
-            markerView.setChartView(chart);
-            chart.setMarker(markerView);
-            
-            // Customize chart appearance
-            chart.getDescription().setEnabled(false);
-            chart.setDrawGridBackground(false);
-            chart.setTouchEnabled(true);
-            chart.setDragEnabled(true);
-            chart.setScaleEnabled(false);
-            chart.setPinchZoom(false);
-            chart.setDrawBorders(false);
-            chart.setHighlightPerTapEnabled(true); // Enable highlighting on tap
-            chart.setHighlightPerDragEnabled(false);
-            
-            // X axis
-            XAxis xAxis = chart.getXAxis();
-            xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
-            xAxis.setDrawGridLines(false);
-            xAxis.setGranularity(1f);
-            xAxis.setLabelCount(monthLabels.size());
-            xAxis.setValueFormatter(new ValueFormatter() {
-                @Override
-                public String getFormattedValue(float value) {
-                    int index = (int) value;
-                    if (index >= 0 && index < monthLabels.size()) {
-                        return monthLabels.get(index);
-                    }
-                    return "";
+        });
+        
+        // Left Y axis
+        YAxis leftAxis = chart.getAxisLeft();
+        leftAxis.setDrawGridLines(true);
+        leftAxis.setGridColor(Color.parseColor("#E0E0E0"));
+        leftAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                if (value >= 1000000) {
+                    return String.format("%.1ftr", value / 1000000);
+                } else if (value >= 1000) {
+                    return String.format("%.0fn", value / 1000);
                 }
-            });
-            
-            // Left Y axis
-            YAxis leftAxis = chart.getAxisLeft();
-            leftAxis.setDrawGridLines(true);
-            leftAxis.setGridColor(Color.parseColor("#E0E0E0"));
-            leftAxis.setValueFormatter(new ValueFormatter() {
-                @Override
-                public String getFormattedValue(float value) {
-                    if (value >= 1000000) {
-                        return String.format("%.1ftr", value / 1000000);
-                    } else if (value >= 1000) {
-                        return String.format("%.0fn", value / 1000);
-                    }
-                    return String.format("%.0f", value);
+                return String.format("%.0f", value);
+            }
+        });
+        
+        // Right Y axis
+        chart.getAxisRight().setEnabled(false);
+        
+        // Legend
+        chart.getLegend().setEnabled(false);
+        
+        // Animate only on first load (check if chart has data already)
+        if (chart.getData() == null || chart.getData().getDataSetCount() == 0) {
+            chart.animateX(1000);
+        }
+        
+        // Refresh chart
+        chart.notifyDataSetChanged();
+        chart.invalidate();
+    }
+
+    private void setupSpendingTrendChart() {
+        seriesEngine = new SpendingSeriesEngine(expenseRepository, ContextCompat.getMainExecutor(requireContext()));
+        
+        TabLayout rangeTabs = binding.trendRangeTabs;
+        rangeTabs.addTab(rangeTabs.newTab().setText(getString(R.string.trend_range_3_months)));
+        rangeTabs.addTab(rangeTabs.newTab().setText(getString(R.string.trend_range_1_year)));
+        rangeTabs.addTab(rangeTabs.newTab().setText(getString(R.string.trend_range_5_years)));
+        rangeTabs.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+            @Override
+            public void onTabSelected(TabLayout.Tab tab) {
+                selectTrendRange(TREND_RANGE_MONTHS[tab.getPosition()]);
+            }
+
+            @Override
+            public void onTabUnselected(TabLayout.Tab tab) {
+            }
+
+            @Override
+            public void onTabReselected(TabLayout.Tab tab) {
+            }
+        });
+        
+        TabLayout resolutionTabs = binding.trendResolutionTabs;
+        resolutionTabs.addTab(resolutionTabs.newTab().setText(getString(R.string.trend_resolution_daily)));
+        resolutionTabs.addTab(resolutionTabs.newTab().setText(getString(R.string.trend_resolution_weekly)));
+        resolutionTabs.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
+            @Override
+            public void onTabSelected(TabLayout.Tab tab) {
+                trendResolution = tab.getPosition() == 0
+                        ? SpendingSeriesEngine.Resolution.DAILY
+                        : SpendingSeriesEngine.Resolution.WEEKLY;
+                requestVisibleTrend();
+            }
+
+            @Override
+            public void onTabUnselected(TabLayout.Tab tab) {
+            }
+
+            @Override
+            public void onTabReselected(TabLayout.Tab tab) {
+            }
+        });
+        
+        LineChart chart = binding.spendingTrendChart;
+        chart.getDescription().setEnabled(false);
+        chart.getLegend().setEnabled(false);
+        chart.getAxisRight().setEnabled(false);
+        chart.setDrawGridBackground(false);
+        chart.setDrawBorders(false);
+        chart.setNoDataText(getString(R.string.no_expense_data));
+        chart.setTouchEnabled(true);
+        chart.setDragEnabled(true);
+        chart.setScaleXEnabled(true);
+        chart.setScaleYEnabled(false);
+        chart.setPinchZoom(false);
+        chart.setDragDecelerationEnabled(false); // Keeps the loaded window in step with the gesture
+        chart.setAutoScaleMinMaxEnabled(true); // Y axis follows the visible points
+        
+        XAxis xAxis = chart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setDrawGridLines(false);
+        xAxis.setGranularity(1f);
+        xAxis.setLabelCount(4);
+        xAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                java.time.LocalDate day = java.time.LocalDate.ofEpochDay((long) value);
+                if (chart.getVisibleXRange() > 120) {
+                    return String.format(java.util.Locale.getDefault(), "%02d/%02d", day.getMonthValue(), day.getYear() % 100);
                 }
-            });
-            
-            // Right Y axis
-            chart.getAxisRight().setEnabled(false);
-            
-            // Legend
-            chart.getLegend().setEnabled(false);
-            
-            // Animate only on first load (check if chart has data already)
-            if (chart.getData() == null || chart.getData().getDataSetCount() == 0) {
-                chart.animateX(1000);
+                return String.format(java.util.Locale.getDefault(), "%02d/%02d", day.getDayOfMonth(), day.getMonthValue());
             }
-            
-            // Refresh chart
-            chart.notifyDataSetChanged();
-            chart.invalidate();
-        };
+        });
         
-        // Observe monthly spending LiveData for selected year
-        int userId = userSession.getCurrentUserId();
-        transactionDao.getMonthlySpendingByYearLive(userId, year).observe(getViewLifecycleOwner(), currentObserver);
+        YAxis leftAxis = chart.getAxisLeft();
+        leftAxis.setDrawGridLines(true);
+        leftAxis.setGridColor(Color.parseColor("#E0E0E0"));
+        leftAxis.setAxisMinimum(0f);
+        leftAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                if (value >= 1000000) {
+                    return String.format("%.1ftr", value / 1000000);
+                } else if (value >= 1000) {
+                    return String.format("%.0fn", value / 1000);
+                }
+                return String.format("%.0f", value);
+            }
+        });
+        
+        // Pan and zoom only re-request the visible window
+        chart.setOnChartGestureListener(new OnChartGestureListener() {
+            @Override
+            public void onChartGestureStart(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+            }
+
+            @Override
+            public void onChartGestureEnd(MotionEvent me, ChartTouchListener.ChartGesture lastPerformedGesture) {
+                requestVisibleTrend();
+            }
+
+            @Override
+            public void onChartLongPressed(MotionEvent me) {
+            }
+
+            @Override
+            public void onChartDoubleTapped(MotionEvent me) {
+            }
+
+            @Override
+            public void onChartSingleTapped(MotionEvent me) {
+            }
+
+            @Override
+            public void onChartFling(MotionEvent me1, MotionEvent me2, float velocityX, float velocityY) {
+            }
+
+            @Override
+            public void onChartScale(MotionEvent me, float scaleX, float scaleY) {
+                requestVisibleTrend();
+            }
+
+            @Override
+            public void onChartTranslate(MotionEvent me, float dX, float dY) {
+                requestVisibleTrend();
+            }
+        });
+        
+        selectTrendRange(TREND_RANGE_MONTHS[0]);
+    }
+    
+    private void selectTrendRange(int months) {
+        java.time.LocalDate today = java.time.LocalDate.now();
+        trendToDay = (int) today.toEpochDay();
+        trendFromDay = (int) today.minusMonths(months).plusDays(1).toEpochDay();
+        
+        LineChart chart = binding.spendingTrendChart;
+        chart.getXAxis().setAxisMinimum(trendFromDay);
+        chart.getXAxis().setAxisMaximum(trendToDay);
+        chart.fitScreen();
+        requestVisibleTrend();
+    }
+    
+    private void requestVisibleTrend() {
+        if (binding == null || seriesEngine == null) {
+            return;
+        }
+        LineChart chart = binding.spendingTrendChart;
+        int from = trendFromDay;
+        int to = trendToDay;
+        float visibleDays = to - from;
+        if (chart.getData() != null && chart.getData().getEntryCount() > 0) {
+            // Visible window plus half a screen on each side, so short pans don't show gaps
+            float low = chart.getLowestVisibleX();
+            float high = chart.getHighestVisibleX();
+            visibleDays = Math.max(1f, high - low);
+            from = Math.max(trendFromDay, (int) Math.floor(low - visibleDays / 2));
+            to = Math.min(trendToDay, (int) Math.ceil(high + visibleDays / 2));
+        }
+        
+        int pixels = (int) chart.getViewPortHandler().contentWidth();
+        if (pixels <= 0) {
+            pixels = getResources().getDisplayMetrics().widthPixels;
+        }
+        // About one point per pixel of the visible part
+        int maxPoints = (int) Math.min(pixels * 2L, (long) (pixels * ((to - from) / Math.max(1f, visibleDays))));
+        
+        seriesEngine.request(userSession.getCurrentUserId(), from, to, trendResolution, Math.max(maxPoints, 3),
+                this::showTrendSeries);
+    }
+    
+    private void showTrendSeries(SpendingSeriesEngine.Series series) {
+        if (binding == null) {
+            return;
+        }
+        LineChart chart = binding.spendingTrendChart;
+        LineData lineData = chart.getData();
+        if (lineData == null) {
+            LineDataSet dataSet = new LineDataSet(series.entries, getString(R.string.chart_expense_label));
+            dataSet.setColor(Color.parseColor("#F44336"));
+            dataSet.setLineWidth(1.5f);
+            dataSet.setDrawCircles(false);
+            dataSet.setDrawValues(false);
+            dataSet.setDrawFilled(true);
+            dataSet.setFillColor(Color.parseColor("#FFE5E5"));
+            dataSet.setMode(LineDataSet.Mode.LINEAR);
+            dataSet.setHighlightEnabled(false);
+            chart.setData(new LineData(dataSet));
+        } else {
+            // Swap the points in place so the current zoom and position stay as they are
+            LineDataSet dataSet = (LineDataSet) lineData.getDataSetByIndex(0);
+            dataSet.setValues(series.entries);
+            lineData.notifyDataChanged();
+            chart.notifyDataSetChanged();
+        }
+        chart.invalidate();
     }
 
     private String formatCurrency(long amount) {
@@ -347,85 +519,7 @@ public class StatisticsFragment extends Fragment {
         return CurrencyFormatter.formatCurrencyShort(getContext(), amount);
     }
     
-    private void loadCategorySpendingForYear(String year) {
-        Executors.newSingleThreadExecutor().execute(() -> {
-            try {
-                // Calculate year range
-                Calendar cal = Calendar.getInstance();
-                cal.set(Calendar.YEAR, Integer.parseInt(year));
-                cal.set(Calendar.MONTH, Calendar.JANUARY);
-                cal.set(Calendar.DAY_OF_MONTH, 1);
-                cal.set(Calendar.HOUR_OF_DAY, 0);
-                cal.set(Calendar.MINUTE, 0);
-                cal.set(Calendar.SECOND, 0);
-                cal.set(Calendar.MILLISECOND, 0);
-                java.util.Date startOfYear = cal.getTime();
-                
-                cal.set(Calendar.MONTH, Calendar.DECEMBER);
-                cal.set(Calendar.DAY_OF_MONTH, 31);
-                cal.set(Calendar.HOUR_OF_DAY, 23);
-                cal.set(Calendar.MINUTE, 59);
-                cal.set(Calendar.SECOND, 59);
-                cal.set(Calendar.MILLISECOND, 999);
-                java.util.Date endOfYear = cal.getTime();
-                
-                // Get all transactions for this year by category
-                int userId = userSession.getCurrentUserId();
-                List<TransactionEntity> allTransactions =
-                        transactionDao.getTransactionsByDateRange(userId, startOfYear, endOfYear);
-                
-                // Calculate spending by category
-                java.util.Map<String, Long> categorySpending = new java.util.HashMap<>();
-                long totalYearSpending = 0;
-                
-                for (TransactionEntity transaction : allTransactions) {
-                    if ("expense".equals(transaction.type)) {
-                        long amount = Math.abs(transaction.amount);
-                        categorySpending.put(transaction.category, 
-                                categorySpending.getOrDefault(transaction.category, 0L) + amount);
-                        totalYearSpending += amount;
-                    }
-                }
-                
-                // Create list of category data (using public fields to avoid reflection issues)
-                class CategoryData {
-                    public String category;
-                    public long spending;
-                    
-                    CategoryData(String category, long spending) {
-                        this.category = category;
-                        this.spending = spending;
-                    }
-                }
-                
-                List<CategoryData> categoryDataList = new ArrayList<>();
-                for (String category : categorySpending.keySet()) {
-                    long spending = categorySpending.get(category);
-                    categoryDataList.add(new CategoryData(category, spending));
-                }
-                
-                // Sort by spending (highest to lowest)
-                categoryDataList.sort((a, b) -> Long.compare(b.spending, a.spending));
-                
-                android.util.Log.d("StatisticsFragment", "Year " + year + " - Total categories: " + categoryDataList.size());
-                android.util.Log.d("StatisticsFragment", "Total year spending: " + totalYearSpending);
-                
-                long finalTotalYearSpending = totalYearSpending;
-                
-                // Update UI on main thread
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        updateCategorySpendingUI(categoryDataList, finalTotalYearSpending);
-                    });
-                }
-                
-            } catch (Exception e) {
-                android.util.Log.e("StatisticsFragment", "Error loading category spending for year", e);
-            }
-        });
-    }
-    
-    private void updateCategorySpendingUI(List<?> categories, long totalSpending) {
+    private void updateCategorySpendingUI(List<YearStatsRepository.CategoryTotal> categories, long totalSpending) {
         android.util.Log.d("StatisticsFragment", "updateCategorySpendingUI called with " + categories.size() + " categories");
         
         ViewGroup container = binding.categorySpendingContainer;
@@ -458,24 +552,9 @@ public class StatisticsFragment extends Fragment {
         }
         
         // Add each category dynamically
-        for (int i = 0; i < categories.size(); i++) {
-            Object obj = categories.get(i);
-            
-            try {
-                String category = (String) obj.getClass().getField("category").get(obj);
-                long spending = (Long) obj.getClass().getField("spending").get(obj);
-                
-                android.util.Log.d("StatisticsFragment", "Adding category: " + category + 
-                        ", spending=" + spending);
-                
-                // Create category view
-                View categoryView = createCategorySpendingView(category, spending, totalSpending);
-                container.addView(categoryView);
-                
-            } catch (Exception e) {
-                android.util.Log.e("StatisticsFragment", "Error creating category view", e);
-                e.printStackTrace();
-            }
+        for (YearStatsRepository.CategoryTotal total : categories) {
+            View categoryView = createCategorySpendingView(total.category, total.spending, totalSpending);
+            container.addView(categoryView);
         }
         
         android.util.Log.d("StatisticsFragment", "Total views in container: " + container.getChildCount());
@@ -582,9 +661,7 @@ public class StatisticsFragment extends Fragment {
     }
     
     private String getIconEmojiForCategory(String category) {
-        // Get the localized category name first, then get the icon
-        String localizedCategory = CategoryUtils.getLocalizedCategoryName(getContext(), category);
-        return CategoryUtils.getIconForCategory(localizedCategory);
+        return CategoryRegistry.emojiOf(category);
     }
     
     private void setupDownloadReportButton() {
@@ -594,7 +671,7 @@ public class StatisticsFragment extends Fragment {
     }
     
     private void generateAndDownloadReport() {
-        Executors.newSingleThreadExecutor().execute(() -> {
+        BACKGROUND.execute(() -> {
             try {
                 int userId = userSession.getCurrentUserId();
                 String reportContent = generateReportContent(userId, selectedYear);
@@ -614,17 +691,19 @@ public class StatisticsFragment extends Fragment {
                 }
                 
                 // Show success message on UI thread
-                requireActivity().runOnUiThread(() -> {
-                    ToastHelper.showToastOnTop(requireActivity(), 
-                        getString(R.string.report_download_success, reportFile.getAbsolutePath()));
-                });
+                android.app.Activity activity = getActivity();
+                if (activity != null) {
+                    activity.runOnUiThread(() -> ToastHelper.showToastOnTop(activity,
+                        activity.getString(R.string.report_download_success, reportFile.getAbsolutePath())));
+                }
                 
             } catch (Exception e) {
                 android.util.Log.e("StatisticsFragment", "Error generating report", e);
-                requireActivity().runOnUiThread(() -> {
-                    ToastHelper.showErrorToast(requireActivity(), 
-                        getString(R.string.report_generation_error, e.getMessage()));
-                });
+                android.app.Activity activity = getActivity();
+                if (activity != null) {
+                    activity.runOnUiThread(() -> ToastHelper.showErrorToast(activity,
+                        activity.getString(R.string.report_generation_error, e.getMessage())));
+                }
             }
         });
     }
@@ -648,27 +727,24 @@ public class StatisticsFragment extends Fragment {
             cal.set(Calendar.MILLISECOND, 999);
             java.util.Date endOfYear = cal.getTime();
             
+            TransactionColumns columns = expenseRepository.getColumns(userId);
+            
             // Total expense for the year
-            Long totalExpense = transactionDao.getTotalExpenseByDateRange(userId, startOfYear, endOfYear);
+            long totalExpense = columns.total(startOfYear.getTime(), endOfYear.getTime(), TransactionColumns.TYPE_EXPENSE);
             report.append(String.format(getString(R.string.report_total_expense), 
-                formatCurrency(totalExpense != null ? totalExpense : 0)));
+                formatCurrency(totalExpense)));
             
             // Monthly spending breakdown
             report.append(getString(R.string.report_monthly_section));
             report.append(getString(R.string.report_monthly_separator));
             
-            // Calculate monthly spending manually
+            // One pass over the year instead of a query per month
+            int yearValue = Integer.parseInt(year);
+            long[] monthlyExpenses = columns.sumByMonth(DateBuckets.firstMonthOf(yearValue),
+                    DateBuckets.lastMonthOf(yearValue), TransactionColumns.TYPE_EXPENSE);
             for (int month = 1; month <= 12; month++) {
-                cal.set(Integer.parseInt(year), month - 1, 1, 0, 0, 0);
-                cal.set(Calendar.MILLISECOND, 0);
-                java.util.Date monthStart = cal.getTime();
-                
-                cal.set(Integer.parseInt(year), month - 1, cal.getActualMaximum(Calendar.DAY_OF_MONTH), 23, 59, 59);
-                cal.set(Calendar.MILLISECOND, 999);
-                java.util.Date monthEnd = cal.getTime();
-                
-                Long monthExpense = transactionDao.getTotalExpenseByDateRange(userId, monthStart, monthEnd);
-                if (monthExpense != null && monthExpense > 0) {
+                long monthExpense = monthlyExpenses[month - 1];
+                if (monthExpense > 0) {
                     report.append(String.format(getString(R.string.report_month_format), 
                         month, formatCurrency(monthExpense)));
                 }
@@ -679,16 +755,15 @@ public class StatisticsFragment extends Fragment {
             report.append(getString(R.string.report_category_section));
             report.append(getString(R.string.report_category_separator));
             
-            List<TransactionEntity> allTransactions = transactionDao.getTransactionsByDateRange(userId, startOfYear, endOfYear);
+            long[] spendingByCategoryId = columns.sumByCategory(startOfYear.getTime(), endOfYear.getTime(),
+                    TransactionColumns.TYPE_EXPENSE);
             java.util.Map<String, Long> categorySpending = new java.util.HashMap<>();
             long totalYearSpending = 0;
             
-            for (TransactionEntity transaction : allTransactions) {
-                if ("expense".equals(transaction.type)) {
-                    long amount = Math.abs(transaction.amount);
-                    categorySpending.put(transaction.category, 
-                        categorySpending.getOrDefault(transaction.category, 0L) + amount);
-                    totalYearSpending += amount;
+            for (int categoryId = 0; categoryId < spendingByCategoryId.length; categoryId++) {
+                if (spendingByCategoryId[categoryId] > 0) {
+                    categorySpending.put(CategoryRegistry.keyOf(categoryId), spendingByCategoryId[categoryId]);
+                    totalYearSpending += spendingByCategoryId[categoryId];
                 }
             }
             
@@ -722,6 +797,10 @@ public class StatisticsFragment extends Fragment {
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        if (seriesEngine != null) {
+            seriesEngine.shutdown();
+            seriesEngine = null;
+        }
         binding = null;
     }
 }
@@ -6,6 +6,9 @@ import androidx.lifecycle.ViewModel;
 
 import com.example.spending_management_app.data.local.entity.UserEntity;
 import com.example.spending_management_app.domain.usecase.user.UserUseCase;
+import com.example.spending_management_app.utils.PasswordHashingEngine;
+
+import java.util.concurrent.Future;
 
 /**
  * ViewModel for authentication operations
@@ -13,6 +16,10 @@ import com.example.spending_management_app.domain.usecase.user.UserUseCase;
 public class AuthViewModel extends ViewModel {
 
     private final UserUseCase userUseCase;
+    private final PasswordHashingEngine hashingEngine = PasswordHashingEngine.getInstance();
+
+    // Pending key derivation, cancelled when the screen is destroyed
+    private Future<?> pendingAuth;
 
     // Login LiveData
     private final MutableLiveData<LoginState> loginState = new MutableLiveData<>();
@@ -31,16 +38,21 @@ public class AuthViewModel extends ViewModel {
     public void login(String emailOrPhone, String password) {
         loginState.setValue(LoginState.LOADING);
 
-        // Run in background thread (in real app, use coroutine or executor)
-        new Thread(() -> {
+        // Key derivation runs on the dedicated hashing thread, never on the main thread
+        cancelPendingAuth();
+        pendingAuth = hashingEngine.submit(() -> {
             UserUseCase.LoginResult result = userUseCase.loginUser(emailOrPhone, password);
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
             if (result.success) {
                 currentUser.postValue(result.user);
                 loginState.postValue(LoginState.SUCCESS);
             } else {
                 loginState.postValue(new LoginState.Error(result.message));
             }
-        }).start();
+            return null;
+        });
     }
 
     /**
@@ -49,16 +61,34 @@ public class AuthViewModel extends ViewModel {
     public void register(String emailOrPhone, String password, String confirmPassword, android.content.Context context) {
         registerState.setValue(RegisterState.LOADING);
 
-        // Run in background thread
-        new Thread(() -> {
+        // Key derivation runs on the dedicated hashing thread, never on the main thread
+        cancelPendingAuth();
+        pendingAuth = hashingEngine.submit(() -> {
             UserUseCase.RegisterResult result = userUseCase.registerUser(emailOrPhone, password, confirmPassword, context);
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
             if (result.success) {
                 currentUser.postValue(result.user);
                 registerState.postValue(RegisterState.SUCCESS);
             } else {
                 registerState.postValue(new RegisterState.Error(result.message));
             }
-        }).start();
+            return null;
+        });
+    }
+
+    private void cancelPendingAuth() {
+        if (pendingAuth != null) {
+            pendingAuth.cancel(true);
+            pendingAuth = null;
+        }
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        cancelPendingAuth();
     }
 
     /**
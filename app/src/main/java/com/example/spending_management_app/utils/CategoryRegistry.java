@@ -0,0 +1,241 @@
+package com.example.spending_management_app.utils;
+
+import android.content.Context;
+
+import com.example.spending_management_app.R;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Single source of truth for category metadata
+ * Every category gets a dense, stable int id (safe to persist, e.g. in a category_id column);
+ * icon, color and localized label are looked up by array index instead of string switches
+ */
+public final class CategoryRegistry {
+
+    public static final int UNKNOWN_ID = 0;
+
+    // Ids of categories created at runtime (categories table rows outside this table) start here,
+    // leaving room to append built-in categories without clashing
+    public static final int CUSTOM_ID_BASE = 1000;
+
+    private static final String DEFAULT_EMOJI = "💳";
+
+    // Ids are positions in these arrays - only append, never reorder
+    private static final String[] KEYS;
+    private static final String[] EMOJIS;
+    private static final int[] COLOR_RES;
+    private static final int[] LABEL_RES;
+
+    // Vietnamese keys, English aliases and localized labels -> id
+    private static final Map<String, Integer> ID_BY_NAME = new ConcurrentHashMap<>();
+
+    // Localized labels per language, resolved once per locale
+    private static final Map<String, String[]> LABELS_BY_LANGUAGE = new HashMap<>();
+    private static volatile LabelTable currentLabels; // Last used locale, read without locking
+
+    // Names of custom categories loaded from the categories table
+    private static final Map<Integer, String> CUSTOM_NAMES = new ConcurrentHashMap<>();
+
+    static {
+        Object[][] table = {
+                // key, emoji, color, label, aliases...
+                {"Ăn uống", "🍽️", R.color.category_food, R.string.food_category, "Food", "Food & Dining"},
+                {"Di chuyển", "🚗", R.color.category_transport, R.string.transport_category, "Transport", "Transportation"},
+                {"Tiện ích", "⚡", R.color.category_utility, R.string.utilities_category, "Utilities", "Bills"},
+                {"Y tế", "🏥", R.color.category_health, R.string.healthcare_category, "Healthcare"},
+                {"Nhà ở", "🏠", R.color.category_housing, R.string.housing_category, "Housing"},
+                {"Mua sắm", "🛍️", R.color.category_shopping, R.string.shopping_category, "Shopping"},
+                {"Giáo dục", "📚", R.color.category_education, R.string.education_category, "Education"},
+                {"Sách & Học tập", "📖", R.color.category_education, R.string.books_category, "Books & Learning"},
+                {"Thể thao", "⚽", R.color.category_fitness, R.string.sports_category, "Sports"},
+                {"Sức khỏe & Làm đẹp", "💆", R.color.category_fitness, R.string.beauty_category, "Beauty & Health"},
+                {"Giải trí", "🎬", R.color.category_entertainment, R.string.entertainment_category, "Entertainment"},
+                {"Du lịch", "✈️", R.color.category_entertainment, R.string.travel_category, "Travel"},
+                {"Ăn ngoài & Cafe", "☕", R.color.category_cafe, R.string.cafe_category, "Cafe & Dining Out"},
+                {"Quà tặng & Từ thiện", "🎁", R.color.category_gift, R.string.gifts_category, "Gifts & Charity"},
+                {"Hội họp & Tiệc tụng", "🎉", R.color.category_gift, R.string.events_category, "Events & Parties"},
+                {"Điện thoại & Internet", "📱", R.color.category_tech, R.string.phone_category, "Phone & Internet"},
+                {"Đăng ký & Dịch vụ", "💳", R.color.category_service, R.string.services_category, "Services & Subscriptions"},
+                {"Phần mềm & Apps", "💻", R.color.category_tech, R.string.software_category, "Software & Apps"},
+                {"Ngân hàng & Phí", "🏦", R.color.category_service, R.string.banking_category, "Banking & Fees"},
+                {"Con cái", "👶", R.color.category_family, R.string.children_category, "Children"},
+                {"Thú cưng", "🐕", R.color.category_family, R.string.pets_category, "Pets"},
+                {"Gia đình", "👨‍👩‍👧‍👦", R.color.category_family, R.string.family_category, "Family"},
+                {"Lương", "💰", R.color.category_income, R.string.salary_category, "Salary"},
+                {"Đầu tư", "📈", R.color.category_income, R.string.investment_category, "Investment"},
+                {"Thu nhập phụ", "💵", R.color.category_income, R.string.side_income_category, "Side Income"},
+                {"Tiết kiệm", "🏦", R.color.category_income, R.string.savings_category, "Savings"},
+                {"Khác", "📱", R.color.category_default, R.string.other_category, "Other", "📱 Other"},
+                {"Ngân sách", "💰", R.color.category_income, R.string.budget_category, "Budget", "💰 Budget", "💰 Ngân sách"},
+        };
+
+        int size = table.length + 1; // slot 0 is UNKNOWN_ID
+        KEYS = new String[size];
+        EMOJIS = new String[size];
+        COLOR_RES = new int[size];
+        LABEL_RES = new int[size];
+
+        EMOJIS[UNKNOWN_ID] = DEFAULT_EMOJI;
+        COLOR_RES[UNKNOWN_ID] = R.color.category_default;
+
+        for (int i = 0; i < table.length; i++) {
+            Object[] row = table[i];
+            int id = i + 1;
+            KEYS[id] = ((String) row[0]).intern();
+            EMOJIS[id] = (String) row[1];
+            COLOR_RES[id] = (Integer) row[2];
+            LABEL_RES[id] = (Integer) row[3];
+
+            ID_BY_NAME.put(KEYS[id], id);
+            for (int a = 4; a < row.length; a++) {
+                ID_BY_NAME.put((String) row[a], id);
+            }
+        }
+    }
+
+    private CategoryRegistry() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Resolve the labels for the current locale once, so the first list bind doesn't pay for it
+     */
+    public static void warmUp(Context context) {
+        labelsFor(context);
+    }
+
+    /**
+     * Get the id of a category from its key, an English alias or a localized label
+     * @return The category id, or UNKNOWN_ID if the name is not a known category
+     */
+    public static int idOf(String category) {
+        if (category == null) {
+            return UNKNOWN_ID;
+        }
+        Integer id = ID_BY_NAME.get(category);
+        return id != null ? id : UNKNOWN_ID;
+    }
+
+    /**
+     * Id stored for rows without a category name
+     */
+    public static int otherId() {
+        return ID_BY_NAME.get("Khác");
+    }
+
+    /**
+     * Get the id to persist for a category name; rows without a name are stored as "Khác"
+     * @return UNKNOWN_ID for names not registered yet, which AppDatabase.categoryIdFor adds as
+     *         custom categories on write; UNKNOWN_ID itself fails the categories foreign key
+     */
+    public static int storageIdOf(String category) {
+        if (category == null || category.trim().isEmpty()) {
+            return otherId();
+        }
+        return idOf(category);
+    }
+
+    /**
+     * Get the canonical (Vietnamese) name of an id, including custom categories
+     */
+    public static String keyOf(int id) {
+        return isKnown(id) ? KEYS[id] : CUSTOM_NAMES.get(id);
+    }
+
+    /**
+     * Register a custom category row so its name and id resolve in both directions
+     */
+    public static void registerCustom(int id, String name) {
+        if (id < CUSTOM_ID_BASE || name == null) {
+            return;
+        }
+        CUSTOM_NAMES.put(id, name);
+        ID_BY_NAME.putIfAbsent(name, id);
+    }
+
+    public static boolean isKnown(int id) {
+        return id > UNKNOWN_ID && id < KEYS.length;
+    }
+
+    /**
+     * Number of ids including UNKNOWN_ID, useful for sizing id-indexed arrays
+     */
+    public static int size() {
+        return KEYS.length;
+    }
+
+    public static String emojiOf(int id) {
+        return isKnown(id) ? EMOJIS[id] : DEFAULT_EMOJI;
+    }
+
+    public static int colorResOf(int id) {
+        return isKnown(id) ? COLOR_RES[id] : COLOR_RES[UNKNOWN_ID];
+    }
+
+    /**
+     * Get the localized label for an id, or null for UNKNOWN_ID
+     */
+    public static String labelOf(Context context, int id) {
+        if (context == null || !isKnown(id)) {
+            return null;
+        }
+        return labelsFor(context)[id];
+    }
+
+    /**
+     * Get the localized label for a category name, falling back to the name itself
+     */
+    public static String labelOf(Context context, String category) {
+        String label = labelOf(context, idOf(category));
+        return label != null ? label : category;
+    }
+
+    public static String emojiOf(String category) {
+        return emojiOf(idOf(category));
+    }
+
+    public static int colorResOf(String category) {
+        return colorResOf(idOf(category));
+    }
+
+    private static String[] labelsFor(Context context) {
+        Locale locale = context.getResources().getConfiguration().getLocales().get(0);
+        String language = locale.getLanguage();
+        LabelTable current = currentLabels;
+        if (current != null && current.language.equals(language)) {
+            return current.labels;
+        }
+        synchronized (LABELS_BY_LANGUAGE) {
+            String[] labels = LABELS_BY_LANGUAGE.get(language);
+            if (labels == null) {
+                labels = new String[KEYS.length];
+                for (int id = 1; id < KEYS.length; id++) {
+                    try {
+                        labels[id] = context.getString(LABEL_RES[id]);
+                    } catch (Exception e) {
+                        labels[id] = KEYS[id];
+                    }
+                    // Labels of every locale resolve back to the same id
+                    ID_BY_NAME.putIfAbsent(labels[id], id);
+                }
+                LABELS_BY_LANGUAGE.put(language, labels);
+            }
+            currentLabels = new LabelTable(language, labels);
+            return labels;
+        }
+    }
+
+    private static final class LabelTable {
+        final String language;
+        final String[] labels;
+
+        LabelTable(String language, String[] labels) {
+            this.language = language;
+            this.labels = labels;
+        }
+    }
+}
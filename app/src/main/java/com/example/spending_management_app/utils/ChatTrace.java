@@ -0,0 +1,54 @@
+package com.example.spending_management_app.utils;
+
+/**
+ * Stage marks of a chat command, from routing through the Gemini reply to the database commit
+ * Off unless a listener is installed (the end-to-end latency harness); a mark is then one volatile
+ * read, so the calls stay in release code
+ */
+public final class ChatTrace {
+
+    public enum Stage {
+        ROUTED,         // RequestRouterUseCase picked a handler, detail names it
+        REPLY_PARSED,   // A Gemini reply was read and rendered, before it is posted to the UI
+        WRITE_STARTED,  // A UserWriteQueue group starts its transaction
+        WRITE_FINISHED  // The group committed or rolled back, detail says which
+    }
+
+    /**
+     * Called on the thread that reached the stage
+     */
+    public interface Listener {
+        void onStage(Stage stage, String detail, long nanoTime);
+    }
+
+    private static volatile Listener listener;
+
+    // Private constructor to prevent instantiation
+    private ChatTrace() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Install a listener, or null to turn tracing off
+     */
+    public static void setListener(Listener newListener) {
+        listener = newListener;
+    }
+
+    public static void mark(Stage stage, String detail) {
+        Listener current = listener;
+        if (current != null) {
+            current.onStage(stage, detail, System.nanoTime());
+        }
+    }
+
+    /**
+     * Mark with a counted detail, e.g. "3 commands"; the text is only built while tracing is on
+     */
+    public static void mark(Stage stage, int count, String unit) {
+        Listener current = listener;
+        if (current != null) {
+            current.onStage(stage, count + " " + unit, System.nanoTime());
+        }
+    }
+}
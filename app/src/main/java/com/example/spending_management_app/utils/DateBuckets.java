@@ -0,0 +1,72 @@
+package com.example.spending_management_app.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * Local-time day and month keys persisted next to epoch-millis dates
+ * Computed in the device time zone at write time, so late-night entries in UTC+7
+ * land in the day/month the user saw, and queries become integer range scans
+ */
+public final class DateBuckets {
+
+    private DateBuckets() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Days since 1970-01-01 in the device time zone
+     */
+    public static int epochDay(Date date) {
+        return (int) toLocalDate(date).toEpochDay();
+    }
+
+    public static int epochDay(int year, int month, int day) {
+        return (int) LocalDate.of(year, month, day).toEpochDay();
+    }
+
+    /**
+     * Year and month as yyyyMM (e.g. 202510) in the device time zone
+     */
+    public static int yearMonth(Date date) {
+        LocalDate local = toLocalDate(date);
+        return yearMonth(local.getYear(), local.getMonthValue());
+    }
+
+    /**
+     * @param month 1-based month
+     */
+    public static int yearMonth(int year, int month) {
+        return year * 100 + month;
+    }
+
+    public static int firstMonthOf(int year) {
+        return yearMonth(year, 1);
+    }
+
+    public static int lastMonthOf(int year) {
+        return yearMonth(year, 12);
+    }
+
+    /**
+     * First millisecond of a yyyyMM month in the device time zone
+     */
+    public static Date startOfMonth(int yearMonth) {
+        LocalDate first = LocalDate.of(yearMonth / 100, yearMonth % 100, 1);
+        return Date.from(first.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * Last millisecond of a yyyyMM month in the device time zone
+     */
+    public static Date endOfMonth(int yearMonth) {
+        LocalDate next = LocalDate.of(yearMonth / 100, yearMonth % 100, 1).plusMonths(1);
+        return new Date(Date.from(next.atStartOfDay(ZoneId.systemDefault()).toInstant()).getTime() - 1);
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return Instant.ofEpochMilli(date.getTime()).atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+}
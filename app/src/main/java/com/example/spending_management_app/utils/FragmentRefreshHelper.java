@@ -14,6 +14,7 @@ import com.example.spending_management_app.data.local.database.AppDatabase;
 import com.example.spending_management_app.data.local.entity.TransactionEntity;
 import com.example.spending_management_app.data.local.entity.BudgetEntity;
 import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
 import com.example.spending_management_app.presentation.fragment.history.HistoryFragment;
 import com.example.spending_management_app.presentation.fragment.home.HomeFragment;
 import com.example.spending_management_app.utils.CurrencyFormatter;
@@ -126,8 +127,7 @@ public class FragmentRefreshHelper {
                 UserSession userSession = UserSession.getInstance(context);
                 int userId = userSession.getCurrentUserId();
                 
-                List<TransactionEntity> recentTransactions = AppDatabase.getInstance(context)
-                        .transactionDao()
+                List<TransactionEntity> recentTransactions = new ExpenseRepositoryImpl(AppDatabase.getInstance(context))
                         .getRecentTransactions(userId, 5); // Show 5 recent transactions
 
                 // Build updated welcome message
@@ -0,0 +1,95 @@
+package com.example.spending_management_app.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling for line charts
+ * Keeps the first and last point and, from each bucket in between, the point forming the
+ * largest triangle with the previously kept point and the average of the next bucket, so
+ * spikes survive while the point count drops to roughly one per pixel.
+ * Works on caller-owned float buffers so repeated calls don't allocate
+ */
+public final class LttbDownsampler {
+
+    private LttbDownsampler() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Downsample points sorted by x
+     * @param threshold wanted number of points; inputs with no more points are copied as they are
+     * @return number of points written to outX/outY (each needs min(length, threshold) slots)
+     */
+    public static int downsample(float[] xs, float[] ys, int length, int threshold, float[] outX, float[] outY) {
+        if (threshold >= length) {
+            System.arraycopy(xs, 0, outX, 0, length);
+            System.arraycopy(ys, 0, outY, 0, length);
+            return length;
+        }
+        if (threshold < 3) {
+            // Fewer than 3 points can't hold any shape: keep the ends
+            return keepEnds(xs, ys, length, threshold, outX, outY);
+        }
+
+        // Buckets between the fixed first and last point
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int kept = 0;
+        int previous = 0;
+        outX[kept] = xs[0];
+        outY[kept++] = ys[0];
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+
+            // Average of the next bucket (the last point for the final bucket)
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            if (bucket == threshold - 3) {
+                nextStart = length - 1;
+                nextEnd = length;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += xs[i];
+                avgY += ys[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = xs[previous];
+            double ay = ys[previous];
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle area; the factor doesn't change which point wins
+                double area = Math.abs((ax - avgX) * (ys[i] - ay) - (ax - xs[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            outX[kept] = xs[chosen];
+            outY[kept++] = ys[chosen];
+            previous = chosen;
+        }
+
+        outX[kept] = xs[length - 1];
+        outY[kept++] = ys[length - 1];
+        return kept;
+    }
+
+    private static int keepEnds(float[] xs, float[] ys, int length, int threshold, float[] outX, float[] outY) {
+        if (length == 0 || threshold <= 0) {
+            return 0;
+        }
+        outX[0] = xs[0];
+        outY[0] = ys[0];
+        if (threshold == 1 || length == 1) {
+            return 1;
+        }
+        outX[1] = xs[length - 1];
+        outY[1] = ys[length - 1];
+        return 2;
+    }
+}
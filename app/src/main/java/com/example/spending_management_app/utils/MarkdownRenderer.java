@@ -0,0 +1,70 @@
+package com.example.spending_management_app.utils;
+
+import android.graphics.Typeface;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.RelativeSizeSpan;
+import android.text.style.StyleSpan;
+import android.text.style.TypefaceSpan;
+
+/**
+ * Renders markdown into a Spannable for chat bubbles, on top of MarkdownScanner
+ * Use render() for a whole reply, or append()/finish() while a reply streams in; getText()
+ * can be shown at any point and grows in place
+ */
+public final class MarkdownRenderer implements MarkdownScanner.Sink {
+
+    private static final float[] HEADING_SIZES = {1.3f, 1.2f, 1.1f, 1.05f, 1f, 1f};
+
+    private final SpannableStringBuilder text = new SpannableStringBuilder();
+    private final MarkdownScanner scanner = new MarkdownScanner(this);
+
+    public static Spanned render(CharSequence markdown) {
+        MarkdownRenderer renderer = new MarkdownRenderer();
+        renderer.append(markdown);
+        renderer.finish();
+        return renderer.getText();
+    }
+
+    public void append(CharSequence chunk) {
+        scanner.append(chunk);
+    }
+
+    public void finish() {
+        scanner.finish();
+    }
+
+    public SpannableStringBuilder getText() {
+        return text;
+    }
+
+    @Override
+    public void text(CharSequence source, int start, int end) {
+        text.append(source, start, end);
+    }
+
+    @Override
+    public void span(int style, int start, int end) {
+        Object span;
+        switch (style) {
+            case MarkdownScanner.STYLE_BOLD:
+                span = new StyleSpan(Typeface.BOLD);
+                break;
+            case MarkdownScanner.STYLE_ITALIC:
+                span = new StyleSpan(Typeface.ITALIC);
+                break;
+            case MarkdownScanner.STYLE_CODE:
+                span = new TypefaceSpan("monospace");
+                break;
+            default:
+                return;
+        }
+        text.setSpan(span, start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+
+    @Override
+    public void heading(int level, int start, int end) {
+        text.setSpan(new StyleSpan(Typeface.BOLD), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        text.setSpan(new RelativeSizeSpan(HEADING_SIZES[level - 1]), start, end, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.spending_management_app.utils;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs password key derivation on a dedicated background thread
+ * PBKDF2 cost is calibrated per device so one derivation takes about TARGET_MILLIS,
+ * and hashes created with other parameters are upgraded on the next successful login
+ */
+public final class PasswordHashingEngine {
+
+    static final long TARGET_MILLIS = 250; // Time budget for one derivation
+    static final int MIN_ITERATIONS = PasswordUtils.ITERATIONS; // Never weaker than the legacy hashes
+    private static final int MAX_ITERATIONS = 1_000_000;
+    private static final int PROBE_ITERATIONS = 16384;
+    private static final int ITERATION_STEP = 1024; // Round to keep stored values stable between calibrations
+    private static final String PROBE_PASSWORD = "calibration-probe";
+
+    private static PasswordHashingEngine instance;
+
+    private final ExecutorService executor;
+    private volatile Thread workerThread;
+    private volatile int iterations; // 0 until calibrated or restored from settings
+
+    private PasswordHashingEngine() {
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "password-kdf");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            workerThread = thread;
+            return thread;
+        });
+    }
+
+    public static synchronized PasswordHashingEngine getInstance() {
+        if (instance == null) {
+            instance = new PasswordHashingEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Submit an authentication task to the key derivation thread
+     * Callers keep the returned future so they can cancel it when the screen goes away
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * Hash a new password with the calibrated iteration count
+     */
+    public Future<String> hash(String password) {
+        return submit(() -> PasswordUtils.hashPassword(password, getIterations()));
+    }
+
+    /**
+     * Verify a password and, if it matches but was stored with other parameters, re-hash it
+     */
+    public Future<VerifyResult> verify(String password, String storedHash) {
+        return submit(() -> verifyNow(password, storedHash));
+    }
+
+    /**
+     * Blocking variant of {@link #verify} for code that already runs inside {@link #submit}
+     * Falls back to waiting on the engine thread when called from anywhere else
+     */
+    public VerifyResult verifyNow(String password, String storedHash) {
+        return runOnEngine(() -> {
+            if (storedHash == null || !PasswordUtils.verifyPassword(password, storedHash)) {
+                return new VerifyResult(false, null);
+            }
+            int target = getIterations();
+            String upgradedHash = PasswordUtils.needsRehash(storedHash, target)
+                    ? PasswordUtils.hashPassword(password, target)
+                    : null;
+            return new VerifyResult(true, upgradedHash);
+        });
+    }
+
+    /**
+     * Check a password without upgrading its hash, for checks whose outcome isn't persisted
+     * (e.g. as the user types); one derivation at the stored cost, never a second one
+     */
+    public boolean matchesNow(String password, String storedHash) {
+        return runOnEngine(() -> storedHash != null && PasswordUtils.verifyPassword(password, storedHash));
+    }
+
+    /**
+     * Blocking variant of {@link #hash} for code that already runs inside {@link #submit}
+     */
+    public String hashNow(String password) {
+        return runOnEngine(() -> PasswordUtils.hashPassword(password, getIterations()));
+    }
+
+    /**
+     * Get the iteration count new hashes are created with, calibrating on first use
+     */
+    public int getIterations() {
+        int current = iterations;
+        if (current == 0) {
+            current = calibrate();
+        }
+        return current;
+    }
+
+    /**
+     * Restore a previously calibrated iteration count (e.g. from SettingsHelper)
+     */
+    public void setIterations(int iterations) {
+        if (iterations > 0) {
+            this.iterations = clamp(iterations);
+        }
+    }
+
+    /**
+     * Measure PBKDF2 speed on this device and pick the iteration count that fits TARGET_MILLIS
+     * @return The calibrated iteration count
+     */
+    public synchronized int calibrate() {
+        // First run warms up the JIT and the provider lookup, second run is measured
+        PasswordUtils.hashPassword(PROBE_PASSWORD, PROBE_ITERATIONS);
+        long start = System.nanoTime();
+        PasswordUtils.hashPassword(PROBE_PASSWORD, PROBE_ITERATIONS);
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+
+        long scaled = PROBE_ITERATIONS * TARGET_MILLIS * 1_000_000L / elapsedNanos;
+        iterations = clamp(scaled);
+        return iterations;
+    }
+
+    private static int clamp(long value) {
+        long rounded = (value / ITERATION_STEP) * ITERATION_STEP;
+        return (int) Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, rounded));
+    }
+
+    private <T> T runOnEngine(Callable<T> task) {
+        try {
+            if (Thread.currentThread() == workerThread) {
+                return task.call();
+            }
+            return executor.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while hashing password", e.getCause());
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Error while hashing password", e);
+        }
+    }
+
+    /**
+     * Result of a password verification
+     */
+    public static class VerifyResult {
+        public final boolean matches;
+        public final String upgradedHash; // New hash to persist, or null if the stored one is current
+
+        public VerifyResult(boolean matches, String upgradedHash) {
+            this.matches = matches;
+            this.upgradedHash = upgradedHash;
+        }
+    }
+}
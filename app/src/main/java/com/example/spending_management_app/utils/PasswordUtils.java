@@ -1,12 +1,11 @@
 package com.example.spending_management_app.utils;
 
-import android.util.Base64;
-
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.Base64;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -18,7 +17,7 @@ import javax.crypto.spec.PBEKeySpec;
 public class PasswordUtils {
 
     private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
-    private static final int ITERATIONS = 65536; // High iteration count for security
+    static final int ITERATIONS = 65536; // Baseline iteration count, used until the device is calibrated
     private static final int KEY_LENGTH = 256; // 256-bit key
     private static final int SALT_LENGTH = 32; // 256-bit salt
 
@@ -26,13 +25,24 @@ public class PasswordUtils {
 
     /**
      * Hash a password with a randomly generated salt
+     * Runs PBKDF2 on the calling thread - UI code should go through {@link PasswordHashingEngine}
      * @param password The plain text password
      * @return The hashed password in format: iterations:salt:hash
      */
     public static String hashPassword(String password) {
+        return hashPassword(password, ITERATIONS);
+    }
+
+    /**
+     * Hash a password with a randomly generated salt and an explicit iteration count
+     * @param password The plain text password
+     * @param iterations PBKDF2 iteration count, stored in the result
+     * @return The hashed password in format: iterations:salt:hash
+     */
+    public static String hashPassword(String password, int iterations) {
         byte[] salt = generateSalt();
-        byte[] hash = pbkdf2(password.toCharArray(), salt, ITERATIONS, KEY_LENGTH);
-        return ITERATIONS + ":" + Base64.encodeToString(salt, Base64.NO_WRAP) + ":" + Base64.encodeToString(hash, Base64.NO_WRAP);
+        byte[] hash = pbkdf2(password.toCharArray(), salt, iterations, KEY_LENGTH);
+        return iterations + ":" + Base64.getEncoder().encodeToString(salt) + ":" + Base64.getEncoder().encodeToString(hash);
     }
 
     /**
@@ -48,13 +58,50 @@ public class PasswordUtils {
         }
 
         int iterations = Integer.parseInt(parts[0]);
-        byte[] salt = Base64.decode(parts[1], Base64.NO_WRAP);
-        byte[] hash = Base64.decode(parts[2], Base64.NO_WRAP);
+        byte[] salt = Base64.getDecoder().decode(parts[1]);
+        byte[] hash = Base64.getDecoder().decode(parts[2]);
 
         byte[] testHash = pbkdf2(password.toCharArray(), salt, iterations, hash.length * 8);
         return MessageDigest.isEqual(hash, testHash);
     }
 
+    /**
+     * Read the iteration count of a stored hash
+     * @param storedHash The stored hash in format: iterations:salt:hash
+     * @return The iteration count, or -1 if the hash is malformed
+     */
+    public static int getIterations(String storedHash) {
+        if (storedHash == null) {
+            return -1;
+        }
+        int separator = storedHash.indexOf(':');
+        if (separator <= 0) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(storedHash.substring(0, separator));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Check whether a stored hash was produced with different parameters than the current ones
+     * @param storedHash The stored hash in format: iterations:salt:hash
+     * @param targetIterations The iteration count new hashes are created with
+     * @return true if the password should be re-hashed after the next successful verification
+     */
+    public static boolean needsRehash(String storedHash, int targetIterations) {
+        String[] parts = storedHash.split(":");
+        if (parts.length != 3) {
+            return false;
+        }
+        if (getIterations(storedHash) != targetIterations) {
+            return true;
+        }
+        return Base64.getDecoder().decode(parts[2]).length * 8 != KEY_LENGTH;
+    }
+
     /**
      * Generate a random salt
      */
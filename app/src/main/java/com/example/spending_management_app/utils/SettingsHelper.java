@@ -13,6 +13,9 @@ public final class SettingsHelper {
     private static final String KEY_EXCHANGE_RATE_PREFIX = "exchange_rate_"; // stored as VND per unit, e.g. 26000 for USD
     private static final String KEY_DARK_MODE = "dark_mode";
     private static final String KEY_CHAT_FEEDBACK = "chat_feedback";
+    private static final String KEY_SPECULATIVE_EXPENSE = "speculative_expense"; // save the local parse at once, AI reconciles it
+    private static final String KEY_PASSWORD_HASH_ITERATIONS = "password_hash_iterations"; // calibrated PBKDF2 cost for this device
+    private static final String KEY_BUDGET_ALERT_THRESHOLDS = "budget_alert_thresholds"; // extra alert levels in percent, e.g. "50,90"
     private static final String DEFAULT_CURRENCY = "VND";
 
     private SettingsHelper() { throw new UnsupportedOperationException("Utility class"); }
@@ -47,6 +50,67 @@ public final class SettingsHelper {
         return prefs.getBoolean(KEY_CHAT_FEEDBACK, true); // Default to enabled
     }
 
+    public static void setSpeculativeExpenseEnabled(Context context, boolean enabled) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putBoolean(KEY_SPECULATIVE_EXPENSE, enabled).apply();
+    }
+
+    public static boolean isSpeculativeExpenseEnabled(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getBoolean(KEY_SPECULATIVE_EXPENSE, true); // Default to enabled
+    }
+
+    public static int getPasswordHashIterations(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getInt(KEY_PASSWORD_HASH_ITERATIONS, 0); // 0 = not calibrated yet
+    }
+
+    public static void setPasswordHashIterations(Context context, int iterations) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putInt(KEY_PASSWORD_HASH_ITERATIONS, iterations).apply();
+    }
+
+    /**
+     * Extra budget alert levels (percent) on top of the built-in 80% and 100%
+     */
+    public static int[] getBudgetAlertThresholds(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return parseBudgetAlertThresholds(prefs.getString(KEY_BUDGET_ALERT_THRESHOLDS, ""));
+    }
+
+    /**
+     * Parse a comma separated list of percents as typed in the settings dialog, e.g. "50, 90"
+     */
+    public static int[] parseBudgetAlertThresholds(String text) {
+        if (text == null || text.trim().isEmpty()) return new int[0];
+        String[] parts = text.split(",");
+        int[] thresholds = new int[parts.length];
+        int count = 0;
+        for (String part : parts) {
+            try {
+                int threshold = Integer.parseInt(part.trim());
+                if (threshold > 0) thresholds[count++] = threshold; // Skip zero and negative levels
+            } catch (NumberFormatException e) {
+                // Skip malformed entries
+            }
+        }
+        return java.util.Arrays.copyOf(thresholds, count);
+    }
+
+    public static String formatBudgetAlertThresholds(int... thresholds) {
+        StringBuilder value = new StringBuilder();
+        for (int threshold : thresholds) {
+            if (value.length() > 0) value.append(", ");
+            value.append(threshold);
+        }
+        return value.toString();
+    }
+
+    public static void setBudgetAlertThresholds(Context context, int... thresholds) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putString(KEY_BUDGET_ALERT_THRESHOLDS, formatBudgetAlertThresholds(thresholds)).apply();
+    }
+
     public static void setExchangeRateVndPerUnit(Context context, String currency, double rateVndPerUnit) {
         SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
         prefs.edit().putFloat(KEY_EXCHANGE_RATE_PREFIX + currency, (float) rateVndPerUnit).apply();
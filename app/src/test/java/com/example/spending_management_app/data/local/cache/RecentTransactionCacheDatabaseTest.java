@@ -0,0 +1,107 @@
+package com.example.spending_management_app.data.local.cache;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The shared window against an in-memory Room database: after any mix of inserts, updates and
+ * deletes through ExpenseRepositoryImpl, getRecentTransactions matches TransactionDao's own query
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class RecentTransactionCacheDatabaseTest {
+
+    private AppDatabase db;
+    private ExpenseRepositoryImpl repository;
+
+    @Before
+    public void setUp() {
+        db = TestDatabases.inMemory(ApplicationProvider.getApplicationContext());
+        RecentTransactionCache.getInstance().clear();
+        TransactionColumnStore.getInstance().clear();
+        repository = new ExpenseRepositoryImpl(db);
+    }
+
+    @After
+    public void tearDown() {
+        RecentTransactionCache.getInstance().clear();
+        TransactionColumnStore.getInstance().clear();
+        db.close();
+    }
+
+    @Test
+    public void randomMutations_matchTheTable() {
+        Random random = new Random(42);
+        for (int step = 0; step < 1500; step++) {
+            int userId = 1 + random.nextInt(2);
+            List<TransactionEntity> rows = db.transactionDao().getAllTransactions(userId);
+            int action = random.nextInt(10);
+            if (action < 5 || rows.isEmpty()) {
+                repository.insert(newRow(userId, random.nextInt(60))); // Few distinct days, so dates tie often
+            } else if (action < 8) {
+                TransactionEntity existing = rows.get(random.nextInt(rows.size()));
+                existing.date = day(random.nextInt(60));
+                repository.update(existing);
+            } else {
+                repository.delete(rows.get(random.nextInt(rows.size())));
+            }
+
+            int limit = 1 + random.nextInt(RecentTransactionCache.CAPACITY + 5);
+            assertEquals("step " + step, ids(db.transactionDao().getRecentTransactions(userId, limit)),
+                    ids(repository.getRecentTransactions(userId, limit)));
+        }
+    }
+
+    @Test
+    public void batchInsert_andWritesAroundTheRepository() {
+        List<TransactionEntity> batch = new ArrayList<>();
+        for (int i = 0; i < RecentTransactionCache.CAPACITY + 5; i++) {
+            batch.add(newRow(1, i % 7));
+        }
+        repository.getRecentTransactions(1, 5); // Load the window before the batch lands
+        repository.insertAll(batch);
+        assertEquals(ids(db.transactionDao().getRecentTransactions(1, 10)), ids(repository.getRecentTransactions(1, 10)));
+
+        db.transactionDao().insert(newRow(1, 100)); // Newer than everything, written around the cache
+        RecentTransactionCache.getInstance().invalidate(1);
+        assertEquals(ids(db.transactionDao().getRecentTransactions(1, 10)), ids(repository.getRecentTransactions(1, 10)));
+    }
+
+    private static TransactionEntity newRow(int userId, int day) {
+        TransactionEntity row = new TransactionEntity("row", "Ăn uống", -1000, day(day), "expense");
+        row.setUserId(userId);
+        return row;
+    }
+
+    private static Date day(int day) {
+        return new Date(1_700_000_000_000L + day * 86_400_000L);
+    }
+
+    private static List<Integer> ids(List<TransactionEntity> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (TransactionEntity row : rows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.spending_management_app.data.local.cache;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Consistency tests: after any sequence of write-through mutations the cached window
+ * must equal what "ORDER BY date DESC, id DESC LIMIT n" returns from the table
+ * Runs on a table stand-in to reach races and small capacities; RecentTransactionCacheDatabaseTest
+ * checks the same against Room
+ */
+public class RecentTransactionCacheTest {
+
+    private static final int CAPACITY = 8;
+
+    private FakeTable table;
+    private RecentTransactionCache cache;
+
+    @Before
+    public void setUp() {
+        table = new FakeTable();
+        cache = new RecentTransactionCache(CAPACITY);
+    }
+
+    @Test
+    public void firstReadLoadsFromTableThenServesFromMemory() {
+        for (int i = 0; i < 5; i++) {
+            insert(1, i * 1000L);
+        }
+        assertEquals(table.loadRecent(1, 3), cache.getRecent(1, 3, table));
+        int loads = table.loads.get();
+
+        assertEquals(table.loadRecent(1, 5), cache.getRecent(1, 5, table));
+        assertEquals(table.loadRecent(1, 2), cache.getRecent(1, 2, table));
+        assertEquals(loads, table.loads.get() - 2); // Only the two reference reads above
+    }
+
+    @Test
+    public void randomMutationsStayConsistentWithTable() {
+        Random random = new Random(42);
+        for (int step = 0; step < 5000; step++) {
+            int userId = 1 + random.nextInt(2);
+            List<TransactionEntity> rows = table.rowsOf(userId);
+            int action = random.nextInt(10);
+            if (action < 5 || rows.isEmpty()) {
+                insert(userId, random.nextInt(200) * 1000L);
+            } else if (action < 8) {
+                TransactionEntity existing = rows.get(random.nextInt(rows.size()));
+                TransactionEntity updated = copyOf(existing, random.nextInt(200) * 1000L);
+                table.update(updated);
+                cache.onUpdated(updated);
+            } else {
+                TransactionEntity existing = rows.get(random.nextInt(rows.size()));
+                table.delete(existing);
+                cache.onDeleted(existing);
+            }
+
+            int limit = 1 + random.nextInt(CAPACITY + 2);
+            assertEquals("step " + step, ids(table.loadRecent(userId, limit)), ids(cache.getRecent(userId, limit, table)));
+        }
+    }
+
+    @Test
+    public void insertOlderThanIncompleteWindowIsNotCached() {
+        for (int i = 0; i < CAPACITY + 4; i++) {
+            insert(1, (100 + i) * 1000L);
+        }
+        cache.getRecent(1, CAPACITY, table);
+
+        insert(1, 1000L); // Older than every cached row
+        assertEquals(ids(table.loadRecent(1, CAPACITY)), ids(cache.getRecent(1, CAPACITY, table)));
+    }
+
+    @Test
+    public void invalidateForcesReload() {
+        insert(1, 1000L);
+        cache.getRecent(1, 5, table);
+
+        TransactionEntity hidden = new TransactionEntity("hidden", "Ăn uống", -1, new Date(5000L), "expense");
+        table.insert(hidden); // Written around the repository
+        cache.invalidate(1);
+
+        assertEquals(ids(table.loadRecent(1, 5)), ids(cache.getRecent(1, 5, table)));
+    }
+
+    @Test
+    public void concurrentWritersAndReadersConverge() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 6; t++) {
+            int seed = t;
+            pool.execute(() -> {
+                Random random = new Random(seed);
+                try {
+                    start.await();
+                    for (int i = 0; i < 500; i++) {
+                        if (seed % 2 == 0) {
+                            synchronized (table) {
+                                // Table write and cache update in one step, like a serialized DAO call
+                                TransactionEntity row = newRow(1, random.nextInt(500) * 1000L);
+                                table.insert(row);
+                                cache.onInserted(row);
+                            }
+                        } else {
+                            cache.getRecent(1, 1 + random.nextInt(CAPACITY), table);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(ids(table.loadRecent(1, CAPACITY)), ids(cache.getRecent(1, CAPACITY, table)));
+    }
+
+    private void insert(int userId, long millis) {
+        TransactionEntity row = newRow(userId, millis);
+        table.insert(row);
+        cache.onInserted(row);
+    }
+
+    private static TransactionEntity newRow(int userId, long millis) {
+        TransactionEntity row = new TransactionEntity("row", "Ăn uống", -1000, new Date(millis), "expense");
+        row.setUserId(userId);
+        return row;
+    }
+
+    private static TransactionEntity copyOf(TransactionEntity source, long millis) {
+        TransactionEntity copy = new TransactionEntity(source.description, source.category, source.amount, new Date(millis), source.type);
+        copy.id = source.id;
+        copy.setUserId(source.getUserId());
+        return copy;
+    }
+
+    private static List<Integer> ids(List<TransactionEntity> rows) {
+        List<Integer> ids = new ArrayList<>();
+        for (TransactionEntity row : rows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Stand-in for the transactions table with the same ordering as TransactionDao.getRecentTransactions
+     */
+    private static class FakeTable implements RecentTransactionCache.Loader {
+        private final List<TransactionEntity> rows = new ArrayList<>();
+        private int nextId = 1;
+        final AtomicInteger loads = new AtomicInteger();
+
+        synchronized void insert(TransactionEntity row) {
+            row.id = nextId++;
+            rows.add(row);
+        }
+
+        synchronized void update(TransactionEntity row) {
+            delete(row);
+            rows.add(row);
+        }
+
+        synchronized void delete(TransactionEntity row) {
+            rows.removeIf(existing -> existing.id == row.id);
+        }
+
+        synchronized List<TransactionEntity> rowsOf(int userId) {
+            List<TransactionEntity> result = new ArrayList<>();
+            for (TransactionEntity row : rows) {
+                if (row.userId == userId) {
+                    result.add(row);
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public synchronized List<TransactionEntity> loadRecent(int userId, int limit) {
+            loads.incrementAndGet();
+            List<TransactionEntity> result = rowsOf(userId);
+            result.sort(RecentTransactionCache.NEWEST_FIRST);
+            return new ArrayList<>(result.subList(0, Math.min(limit, result.size())));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.spending_management_app.data.local.cache;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.utils.DateBuckets;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Column aggregations must match a straightforward loop over the same entities,
+ * both below and above the parallel threshold, and stay correct through incremental refreshes
+ */
+public class TransactionColumnsTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final int FIRST_YEAR = 2021;
+    private static final int YEARS = 5;
+
+    @Test
+    public void aggregationsMatchNaiveLoop_smallAndLargeRanges() {
+        List<TransactionEntity> rows = randomRows(new Random(7), 200_000);
+        TransactionColumns columns = TransactionColumns.of(rows);
+        assertEquals(rows.size(), columns.size());
+
+        // One month stays on the calling thread, the whole span forks
+        assertRangeMatches(rows, columns, 202303, 202303);
+        assertRangeMatches(rows, columns, DateBuckets.firstMonthOf(FIRST_YEAR),
+                DateBuckets.lastMonthOf(FIRST_YEAR + YEARS - 1));
+    }
+
+    @Test
+    public void percentile_usesNearestRank() {
+        List<TransactionEntity> rows = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            rows.add(row(i, 1, i * 100L, startOf(202401) + i * DAY, "expense"));
+        }
+        rows.add(row(11, 1, 999_999L, startOf(202401) + 3 * DAY, "income"));
+        TransactionColumns columns = TransactionColumns.of(rows);
+        long from = startOf(202401);
+        long to = endOf(202401);
+
+        assertEquals(500, columns.percentile(from, to, TransactionColumns.TYPE_EXPENSE, 50));
+        assertEquals(900, columns.percentile(from, to, TransactionColumns.TYPE_EXPENSE, 90));
+        assertEquals(1000, columns.percentile(from, to, TransactionColumns.TYPE_EXPENSE, 100));
+        assertEquals(100, columns.percentile(from, to, TransactionColumns.TYPE_EXPENSE, 0));
+        assertEquals(0, columns.percentile(startOf(202402), endOf(202402), TransactionColumns.TYPE_EXPENSE, 50));
+    }
+
+    @Test
+    public void storeAppliesWritesIncrementally() {
+        Random random = new Random(11);
+        Map<Integer, TransactionEntity> table = new LinkedHashMap<>();
+        for (TransactionEntity row : randomRows(random, 2_000)) {
+            table.put(row.id, row);
+        }
+        int[] loads = {0};
+        TransactionColumnStore store = new TransactionColumnStore();
+        TransactionColumnStore.Loader loader = userId -> {
+            loads[0]++;
+            return TransactionColumns.of(table.values());
+        };
+        store.getColumns(1, loader);
+
+        int nextId = table.size() + 1;
+        for (int step = 0; step < 3_000; step++) {
+            int action = random.nextInt(3);
+            List<Integer> ids = new ArrayList<>(table.keySet());
+            if (action == 0 || ids.isEmpty()) {
+                TransactionEntity row = randomRow(random, nextId++);
+                table.put(row.id, row);
+                store.onInserted(row);
+            } else if (action == 1) {
+                TransactionEntity existing = table.get(ids.get(random.nextInt(ids.size())));
+                TransactionEntity updated = randomRow(random, existing.id);
+                table.put(updated.id, updated);
+                store.onUpdated(updated);
+            } else {
+                TransactionEntity removed = table.remove(ids.get(random.nextInt(ids.size())));
+                store.onDeleted(removed);
+            }
+            if (step % 250 == 0) {
+                assertSameColumns(TransactionColumns.of(table.values()), store.getColumns(1, loader));
+            }
+        }
+        assertSameColumns(TransactionColumns.of(table.values()), store.getColumns(1, loader));
+        assertEquals(1, loads[0]);
+
+        store.invalidate(1);
+        store.getColumns(1, loader);
+        assertEquals(2, loads[0]);
+    }
+
+    @Test
+    public void yearOverYearComparison_matchesNaiveLoop() {
+        List<TransactionEntity> rows = randomRows(new Random(3), 100_000);
+        TransactionColumns columns = TransactionColumns.of(rows);
+
+        // Monthly totals and category split for both years, as the statistics screen compares them
+        for (int year : new int[]{2024, 2025}) {
+            assertTrue(columns.total(startOf(DateBuckets.firstMonthOf(year)), endOf(DateBuckets.lastMonthOf(year)),
+                    TransactionColumns.TYPE_EXPENSE) > 0);
+            assertRangeMatches(rows, columns, DateBuckets.firstMonthOf(year), DateBuckets.lastMonthOf(year));
+        }
+    }
+
+    private static void assertRangeMatches(List<TransactionEntity> rows, TransactionColumns columns,
+                                           int fromYearMonth, int toYearMonth) {
+        long from = startOf(fromYearMonth);
+        long to = endOf(toYearMonth);
+        int fromDay = DateBuckets.epochDay(new Date(from));
+        int toDay = DateBuckets.epochDay(new Date(to));
+        int months = (toYearMonth / 100 - fromYearMonth / 100) * 12 + toYearMonth % 100 - fromYearMonth % 100 + 1;
+
+        long total = 0;
+        long income = 0;
+        long[] byMonth = new long[months];
+        long[] byDay = new long[toDay - fromDay + 1];
+        Map<Integer, Long> byCategory = new HashMap<>();
+        for (TransactionEntity row : rows) {
+            long millis = row.date.getTime();
+            if (millis < from || millis > to) {
+                continue;
+            }
+            if ("income".equals(row.type)) {
+                income += Math.abs(row.amount);
+                continue;
+            }
+            if (!"expense".equals(row.type)) {
+                continue;
+            }
+            long amount = Math.abs(row.amount);
+            total += amount;
+            byCategory.merge(row.categoryId, amount, Long::sum);
+            byMonth[(row.yearMonth / 100 - fromYearMonth / 100) * 12 + row.yearMonth % 100 - fromYearMonth % 100] += amount;
+            byDay[row.epochDay - fromDay] += amount;
+        }
+
+        assertEquals(total, columns.total(from, to, TransactionColumns.TYPE_EXPENSE));
+        assertEquals(income, columns.total(from, to, TransactionColumns.TYPE_INCOME));
+        assertArrayEquals(byMonth, columns.sumByMonth(fromYearMonth, toYearMonth, TransactionColumns.TYPE_EXPENSE));
+        assertArrayEquals(byDay, columns.sumByDay(fromDay, toDay, TransactionColumns.TYPE_EXPENSE));
+        long[] categories = columns.sumByCategory(from, to, TransactionColumns.TYPE_EXPENSE);
+        for (int categoryId = 0; categoryId < categories.length; categoryId++) {
+            assertEquals((long) byCategory.getOrDefault(categoryId, 0L), categories[categoryId]);
+        }
+    }
+
+    private static void assertSameColumns(TransactionColumns expected, TransactionColumns actual) {
+        assertEquals(expected.size(), actual.size());
+        long from = startOf(DateBuckets.firstMonthOf(FIRST_YEAR));
+        long to = endOf(DateBuckets.lastMonthOf(FIRST_YEAR + YEARS - 1));
+        for (byte type : new byte[]{TransactionColumns.TYPE_EXPENSE, TransactionColumns.TYPE_INCOME}) {
+            assertEquals(expected.total(from, to, type), actual.total(from, to, type));
+            assertArrayEquals(expected.sumByMonth(202101, 202512, type), actual.sumByMonth(202101, 202512, type));
+            assertEquals(expected.percentile(from, to, type, 75), actual.percentile(from, to, type, 75));
+            long[] expectedCategories = expected.sumByCategory(from, to, type);
+            long[] actualCategories = actual.sumByCategory(from, to, type);
+            int length = Math.max(expectedCategories.length, actualCategories.length);
+            assertArrayEquals(Arrays.copyOf(expectedCategories, length), Arrays.copyOf(actualCategories, length));
+        }
+    }
+
+    private static List<TransactionEntity> randomRows(Random random, int count) {
+        List<TransactionEntity> rows = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            rows.add(randomRow(random, id));
+        }
+        return rows;
+    }
+
+    private static TransactionEntity randomRow(Random random, int id) {
+        long from = startOf(DateBuckets.firstMonthOf(FIRST_YEAR));
+        long span = endOf(DateBuckets.lastMonthOf(FIRST_YEAR + YEARS - 1)) - from;
+        long millis = from + (long) (random.nextDouble() * span);
+        String type = random.nextInt(5) == 0 ? "income" : "expense";
+        return row(id, 1 + random.nextInt(28), 1_000L * (1 + random.nextInt(5_000)), millis, type);
+    }
+
+    private static TransactionEntity row(int id, int categoryId, long amount, long millis, String type) {
+        TransactionEntity row = new TransactionEntity("row " + id, categoryId, amount, new Date(millis), type);
+        row.id = id;
+        row.userId = 1;
+        return row;
+    }
+
+    private static long startOf(int yearMonth) {
+        return DateBuckets.startOfMonth(yearMonth).getTime();
+    }
+
+    private static long endOf(int yearMonth) {
+        return DateBuckets.endOfMonth(yearMonth).getTime();
+    }
+}
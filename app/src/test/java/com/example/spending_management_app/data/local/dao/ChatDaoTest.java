@@ -0,0 +1,115 @@
+package com.example.spending_management_app.data.local.dao;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.entity.ChatConversationEntity;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Keyset paging of stored chat messages: pages follow ids, so messages sharing a timestamp are
+ * neither skipped nor repeated at a page boundary
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class ChatDaoTest {
+
+    private static final Date SAME_SECOND = new Date(1_740_000_000_000L);
+
+    private AppDatabase db;
+    private ChatDao dao;
+    private int conversation;
+    private int otherConversation;
+
+    @Before
+    public void setUp() {
+        db = TestDatabases.inMemory(ApplicationProvider.getApplicationContext());
+        dao = db.chatDao();
+        conversation = (int) dao.insertConversation(new ChatConversationEntity(1, "expense", SAME_SECOND));
+        otherConversation = (int) dao.insertConversation(new ChatConversationEntity(1, "budget", SAME_SECOND));
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void pagesWithEqualTimestamps_coverEveryMessageOnce() {
+        List<Long> inserted = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            inserted.add(dao.insertMessage(message(conversation, "m" + i)));
+            dao.insertMessage(message(otherConversation, "other" + i)); // Interleaved ids of another thread
+        }
+
+        List<Long> paged = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        long beforeId = Long.MAX_VALUE;
+        while (true) {
+            List<ChatMessageEntity> page = dao.getMessagesBefore(conversation, beforeId, 3);
+            if (page.isEmpty()) {
+                break;
+            }
+            pageSizes.add(page.size());
+            for (ChatMessageEntity row : page) {
+                assertEquals(conversation, row.conversationId);
+                paged.add(0, row.id); // Pages come newest first
+            }
+            beforeId = page.get(page.size() - 1).id;
+        }
+
+        assertEquals(List.of(3, 3, 1), pageSizes);
+        assertEquals(inserted, paged);
+    }
+
+    @Test
+    public void latestPage_isNewestFirstAndLimited() {
+        for (int i = 0; i < 5; i++) {
+            dao.insertMessage(message(conversation, "m" + i));
+        }
+
+        List<ChatMessageEntity> page = dao.getMessagesBefore(conversation, Long.MAX_VALUE, 2);
+        assertEquals(2, page.size());
+        assertEquals("m4", page.get(0).text);
+        assertEquals("m3", page.get(1).text);
+        assertEquals("m2", dao.getMessagesBefore(conversation, page.get(1).id, 10).get(0).text);
+        assertEquals(3, dao.getMessagesBefore(conversation, page.get(1).id, 10).size());
+    }
+
+    @Test
+    public void updateMessage_keepsItsPlaceInThePages() {
+        long first = dao.insertMessage(message(conversation, "m0"));
+        long placeholder = dao.insertMessage(message(conversation, "…"));
+        dao.insertMessage(message(conversation, "m2"));
+
+        dao.updateMessage(placeholder, ChatMessageEntity.ROLE_MODEL, "Đã ghi nhận", 3);
+
+        List<ChatMessageEntity> page = dao.getMessagesBefore(conversation, Long.MAX_VALUE, 10);
+        assertEquals(3, page.size());
+        assertEquals(placeholder, page.get(1).id);
+        assertEquals("Đã ghi nhận", page.get(1).text);
+        assertEquals(3, dao.getTokenCount(placeholder));
+        assertEquals(first, page.get(2).id);
+    }
+
+    private static ChatMessageEntity message(int conversationId, String text) {
+        return new ChatMessageEntity(conversationId, ChatMessageEntity.ROLE_USER, text, SAME_SECOND,
+                ChatMessageEntity.estimateTokens(text));
+    }
+}
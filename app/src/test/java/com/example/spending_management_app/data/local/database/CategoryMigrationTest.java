@@ -0,0 +1,142 @@
+package com.example.spending_management_app.data.local.database;
+
+import android.app.Application;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.utils.CategoryRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * A version 6 database with category strings, migrated to the current schema: every name keeps
+ * its category, unknown ones as custom categories, and every categoryId satisfies its foreign key
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class CategoryMigrationTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Context context;
+    private File file;
+    private AppDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        file = new File(folder.getRoot(), "legacy.db");
+        // Version 6 tables as Room created them from the entities of that release
+        try (SQLiteDatabase legacy = SQLiteDatabase.openOrCreateDatabase(file, null)) {
+            legacy.execSQL("CREATE TABLE `transactions` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, "
+                    + "`description` TEXT, `category` TEXT, `amount` INTEGER NOT NULL, `date` INTEGER, `type` TEXT)");
+            legacy.execSQL("CREATE TABLE `budgets` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, "
+                    + "`category` TEXT, `monthlyLimit` INTEGER NOT NULL, `currentSpent` INTEGER NOT NULL, `date` INTEGER)");
+            legacy.execSQL("CREATE TABLE `recurring_expenses` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, "
+                    + "`description` TEXT, `category` TEXT, `amount` INTEGER NOT NULL, `startDate` INTEGER, `endDate` INTEGER, `frequency` TEXT)");
+            legacy.execSQL("CREATE TABLE `category_budgets` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, "
+                    + "`category` TEXT, `budgetAmount` INTEGER NOT NULL, `date` INTEGER)");
+            legacy.execSQL("CREATE TABLE `budget_history` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `userId` INTEGER NOT NULL, "
+                    + "`action` TEXT, `budgetType` TEXT, `category` TEXT, `amount` INTEGER NOT NULL, `date` INTEGER, `description` TEXT)");
+            legacy.execSQL("CREATE TABLE `users` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `emailOrPhone` TEXT, "
+                    + "`passwordHash` TEXT, `name` TEXT, `avatar` TEXT, `createdAt` INTEGER)");
+
+            long now = System.currentTimeMillis();
+            legacy.execSQL("INSERT INTO transactions (id, userId, description, category, amount, date, type) VALUES "
+                    + "(1, 1, 'Phở', 'Ăn uống', -50000, " + now + ", 'expense'), "
+                    + "(2, 1, 'Grab', 'Transport', -30000, " + now + ", 'expense'), "
+                    + "(3, 1, 'Cây cảnh', 'Cây cảnh & Vườn', -120000, " + now + ", 'expense'), "
+                    + "(4, 1, 'Không rõ', NULL, -10000, " + now + ", 'expense')");
+            legacy.execSQL("INSERT INTO category_budgets (id, userId, category, budgetAmount, date) VALUES "
+                    + "(1, 1, 'Cây cảnh & Vườn', 500000, " + now + "), (2, 1, 'Food', 2000000, " + now + ")");
+            legacy.execSQL("INSERT INTO budget_history (id, userId, action, budgetType, category, amount, date, description) VALUES "
+                    + "(1, 1, 'create', 'category', 'Cây cảnh & Vườn', 500000, " + now + ", 'Tạo'), "
+                    + "(2, 1, 'create', 'monthly', NULL, 8000000, " + now + ", 'Tạo')");
+            legacy.setVersion(6);
+        }
+        db = Room.databaseBuilder(context, AppDatabase.class, file.getPath())
+                .addMigrations(AppDatabase.MIGRATION_6_7, AppDatabase.MIGRATION_7_8, AppDatabase.MIGRATION_8_9,
+                        AppDatabase.MIGRATION_9_10, AppDatabase.MIGRATION_10_11, AppDatabase.MIGRATION_11_12)
+                .addCallback(AppDatabase.CATEGORY_CALLBACK)
+                .allowMainThreadQueries()
+                .build(); // Room validates the migrated schema against the entities on open
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void categoryIds_backfilledFromNames() {
+        int custom = categoryId("SELECT categoryId FROM transactions WHERE id = 3");
+        assertTrue(custom >= CategoryRegistry.CUSTOM_ID_BASE);
+        assertEquals("Cây cảnh & Vườn", CategoryRegistry.keyOf(custom));
+        assertEquals(Integer.valueOf(custom), db.categoryDao().getIdByName("Cây cảnh & Vườn"));
+
+        assertEquals(CategoryRegistry.idOf("Ăn uống"), categoryId("SELECT categoryId FROM transactions WHERE id = 1"));
+        assertEquals(CategoryRegistry.idOf("Di chuyển"), categoryId("SELECT categoryId FROM transactions WHERE id = 2"));
+        assertEquals(CategoryRegistry.otherId(), categoryId("SELECT categoryId FROM transactions WHERE id = 4"));
+
+        assertEquals(custom, categoryId("SELECT categoryId FROM category_budgets WHERE id = 1"));
+        assertEquals(CategoryRegistry.idOf("Ăn uống"), categoryId("SELECT categoryId FROM category_budgets WHERE id = 2"));
+        assertEquals(custom, categoryId("SELECT categoryId FROM budget_history WHERE id = 1"));
+        try (Cursor cursor = db.query("SELECT categoryId FROM budget_history WHERE id = 2", null)) {
+            assertTrue(cursor.moveToFirst());
+            assertTrue(cursor.isNull(0)); // Monthly budgets have no category
+        }
+    }
+
+    @Test
+    public void foreignKeys_holdAfterMigration() {
+        try (Cursor cursor = db.query("PRAGMA foreign_key_check", null)) {
+            assertEquals(0, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void newNames_becomeCustomCategoriesOnWrite() {
+        int migrated = db.categoryDao().getIdByName("Cây cảnh & Vườn");
+        TransactionEntity gift = new TransactionEntity("Hoa", "Hoa tươi", -80_000, new Date(), "expense");
+        assertEquals(CategoryRegistry.UNKNOWN_ID, gift.categoryId);
+
+        new ExpenseRepositoryImpl(db).insert(gift);
+
+        assertTrue(gift.categoryId > migrated);
+        assertEquals(Integer.valueOf(gift.categoryId), db.categoryDao().getIdByName("Hoa tươi"));
+        assertEquals(gift.categoryId, categoryId("SELECT categoryId FROM transactions WHERE description = 'Hoa'"));
+    }
+
+    @Test(expected = SQLiteConstraintException.class)
+    public void unresolvedCategory_failsTheForeignKey() {
+        TransactionEntity orphan = new TransactionEntity("Vé", "Chưa đăng ký", -10_000, new Date(), "expense");
+        db.transactionDao().insert(orphan); // Bypasses the repository, so nothing registers the name
+    }
+
+    private int categoryId(String sql) {
+        try (Cursor cursor = db.query(sql, null)) {
+            assertTrue(sql, cursor.moveToFirst());
+            return cursor.getInt(0);
+        }
+    }
+}
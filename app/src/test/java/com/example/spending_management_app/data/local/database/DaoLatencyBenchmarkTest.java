@@ -0,0 +1,413 @@
+package com.example.spending_management_app.data.local.database;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.Observer;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.dao.BudgetDao;
+import com.example.spending_management_app.data.local.dao.CategoryBudgetDao;
+import com.example.spending_management_app.data.local.dao.TransactionDao;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.DateBuckets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * p95 latency of every TransactionDao, BudgetDao and CategoryBudgetDao method on a SyntheticDataset,
+ * against an in-memory and an on-disk (WAL) database
+ * Fails when a method's p95 exceeds its baseline in dao-latency-baselines.properties by more than
+ * TOLERANCE, or has no baseline. Measured values are always written to
+ * build/dao-latency/baselines.properties
+ *
+ * Runs only when asked for, with the scales to measure (default 1000,10000):
+ *     ./gradlew :app:testDebugUnitTest --tests '*DaoLatencyBenchmarkTest' -PdaoBenchScales=1000,10000,100000,1000000
+ * Add -PdaoBenchRecord to record baselines: nothing fails, and the measured values are merged into
+ * src/test/resources/dao-latency-baselines.properties, ready to commit
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class DaoLatencyBenchmarkTest {
+
+    static final double TOLERANCE = 1.5; // Allowed p95 growth over the baseline
+    static final long SLACK_MICROS = 200; // Absolute headroom, so sub-millisecond queries don't flake
+    static final boolean RECORDING = Boolean.getBoolean("dao.bench.record");
+
+    private static final String BASELINES = "/dao-latency-baselines.properties";
+    private static final File RESULTS = new File("build/dao-latency/baselines.properties");
+    private static final File BASELINES_SOURCE = new File("src/test/resources/dao-latency-baselines.properties");
+    private static final String BASELINES_HEADER = "# p95 latency baselines in microseconds for DaoLatencyBenchmarkTest\n"
+            + "# Key: <memory|disk>.<transactions>.<Dao>.<method>\n"
+            + "# Recorded on the reference machine by running the benchmark with -PdaoBenchRecord, which rewrites\n"
+            + "# this file; add -PdaoBenchScales=1000,10000,100000,1000000 for the larger sets\n";
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutor = new InstantTaskExecutorRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String store;
+    private final int scale;
+    private final List<String> report = new ArrayList<>();
+    private final List<String> regressions = new ArrayList<>();
+    private final Properties measured = new Properties();
+    private Properties baselines;
+
+    private AppDatabase db;
+    private SyntheticDataset dataset;
+
+    public DaoLatencyBenchmarkTest(String store, int scale) {
+        this.store = store;
+        this.scale = scale;
+    }
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{0} {1}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (String scale : System.getProperty("dao.bench.scales", "1000,10000").split(",")) {
+            parameters.add(new Object[]{"memory", Integer.parseInt(scale.trim())});
+            parameters.add(new Object[]{"disk", Integer.parseInt(scale.trim())});
+        }
+        return parameters;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        Context context = ApplicationProvider.getApplicationContext();
+        RoomDatabase.Builder<AppDatabase> builder = "memory".equals(store)
+                ? Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                : Room.databaseBuilder(context, AppDatabase.class, new File(folder.getRoot(), "bench.db").getPath())
+                        .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING);
+        // Same schema and category seeding as the app; queries run on the calling thread so timings are the query alone
+        db = builder.addCallback(AppDatabase.CATEGORY_CALLBACK)
+                .allowMainThreadQueries()
+                .setQueryExecutor(Runnable::run)
+                .setTransactionExecutor(Runnable::run)
+                .build();
+        dataset = new SyntheticDataset(scale);
+        dataset.populate(db);
+        baselines = loadBaselines();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+    }
+
+    @Test
+    public void p95WithinBaselines() throws IOException {
+        benchmarkTransactionDao(db.transactionDao());
+        benchmarkBudgetDao(db.budgetDao());
+        benchmarkCategoryBudgetDao(db.categoryBudgetDao());
+
+        System.out.println("DAO latency, " + store + ", " + scale + " transactions (p50 / p95 µs):");
+        for (String line : report) {
+            System.out.println("  " + line);
+        }
+        saveResults();
+        assertTrue("p95 regressions past baseline ×" + TOLERANCE + " or without one (record with -PdaoBenchRecord):\n"
+                        + String.join("\n", regressions),
+                regressions.isEmpty());
+    }
+
+    private void benchmarkTransactionDao(TransactionDao dao) {
+        int user = SyntheticDataset.PRIMARY_USER;
+        LocalDate last = dataset.lastDay;
+        Date monthStart = SyntheticDataset.toDate(last.withDayOfMonth(1), 0);
+        Date monthEnd = SyntheticDataset.toDate(last.plusDays(1), 0);
+        Date yearStart = SyntheticDataset.toDate(last.minusYears(1), 0);
+        int lastEpochDay = (int) last.toEpochDay();
+        int lastYearMonth = DateBuckets.yearMonth(monthStart);
+        int food = CategoryRegistry.storageIdOf("Ăn uống");
+
+        List<TransactionEntity> inserted = new ArrayList<>();
+        time("TransactionDao.insert", () -> {
+            TransactionEntity row = new TransactionEntity("Bench", food, -50_000, monthStart, "expense");
+            row.setUserId(user);
+            row.id = (int) dao.insert(row);
+            inserted.add(row);
+        });
+        int[] next = {0};
+        time("TransactionDao.update", () -> {
+            TransactionEntity row = inserted.get(next[0]++ % inserted.size());
+            row.amount -= 1_000;
+            dao.update(row);
+        });
+        time("TransactionDao.delete", () -> dao.delete(inserted.remove(inserted.size() - 1)));
+
+        int someId = Math.max(1, scale / 2);
+        time("TransactionDao.getTransactionById", () -> dao.getTransactionById(user, someId));
+        time("TransactionDao.getAllTransactions", () -> dao.getAllTransactions(user));
+        time("TransactionDao.getRecentTransactions", () -> dao.getRecentTransactions(user, 50));
+        time("TransactionDao.getAllExpenses", () -> dao.getAllExpenses(user));
+        time("TransactionDao.getAllIncomes", () -> dao.getAllIncomes(user));
+        time("TransactionDao.getTotalIncome", () -> dao.getTotalIncome(user));
+        time("TransactionDao.getTotalExpense", () -> dao.getTotalExpense(user));
+        time("TransactionDao.getTransactionsByDateRange", () -> dao.getTransactionsByDateRange(user, monthStart, monthEnd));
+        time("TransactionDao.getExpensesByDateRange", () -> dao.getExpensesByDateRange(user, monthStart, monthEnd));
+        time("TransactionDao.getIncomesByDateRange", () -> dao.getIncomesByDateRange(user, yearStart, monthEnd));
+        time("TransactionDao.getTotalExpenseByDateRange", () -> dao.getTotalExpenseByDateRange(user, monthStart, monthEnd));
+        time("TransactionDao.getTotalIncomeByDateRange", () -> dao.getTotalIncomeByDateRange(user, yearStart, monthEnd));
+        time("TransactionDao.getTransactionsByEpochDay", () -> dao.getTransactionsByEpochDay(user, lastEpochDay));
+        time("TransactionDao.getTransactionsByYearMonthRange",
+                () -> dao.getTransactionsByYearMonthRange(user, lastYearMonth - 100, lastYearMonth));
+        time("TransactionDao.getDailySpending", () -> dao.getDailySpending(user, lastEpochDay - 41, lastEpochDay));
+        time("TransactionDao.searchTransactions",
+                () -> dao.searchTransactions(user, "%cà phê%", lastEpochDay - 365, lastEpochDay, 20));
+        time("TransactionDao.getExpenseCountByDateRange", () -> dao.getExpenseCountByDateRange(user, monthStart, monthEnd));
+        time("TransactionDao.getExpensesByCategory", () -> dao.getExpensesByCategory(user, yearStart, monthEnd));
+        time("TransactionDao.getMonthlySpending", () -> dao.getMonthlySpending(user));
+        timeLive("TransactionDao.getMonthlySpendingLive", () -> dao.getMonthlySpendingLive(user));
+        timeLive("TransactionDao.getMonthlySpendingByYearLive", () -> dao.getMonthlySpendingByYearLive(user, last.getYear()));
+        timeLive("TransactionDao.getTotalIncomeLive", () -> dao.getTotalIncomeLive(user));
+        timeLive("TransactionDao.getTotalExpenseLive", () -> dao.getTotalExpenseLive(user));
+        time("TransactionDao.getDistinctYears", () -> dao.getDistinctYears(user));
+    }
+
+    private void benchmarkBudgetDao(BudgetDao dao) {
+        int user = SyntheticDataset.PRIMARY_USER;
+        LocalDate last = dataset.lastDay;
+        Date monthStart = SyntheticDataset.toDate(last.withDayOfMonth(1), 0);
+        Date monthEnd = SyntheticDataset.toDate(last.withDayOfMonth(last.lengthOfMonth()), 24 * 60 - 1);
+        int yearMonth = DateBuckets.yearMonth(monthStart);
+
+        // Writes go to months after the dataset, one new month per sample
+        int[] month = {0};
+        time("BudgetDao.insert", () -> dao.insert(futureBudget(user, 1 + month[0]++)));
+        time("BudgetDao.insertOrIgnore", () -> dao.insertOrIgnore(futureBudget(user, 1 + month[0]++)));
+        time("BudgetDao.upsert", () -> dao.upsert(futureBudget(user, 1 + month[0]++ % 12)));
+        time("BudgetDao.updateLimit", () -> dao.updateLimit(user, yearMonth, 15_000_000, monthStart));
+        List<BudgetEntity> stored = dao.getBudgetsByDateRange(user, monthStart, monthEnd);
+        time("BudgetDao.update", () -> {
+            BudgetEntity budget = stored.get(0);
+            budget.monthlyLimit += 1_000;
+            dao.update(budget);
+        });
+        time("BudgetDao.addCurrentSpent", () -> dao.addCurrentSpent(user, monthStart, monthEnd, 50_000));
+        time("BudgetDao.getAllBudgets", () -> dao.getAllBudgets(user));
+        time("BudgetDao.getBudgetsByDateRange", () -> dao.getBudgetsByDateRange(user, monthStart, monthEnd));
+        time("BudgetDao.getBudgetsByDateRangeOrdered", () -> dao.getBudgetsByDateRangeOrdered(user, monthStart, monthEnd));
+        time("BudgetDao.getTotalBudget", () -> dao.getTotalBudget(user));
+        timeLive("BudgetDao.getTotalBudgetLive", () -> dao.getTotalBudgetLive(user));
+        time("BudgetDao.getTotalBudgetByDateRange", () -> dao.getTotalBudgetByDateRange(user, monthStart, monthEnd));
+
+        List<BudgetEntity> inserted = dao.getBudgetsByDateRange(user,
+                SyntheticDataset.toDate(last.plusMonths(1).withDayOfMonth(1), 0), SyntheticDataset.toDate(last.plusYears(20), 0));
+        time("BudgetDao.delete", () -> {
+            if (!inserted.isEmpty()) {
+                dao.delete(inserted.remove(inserted.size() - 1));
+            }
+        });
+        // Range deletes hit empty months past the data, so every sample does the same index lookup
+        int[] deleteMonth = {0};
+        time("BudgetDao.deleteBudgetsByDateRange", () -> {
+            LocalDate day = last.plusYears(30).plusMonths(deleteMonth[0]++);
+            dao.deleteBudgetsByDateRange(user, SyntheticDataset.toDate(day.withDayOfMonth(1), 0),
+                    SyntheticDataset.toDate(day.withDayOfMonth(day.lengthOfMonth()), 0));
+        });
+    }
+
+    private void benchmarkCategoryBudgetDao(CategoryBudgetDao dao) {
+        int user = SyntheticDataset.PRIMARY_USER;
+        LocalDate last = dataset.lastDay;
+        Date monthStart = SyntheticDataset.toDate(last.withDayOfMonth(1), 0);
+        Date monthEnd = SyntheticDataset.toDate(last.withDayOfMonth(last.lengthOfMonth()), 24 * 60 - 1);
+        int yearMonth = DateBuckets.yearMonth(monthStart);
+        int food = CategoryRegistry.storageIdOf("Ăn uống");
+        int travel = CategoryRegistry.storageIdOf("Du lịch");
+
+        int[] month = {0};
+        List<CategoryBudgetEntity> inserted = new ArrayList<>();
+        time("CategoryBudgetDao.insert", () -> {
+            CategoryBudgetEntity budget = futureCategoryBudget(user, travel, 1 + month[0]++);
+            budget.id = dao.insert(budget);
+            inserted.add(budget);
+        });
+        time("CategoryBudgetDao.insertOrIgnore", () -> dao.insertOrIgnore(
+                Collections.singletonList(futureCategoryBudget(user, travel, 1 + month[0]++))));
+        time("CategoryBudgetDao.upsertAll", () -> dao.upsertAll(Arrays.asList(
+                futureCategoryBudget(user, food, 1 + month[0] % 12), futureCategoryBudget(user, travel, 1 + month[0]++ % 12))));
+        time("CategoryBudgetDao.updateAmount", () -> dao.updateAmount(user, yearMonth, food, 3_000_000));
+        int[] next = {0};
+        time("CategoryBudgetDao.update", () -> {
+            CategoryBudgetEntity budget = inserted.get(next[0]++ % inserted.size());
+            budget.budgetAmount += 1_000;
+            dao.update(budget);
+        });
+        time("CategoryBudgetDao.getCategoryBudgetForMonth", () -> dao.getCategoryBudgetForMonth(user, food, monthStart, monthEnd));
+        time("CategoryBudgetDao.getAllCategoryBudgetsForMonth", () -> dao.getAllCategoryBudgetsForMonth(user, monthStart, monthEnd));
+        time("CategoryBudgetDao.getAllCategories", () -> dao.getAllCategories(user));
+        time("CategoryBudgetDao.delete", () -> {
+            if (!inserted.isEmpty()) {
+                dao.delete(inserted.remove(inserted.size() - 1));
+            }
+        });
+        int[] deleteMonth = {0};
+        time("CategoryBudgetDao.deleteCategories", () -> dao.deleteCategories(user, futureYearMonth(deleteMonth[0]++),
+                Arrays.asList(food, travel)));
+        time("CategoryBudgetDao.deleteAllForMonth", () -> {
+            LocalDate day = last.plusYears(30).plusMonths(deleteMonth[0]++);
+            dao.deleteAllForMonth(user, SyntheticDataset.toDate(day.withDayOfMonth(1), 0),
+                    SyntheticDataset.toDate(day.withDayOfMonth(day.lengthOfMonth()), 0));
+        });
+    }
+
+    private BudgetEntity futureBudget(int user, int monthsAhead) {
+        BudgetEntity budget = new BudgetEntity("Ngân sách tháng", 12_000_000, 0L,
+                SyntheticDataset.toDate(dataset.lastDay.withDayOfMonth(1).plusMonths(monthsAhead), 0));
+        budget.setUserId(user);
+        return budget;
+    }
+
+    private CategoryBudgetEntity futureCategoryBudget(int user, int categoryId, int monthsAhead) {
+        CategoryBudgetEntity budget = new CategoryBudgetEntity(categoryId, 1_000_000,
+                SyntheticDataset.toDate(dataset.lastDay.withDayOfMonth(1).plusMonths(monthsAhead), 0));
+        budget.setUserId(user);
+        return budget;
+    }
+
+    private int futureYearMonth(int monthsAhead) {
+        LocalDate day = dataset.lastDay.plusYears(30).plusMonths(monthsAhead);
+        return DateBuckets.yearMonth(day.getYear(), day.getMonthValue());
+    }
+
+    /**
+     * Warm up, then sample one call at a time
+     */
+    private void time(String method, Runnable call) {
+        int samples = scale >= 1_000_000 ? 10 : scale >= 100_000 ? 20 : 50;
+        for (int i = 0; i < Math.min(5, samples); i++) {
+            call.run();
+        }
+        long[] nanos = new long[samples];
+        for (int i = 0; i < samples; i++) {
+            long start = System.nanoTime();
+            call.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        record(method, nanos);
+    }
+
+    // Time until an observer receives the first value
+    private <T> void timeLive(String method, Supplier<LiveData<T>> query) {
+        Observer<T> observer = value -> { };
+        time(method, () -> {
+            LiveData<T> live = query.get();
+            live.observeForever(observer);
+            live.removeObserver(observer);
+        });
+    }
+
+    private void record(String method, long[] nanos) {
+        Arrays.sort(nanos);
+        long p50 = nanos[nanos.length / 2] / 1_000;
+        long p95 = nanos[(int) Math.ceil(nanos.length * 0.95) - 1] / 1_000;
+        String key = store + "." + scale + "." + method;
+        measured.setProperty(key, Long.toString(p95));
+
+        String baseline = baselines.getProperty(key);
+        String line = String.format(Locale.ROOT, "%-48s %8d %8d", method, p50, p95);
+        if (baseline == null) {
+            report.add(line + "   (no baseline)");
+            if (!RECORDING) {
+                regressions.add(key + ": p95 " + p95 + " µs, no baseline");
+            }
+            return;
+        }
+        long limit = (long) (Long.parseLong(baseline.trim()) * TOLERANCE) + SLACK_MICROS;
+        report.add(line + "   baseline " + baseline.trim());
+        if (p95 > limit && !RECORDING) {
+            regressions.add(key + ": p95 " + p95 + " µs > " + limit + " µs (baseline " + baseline.trim() + ")");
+        }
+    }
+
+    private static Properties loadBaselines() throws IOException {
+        Properties properties = new Properties();
+        try (InputStream in = DaoLatencyBenchmarkTest.class.getResourceAsStream(BASELINES)) {
+            if (in != null) {
+                properties.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        }
+        return properties;
+    }
+
+    // Merge into one file across parameters, so a full run leaves a complete baseline set
+    private void saveResults() throws IOException {
+        synchronized (DaoLatencyBenchmarkTest.class) {
+            Properties all = new Properties();
+            if (RESULTS.exists()) {
+                try (InputStream in = new FileInputStream(RESULTS)) {
+                    all.load(in);
+                }
+            }
+            all.putAll(measured);
+            File directory = RESULTS.getParentFile();
+            if (directory != null && !directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            try (OutputStream out = new FileOutputStream(RESULTS)) {
+                all.store(out, "p95 µs per store.scale.Dao.method, as measured by the last run");
+            }
+            if (RECORDING) {
+                recordBaselines();
+            }
+        }
+    }
+
+    // Merge the measured values into the checked-in baselines, one sorted key per line
+    private void recordBaselines() throws IOException {
+        Properties recorded = new Properties();
+        if (BASELINES_SOURCE.exists()) {
+            try (InputStream in = new FileInputStream(BASELINES_SOURCE)) {
+                recorded.load(new InputStreamReader(in, StandardCharsets.UTF_8));
+            }
+        }
+        recorded.putAll(measured);
+        List<String> keys = new ArrayList<>(recorded.stringPropertyNames());
+        Collections.sort(keys);
+        StringBuilder text = new StringBuilder(BASELINES_HEADER);
+        for (String key : keys) {
+            text.append(key).append('=').append(recorded.getProperty(key).trim()).append('\n');
+        }
+        try (OutputStream out = new FileOutputStream(BASELINES_SOURCE)) {
+            out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.spending_management_app.data.local.database;
+
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.BudgetHistoryEntity;
+import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.local.entity.UserEntity;
+import com.example.spending_management_app.utils.CategoryRegistry;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic users, transactions, budgets and budget history for DAO benchmarks
+ * The same scale and seed always produce the same rows. Transactions cover YEARS years up to a
+ * fixed day, with Tết, year-end and summer peaks and busier weekends; user 1 is the main account
+ * and owns half of them, the others share the rest like family members on one phone
+ */
+public final class SyntheticDataset {
+
+    static final long SEED = 20251015L;
+    static final int YEARS = 3;
+    static final int PRIMARY_USER = 1;
+    static final LocalDate LAST_DAY = LocalDate.of(2025, 10, 15); // Fixed, so datasets don't drift with the clock
+
+    private static final int INSERT_BATCH = 10_000;
+    private static final double INCOME_SHARE = 0.04;
+
+    // key, relative frequency, typical amount (VND), descriptions
+    private static final Object[][] EXPENSE_CATEGORIES = {
+            {"Ăn uống", 30, 60_000L, new String[]{"Ăn sáng", "Ăn trưa", "Cơm tối", "Phở", "Bún chả", "Đi chợ"}},
+            {"Ăn ngoài & Cafe", 14, 55_000L, new String[]{"Cà phê", "Trà sữa", "Highlands", "Bánh mì", "Lẩu cuối tuần"}},
+            {"Di chuyển", 14, 45_000L, new String[]{"Grab", "Đổ xăng", "Gửi xe", "Taxi", "Xe buýt"}},
+            {"Mua sắm", 8, 350_000L, new String[]{"Quần áo", "Shopee", "Giày", "Đồ gia dụng", "Siêu thị"}},
+            {"Tiện ích", 4, 450_000L, new String[]{"Tiền điện", "Tiền nước", "Gas"}},
+            {"Điện thoại & Internet", 3, 200_000L, new String[]{"Cước di động", "Internet FPT"}},
+            {"Giải trí", 5, 150_000L, new String[]{"Xem phim", "Karaoke", "Netflix", "Game"}},
+            {"Sức khỏe & Làm đẹp", 3, 250_000L, new String[]{"Cắt tóc", "Spa", "Mỹ phẩm"}},
+            {"Y tế", 2, 300_000L, new String[]{"Thuốc", "Khám bệnh", "Nha khoa"}},
+            {"Giáo dục", 2, 1_500_000L, new String[]{"Học phí", "Khóa học tiếng Anh"}},
+            {"Sách & Học tập", 1, 150_000L, new String[]{"Sách", "Văn phòng phẩm"}},
+            {"Thể thao", 2, 120_000L, new String[]{"Phòng gym", "Sân cầu lông", "Bơi"}},
+            {"Du lịch", 1, 2_500_000L, new String[]{"Vé máy bay", "Khách sạn", "Tour Đà Lạt"}},
+            {"Quà tặng & Từ thiện", 2, 300_000L, new String[]{"Quà sinh nhật", "Mừng cưới", "Từ thiện"}},
+            {"Hội họp & Tiệc tụng", 2, 400_000L, new String[]{"Liên hoan", "Tiệc công ty", "Nhậu"}},
+            {"Nhà ở", 1, 5_000_000L, new String[]{"Tiền nhà", "Sửa nhà"}},
+            {"Con cái", 2, 400_000L, new String[]{"Sữa", "Tã", "Đồ chơi"}},
+            {"Thú cưng", 1, 200_000L, new String[]{"Thức ăn cho mèo", "Thú y"}},
+            {"Đăng ký & Dịch vụ", 1, 180_000L, new String[]{"Spotify", "iCloud", "YouTube Premium"}},
+            {"Khác", 2, 100_000L, new String[]{"Linh tinh", "Chi khác"}},
+    };
+    private static final String[] BUDGETED = {"Ăn uống", "Ăn ngoài & Cafe", "Di chuyển", "Mua sắm", "Giải trí"};
+
+    final int transactionCount;
+    final int users;
+    final LocalDate firstDay;
+    final LocalDate lastDay = LAST_DAY;
+
+    private final int[] categoryIds = new int[EXPENSE_CATEGORIES.length];
+    private final double[] cumulativeWeights = new double[EXPENSE_CATEGORIES.length];
+    private final double[] dayWeights;
+    private final double totalDayWeight;
+
+    public SyntheticDataset(int transactionCount) {
+        this.transactionCount = transactionCount;
+        this.users = Math.max(1, Math.min(10, transactionCount / 1_000));
+        this.firstDay = LAST_DAY.minusYears(YEARS).plusDays(1);
+
+        double total = 0;
+        for (int i = 0; i < EXPENSE_CATEGORIES.length; i++) {
+            categoryIds[i] = CategoryRegistry.storageIdOf((String) EXPENSE_CATEGORIES[i][0]);
+            total += (int) EXPENSE_CATEGORIES[i][1];
+            cumulativeWeights[i] = total;
+        }
+
+        int days = (int) ChronoUnit.DAYS.between(firstDay, lastDay) + 1;
+        dayWeights = new double[days];
+        double sum = 0;
+        for (int i = 0; i < days; i++) {
+            sum += seasonalWeight(firstDay.plusDays(i));
+            dayWeights[i] = sum;
+        }
+        totalDayWeight = sum;
+    }
+
+    /**
+     * Insert everything in batched transactions
+     */
+    public void populate(AppDatabase db) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        db.runInTransaction(() -> {
+            for (int user = 1; user <= users; user++) {
+                UserEntity entity = new UserEntity("user" + user + "@example.com", "hash", "User " + user, null);
+                entity.setCreatedAt(toDate(firstDay, 9 * 60));
+                db.userDao().insert(entity);
+            }
+        });
+
+        List<TransactionEntity> batch = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < transactionCount; i++) {
+            batch.add(transaction(random));
+            if (batch.size() == INSERT_BATCH || i == transactionCount - 1) {
+                List<TransactionEntity> rows = batch;
+                db.runInTransaction(() -> {
+                    for (TransactionEntity row : rows) {
+                        db.transactionDao().insert(row);
+                    }
+                });
+                batch = new ArrayList<>(INSERT_BATCH);
+            }
+        }
+
+        db.runInTransaction(() -> {
+            for (int user = 1; user <= users; user++) {
+                budgets(db, user, random);
+            }
+        });
+    }
+
+    private TransactionEntity transaction(SplittableRandom random) {
+        // Half of the rows belong to the main account
+        int userId = users == 1 || random.nextBoolean() ? PRIMARY_USER : 2 + random.nextInt(users - 1);
+        LocalDate day = day(random);
+        TransactionEntity transaction;
+        if (random.nextDouble() < INCOME_SHARE) {
+            boolean salary = random.nextDouble() < 0.7;
+            long amount = roundThousands(salary ? 18_000_000 * lognormal(random, 0.15) : 2_000_000 * lognormal(random, 0.8));
+            transaction = new TransactionEntity(salary ? "Lương tháng" : "Thu nhập thêm",
+                    CategoryRegistry.storageIdOf(salary ? "Lương" : "Thu nhập phụ"), amount,
+                    toDate(day, 8 * 60 + random.nextInt(10 * 60)), "income");
+        } else {
+            int category = category(random);
+            Object[] row = EXPENSE_CATEGORIES[category];
+            String[] descriptions = (String[]) row[3];
+            long amount = roundThousands((long) row[2] * lognormal(random, 0.6));
+            transaction = new TransactionEntity(descriptions[random.nextInt(descriptions.length)], categoryIds[category],
+                    -amount, toDate(day, 6 * 60 + random.nextInt(17 * 60)), "expense");
+        }
+        transaction.setUserId(userId);
+        return transaction;
+    }
+
+    // A monthly budget and category budgets for every month, with the history the app writes for them
+    private void budgets(AppDatabase db, int userId, SplittableRandom random) {
+        for (YearMonth month = YearMonth.from(firstDay); !month.isAfter(YearMonth.from(lastDay)); month = month.plusMonths(1)) {
+            Date start = toDate(month.atDay(1), 0);
+            long limit = roundThousands(12_000_000 * lognormal(random, 0.2));
+            BudgetEntity budget = new BudgetEntity("Ngân sách tháng", limit, 0L, start);
+            budget.setUserId(userId);
+            db.budgetDao().insert(budget);
+            history(db, userId, null, "create", "monthly", limit, start);
+            if (random.nextDouble() < 0.3) {
+                long raised = roundThousands(limit * 1.1);
+                db.budgetDao().updateLimit(userId, budget.yearMonth, raised, start);
+                history(db, userId, null, "update", "monthly", raised, toDate(month.atDay(10), 20 * 60));
+            }
+
+            List<CategoryBudgetEntity> categoryBudgets = new ArrayList<>();
+            for (String category : BUDGETED) {
+                long amount = roundThousands(limit * (0.08 + random.nextDouble() * 0.2));
+                CategoryBudgetEntity categoryBudget = new CategoryBudgetEntity(CategoryRegistry.storageIdOf(category), amount, start);
+                categoryBudget.setUserId(userId);
+                categoryBudgets.add(categoryBudget);
+                history(db, userId, categoryBudget.categoryId, "create", "category", amount, start);
+            }
+            db.categoryBudgetDao().upsertAll(categoryBudgets);
+        }
+    }
+
+    private static void history(AppDatabase db, int userId, Integer categoryId, String action, String type,
+                                long amount, Date date) {
+        BudgetHistoryEntity history = new BudgetHistoryEntity(categoryId, action, type, amount, date,
+                action + " " + type + " budget " + amount);
+        history.setUserId(userId);
+        db.budgetHistoryDao().insert(history);
+    }
+
+    private LocalDate day(SplittableRandom random) {
+        double target = random.nextDouble() * totalDayWeight;
+        int low = 0;
+        int high = dayWeights.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (dayWeights[mid] < target) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return firstDay.plusDays(low);
+    }
+
+    private int category(SplittableRandom random) {
+        double target = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (target < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        return cumulativeWeights.length - 1;
+    }
+
+    // Tết (late January, February), year-end and summer holidays spend more; weekends more than weekdays
+    static double seasonalWeight(LocalDate day) {
+        double weight;
+        switch (day.getMonth()) {
+            case JANUARY:
+            case FEBRUARY:
+                weight = 1.4;
+                break;
+            case DECEMBER:
+                weight = 1.25;
+                break;
+            case JUNE:
+            case JULY:
+            case AUGUST:
+                weight = 1.1;
+                break;
+            default:
+                weight = 1.0;
+        }
+        DayOfWeek dayOfWeek = day.getDayOfWeek();
+        if (dayOfWeek == DayOfWeek.SATURDAY || dayOfWeek == DayOfWeek.SUNDAY) {
+            weight *= 1.3;
+        }
+        return weight;
+    }
+
+    private static double lognormal(SplittableRandom random, double sigma) {
+        // Box-Muller; amounts are skewed, a few large purchases among many small ones
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        double gaussian = Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+        return Math.exp(gaussian * sigma - sigma * sigma / 2);
+    }
+
+    private static long roundThousands(double amount) {
+        return Math.max(1_000, Math.round(amount / 1_000) * 1_000);
+    }
+
+    static Date toDate(LocalDate day, int minuteOfDay) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).plusMinutes(minuteOfDay).toInstant());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.spending_management_app.data.local.database;
+
+import android.content.Context;
+
+import androidx.room.Room;
+
+import java.util.concurrent.Executor;
+
+/**
+ * In-memory databases and write queues for tests outside this package
+ */
+public final class TestDatabases {
+
+    private TestDatabases() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Same schema and category seeding as the app; the test thread may query it directly
+     */
+    public static AppDatabase inMemory(Context context) {
+        return Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .addCallback(AppDatabase.CATEGORY_CALLBACK)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    public static UserWriteQueue writeQueue(AppDatabase db, Executor writers) {
+        return new UserWriteQueue(db::runInTransaction, userId -> { }, writers, UserWriteQueue.MAX_BATCH);
+    }
+}
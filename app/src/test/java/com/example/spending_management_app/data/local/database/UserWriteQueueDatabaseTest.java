@@ -0,0 +1,178 @@
+package com.example.spending_management_app.data.local.database;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * UserWriteQueue on an in-memory Room database: group commits use real SQLite transactions,
+ * so rollback and visibility are the database's, not a fake's
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class UserWriteQueueDatabaseTest {
+
+    private AppDatabase db;
+    private ExecutorService writers;
+    private ExecutorService readers;
+    private final AtomicInteger groups = new AtomicInteger();
+    private final List<Integer> rolledBackUsers = Collections.synchronizedList(new ArrayList<>());
+    private UserWriteQueue queue;
+
+    @Before
+    public void setUp() {
+        db = TestDatabases.inMemory(ApplicationProvider.getApplicationContext());
+        writers = Executors.newCachedThreadPool();
+        readers = Executors.newSingleThreadExecutor();
+        queue = new UserWriteQueue(body -> {
+            groups.incrementAndGet();
+            db.runInTransaction(body);
+        }, rolledBackUsers::add, writers, UserWriteQueue.MAX_BATCH);
+    }
+
+    @After
+    public void tearDown() {
+        writers.shutdownNow();
+        readers.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void failedCommand_rollsBackOnlyItsOwnGroup() throws Exception {
+        queue.execute(1, () -> insert(1, "before")).get(5, TimeUnit.SECONDS);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = queue.execute(1, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Queued behind the blocker, so these three form one group
+        CompletableFuture<Void> first = queue.execute(1, () -> insert(1, "first"));
+        CompletableFuture<Void> bad = queue.execute(1, () -> db.runInTransaction(() -> {
+            insert(1, "bad");
+            throw new IllegalStateException("boom");
+        }));
+        CompletableFuture<Void> second = queue.execute(1, () -> insert(1, "second"));
+
+        // Another user's lane isn't held up by the blocked one
+        queue.execute(2, () -> insert(2, "other")).get(5, TimeUnit.SECONDS);
+
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("Expected the failing command to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // The failed group was rolled back once and its good commands re-ran alone; the bad one
+        // rolled back its own transaction, and the earlier group and the other user kept their rows
+        assertEquals(List.of("before", "first", "second"), descriptions(1));
+        assertEquals(List.of("other"), descriptions(2));
+        assertEquals(List.of(1), rolledBackUsers);
+        assertEquals(4, groups.get()); // before, other, blocker, and the failed group
+    }
+
+    @Test
+    public void afterCommit_runsOnceTheGroupIsVisible() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        queue.execute(1, () -> {
+            started.countDown();
+            await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Queued behind the blocker, so the three rows commit as one group
+        CompletableFuture<Boolean> inTransaction = new CompletableFuture<>();
+        CompletableFuture<List<String>> seenByReader = new CompletableFuture<>();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        futures.add(queue.execute(1, () -> {
+            insert(1, "row0");
+            UserWriteQueue.afterCommit(Runnable::run, () -> inTransaction.complete(db.inTransaction()));
+            UserWriteQueue.afterCommit(readers, () -> seenByReader.complete(descriptions(1)));
+        }));
+        futures.add(queue.execute(1, () -> insert(1, "row1")));
+        futures.add(queue.execute(1, () -> insert(1, "row2")));
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        // Registered by the first command, yet run after the later commands of its group committed
+        assertFalse(inTransaction.get(5, TimeUnit.SECONDS));
+        assertEquals(List.of("row0", "row1", "row2"), seenByReader.get(5, TimeUnit.SECONDS));
+        assertEquals(2, groups.get());
+    }
+
+    @Test
+    public void rolledBackGroup_runsAfterCommitActionsOnlyForTheSoloRerun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CompletableFuture<List<String>> seen = new CompletableFuture<>();
+        queue.execute(3, () -> {
+            insert(3, "kept");
+            UserWriteQueue.afterCommit(readers, () -> {
+                runs.incrementAndGet();
+                seen.complete(descriptions(3));
+            });
+            UserWriteQueue.markRollbackOnly();
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("kept"), seen.get(5, TimeUnit.SECONDS));
+        readers.submit(() -> { }).get(5, TimeUnit.SECONDS); // Drain anything else queued for the reader
+        assertEquals(1, runs.get());
+        assertEquals(List.of("kept"), descriptions(3));
+        assertEquals(List.of(3), rolledBackUsers);
+    }
+
+    private void insert(int userId, String description) {
+        TransactionEntity row = new TransactionEntity(description, "Ăn uống", -1000, new Date(), "expense");
+        row.setUserId(userId);
+        db.transactionDao().insert(row);
+    }
+
+    private List<String> descriptions(int userId) {
+        List<String> descriptions = new ArrayList<>();
+        List<TransactionEntity> rows = db.transactionDao().getAllTransactions(userId);
+        rows.sort((a, b) -> Integer.compare(a.id, b.id));
+        for (TransactionEntity row : rows) {
+            descriptions.add(row.description);
+        }
+        return descriptions;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.example.spending_management_app.data.local.database;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for UserWriteQueue against an in-memory store with SQLite-like transactions:
+ * one writer at a time, changes visible only after commit, full rollback on failure
+ */
+public class UserWriteQueueTest {
+
+    private final FakeDatabase db = new FakeDatabase();
+    private final List<Integer> rolledBackUsers = Collections.synchronizedList(new ArrayList<>());
+    private final ExecutorService writers = Executors.newCachedThreadPool();
+    private final UserWriteQueue queue = new UserWriteQueue(db, rolledBackUsers::add, writers, UserWriteQueue.MAX_BATCH);
+
+    @After
+    public void tearDown() {
+        writers.shutdownNow();
+    }
+
+    @Test
+    public void stress_concurrentReadModifyWritesKeepEveryUpdate() throws Exception {
+        int users = 8;
+        int commandsPerUser = 400;
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        long[] expected = new long[users];
+        for (int user = 0; user < users; user++) {
+            for (int i = 1; i <= commandsPerUser; i++) {
+                expected[user] += i;
+            }
+        }
+
+        CountDownLatch submitted = new CountDownLatch(users * commandsPerUser);
+        for (int user = 0; user < users; user++) {
+            for (int i = 1; i <= commandsPerUser; i++) {
+                int userId = user;
+                long amount = i;
+                callers.execute(() -> {
+                    // Classic lost-update shape: read, yield, write back
+                    futures.add(queue.execute(userId, () -> {
+                        long balance = db.get(userId);
+                        Thread.yield();
+                        db.put(userId, balance + amount);
+                    }));
+                    submitted.countDown();
+                });
+            }
+        }
+        assertTrue(submitted.await(10, TimeUnit.SECONDS));
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        callers.shutdown();
+
+        for (int user = 0; user < users; user++) {
+            assertEquals(expected[user], db.committed(user));
+        }
+        // Every group committed, each user needed at least one, and no group held more than MAX_BATCH commands
+        assertEquals(db.transactions.get(), db.commits.get());
+        assertTrue(rolledBackUsers.isEmpty());
+        assertTrue(db.commits.get() >= users);
+        assertTrue(db.commits.get() >= (users * commandsPerUser + UserWriteQueue.MAX_BATCH - 1) / UserWriteQueue.MAX_BATCH);
+        assertTrue(db.commits.get() <= users * commandsPerUser);
+    }
+
+    @Test
+    public void queuedCommands_shareGroupCommits() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> blocker = queue.execute(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(queue.execute(1, () -> db.put(1, db.get(1) + 1)));
+        }
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(50, db.committed(1));
+        // The blocker alone, then 50 waiting commands in groups of MAX_BATCH
+        assertEquals(1 + (50 + UserWriteQueue.MAX_BATCH - 1) / UserWriteQueue.MAX_BATCH, db.commits.get());
+    }
+
+    @Test
+    public void commandsOfOneUser_runInSubmissionOrder() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int index = i;
+            futures.add(queue.execute(3, () -> order.add(index)));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    @Test
+    public void failingCommand_doesNotLoseTheRestOfItsGroup() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        queue.execute(2, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger afterCommitRuns = new AtomicInteger();
+        List<CompletableFuture<Void>> good = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            good.add(queue.execute(2, () -> {
+                db.put(2, db.get(2) + 10);
+                UserWriteQueue.afterCommit(Runnable::run, afterCommitRuns::incrementAndGet);
+            }));
+        }
+        CompletableFuture<Void> bad = queue.execute(2, () -> {
+            db.put(2, db.get(2) + 1000);
+            throw new IllegalArgumentException("boom");
+        });
+        release.countDown();
+
+        CompletableFuture.allOf(good.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+        try {
+            bad.get(5, TimeUnit.SECONDS);
+            fail("Expected the failing command to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        }
+
+        // The group rolled back, then every command re-ran on its own outside a group transaction,
+        // where (as before the queue existed) the bad command's write before throwing is kept
+        assertEquals(10, afterCommitRuns.get());
+        assertTrue(rolledBackUsers.contains(2));
+        assertEquals(10 * 10 + 1000, db.committed(2));
+    }
+
+    @Test
+    public void rollbackOnly_discardsAfterCommitActionsOfTheFailedAttempt() throws Exception {
+        AtomicInteger uiUpdates = new AtomicInteger();
+        queue.execute(4, () -> {
+            db.put(4, db.get(4) + 5);
+            UserWriteQueue.afterCommit(Runnable::run, uiUpdates::incrementAndGet);
+            UserWriteQueue.markRollbackOnly();
+        }).get(5, TimeUnit.SECONDS);
+
+        // First attempt rolled back without running its action, the solo re-run ran it once
+        assertEquals(1, uiUpdates.get());
+        assertEquals(5, db.committed(4));
+    }
+
+    @Test
+    public void afterCommit_seesCommittedData() throws Exception {
+        CompletableFuture<Long> seen = new CompletableFuture<>();
+        queue.execute(5, () -> {
+            db.put(5, 42);
+            UserWriteQueue.afterCommit(Runnable::run, () -> seen.complete(db.committed(5)));
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals(42L, (long) seen.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void nestedSubmit_isQueuedOnlyAfterCommit() throws Exception {
+        CompletableFuture<CompletableFuture<Long>> nested = new CompletableFuture<>();
+        queue.execute(6, () -> {
+            db.put(6, 1);
+            nested.complete(queue.submit(6, () -> db.get(6)));
+        }).get(5, TimeUnit.SECONDS);
+        assertEquals(1L, (long) nested.get().get(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Map-backed store: writes inside a transaction go to a working copy that replaces the
+     * committed state on success and is dropped on failure
+     */
+    private static class FakeDatabase implements UserWriteQueue.Transactor {
+        private final Object writeLock = new Object();
+        private final Map<Integer, Long> committed = new HashMap<>();
+        private final ThreadLocal<Map<Integer, Long>> working = new ThreadLocal<>();
+        final AtomicInteger transactions = new AtomicInteger();
+        final AtomicInteger commits = new AtomicInteger();
+
+        @Override
+        public void runInTransaction(Runnable body) {
+            synchronized (writeLock) {
+                transactions.incrementAndGet();
+                Map<Integer, Long> copy;
+                synchronized (committed) {
+                    copy = new HashMap<>(committed);
+                }
+                working.set(copy);
+                try {
+                    body.run();
+                    synchronized (committed) {
+                        committed.clear();
+                        committed.putAll(copy);
+                    }
+                    commits.incrementAndGet();
+                } finally {
+                    working.remove();
+                }
+            }
+        }
+
+        long get(int userId) {
+            Map<Integer, Long> tx = working.get();
+            if (tx != null) {
+                return tx.getOrDefault(userId, 0L);
+            }
+            return committed(userId);
+        }
+
+        void put(int userId, long value) {
+            Map<Integer, Long> tx = working.get();
+            if (tx != null) {
+                tx.put(userId, value);
+            } else {
+                synchronized (committed) {
+                    committed.put(userId, value);
+                }
+            }
+        }
+
+        long committed(int userId) {
+            synchronized (committed) {
+                return committed.getOrDefault(userId, 0L);
+            }
+        }
+    }
+}
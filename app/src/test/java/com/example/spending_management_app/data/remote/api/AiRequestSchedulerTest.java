@@ -0,0 +1,349 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AiRequestSchedulerTest {
+
+    /**
+     * Scripted stand-in for the Gemini endpoint: answers each POST with the next queued reply
+     * (200 echoing the body when the script is empty) and records what arrived
+     */
+    private static final class MockServer {
+        final HttpServer server;
+        final BlockingQueue<int[]> script = new LinkedBlockingQueue<>(); // {status, delayMillis, retryAfterSeconds}
+        final List<String> received = Collections.synchronizedList(new ArrayList<>());
+        final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+
+        MockServer() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/generate", exchange -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                String body = read(exchange.getRequestBody());
+                received.add(body);
+                arrivals.add(System.nanoTime() / 1_000_000);
+                int[] reply = script.poll();
+                int status = reply != null ? reply[0] : 200;
+                try {
+                    if (reply != null && reply[1] > 0) {
+                        Thread.sleep(reply[1]);
+                    }
+                } catch (InterruptedException ignored) {
+                }
+                if (reply != null && reply[2] >= 0) {
+                    exchange.getResponseHeaders().add("Retry-After", String.valueOf(reply[2]));
+                }
+                byte[] bytes = ("{\"echo\":\"" + body + "\"}").getBytes(StandardCharsets.UTF_8);
+                active.decrementAndGet();
+                try {
+                    exchange.sendResponseHeaders(status, bytes.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(bytes);
+                    }
+                } catch (IOException ignored) {
+                    // Client went away (cancelled)
+                }
+            });
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort() + "/generate";
+        }
+
+        void reply(int status, int delayMillis, int retryAfterSeconds) {
+            script.add(new int[]{status, delayMillis, retryAfterSeconds});
+        }
+    }
+
+    /**
+     * Transport on HttpURLConnection, one thread per request like OkHttp's dispatcher
+     */
+    static final class UrlConnectionTransport implements AiRequestScheduler.Transport {
+        final ExecutorService pool = Executors.newCachedThreadPool();
+
+        @Override
+        public AiRequestScheduler.Exchange send(String url, String body, AiRequestScheduler.ExchangeCallback callback) {
+            HttpURLConnection[] connection = new HttpURLConnection[1];
+            pool.execute(() -> {
+                try {
+                    HttpURLConnection http = (HttpURLConnection) new URL(url).openConnection();
+                    synchronized (connection) {
+                        connection[0] = http;
+                    }
+                    http.setDoOutput(true);
+                    http.setRequestMethod("POST");
+                    try (OutputStream out = http.getOutputStream()) {
+                        out.write(body.getBytes(StandardCharsets.UTF_8));
+                    }
+                    int code = http.getResponseCode();
+                    InputStream stream = code < 400 ? http.getInputStream() : http.getErrorStream();
+                    try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                        callback.onResponse(code, AiRequestScheduler.parseRetryAfter(http.getHeaderField("Retry-After")), reader);
+                    }
+                } catch (IOException e) {
+                    callback.onFailure(e);
+                }
+            });
+            return () -> {
+                synchronized (connection) {
+                    if (connection[0] != null) {
+                        connection[0].disconnect();
+                    }
+                }
+            };
+        }
+    }
+
+    /**
+     * Records outcomes; counts down once per callback
+     */
+    private static final class Recorder implements AiRequestScheduler.ResponseHandler {
+        final List<String> bodies = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> failures = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch done;
+
+        Recorder(int expected) {
+            done = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) throws IOException {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[256];
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                text.append(buffer, 0, read);
+            }
+            bodies.add(text.toString());
+            done.countDown();
+        }
+
+        @Override
+        public void onFailure(int code, IOException error) {
+            failures.add(code);
+            done.countDown();
+        }
+
+        boolean await() throws InterruptedException {
+            return done.await(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private MockServer server;
+    private UrlConnectionTransport transport;
+    private ScheduledExecutorService timer;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockServer();
+        transport = new UrlConnectionTransport();
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        server.server.stop(0);
+        transport.pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private AiRequestScheduler scheduler(int maxConcurrent, int burst, long refillMillis, int maxAttempts) {
+        return new AiRequestScheduler(transport, timer, maxConcurrent, burst, refillMillis, 20, 200, maxAttempts);
+    }
+
+    @Test
+    public void conversation_isSingleFlightAndDropsDuplicates() throws Exception {
+        AiRequestScheduler scheduler = scheduler(4, 10, 10, 1);
+        Object chat = new Object();
+        Recorder recorder = new Recorder(2);
+        server.reply(200, 150, -1);
+
+        assertNotNull(scheduler.submit(chat, "hi", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "a", recorder));
+        // Double tap and voice re-trigger of the same message while it is pending
+        assertNull(scheduler.submit(chat, "hi", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "a2", recorder));
+        assertNotNull(scheduler.submit(chat, "next", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "b", recorder));
+
+        assertTrue(recorder.await());
+        assertEquals(List.of("a", "b"), server.received); // In order, never together
+        assertEquals(1, server.maxActive.get());
+
+        // Once answered, the same text may be sent again
+        Recorder again = new Recorder(1);
+        assertNotNull(scheduler.submit(chat, "hi", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "a3", again));
+        assertTrue(again.await());
+    }
+
+    @Test
+    public void cancelConversation_abortsInFlightAndQueuedWithoutCallbacks() throws Exception {
+        AiRequestScheduler scheduler = scheduler(4, 10, 10, 1);
+        Object chat = new Object();
+        Recorder recorder = new Recorder(1);
+        server.reply(200, 400, -1);
+
+        scheduler.submit(chat, "one", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "one", recorder);
+        scheduler.submit(chat, "two", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "two", recorder);
+        Thread.sleep(100); // "one" is on the wire
+        scheduler.cancelConversation(chat);
+
+        assertFalse(recorder.done.await(700, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("one"), server.received);
+
+        // Other chats are unaffected and the slot was released
+        Recorder other = new Recorder(1);
+        scheduler.submit(new Object(), "x", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "x", other);
+        assertTrue(other.await());
+    }
+
+    @Test
+    public void interactive_goesBeforeQueuedBackgroundWork() throws Exception {
+        AiRequestScheduler scheduler = scheduler(1, 10, 10, 1);
+        Recorder recorder = new Recorder(4);
+        server.reply(200, 150, -1);
+
+        scheduler.submit(new Object(), null, AiRequestScheduler.Lane.INTERACTIVE, server.url(), "busy", recorder);
+        scheduler.submit(null, null, AiRequestScheduler.Lane.BACKGROUND, server.url(), "summary", recorder);
+        scheduler.submit(new Object(), null, AiRequestScheduler.Lane.INTERACTIVE, server.url(), "chat1", recorder);
+        scheduler.submit(new Object(), null, AiRequestScheduler.Lane.INTERACTIVE, server.url(), "chat2", recorder);
+
+        assertTrue(recorder.await());
+        assertEquals(List.of("busy", "chat1", "chat2", "summary"), server.received);
+    }
+
+    @Test
+    public void throttled_retriesWithBackoffThenSucceeds() throws Exception {
+        AiRequestScheduler scheduler = scheduler(2, 10, 10, 4);
+        Recorder recorder = new Recorder(1);
+        server.reply(429, 0, 0);
+        server.reply(503, 0, -1);
+
+        long start = System.nanoTime();
+        scheduler.submit(new Object(), "q", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "q", recorder);
+
+        assertTrue(recorder.await());
+        assertEquals(1, recorder.bodies.size());
+        assertTrue(recorder.failures.isEmpty());
+        assertEquals(3, server.received.size());
+        // Two backoffs of at least half of 20 ms and 40 ms
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 30);
+    }
+
+    @Test
+    public void throttled_givesUpAfterMaxAttemptsAndHonoursRetryAfter() throws Exception {
+        AiRequestScheduler scheduler = scheduler(2, 10, 10, 2);
+        Recorder recorder = new Recorder(1);
+        server.reply(429, 0, 1); // Retry-After: 1 s beats the 20 ms backoff
+        server.reply(503, 0, -1);
+
+        scheduler.submit(new Object(), "q", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "q", recorder);
+
+        assertTrue(recorder.await());
+        assertEquals(List.of(503), recorder.failures);
+        assertEquals(2, server.arrivals.size());
+        assertTrue(server.arrivals.get(1) - server.arrivals.get(0) >= 950);
+    }
+
+    @Test
+    public void tokenBucket_limitsBurstThenRefills() throws Exception {
+        AiRequestScheduler scheduler = scheduler(4, 2, 300, 1);
+        Recorder recorder = new Recorder(4);
+
+        long start = System.nanoTime() / 1_000_000;
+        for (int i = 0; i < 4; i++) {
+            scheduler.submit(new Object(), null, AiRequestScheduler.Lane.INTERACTIVE, server.url(), "r" + i, recorder);
+        }
+
+        assertTrue(recorder.await());
+        List<Long> arrivals = new ArrayList<>(server.arrivals);
+        Collections.sort(arrivals);
+        assertTrue(arrivals.get(1) - start < 290); // Burst of two
+        assertTrue(arrivals.get(2) - start >= 290); // Then one per refill interval
+        assertTrue(arrivals.get(3) - start >= 590);
+    }
+
+    @Test
+    public void cancel_duringBackoffFreesTheConversation() throws Exception {
+        // Backoff of at least 250 ms after the 503
+        AiRequestScheduler scheduler = new AiRequestScheduler(transport, timer, 2, 10, 10, 500, 1_000, 4);
+        Object chat = new Object();
+        Recorder recorder = new Recorder(1);
+        server.reply(503, 0, -1);
+
+        AiRequestScheduler.Ticket ticket = scheduler.submit(chat, "q", AiRequestScheduler.Lane.INTERACTIVE,
+                server.url(), "q", recorder);
+        Thread.sleep(150); // Answered 503, waiting to retry
+        ticket.cancel();
+
+        assertFalse(recorder.done.await(700, TimeUnit.MILLISECONDS));
+        assertEquals(List.of("q"), server.received);
+
+        Recorder next = new Recorder(1);
+        assertNotNull(scheduler.submit(chat, "q", AiRequestScheduler.Lane.INTERACTIVE, server.url(), "q2", next));
+        assertTrue(next.await());
+    }
+
+    @Test
+    public void transportError_failsOffTheSubmittingThread() throws Exception {
+        AiRequestScheduler.Transport broken = (url, body, callback) -> {
+            throw new IllegalStateException("no client");
+        };
+        AiRequestScheduler scheduler = new AiRequestScheduler(broken, timer, 2, 10, 10, 20, 200, 1);
+        Thread caller = Thread.currentThread();
+        List<Thread> failedOn = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch failed = new CountDownLatch(1);
+
+        assertNotNull(scheduler.submit(new Object(), "q", AiRequestScheduler.Lane.INTERACTIVE, "http://stand-in", "q",
+                new AiRequestScheduler.ResponseHandler() {
+                    @Override
+                    public void onResponse(AiRequestScheduler.Ticket ticket, Reader body) {
+                    }
+
+                    @Override
+                    public void onFailure(int code, IOException error) {
+                        failedOn.add(Thread.currentThread());
+                        failed.countDown();
+                    }
+                }));
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertNotSame(caller, failedOn.get(0));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.example.spending_management_app.domain.usecase.ai.AiSystemInstructions;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.*;
+
+public class GeminiContextCacheTest {
+
+    private static final String KEY = "financial|vi|VND|2025-11-02";
+    private static final String TOOLS = "[{\"functionDeclarations\":[{\"name\":\"getTotals\",\"parameters\":"
+            + "{\"type\":\"OBJECT\",\"properties\":{\"from\":{\"type\":\"STRING\"},\"to\":{\"type\":\"STRING\"}}}}]}]";
+    private static final String CONTENTS = "[{\"role\":\"user\",\"parts\":[{\"text\":\"Tháng này tôi chi bao nhiêu?\"}]}]";
+
+    private HttpServer server;
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final BlockingQueue<Integer> statuses = new LinkedBlockingQueue<>(); // 200 when empty
+    private final AtomicLong now = new AtomicLong(1_762_000_000_000L);
+    private final AtomicInteger expiresInMillis = new AtomicInteger(3_600_000);
+    private final AtomicInteger builds = new AtomicInteger();
+    private AiRequestSchedulerTest.UrlConnectionTransport transport;
+    private ScheduledExecutorService timer;
+    private GeminiContextCache cache;
+
+    private final Supplier<String> instruction = () -> {
+        builds.incrementAndGet();
+        return AiSystemInstructions.getFinancialAnalysisInstruction("Hôm nay là ngày 2/11/2025 (2025-11-02)", "vi", "VND");
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        // Stand-in for the cachedContents endpoint
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/cachedContents", exchange -> {
+            received.add(read(exchange.getRequestBody()));
+            Integer scripted = statuses.poll();
+            int status = scripted != null ? scripted : 200;
+            String reply = status == 200
+                    ? "{\"name\":\"cachedContents/c" + received.size() + "\",\"expireTime\":\""
+                            + Instant.ofEpochMilli(now.get() + expiresInMillis.get()) + "\"}"
+                    : "{\"error\":{\"code\":" + status + "}}";
+            byte[] bytes = reply.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+        transport = new AiRequestSchedulerTest.UrlConnectionTransport();
+        timer = Executors.newSingleThreadScheduledExecutor();
+        AiRequestScheduler scheduler = new AiRequestScheduler(transport, timer, 4, 10, 10, 20, 200, 1);
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/cachedContents";
+        cache = new GeminiContextCache(scheduler, url, now::get);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        transport.pool.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    @Test
+    public void firstTurnGoesInline_laterTurnsReferenceTheCache() throws Exception {
+        GeminiContextCache.Turn first = turn();
+        assertFalse(first.cached);
+        assertTrue(first.body.contains("\"system_instruction\""));
+
+        GeminiContextCache.Turn cached = awaitCached();
+        assertEquals("{\"cachedContent\":\"cachedContents/c1\",\"contents\":" + CONTENTS + "}", cached.body);
+        // The instruction and tools are uploaded once, not on every turn
+        assertTrue(cached.body.length() * 20 < first.body.length());
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).contains("\"ttl\":\"3600s\""));
+        assertTrue(received.get(0).contains("\"tools\":" + TOOLS));
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void expiredCache_goesInlineAndIsCreatedAgain() throws Exception {
+        expiresInMillis.set(600_000);
+        turn();
+        awaitCached();
+
+        now.addAndGet(600_000 - GeminiContextCache.EXPIRY_MARGIN_MILLIS);
+        assertFalse(turn().cached);
+        assertEquals("{\"cachedContent\":\"cachedContents/c2\",\"contents\":" + CONTENTS + "}", awaitCached().body);
+        assertEquals(2, received.size());
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void rejectedReference_fallsBackInlineAndRecreates() throws Exception {
+        turn();
+        awaitCached();
+
+        // The API answered 403/404 for cachedContents/c1, e.g. deleted on the server
+        GeminiContextCache.Turn inline = cache.inlineTurn(KEY, instruction, () -> TOOLS, CONTENTS);
+        assertFalse(inline.cached);
+        assertTrue(inline.body.contains("\"system_instruction\""));
+
+        assertFalse(turn().cached);
+        assertEquals("{\"cachedContent\":\"cachedContents/c2\",\"contents\":" + CONTENTS + "}", awaitCached().body);
+    }
+
+    @Test
+    public void refusedCreation_staysInlineWithoutRetrying() throws Exception {
+        statuses.add(400); // e.g. below the model's minimum token count
+        turn();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (received.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+
+        for (int i = 0; i < 5; i++) {
+            assertFalse(turn().cached);
+        }
+        assertEquals(1, received.size());
+    }
+
+    @Test
+    public void finalTurn_goesInlineWithoutFunctionCallsAndKeepsTheCache() throws Exception {
+        turn();
+        awaitCached();
+
+        GeminiContextCache.Turn last = cache.finalTurn(KEY, instruction, () -> TOOLS, CONTENTS);
+        assertFalse(last.cached);
+        assertTrue(last.body.contains("\"system_instruction\""));
+        assertTrue(last.body.contains("\"tool_config\":{\"function_calling_config\":{\"mode\":\"NONE\"}}"));
+        assertTrue(last.body.endsWith("\"contents\":" + CONTENTS + "}"));
+
+        // Still referenced by the next conversation, nothing created again
+        assertEquals("{\"cachedContent\":\"cachedContents/c1\",\"contents\":" + CONTENTS + "}", turn().body);
+        assertEquals(1, received.size());
+        assertEquals(1, builds.get());
+    }
+
+    private GeminiContextCache.Turn turn() {
+        return cache.turn(KEY, instruction, () -> TOOLS, CONTENTS);
+    }
+
+    private GeminiContextCache.Turn awaitCached() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            GeminiContextCache.Turn turn = turn();
+            if (turn.cached) {
+                return turn;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Cache was not created");
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+}
@@ -0,0 +1,468 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.OkHttpClient;
+
+/**
+ * Local stand-in for the Gemini REST API, for end-to-end latency runs
+ * - generateContent: structured expense replies (scripted with queueExpenseReply), and for tool
+ *   conversations a getTotals + getCategoryBreakdown call followed by a markdown answer
+ * - streamGenerateContent?alt=sse: the same replies as server-sent events, one per chunk
+ * - cachedContents: accepts every cache and names it
+ * Replies wait a jittered time to first byte and are trickled out in chunks; a share of
+ * requests can fail with 429, 503, 500 or a truncated body. Everything random is seeded
+ *
+ * install() points the app's AiRequestScheduler at this server through the production
+ * OkHttpTransport, wrapped to time every exchange
+ */
+public final class MockGeminiServer implements Closeable {
+
+    /**
+     * Timing of the exchanges through the installed transport; a retry is a new exchange
+     * onSend is called on the sending thread, the others on OkHttp's; override what you need
+     */
+    public interface ExchangeListener {
+        default void onSend(int exchange, long nanoTime) {
+        }
+
+        // Status line and headers arrived
+        default void onHeaders(int exchange, int code, long nanoTime) {
+        }
+
+        // The handler read the body to its end; not called if it stopped early
+        default void onBodyEnd(int exchange, long nanoTime) {
+        }
+
+        // The handler returned, or the request failed on the network
+        default void onDone(int exchange, long nanoTime) {
+        }
+    }
+
+    public enum Fault { THROTTLED, UNAVAILABLE, SERVER_ERROR, TRUNCATED }
+
+    private static final String DEFAULT_EXPENSE_REPLY = "{\"reply\":\"✅ Đã ghi nhận!\",\"expenses\":[]}";
+    private static final String[] ANALYSES = {
+            "## Tổng quan tháng này\n\n**Tổng chi tiêu:** 9.820.000 VND\n**Thu nhập:** 18.000.000 VND\n\n"
+                    + "### Chi tiêu theo danh mục\n* **Ăn uống**: 3.150.000 VND (32%)\n* **Di chuyển**: 1.240.000 VND\n\n"
+                    + "💡 Bạn đang chi cho `Ăn ngoài & Cafe` nhiều hơn tháng trước **14%**.",
+            "### Ngân sách\n- Ngân sách tháng: **15.000.000 VND**\n- Đã chi: **9.820.000 VND** (65%)\n"
+                    + "- Còn lại 16 ngày\n\nBạn đang *đúng kế hoạch*, hãy giữ mức chi mỗi ngày dưới `323.750 VND`.",
+    };
+
+    private final HttpServer server;
+    private final ExecutorService serverThreads;
+    private final Random random;
+    private final BlockingQueue<String> expenseReplies = new LinkedBlockingQueue<>();
+    private final BlockingQueue<Fault> scriptedFaults = new LinkedBlockingQueue<>();
+    private final List<String> generateBodies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger faults = new AtomicInteger();
+    private final AtomicInteger caches = new AtomicInteger();
+    private final AtomicInteger analyses = new AtomicInteger();
+
+    private volatile int medianLatencyMillis = 50;
+    private volatile int chunks = 4;
+    private volatile int chunkDelayMillis = 5;
+    private volatile double errorRate;
+
+    private ScheduledExecutorService timer;
+
+    public MockGeminiServer(long seed) throws IOException {
+        random = new Random(seed);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverThreads = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "gemini-stand-in");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverThreads);
+        server.createContext("/v1beta/cachedContents", this::cachedContents);
+        server.createContext("/v1beta/models/", this::models);
+        server.start();
+    }
+
+    /**
+     * Median time to first byte (jittered ±~40%), and how the body is trickled out after it
+     */
+    public void setLatency(int medianMillis, int chunkCount, int chunkDelay) {
+        medianLatencyMillis = medianMillis;
+        chunks = Math.max(1, chunkCount);
+        chunkDelayMillis = chunkDelay;
+    }
+
+    /**
+     * Share of requests answered with a Fault instead of a reply
+     */
+    public void setErrorRate(double rate) {
+        errorRate = rate;
+    }
+
+    /**
+     * Fault for the next generateContent request, ahead of the random ones
+     */
+    public void queueFault(Fault fault) {
+        scriptedFaults.add(fault);
+    }
+
+    /**
+     * Model text ({"reply": ..., "expenses": [...]}) for the next structured expense request
+     */
+    public void queueExpenseReply(String modelJson) {
+        expenseReplies.add(modelJson);
+    }
+
+    public void clearExpenseReplies() {
+        expenseReplies.clear();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /**
+     * Bodies of the generateContent requests answered so far, e.g. to replay them streamed
+     */
+    public List<String> generateBodies() {
+        synchronized (generateBodies) {
+            return new ArrayList<>(generateBodies);
+        }
+    }
+
+    public int faultsInjected() {
+        return faults.get();
+    }
+
+    /**
+     * Make this server the app's Gemini endpoint: a shared scheduler with the production limits
+     * on OkHttpTransport, except the request rate, which is Gemini's quota rather than latency
+     */
+    public synchronized RecordingTransport install(OkHttpClient client, ExchangeListener listener) {
+        RecordingTransport transport = new RecordingTransport(new OkHttpTransport(client), baseUrl(), listener);
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ai-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AiRequestScheduler.setInstance(new AiRequestScheduler(transport, timer,
+                AiRequestScheduler.MAX_CONCURRENT, AiRequestScheduler.BURST, 1,
+                AiRequestScheduler.BASE_BACKOFF_MILLIS, AiRequestScheduler.MAX_BACKOFF_MILLIS,
+                AiRequestScheduler.MAX_ATTEMPTS));
+        return transport;
+    }
+
+    @Override
+    public synchronized void close() {
+        AiRequestScheduler.setInstance(null);
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    private void cachedContents(HttpExchange exchange) throws IOException {
+        read(exchange.getRequestBody());
+        JsonObject cache = new JsonObject();
+        cache.addProperty("name", "cachedContents/stand-in-" + caches.incrementAndGet());
+        cache.addProperty("expireTime", Instant.now().plusSeconds(3_600).toString());
+        respond(exchange, 200, "application/json", Collections.singletonList(cache.toString()), 0);
+    }
+
+    private void models(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        boolean stream = path.endsWith(":streamGenerateContent");
+        if (!stream && !path.endsWith(":generateContent")) {
+            respond(exchange, 404, "application/json", Collections.singletonList("{}"), 0);
+            return;
+        }
+        String body = read(exchange.getRequestBody());
+        int latency;
+        Fault fault;
+        synchronized (random) {
+            latency = (int) (medianLatencyMillis * Math.exp(random.nextGaussian() * 0.35));
+            fault = random.nextDouble() < errorRate ? Fault.values()[random.nextInt(Fault.values().length)] : null;
+        }
+        Fault scripted = scriptedFaults.poll();
+        if (scripted != null) {
+            fault = scripted;
+        }
+        sleep(latency);
+
+        if (fault != null && fault != Fault.TRUNCATED) {
+            faults.incrementAndGet();
+            int status = fault == Fault.THROTTLED ? 429 : fault == Fault.UNAVAILABLE ? 503 : 500;
+            if (fault == Fault.THROTTLED) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+            }
+            respond(exchange, status, "application/json",
+                    Collections.singletonList("{\"error\":{\"code\":" + status + "}}"), 0);
+            return;
+        }
+        if (!stream) {
+            generateBodies.add(body);
+        }
+
+        JsonArray parts = replyParts(body);
+        List<String> pieces = stream ? events(parts) : split(envelope(parts).toString());
+        if (fault == Fault.TRUNCATED) {
+            faults.incrementAndGet();
+            truncate(exchange, pieces);
+            return;
+        }
+        respond(exchange, 200, stream ? "text/event-stream" : "application/json", pieces, chunkDelayMillis);
+    }
+
+    // Structured output for the expense chat, function calls then text for tool conversations
+    private JsonArray replyParts(String body) {
+        JsonArray parts = new JsonArray();
+        if (body.contains("\"responseSchema\"")) {
+            String reply = expenseReplies.poll();
+            parts.add(text(reply != null ? reply : DEFAULT_EXPENSE_REPLY));
+        } else if (body.contains("\"functionResponse\"")) {
+            parts.add(text(ANALYSES[Math.floorMod(analyses.getAndIncrement(), ANALYSES.length)]));
+        } else {
+            LocalDate today = LocalDate.now();
+            JsonObject args = new JsonObject();
+            args.addProperty("from", today.withDayOfMonth(1).toString());
+            args.addProperty("to", today.toString());
+            parts.add(functionCall("getTotals", args));
+            parts.add(functionCall("getCategoryBreakdown", args));
+        }
+        return parts;
+    }
+
+    private static JsonObject envelope(JsonArray parts) {
+        JsonObject content = new JsonObject();
+        content.addProperty("role", "model");
+        content.add("parts", parts);
+        JsonObject candidate = new JsonObject();
+        candidate.add("content", content);
+        candidate.addProperty("finishReason", "STOP");
+        JsonArray candidates = new JsonArray();
+        candidates.add(candidate);
+        JsonObject envelope = new JsonObject();
+        envelope.add("candidates", candidates);
+        return envelope;
+    }
+
+    // One SSE event per chunk of text; function calls arrive whole in one event
+    private List<String> events(JsonArray parts) {
+        List<String> events = new ArrayList<>();
+        JsonObject first = parts.get(0).getAsJsonObject();
+        if (!first.has("text")) {
+            events.add("data: " + envelope(parts) + "\r\n\r\n");
+            return events;
+        }
+        for (String piece : split(first.get("text").getAsString())) {
+            JsonArray chunk = new JsonArray();
+            chunk.add(text(piece));
+            events.add("data: " + envelope(chunk) + "\r\n\r\n");
+        }
+        return events;
+    }
+
+    private List<String> split(String text) {
+        int count = Math.min(chunks, Math.max(1, text.length()));
+        List<String> pieces = new ArrayList<>(count);
+        int size = (text.length() + count - 1) / count;
+        int start = 0;
+        while (start < text.length()) {
+            int end = Math.min(text.length(), start + size);
+            // Don't cut a surrogate pair between chunks
+            if (end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+                end++;
+            }
+            pieces.add(text.substring(start, end));
+            start = end;
+        }
+        return pieces;
+    }
+
+    private static JsonObject text(String value) {
+        JsonObject part = new JsonObject();
+        part.addProperty("text", value);
+        return part;
+    }
+
+    private static JsonObject functionCall(String name, JsonObject args) {
+        JsonObject call = new JsonObject();
+        call.addProperty("name", name);
+        call.add("args", args);
+        JsonObject part = new JsonObject();
+        part.add("functionCall", call);
+        return part;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, List<String> pieces,
+                                int delayMillis) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", contentType + "; charset=UTF-8");
+        exchange.sendResponseHeaders(status, 0); // Chunked
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < pieces.size(); i++) {
+                if (i > 0) {
+                    sleep(delayMillis);
+                }
+                out.write(pieces.get(i).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+        } catch (IOException ignored) {
+            // Client went away (cancelled)
+        }
+    }
+
+    // The body ends half way through the JSON, as when a proxy or a dying connection cuts it
+    private static void truncate(HttpExchange exchange, List<String> pieces) throws IOException {
+        String body = String.join("", pieces);
+        respond(exchange, 200, "application/json", Collections.singletonList(body.substring(0, body.length() / 2)), 0);
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, read);
+        }
+        return out.toString("UTF-8");
+    }
+
+    /**
+     * Transport that sends the app's Gemini URLs to the stand-in and reports each exchange
+     * It is idle when nothing is on the wire and no throttled request is waiting for its retry
+     */
+    public static final class RecordingTransport implements AiRequestScheduler.Transport {
+        private final AiRequestScheduler.Transport delegate;
+        private final String baseUrl;
+        private final ExchangeListener listener;
+        private final Map<String, Integer> attempts = new HashMap<>(); // Sends per body until it is final
+        private final AtomicInteger exchanges = new AtomicInteger();
+        private int onWire;
+        private int awaitingRetry;
+
+        RecordingTransport(AiRequestScheduler.Transport delegate, String baseUrl, ExchangeListener listener) {
+            this.delegate = delegate;
+            this.baseUrl = baseUrl;
+            this.listener = listener;
+        }
+
+        public synchronized boolean isIdle() {
+            return onWire == 0 && awaitingRetry == 0;
+        }
+
+        @Override
+        public AiRequestScheduler.Exchange send(String url, String body, AiRequestScheduler.ExchangeCallback callback) {
+            int exchange = exchanges.incrementAndGet();
+            synchronized (this) {
+                onWire++;
+                int sent = attempts.merge(body, 1, Integer::sum);
+                if (sent > 1) {
+                    awaitingRetry--;
+                }
+            }
+            listener.onSend(exchange, System.nanoTime());
+            return delegate.send(url.replaceFirst("^https://[^/]+", baseUrl), body, new AiRequestScheduler.ExchangeCallback() {
+                @Override
+                public void onResponse(int code, long retryAfterMillis, Reader responseBody) {
+                    listener.onHeaders(exchange, code, System.nanoTime());
+                    synchronized (RecordingTransport.this) {
+                        // The scheduler resends this body after a backoff
+                        if ((code == 429 || code == 503) && attempts.get(body) < AiRequestScheduler.MAX_ATTEMPTS) {
+                            awaitingRetry++;
+                        } else {
+                            attempts.remove(body);
+                        }
+                    }
+                    try {
+                        callback.onResponse(code, retryAfterMillis, new TimedReader(responseBody, exchange, listener));
+                    } finally {
+                        finish(exchange);
+                    }
+                }
+
+                @Override
+                public void onFailure(IOException e) {
+                    synchronized (RecordingTransport.this) {
+                        attempts.remove(body);
+                    }
+                    try {
+                        callback.onFailure(e);
+                    } finally {
+                        finish(exchange);
+                    }
+                }
+            });
+        }
+
+        private void finish(int exchange) {
+            listener.onDone(exchange, System.nanoTime());
+            synchronized (this) {
+                onWire--;
+            }
+        }
+    }
+
+    // Reports when the handler has read the whole body
+    private static final class TimedReader extends Reader {
+        private final Reader in;
+        private final int exchange;
+        private final ExchangeListener listener;
+        private boolean ended;
+
+        TimedReader(Reader in, int exchange, ExchangeListener listener) {
+            this.in = in;
+            this.exchange = exchange;
+            this.listener = listener;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int read = in.read(buffer, offset, length);
+            if (read == -1 && !ended) {
+                ended = true;
+                listener.onBodyEnd(exchange, System.nanoTime());
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.spending_management_app.data.remote.api;
+
+import com.example.spending_management_app.domain.model.ExpenseOperation;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class StructuredExpenseReplyTest {
+
+    // Model output is itself JSON, escaped inside the envelope's text part
+    private static String envelope(String text) {
+        String escaped = text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"" + escaped + "\"}],\"role\":\"model\"},"
+                + "\"finishReason\":\"STOP\",\"safetyRatings\":[{\"category\":\"X\",\"probability\":\"LOW\"}]}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":812,\"totalTokenCount\":870},\"modelVersion\":\"gemini-2.0-flash\"}";
+    }
+
+    @Test
+    public void read_streamsEnvelopeIntoTypedOperations() throws Exception {
+        String text = "{\"reply\":\"Đã ghi 2 khoản 🍜\",\"expenses\":["
+                + "{\"type\":\"expense\",\"name\":\"Phở\",\"amount\":50000,\"currency\":\"VND\",\"category\":\"Ăn uống\",\"day\":3,\"month\":10,\"year\":2025},"
+                + "{\"type\":\"income\",\"name\":\"Lương\",\"amount\":\"15000000\",\"category\":\"Thu nhập\",\"note\":{\"ignored\":[1,2]}}]}";
+
+        StructuredExpenseReply reply = StructuredExpenseReply.read(new StringReader(envelope(text)));
+
+        assertTrue(reply.structured);
+        assertEquals("Đã ghi 2 khoản 🍜", reply.reply);
+        assertEquals(2, reply.expenses.size());
+
+        ExpenseOperation pho = reply.expenses.get(0);
+        assertTrue(pho.isExpense());
+        assertEquals("Phở", pho.getName());
+        assertEquals(50000, pho.getAmount(), 0);
+        assertEquals("Ăn uống", pho.getCategory());
+        assertEquals(3, pho.getDay());
+        assertEquals(10, pho.getMonth());
+        assertEquals(2025, pho.getYear());
+
+        ExpenseOperation salary = reply.expenses.get(1);
+        assertFalse(salary.isExpense());
+        assertEquals(15_000_000, salary.getAmount(), 0); // Quoted number still parses
+        assertEquals("VND", salary.getCurrency());
+        assertEquals(0, salary.getDay()); // Missing date: caller uses today
+    }
+
+    @Test
+    public void read_keepsFreeTextWhenModelIgnoresSchema() throws Exception {
+        String text = "Đã thêm chi tiêu!\n{\"type\":\"expense\",\"name\":\"Cafe\",\"amount\":30000,\"category\":\"Ăn uống\"}";
+
+        StructuredExpenseReply reply = StructuredExpenseReply.read(new StringReader(envelope(text)));
+
+        assertFalse(reply.structured);
+        assertEquals(text, reply.reply);
+        assertTrue(reply.expenses.isEmpty());
+    }
+
+    @Test
+    public void parse_withoutExpensesListIsNotStructured() throws Exception {
+        StructuredExpenseReply reply = StructuredExpenseReply.parse("{\"reply\":\"Chào bạn!\"}");
+
+        assertFalse(reply.structured); // Only an explicit empty list means "no transaction"
+        assertEquals("Chào bạn!", reply.reply);
+        assertTrue(reply.expenses.isEmpty());
+    }
+
+    @Test
+    public void parse_handlesNullsAndEmptyList() throws Exception {
+        StructuredExpenseReply reply = StructuredExpenseReply.parse("{\"expenses\":[],\"reply\":null}");
+
+        assertTrue(reply.structured);
+        assertEquals("", reply.reply);
+        assertTrue(reply.expenses.isEmpty());
+
+        ExpenseOperation operation = StructuredExpenseReply.parseOperation(
+                "{\"name\":\"Taxi\",\"amount\":120000.0,\"category\":\"Di chuyển\",\"day\":null}");
+        assertTrue(operation.isExpense());
+        assertEquals(0, operation.getDay());
+    }
+}
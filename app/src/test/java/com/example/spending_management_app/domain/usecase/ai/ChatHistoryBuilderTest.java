@@ -0,0 +1,96 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import android.app.Application;
+
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Which turns go into the Gemini contents: notices never, the echoed query once, and only the
+ * newest turns that fit the token budget
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class ChatHistoryBuilderTest {
+
+    @Test
+    public void contents_skipNoticesAndSendTheQueryLastOnce() throws Exception {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(ChatMessage.notice("Xin chào!", "09:00"));
+        messages.add(new ChatMessage("ăn sáng 35k", true, "09:01"));
+        messages.add(new ChatMessage("Đã ghi nhận", false, "09:01"));
+        messages.add(ChatMessage.notice("Không có kết nối mạng", "09:02"));
+        messages.add(new ChatMessage("tháng này chi bao nhiêu", true, "09:03"));
+        messages.add(ChatMessage.notice("Đang phân tích...", "09:03"));
+
+        JSONArray contents = ChatHistoryBuilder.contents(messages, messages.size() - 1, "tháng này chi bao nhiêu");
+
+        assertEquals(List.of("user:ăn sáng 35k", "model:Đã ghi nhận", "user:tháng này chi bao nhiêu"), turns(contents));
+    }
+
+    @Test
+    public void contents_keepOnlyTheNewestTurnsThatFit() throws Exception {
+        int turnTokens = ChatHistoryBuilder.MAX_HISTORY_TOKENS / 4;
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            messages.add(new ChatMessage(text(i, turnTokens), i % 2 == 0, "09:0" + i));
+        }
+
+        // The query takes a token, so three turns fit instead of four
+        JSONArray contents = ChatHistoryBuilder.contents(messages, messages.size(), "?");
+
+        List<String> turns = turns(contents);
+        assertEquals(4, turns.size());
+        assertEquals("model:" + text(3, turnTokens), turns.get(0));
+        assertEquals("user:" + text(4, turnTokens), turns.get(1));
+        assertEquals("model:" + text(5, turnTokens), turns.get(2));
+        assertEquals("user:?", turns.get(3));
+    }
+
+    @Test
+    public void contents_stopAtTheFirstTurnThatDoesNotFit() throws Exception {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage("ngắn", true, "09:00"));
+        messages.add(new ChatMessage(text(1, ChatHistoryBuilder.MAX_HISTORY_TOKENS), false, "09:01"));
+        messages.add(new ChatMessage("cà phê 30k", true, "09:02"));
+
+        // A short older turn isn't pulled in past the one that overflowed, so the history has no hole
+        assertEquals(List.of("user:cà phê 30k", "user:?"),
+                turns(ChatHistoryBuilder.contents(messages, messages.size(), "?")));
+    }
+
+    @Test
+    public void contents_withNoHistoryIsJustTheQuery() throws Exception {
+        assertEquals(List.of("user:xin chào"), turns(ChatHistoryBuilder.contents(new ArrayList<>(), 0, "xin chào")));
+    }
+
+    // Text of about the given number of estimated tokens
+    private static String text(int index, int tokens) {
+        StringBuilder text = new StringBuilder(index + ":");
+        while (text.length() < tokens * 4) {
+            text.append('x');
+        }
+        return text.toString();
+    }
+
+    private static List<String> turns(JSONArray contents) throws Exception {
+        List<String> turns = new ArrayList<>();
+        for (int i = 0; i < contents.length(); i++) {
+            JSONObject content = contents.getJSONObject(i);
+            turns.add(content.getString("role") + ":"
+                    + content.getJSONArray("parts").getJSONObject(0).getString("text"));
+        }
+        return turns;
+    }
+}
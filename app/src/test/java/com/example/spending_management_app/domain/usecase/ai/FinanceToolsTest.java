@@ -0,0 +1,219 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.cache.RecentTransactionCache;
+import com.example.spending_management_app.data.local.cache.TransactionColumnStore;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.CategoryBudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.CategoryBudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.utils.UserSession;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+/**
+ * Argument parsing and result JSON of every tool, against an in-memory database
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class FinanceToolsTest {
+
+    private static final int USER = 1;
+    private static final String FOOD = "Ăn uống";
+    private static final String TRANSPORT = "Di chuyển";
+
+    private AppDatabase db;
+    private ExpenseRepositoryImpl expenses;
+    private FinanceTools tools;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        db = TestDatabases.inMemory(context);
+        RecentTransactionCache.getInstance().clear();
+        TransactionColumnStore.getInstance().clear();
+        UserSession.getInstance(context).setCurrentUserId(USER);
+        expenses = new ExpenseRepositoryImpl(db);
+        tools = new FinanceTools(expenses, new BudgetRepositoryImpl(db), new CategoryBudgetRepositoryImpl(db), context);
+
+        expenses.insert(row("Ăn trưa", FOOD, -100_000, LocalDate.of(2025, 3, 1), "expense"));
+        expenses.insert(row("Cà phê 100% Arabica", FOOD, -30_000, LocalDate.of(2025, 3, 5), "expense"));
+        expenses.insert(row("Xăng", TRANSPORT, -40_000, LocalDate.of(2025, 3, 31), "expense"));
+        expenses.insert(row("Lương", "Thu nhập", 500_000, LocalDate.of(2025, 3, 10), "income"));
+        expenses.insert(row("Ăn tối", FOOD, -60_000, LocalDate.of(2025, 4, 1), "expense"));
+        TransactionEntity otherUser = row("Ăn trưa", FOOD, -999_000, LocalDate.of(2025, 3, 2), "expense");
+        otherUser.setUserId(USER + 1);
+        expenses.insert(otherUser);
+    }
+
+    @After
+    public void tearDown() {
+        RecentTransactionCache.getInstance().clear();
+        TransactionColumnStore.getInstance().clear();
+        db.close();
+    }
+
+    @Test
+    public void declarations_listEveryToolWithItsRequiredArguments() throws Exception {
+        JSONArray functions = FinanceTools.declarations().getJSONObject(0).getJSONArray("functionDeclarations");
+        assertEquals(4, functions.length());
+        assertEquals("getTotals", functions.getJSONObject(0).getString("name"));
+        assertEquals("[\"from\",\"to\"]",
+                functions.getJSONObject(0).getJSONObject("parameters").getJSONArray("required").toString());
+        assertEquals("[\"query\"]",
+                functions.getJSONObject(2).getJSONObject("parameters").getJSONArray("required").toString());
+        assertEquals("[\"month\"]",
+                functions.getJSONObject(3).getJSONObject("parameters").getJSONArray("required").toString());
+    }
+
+    @Test
+    public void getTotals_sumsTheInclusiveRangeOfTheCurrentUser() throws Exception {
+        JSONObject result = tools.execute("getTotals", range("2025-03-01", "2025-03-31"));
+        assertEquals("2025-03-01", result.getString("from"));
+        assertEquals("2025-03-31", result.getString("to"));
+        assertEquals(170_000, result.getLong("expense"));
+        assertEquals(500_000, result.getLong("income"));
+        assertEquals(330_000, result.getLong("balance"));
+    }
+
+    @Test
+    public void getTotals_defaultsToThisMonthSoFar() throws Exception {
+        LocalDate today = LocalDate.now();
+        expenses.insert(row("Hôm nay", FOOD, -7_000, today, "expense"));
+
+        JSONObject result = tools.execute("getTotals", new JSONObject());
+        assertEquals(today.withDayOfMonth(1).toString(), result.getString("from"));
+        assertEquals(today.toString(), result.getString("to"));
+        assertEquals(7_000, result.getLong("expense"));
+    }
+
+    @Test
+    public void getCategoryBreakdown_sortsByAmountWithPercents() throws Exception {
+        JSONObject result = tools.execute("getCategoryBreakdown", range("2025-03-01", "2025-03-31"));
+        assertEquals(170_000, result.getLong("totalExpense"));
+        JSONArray categories = result.getJSONArray("categories");
+        assertEquals(2, categories.length());
+        assertEquals(FOOD, categories.getJSONObject(0).getString("category"));
+        assertEquals(130_000, categories.getJSONObject(0).getLong("amount"));
+        assertEquals(76.5, categories.getJSONObject(0).getDouble("percent"), 0.0);
+        assertEquals(TRANSPORT, categories.getJSONObject(1).getString("category"));
+        assertEquals(23.5, categories.getJSONObject(1).getDouble("percent"), 0.0);
+    }
+
+    @Test
+    public void searchTransactions_matchesDescriptionOrCategoryNewestFirst() throws Exception {
+        JSONObject byCategory = tools.execute("searchTransactions",
+                range("2025-03-01", "2025-04-30").put("query", FOOD));
+        JSONArray rows = byCategory.getJSONArray("transactions");
+        assertEquals(3, byCategory.getInt("count"));
+        assertFalse(byCategory.getBoolean("limited"));
+        assertEquals("2025-04-01", rows.getJSONObject(0).getString("date"));
+        assertEquals("Ăn tối", rows.getJSONObject(0).getString("description"));
+        assertEquals(FOOD, rows.getJSONObject(0).getString("category"));
+        assertEquals("expense", rows.getJSONObject(0).getString("type"));
+        assertEquals(60_000, rows.getJSONObject(0).getLong("amount"));
+
+        JSONObject byDescription = tools.execute("searchTransactions",
+                range("2025-03-01", "2025-04-30").put("query", " xăng "));
+        assertEquals(1, byDescription.getInt("count"));
+        assertEquals("2025-03-31", byDescription.getJSONArray("transactions").getJSONObject(0).getString("date"));
+    }
+
+    @Test
+    public void searchTransactions_treatsWildcardsLiterally() throws Exception {
+        expenses.insert(row("Phí 1000 đồng", TRANSPORT, -1_000, LocalDate.of(2025, 6, 1), "expense")); // A wildcard "100%" would match it
+        JSONObject percent = tools.execute("searchTransactions", range("2025-01-01", "2025-12-31").put("query", "100%"));
+        assertEquals(1, percent.getInt("count"));
+        assertEquals("Cà phê 100% Arabica",
+                percent.getJSONArray("transactions").getJSONObject(0).getString("description"));
+
+        assertEquals(0, tools.execute("searchTransactions",
+                range("2025-01-01", "2025-12-31").put("query", "_")).getInt("count"));
+    }
+
+    @Test
+    public void searchTransactions_clampsTheLimitAndFlagsCutResults() throws Exception {
+        JSONObject one = tools.execute("searchTransactions",
+                range("2025-01-01", "2025-12-31").put("query", "").put("limit", 0));
+        assertEquals(1, one.getInt("count"));
+        assertTrue(one.getBoolean("limited"));
+
+        for (int i = 0; i < FinanceTools.MAX_SEARCH_LIMIT + 5; i++) {
+            expenses.insert(row("Gửi xe " + i, TRANSPORT, -5_000, LocalDate.of(2025, 5, 1), "expense"));
+        }
+        JSONObject capped = tools.execute("searchTransactions",
+                range("2025-01-01", "2025-12-31").put("query", "gửi xe").put("limit", 500));
+        assertEquals(FinanceTools.MAX_SEARCH_LIMIT, capped.getInt("count"));
+        assertTrue(capped.getBoolean("limited"));
+
+        JSONObject byDefault = tools.execute("searchTransactions",
+                range("2025-01-01", "2025-12-31").put("query", "gửi xe"));
+        assertEquals(FinanceTools.DEFAULT_SEARCH_LIMIT, byDefault.getInt("count"));
+    }
+
+    @Test
+    public void getBudgets_reportsMonthlyAndCategoryBudgetsWithSpending() throws Exception {
+        new BudgetRepositoryImpl(db).insert(new BudgetEntity("Ngân sách tháng", 200_000, 0, date(LocalDate.of(2025, 3, 1))));
+        new CategoryBudgetRepositoryImpl(db).insert(new CategoryBudgetEntity(FOOD, 150_000, date(LocalDate.of(2025, 3, 1))));
+
+        JSONObject result = tools.execute("getBudgets", new JSONObject().put("month", "2025-03"));
+        assertEquals("2025-03", result.getString("month"));
+        assertEquals(170_000, result.getLong("spent"));
+        assertEquals(200_000, result.getLong("monthlyBudget"));
+        assertEquals(30_000, result.getLong("remaining"));
+        JSONArray categories = result.getJSONArray("categoryBudgets");
+        assertEquals(1, categories.length());
+        assertEquals(FOOD, categories.getJSONObject(0).getString("category"));
+        assertEquals(150_000, categories.getJSONObject(0).getLong("budget"));
+        assertEquals(130_000, categories.getJSONObject(0).getLong("spent"));
+
+        JSONObject withoutBudget = tools.execute("getBudgets", new JSONObject().put("month", "2025-04"));
+        assertTrue(withoutBudget.isNull("monthlyBudget"));
+        assertFalse(withoutBudget.has("remaining"));
+        assertEquals(0, withoutBudget.getJSONArray("categoryBudgets").length());
+    }
+
+    @Test
+    public void badArgumentsAndUnknownNames_comeBackAsErrors() throws Exception {
+        assertTrue(tools.execute("getTotals", range("2025-13-01", "2025-03-31")).has("error"));
+        assertTrue(tools.execute("getCategoryBreakdown", range("1/3/2025", "")).has("error"));
+        assertTrue(tools.execute("getBudgets", new JSONObject().put("month", "tháng 3")).has("error"));
+        assertEquals("Unknown function deleteEverything",
+                tools.execute("deleteEverything", new JSONObject()).getString("error"));
+    }
+
+    private static JSONObject range(String from, String to) throws Exception {
+        return new JSONObject().put("from", from).put("to", to);
+    }
+
+    private static TransactionEntity row(String description, String category, long amount, LocalDate day, String type) {
+        TransactionEntity row = new TransactionEntity(description, category, amount, date(day), type);
+        row.setUserId(USER);
+        return row;
+    }
+
+    private static Date date(LocalDate day) {
+        return Date.from(day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
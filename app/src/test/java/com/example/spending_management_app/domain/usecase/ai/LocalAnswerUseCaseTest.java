@@ -0,0 +1,120 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.cache.TransactionColumnStore;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.entity.BudgetEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.repository.BudgetRepositoryImpl;
+import com.example.spending_management_app.data.repository.ExpenseRepositoryImpl;
+import com.example.spending_management_app.utils.CategoryRegistry;
+import com.example.spending_management_app.utils.CurrencyFormatter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Answers computed from transactions and budgets in an in-memory database
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class LocalAnswerUseCaseTest {
+
+    private static final int USER = 1;
+    private static final String FOOD = "Ăn uống";
+    private static final String TRANSPORT = "Di chuyển";
+    private static final Map<String, String> CATEGORIES = Map.of(
+            "ăn uống", FOOD,
+            "di chuyển", TRANSPORT);
+
+    private final LocalDate today = LocalDate.now(); // Answers label periods against the real date
+    private Context context;
+    private AppDatabase db;
+    private LocalAnswerUseCase useCase;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        db = TestDatabases.inMemory(context);
+        TransactionColumnStore.getInstance().clear();
+        ExpenseRepositoryImpl expenses = new ExpenseRepositoryImpl(db);
+        useCase = new LocalAnswerUseCase(expenses, new BudgetRepositoryImpl(db), context);
+
+        YearMonth thisMonth = YearMonth.from(today);
+        expenses.insert(new TransactionEntity("Ăn trưa", FOOD, -100_000, date(thisMonth.atDay(1)), "expense"));
+        expenses.insert(new TransactionEntity("Xăng", TRANSPORT, -40_000, date(thisMonth.atDay(2)), "expense"));
+        expenses.insert(new TransactionEntity("Lương", "Thu nhập", 500_000, date(thisMonth.atDay(1)), "income"));
+        expenses.insert(new TransactionEntity("Ăn tối", FOOD, -60_000, date(thisMonth.minusMonths(1).atDay(10)), "expense"));
+        new BudgetRepositoryImpl(db).insert(new BudgetEntity("Ngân sách tháng", 200_000, 0, date(thisMonth.atDay(1))));
+    }
+
+    @After
+    public void tearDown() {
+        TransactionColumnStore.getInstance().clear();
+        db.close();
+    }
+
+    @Test
+    public void totalsAndBalance() {
+        assertEquals(context.getString(R.string.local_answer_expense, "tháng này", money(140_000)),
+                answer("tháng này tôi chi bao nhiêu"));
+        assertEquals(context.getString(R.string.local_answer_income, "tháng trước", money(0)),
+                answer("thu nhập tháng trước là bao nhiêu"));
+        assertEquals(context.getString(R.string.local_answer_balance, "tháng này", money(500_000), money(140_000),
+                money(360_000)), answer("số dư tháng này"));
+    }
+
+    @Test
+    public void categories() {
+        assertEquals(context.getString(R.string.local_answer_category, CategoryRegistry.emojiOf(CategoryRegistry.idOf(FOOD)),
+                CategoryRegistry.labelOf(context, FOOD), "tháng này", money(100_000)),
+                answer("tháng này ăn uống hết bao nhiêu"));
+        int food = CategoryRegistry.idOf(FOOD);
+        assertEquals(context.getString(R.string.local_answer_top_category, "tháng này", CategoryRegistry.emojiOf(food),
+                CategoryRegistry.labelOf(context, food), money(100_000), 71),
+                answer("danh mục nào chi nhiều nhất tháng này"));
+    }
+
+    @Test
+    public void compareAndBudget() {
+        String change = context.getString(R.string.local_answer_compare_more, money(80_000) + " (133%)", "tháng trước");
+        assertEquals(context.getString(R.string.local_answer_compare, "tháng này", money(140_000), "tháng trước",
+                money(60_000), change), answer("so với tháng trước thì sao?"));
+
+        String remaining = context.getString(R.string.local_answer_budget_remaining, money(60_000), 30);
+        assertEquals(context.getString(R.string.local_answer_budget, "tháng này", money(200_000), money(140_000),
+                remaining), answer("ngân sách tháng này còn bao nhiêu"));
+    }
+
+    private String answer(String text) {
+        LocalQuestion question = LocalQuestion.parse(text, today, CATEGORIES);
+        assertNotNull(text, question);
+        return useCase.answer(question, USER, context);
+    }
+
+    private String money(long amount) {
+        return CurrencyFormatter.formatCurrency(context, amount);
+    }
+
+    private static Date date(LocalDate day) {
+        return Date.from(day.atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.spending_management_app.domain.usecase.ai;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class LocalQuestionTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 10, 15); // Wednesday
+    private static final Map<String, String> CATEGORIES = Map.of(
+            "ăn uống", "Ăn uống",
+            "food", "Ăn uống",
+            "di chuyển", "Di chuyển",
+            "transport", "Di chuyển");
+
+    private static LocalQuestion parse(String text) {
+        return LocalQuestion.parse(text, TODAY, CATEGORIES);
+    }
+
+    @Test
+    public void totals_readRelativePeriodsInBothLanguages() {
+        LocalQuestion month = parse("Tháng này tôi chi bao nhiêu?");
+        assertEquals(LocalQuestion.Intent.TOTAL_EXPENSE, month.intent);
+        assertEquals(LocalDate.of(2025, 10, 1), month.period.from);
+        assertEquals(LocalDate.of(2025, 10, 31), month.period.to);
+
+        LocalQuestion week = parse("How much did I spend last week?");
+        assertEquals(LocalQuestion.Intent.TOTAL_EXPENSE, week.intent);
+        assertEquals(LocalDate.of(2025, 10, 6), week.period.from);
+        assertEquals(LocalDate.of(2025, 10, 12), week.period.to);
+
+        assertEquals(LocalQuestion.Intent.TOTAL_INCOME, parse("thu nhập năm ngoái là bao nhiêu").intent);
+        assertEquals(2024, parse("thu nhập năm ngoái là bao nhiêu").period.from.getYear());
+        assertEquals(LocalQuestion.Intent.BALANCE, parse("what's my balance today").intent);
+    }
+
+    @Test
+    public void explicitMonthsAndYears() {
+        LocalQuestion march = parse("tháng 3 chi tiêu hết bao nhiêu");
+        assertEquals(LocalQuestion.Unit.MONTH, march.period.unit);
+        assertEquals(LocalDate.of(2025, 3, 1), march.period.from);
+
+        assertEquals(LocalDate.of(2024, 12, 1), parse("tổng chi tiêu tháng 12/2024").period.from);
+        assertEquals(LocalQuestion.Unit.YEAR, parse("total spending in 2023").period.unit);
+        assertEquals(LocalDate.of(2024, 3, 1), parse("tổng chi tiêu tháng 3 năm 2024").period.from);
+        assertEquals(LocalDate.of(2024, 9, 1), parse("thu nhập tháng 9 năm ngoái là bao nhiêu").period.from);
+    }
+
+    @Test
+    public void englishMonthNames() {
+        LocalQuestion march = parse("How much did I spend in March 2024?");
+        assertEquals(LocalQuestion.Intent.TOTAL_EXPENSE, march.intent);
+        assertEquals(LocalQuestion.Unit.MONTH, march.period.unit);
+        assertEquals(LocalDate.of(2024, 3, 1), march.period.from);
+
+        assertEquals(LocalDate.of(2025, 5, 1), parse("total spending in may").period.from);
+        assertEquals(LocalDate.of(2024, 7, 1), parse("what was my income in july last year").period.from);
+        LocalQuestion compare = parse("compare september vs august");
+        assertEquals(LocalDate.of(2025, 9, 1), compare.period.from);
+        assertEquals(LocalDate.of(2025, 8, 1), compare.comparedTo.from);
+    }
+
+    @Test
+    public void keywordsMatchWholeWords() {
+        assertNull(parse("how much did I spend on internet this month?")); // Not "net"
+        assertNull(parse("how much did I spend on e-learning courses this month?")); // Not "earn"
+        assertNull(parse("what did I buy almost every day?")); // Not "most", nor a period it can read
+        assertNull(parse("how much was the costume?")); // Not "cost"
+
+        assertEquals(LocalQuestion.Intent.TOTAL_EXPENSE, parse("total costs this month").intent);
+        assertEquals(LocalQuestion.Intent.TOTAL_INCOME, parse("what are my earnings this year").intent);
+        assertNull(parse("how much on seafood today")); // "food" only as a whole word
+    }
+
+    @Test
+    public void unreadablePeriods_goToTheAi() {
+        assertNull(parse("tháng sau tôi chi bao nhiêu"));
+        assertNull(parse("how much will I spend next month"));
+        assertNull(parse("total spending in quý 2"));
+        assertNull(parse("how much did I spend in the last 3 months"));
+        assertNull(parse("tổng chi tiêu từ tháng 3 đến tháng 5"));
+        assertNull(parse("how much did I spend since 2023"));
+        assertNull(parse("tháng 13 chi bao nhiêu"));
+    }
+
+    @Test
+    public void categoryTopAndBreakdown() {
+        LocalQuestion food = parse("Tháng này ăn uống hết bao nhiêu?");
+        assertEquals(LocalQuestion.Intent.CATEGORY_TOTAL, food.intent);
+        assertEquals("Ăn uống", food.category);
+        assertEquals("Di chuyển", parse("how much on transport today").category);
+
+        assertEquals(LocalQuestion.Intent.TOP_CATEGORY, parse("danh mục nào chi nhiều nhất năm nay").intent);
+        assertEquals(LocalQuestion.Intent.CATEGORY_BREAKDOWN, parse("spending by category last month").intent);
+    }
+
+    @Test
+    public void compare_pairsPeriods() {
+        LocalQuestion lastMonth = parse("so với tháng trước thì sao?");
+        assertEquals(LocalQuestion.Intent.COMPARE, lastMonth.intent);
+        assertEquals(LocalDate.of(2025, 10, 1), lastMonth.period.from);
+        assertEquals(LocalDate.of(2025, 9, 1), lastMonth.comparedTo.from);
+
+        LocalQuestion explicit = parse("compare this week vs last week");
+        assertEquals(LocalDate.of(2025, 10, 13), explicit.period.from);
+        assertEquals(LocalDate.of(2025, 10, 6), explicit.comparedTo.from);
+    }
+
+    @Test
+    public void budget_isMonthly() {
+        LocalQuestion budget = parse("ngân sách tháng này còn bao nhiêu");
+        assertEquals(LocalQuestion.Intent.BUDGET_STATUS, budget.intent);
+        assertEquals(LocalQuestion.Unit.MONTH, budget.period.unit);
+    }
+
+    @Test
+    public void everythingElseGoesToTheAi() {
+        assertNull(parse("phân tích chi tiêu tháng này"));
+        assertNull(parse("why did I spend so much this month?"));
+        assertNull(parse("tôi nên tiết kiệm thế nào"));
+        assertNull(parse("hôm nay ăn trưa 50k"));
+        assertNull(parse("đặt ngân sách tháng này 10 triệu"));
+        assertNull(parse("xóa chi tiêu hôm qua"));
+        assertNull(parse("ngày 5/10 tôi chi bao nhiêu"));
+        assertNull(parse("tháng này chi bao nhiêu cho cà phê"));
+        assertNull(parse("xin chào"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.spending_management_app.domain.usecase.expense;
+
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SpeculativeExpenseUseCaseTest {
+
+    private static final Date NOON = new Date(1_760_000_000_000L);
+
+    @Test
+    public void isSingleExpense_acceptsOnePlainExpense() {
+        assertTrue(SpeculativeExpenseUseCase.isSingleExpense("ăn trưa 50k"));
+        assertTrue(SpeculativeExpenseUseCase.isSingleExpense("Hôm qua đổ xăng 80k"));
+        assertTrue(SpeculativeExpenseUseCase.isSingleExpense("ngày 12/10 ăn phở 45k"));
+    }
+
+    @Test
+    public void isSingleExpense_leavesEverythingElseToTheAi() {
+        assertFalse(SpeculativeExpenseUseCase.isSingleExpense("Hôm qua ăn sáng 25k và cafe 30k"));
+        assertFalse(SpeculativeExpenseUseCase.isSingleExpense("ăn sáng 25k, cafe 30k"));
+        assertFalse(SpeculativeExpenseUseCase.isSingleExpense("xóa ăn trưa 50k"));
+        assertFalse(SpeculativeExpenseUseCase.isSingleExpense("nhận lương 15 triệu"));
+        assertFalse(SpeculativeExpenseUseCase.isSingleExpense("ăn trưa ở đâu ngon"));
+    }
+
+    @Test
+    public void outcome_confirmsSameBookingWhateverTheDescription() {
+        TransactionEntity provisional = expense("ăn trưa", 50_000);
+        List<TransactionEntity> confirmed = List.of(expense("Ăn trưa văn phòng", 50_000));
+
+        assertEquals(SpeculativeExpenseUseCase.Outcome.CONFIRMED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, confirmed, true));
+    }
+
+    @Test
+    public void outcome_correctsDifferentOrExtraTransactions() {
+        TransactionEntity provisional = expense("ăn trưa", 50_000);
+
+        assertEquals(SpeculativeExpenseUseCase.Outcome.CORRECTED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, List.of(expense("ăn trưa", 55_000)), true));
+        assertEquals(SpeculativeExpenseUseCase.Outcome.CORRECTED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional,
+                        List.of(expense("ăn trưa", 50_000), expense("trà đá", 5_000)), true));
+        assertEquals(SpeculativeExpenseUseCase.Outcome.REMOVED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, Collections.emptyList(), true));
+    }
+
+    @Test
+    public void outcome_keepsTheProvisionalWhenTheReplyIgnoredTheSchema() {
+        TransactionEntity provisional = expense("ăn trưa", 50_000);
+
+        assertEquals(SpeculativeExpenseUseCase.Outcome.UNCONFIRMED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, Collections.emptyList(), false));
+        // Operations recovered from free text still confirm or correct it
+        assertEquals(SpeculativeExpenseUseCase.Outcome.CONFIRMED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, List.of(expense("ăn trưa", 50_000)), false));
+        assertEquals(SpeculativeExpenseUseCase.Outcome.CORRECTED,
+                SpeculativeExpenseUseCase.outcomeOf(provisional, List.of(expense("ăn trưa", 60_000)), false));
+    }
+
+    private static TransactionEntity expense(String description, long amount) {
+        return new TransactionEntity(description, "Ăn uống", -amount, NOON, "expense");
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.spending_management_app.domain.usecase.offline;
+
+import android.app.Application;
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.entity.AiOutboxEntity;
+import com.example.spending_management_app.data.local.entity.TransactionEntity;
+import com.example.spending_management_app.data.remote.api.MockGeminiServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+
+/**
+ * Replays against MockGeminiServer on an in-memory database: expense phrases merged into one
+ * call, failed attempts counted and retried, requests out of attempts answered with an error
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class OfflineOutboxReplayerTest {
+
+    private static final int USER = 1;
+    private static final String THREE_EXPENSES = "{\"reply\":\"Đã ghi nhận 3 khoản\",\"expenses\":["
+            + "{\"type\":\"expense\",\"name\":\"Ăn sáng\",\"amount\":35000,\"currency\":\"VND\",\"category\":\"Ăn uống\"},"
+            + "{\"type\":\"expense\",\"name\":\"Đổ xăng\",\"amount\":80000,\"currency\":\"VND\",\"category\":\"Di chuyển\"},"
+            + "{\"type\":\"expense\",\"name\":\"Cà phê\",\"amount\":30000,\"currency\":\"VND\",\"category\":\"Ăn ngoài & Cafe\"}]}";
+
+    private final ExecutorService writers = Executors.newCachedThreadPool();
+    private Context context;
+    private AppDatabase db;
+    private MockGeminiServer server;
+    private OkHttpClient client;
+    private OfflineOutboxReplayer replayer;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        db = TestDatabases.inMemory(context);
+        replayer = new OfflineOutboxReplayer(context, db, TestDatabases.writeQueue(db, writers));
+        server = new MockGeminiServer(1);
+        server.setLatency(0, 1, 0);
+        client = new OkHttpClient();
+        server.install(client, new MockGeminiServer.ExchangeListener() { });
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        client.dispatcher().executorService().shutdown();
+        writers.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void nextBatch_mergesExpensesAndSendsQuestionsAlone() {
+        AiOutboxEntity breakfast = request(1, AiOutboxEntity.KIND_EXPENSE, "ăn sáng 35k");
+        AiOutboxEntity question = request(2, AiOutboxEntity.KIND_ANALYSIS, "phân tích chi tiêu tháng này");
+        AiOutboxEntity fuel = request(3, AiOutboxEntity.KIND_EXPENSE, "đổ xăng 80k");
+
+        assertEquals(List.of(breakfast, fuel), OfflineOutboxReplayer.nextBatch(List.of(breakfast, question, fuel)));
+        assertEquals(List.of(question), OfflineOutboxReplayer.nextBatch(List.of(question, breakfast, fuel)));
+    }
+
+    @Test
+    public void sameExpenseTwice_isQueuedTwiceButSameQuestionOnce() throws Exception {
+        enqueue("cà phê 30k", "Cà phê  30k");
+        assertTrue(replayer.enqueue(USER, AiOutboxEntity.KIND_ANALYSIS, "phân tích chi tiêu").get());
+        assertFalse(replayer.enqueue(USER, AiOutboxEntity.KIND_ANALYSIS, "Phân tích chi tiêu").get());
+
+        List<AiOutboxEntity> pending = db.aiOutboxDao().getPending(USER, 10);
+        assertEquals(3, pending.size());
+        assertEquals(OfflineOutboxReplayer.dedupeKey(AiOutboxEntity.KIND_EXPENSE, "cà phê 30k") + "#" + pending.get(0).id,
+                pending.get(0).dedupeKey);
+    }
+
+    @Test
+    public void expenses_mergedIntoOneCallAndOneAnswer() throws Exception {
+        enqueue("ăn sáng 35k", "đổ xăng 80k", "cà phê 30k");
+        server.queueExpenseReply(THREE_EXPENSES);
+
+        assertTrue(replayer.replayPending(USER));
+
+        assertEquals(1, server.generateBodies().size());
+        assertTrue(server.generateBodies().get(0).contains("đổ xăng 80k"));
+        List<AiOutboxEntity> answered = db.aiOutboxDao().getAnswered(USER);
+        assertEquals(1, answered.size()); // The other phrases were folded into the first row
+        assertTrue(answered.get(0).result.contains("Đã ghi nhận 3 khoản"));
+        assertTrue(answered.get(0).result.contains("• cà phê 30k"));
+        assertTrue(db.aiOutboxDao().getPending(USER, 10).isEmpty());
+        assertEquals(3, db.transactionDao().getAllTransactions(USER).size());
+    }
+
+    @Test
+    public void missingDayOrMonth_comesFromTheDayEachPhraseWasSent() throws Exception {
+        LocalDate monday = LocalDate.of(2025, 3, 3);
+        LocalDate friday = LocalDate.of(2025, 3, 7);
+        insertPending("ăn sáng 35k", monday);
+        insertPending("đổ xăng 80k", friday);
+        server.queueExpenseReply("{\"reply\":\"Đã ghi nhận 2 khoản\",\"expenses\":["
+                + "{\"type\":\"expense\",\"name\":\"Ăn sáng\",\"amount\":35000,\"currency\":\"VND\",\"category\":\"Ăn uống\",\"message\":1},"
+                + "{\"type\":\"expense\",\"name\":\"Đổ xăng\",\"amount\":80000,\"currency\":\"VND\",\"category\":\"Di chuyển\",\"message\":2,\"day\":6}]}");
+
+        assertTrue(replayer.replayPending(USER));
+
+        assertTrue(server.generateBodies().get(0).contains("2. [07/03/2025] đổ xăng 80k"));
+        List<TransactionEntity> saved = db.transactionDao().getAllTransactions(USER);
+        saved.sort((a, b) -> Integer.compare(a.id, b.id));
+        assertEquals(monday, day(saved.get(0).date));
+        assertEquals(LocalDate.of(2025, 3, 6), day(saved.get(1).date)); // Only the month and year were left out
+    }
+
+    @Test
+    public void failedAttempt_isCountedAndRetried() throws Exception {
+        enqueue("ăn sáng 35k", "đổ xăng 80k", "cà phê 30k");
+        server.queueFault(MockGeminiServer.Fault.SERVER_ERROR);
+        server.queueExpenseReply(THREE_EXPENSES);
+
+        assertTrue(replayer.replayPending(USER));
+
+        List<AiOutboxEntity> answered = db.aiOutboxDao().getAnswered(USER);
+        assertEquals(1, answered.size());
+        assertEquals(1, answered.get(0).attempts);
+        assertEquals(3, db.transactionDao().getAllTransactions(USER).size()); // Saved once
+    }
+
+    @Test
+    public void outOfAttempts_answeredWithAnError() throws Exception {
+        enqueue("ăn sáng 35k");
+        for (int i = 0; i < OfflineOutboxReplayer.MAX_ATTEMPTS; i++) {
+            server.queueFault(MockGeminiServer.Fault.SERVER_ERROR);
+        }
+
+        assertTrue(replayer.replayPending(USER));
+
+        List<AiOutboxEntity> answered = db.aiOutboxDao().getAnswered(USER);
+        assertEquals(1, answered.size());
+        assertEquals(OfflineOutboxReplayer.MAX_ATTEMPTS, answered.get(0).attempts);
+        assertEquals(context.getString(R.string.outbox_failed, "ăn sáng 35k"), answered.get(0).result);
+        assertTrue(server.generateBodies().isEmpty());
+        assertTrue(db.transactionDao().getAllTransactions(USER).isEmpty());
+    }
+
+    private void enqueue(String... texts) throws Exception {
+        for (String text : texts) {
+            assertTrue(replayer.enqueue(USER, AiOutboxEntity.KIND_EXPENSE, text).get());
+        }
+    }
+
+    private void insertPending(String text, LocalDate sentOn) {
+        db.aiOutboxDao().insert(new AiOutboxEntity(USER, AiOutboxEntity.KIND_EXPENSE, text,
+                OfflineOutboxReplayer.dedupeKey(AiOutboxEntity.KIND_EXPENSE, text),
+                Date.from(sentOn.atTime(9, 0).atZone(ZoneId.systemDefault()).toInstant())));
+    }
+
+    private static LocalDate day(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static AiOutboxEntity request(int id, String kind, String text) {
+        AiOutboxEntity request = new AiOutboxEntity(USER, kind, text, OfflineOutboxReplayer.dedupeKey(kind, text), new Date());
+        request.id = id;
+        return request;
+    }
+}
@@ -0,0 +1,615 @@
+package com.example.spending_management_app.domain.usecase.routing;
+
+import android.app.Application;
+import android.os.Looper;
+import android.speech.tts.TextToSpeech;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.spending_management_app.R;
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.SyntheticDataset;
+import com.example.spending_management_app.data.remote.api.MockGeminiServer;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatAdapter;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+import com.example.spending_management_app.presentation.dialog.ChatMessageList;
+import com.example.spending_management_app.utils.ChatTrace;
+import com.example.spending_management_app.utils.SettingsHelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSource;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * End-to-end latency of chat commands: text → RequestRouterUseCase.routeRequest → local parser or
+ * Gemini → UserWriteQueue commit → refresh callbacks, on the real database, AiRequestScheduler and
+ * OkHttp transport, with MockGeminiServer standing in for Gemini
+ *
+ * Every round replays CORPUS in a new chat, first against a clean server, then with faults
+ * injected. Reported per phase and route, p50 / p95 in ms:
+ * - route: routeRequest on the main thread; first: until the first reply line shows
+ * - network: request sent to headers received, summed over the command's exchanges
+ * - transfer: headers to body read; parse: body read to reply rendered (ChatTrace.Stage.REPLY_PARSED)
+ * - write: UserWriteQueue transactions; refresh: last commit to last refresh callback
+ * - total: text sent to the last change (chat message, commit or refresh)
+ * and KB allocated per command on the main, OkHttp, writer and other threads. Streaming is measured
+ * apart, by replaying the clean phase's requests to streamGenerateContent
+ *
+ * Runs only when one of -PchatBenchRounds, -PchatBenchLatency or -PchatBenchFaults is passed. Raw
+ * samples go to build/chat-latency/samples.csv, to compare runs before and after a change:
+ *     ./gradlew :app:testDebugUnitTest --tests '*ChatLatencyHarnessTest' -PchatBenchRounds=10 -PchatBenchLatency=400
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class ChatLatencyHarnessTest {
+
+    private static final long SEED = 20251015L;
+    private static final int TRANSACTIONS = 10_000;
+    private static final long QUIET_NANOS = 150_000_000L; // Settled: nothing happened for this long
+    private static final long TIMEOUT_NANOS = 30_000_000_000L;
+    private static final File SAMPLES = new File("build/chat-latency/samples.csv");
+
+    // Commands and, for those the expense prompt sends to Gemini, the model's structured reply
+    private static final String[][] CORPUS = {
+            {"Tháng này tôi chi bao nhiêu?", null},
+            {"Số dư tháng này là bao nhiêu?", null},
+            {"Hôm nay ăn sáng 35k", "{\"reply\":\"Đã ghi nhận ăn sáng 35.000 VND\",\"expenses\":["
+                    + "{\"type\":\"expense\",\"name\":\"Ăn sáng\",\"amount\":35000,\"currency\":\"VND\",\"category\":\"Ăn uống\"}]}"},
+            {"hôm qua đổ xăng 80 nghìn", "{\"reply\":\"Đã ghi nhận đổ xăng 80.000 VND hôm qua\",\"expenses\":["
+                    + "{\"type\":\"expense\",\"name\":\"Đổ xăng\",\"amount\":80000,\"currency\":\"VND\",\"category\":\"Di chuyển\"}]}"},
+            {"hôm nay grab 45k và ăn trưa 55k", "{\"reply\":\"Đã ghi nhận 2 khoản chi\",\"expenses\":["
+                    + "{\"type\":\"expense\",\"name\":\"Grab\",\"amount\":45000,\"currency\":\"VND\",\"category\":\"Di chuyển\"},"
+                    + "{\"type\":\"expense\",\"name\":\"Ăn trưa\",\"amount\":55000,\"currency\":\"VND\",\"category\":\"Ăn uống\"}]}"},
+            {"nhận lương tháng này 18 triệu", "{\"reply\":\"Đã ghi nhận thu nhập 18.000.000 VND\",\"expenses\":["
+                    + "{\"type\":\"income\",\"name\":\"Lương\",\"amount\":18000000,\"currency\":\"VND\",\"category\":\"Lương\"}]}"},
+            {"lunch 120k today", "{\"reply\":\"Recorded lunch 120,000 VND\",\"expenses\":["
+                    + "{\"type\":\"expense\",\"name\":\"Lunch\",\"amount\":120000,\"currency\":\"VND\",\"category\":\"Ăn uống\"}]}"},
+            {"ngân sách ăn uống 3 triệu", null},
+            {"đặt ngân sách tháng này 15 triệu", null},
+            {"Phân tích chi tiêu tháng này giúp tôi", null},
+            {"Tư vấn ngân sách cho tôi", null},
+            {"xóa chi tiêu #1", null},
+    };
+
+    private final Object lock = new Object();
+    private final Map<Integer, Long> sentAt = new HashMap<>();
+    private final Map<Integer, Long> headersAt = new HashMap<>();
+    private final Map<Long, Long> writeStartedAt = new HashMap<>();
+    private final List<Sample> samples = new ArrayList<>();
+    private final ExecutorService background = Executors.newSingleThreadExecutor();
+
+    private MockGeminiServer server;
+    private MockGeminiServer.RecordingTransport transport;
+    private OkHttpClient client;
+    private AppCompatActivity activity;
+    private TextToSpeech textToSpeech;
+    private List<String> errorNotices;
+    private Sample current;
+    private long lastEvent;
+
+    @Before
+    public void setUp() throws Exception {
+        ActivityController<AppCompatActivity> controller = Robolectric.buildActivity(AppCompatActivity.class);
+        controller.get().setTheme(R.style.Theme_Spendingmanagementapp);
+        activity = controller.setup().get();
+        textToSpeech = new TextToSpeech(activity, status -> { });
+        SettingsHelper.setChatFeedbackEnabled(activity, false); // Replies aren't spoken or vibrated
+        errorNotices = Arrays.asList(activity.getString(R.string.ai_send_error),
+                activity.getString(R.string.ai_connection_error), activity.getString(R.string.ai_processing_error));
+
+        // Room refuses the main thread
+        AppDatabase db = AppDatabase.getInstance(activity);
+        background.submit(() -> new SyntheticDataset(TRANSACTIONS).populate(db)).get();
+
+        server = new MockGeminiServer(SEED);
+        server.setLatency(Integer.getInteger("chat.bench.latency", 50), 4, 5);
+        client = new OkHttpClient();
+        transport = server.install(client, new Exchanges());
+        ChatTrace.setListener(this::onStage);
+    }
+
+    @After
+    public void tearDown() {
+        ChatTrace.setListener(null);
+        server.close();
+        background.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    @Test
+    public void replayCorpus() throws Exception {
+        int rounds = Integer.getInteger("chat.bench.rounds", 2);
+        double faultRate = Double.parseDouble(System.getProperty("chat.bench.faults", "0.2"));
+
+        for (int round = 0; round < rounds; round++) {
+            replay("clean");
+        }
+        int cleanRequests = server.generateBodies().size();
+        server.setErrorRate(faultRate);
+        for (int round = 0; round < rounds; round++) {
+            replay("faults");
+        }
+        server.setErrorRate(0);
+
+        report();
+        reportStreaming(server.generateBodies().subList(0, cleanRequests));
+        saveSamples();
+
+        List<String> unsettled = new ArrayList<>();
+        List<String> cleanErrors = new ArrayList<>();
+        for (Sample sample : samples) {
+            if (!sample.settled) {
+                unsettled.add(sample.phase + ": " + sample.text);
+            }
+            if (sample.phase.equals("clean") && sample.errorShown) {
+                cleanErrors.add(sample.text);
+            }
+        }
+        assertTrue("Commands still busy after " + TIMEOUT_NANOS / 1_000_000_000L + " s: " + unsettled, unsettled.isEmpty());
+        assertTrue("Errors without injected faults: " + cleanErrors, cleanErrors.isEmpty());
+    }
+
+    // One chat, like opening the sheet and sending every command in turn
+    private void replay(String phase) throws InterruptedException {
+        List<ChatMessage> messages = new TrackedMessages();
+        messages.add(ChatMessage.notice("Xin chào! Bạn muốn ghi chi tiêu gì?", "Bây giờ"));
+        ChatAdapter adapter = new ChatAdapter(messages);
+        RecyclerView recycler = new RecyclerView(activity);
+        recycler.setLayoutManager(new LinearLayoutManager(activity));
+        recycler.setAdapter(adapter);
+
+        for (String[] command : CORPUS) {
+            server.clearExpenseReplies();
+            if (command[1] != null) {
+                server.queueExpenseReply(command[1]);
+            }
+            Sample sample = new Sample(phase, command[0], allocatedBytes(), collections());
+            synchronized (lock) {
+                sentAt.clear();
+                headersAt.clear();
+                writeStartedAt.clear();
+                current = sample;
+                lastEvent = sample.start;
+            }
+
+            // What AiChatBottomSheet does on send
+            messages.add(new ChatMessage(command[0], true, "Bây giờ"));
+            adapter.notifyItemInserted(messages.size() - 1);
+            RequestRouterUseCase.routeRequest(command[0], activity, activity, null, messages, adapter, recycler,
+                    textToSpeech, () -> { }, new Callbacks());
+            synchronized (lock) {
+                sample.routed = System.nanoTime() - sample.start;
+            }
+
+            sample.settled = awaitSettled();
+            long[] allocated = allocatedBytes();
+            synchronized (lock) {
+                sample.total = lastEvent - sample.start;
+                for (int i = 0; i < allocated.length; i++) {
+                    sample.allocated[i] = allocated[i] - sample.allocated[i];
+                }
+                sample.collections = collections() - sample.collections;
+                current = null;
+            }
+            samples.add(sample);
+        }
+    }
+
+    // Runs the main looper until nothing is on the wire or being written and nothing changed for QUIET_NANOS
+    private boolean awaitSettled() throws InterruptedException {
+        ShadowLooper mainLooper = shadowOf(Looper.getMainLooper());
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (true) {
+            if (!mainLooper.isIdle()) {
+                mainLooper.idle();
+                event(System.nanoTime());
+            }
+            long now = System.nanoTime();
+            boolean quiet;
+            synchronized (lock) {
+                quiet = writeStartedAt.isEmpty() && now - lastEvent >= QUIET_NANOS;
+            }
+            if (quiet && transport.isIdle() && mainLooper.isIdle()) {
+                return true;
+            }
+            if (now > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+    }
+
+    private void event(long nanoTime) {
+        synchronized (lock) {
+            lastEvent = Math.max(lastEvent, nanoTime);
+        }
+    }
+
+    private void onStage(ChatTrace.Stage stage, String detail, long nanoTime) {
+        synchronized (lock) {
+            Sample sample = current;
+            if (sample == null) {
+                return;
+            }
+            lastEvent = Math.max(lastEvent, nanoTime);
+            switch (stage) {
+                case ROUTED:
+                    sample.route = detail;
+                    break;
+                case REPLY_PARSED:
+                    if (sample.lastBodyEnd > 0) {
+                        sample.parse += nanoTime - sample.lastBodyEnd;
+                    }
+                    break;
+                case WRITE_STARTED:
+                    writeStartedAt.put(Thread.currentThread().getId(), nanoTime);
+                    break;
+                case WRITE_FINISHED:
+                    Long started = writeStartedAt.remove(Thread.currentThread().getId());
+                    if (started != null) {
+                        sample.write += nanoTime - started;
+                    }
+                    sample.lastCommit = nanoTime;
+                    break;
+            }
+        }
+    }
+
+    private void refreshed() {
+        long now = System.nanoTime();
+        synchronized (lock) {
+            if (current != null && current.lastCommit > 0) {
+                current.refresh = now - current.lastCommit;
+            }
+            lastEvent = Math.max(lastEvent, now);
+        }
+    }
+
+    private final class Exchanges implements MockGeminiServer.ExchangeListener {
+        @Override
+        public void onSend(int exchange, long nanoTime) {
+            synchronized (lock) {
+                sentAt.put(exchange, nanoTime);
+                if (current != null) {
+                    current.exchanges++;
+                }
+                lastEvent = Math.max(lastEvent, nanoTime);
+            }
+        }
+
+        @Override
+        public void onHeaders(int exchange, int code, long nanoTime) {
+            synchronized (lock) {
+                Long sent = sentAt.get(exchange);
+                if (current != null && sent != null) {
+                    current.network += nanoTime - sent;
+                }
+                headersAt.put(exchange, nanoTime);
+                lastEvent = Math.max(lastEvent, nanoTime);
+            }
+        }
+
+        @Override
+        public void onBodyEnd(int exchange, long nanoTime) {
+            synchronized (lock) {
+                Long headers = headersAt.get(exchange);
+                if (current != null && headers != null) {
+                    current.transfer += nanoTime - headers;
+                    current.lastBodyEnd = nanoTime;
+                }
+                lastEvent = Math.max(lastEvent, nanoTime);
+            }
+        }
+
+        @Override
+        public void onDone(int exchange, long nanoTime) {
+            synchronized (lock) {
+                // Failed on the network: the whole wait counts as network
+                Long sent = sentAt.remove(exchange);
+                if (current != null && sent != null && !headersAt.containsKey(exchange)) {
+                    current.network += nanoTime - sent;
+                }
+                headersAt.remove(exchange);
+                lastEvent = Math.max(lastEvent, nanoTime);
+            }
+        }
+    }
+
+    private final class Callbacks implements RequestRouterUseCase.RequestRouterCallback {
+        @Override
+        public void refreshHomeFragment() {
+            refreshed();
+        }
+
+        @Override
+        public void refreshExpenseWelcomeMessage() {
+            refreshed();
+        }
+
+        @Override
+        public void refreshCategoryBudgetWelcomeMessage() {
+            refreshed();
+        }
+
+        @Override
+        public boolean handleOfflineRequest(String text, boolean isBudgetMode, boolean isCategoryBudgetMode,
+                                            boolean isExpenseBulkMode) {
+            return false;
+        }
+
+        @Override
+        public void handleBudgetQuery(String text) {
+        }
+
+        @Override
+        public void handleExpenseBulkRequest(String text) {
+        }
+
+        @Override
+        public boolean isNetworkAvailable() {
+            return true;
+        }
+
+        @Override
+        public void updateNetworkStatus() {
+        }
+    }
+
+    // The sheet's chat list, stored like the real one, noting when a reply line is added or replaced
+    private final class TrackedMessages extends ChatMessageList {
+
+        TrackedMessages() {
+            super(activity, 1, "expense");
+        }
+
+        @Override
+        public boolean add(ChatMessage message) {
+            changed(message);
+            return super.add(message);
+        }
+
+        @Override
+        public void add(int index, ChatMessage message) {
+            changed(message);
+            super.add(index, message);
+        }
+
+        @Override
+        public ChatMessage set(int index, ChatMessage message) {
+            changed(message);
+            return super.set(index, message);
+        }
+
+        private void changed(ChatMessage message) {
+            long now = System.nanoTime();
+            synchronized (lock) {
+                Sample sample = current;
+                if (sample == null || message.isUser) {
+                    return;
+                }
+                if (sample.firstChange == 0) {
+                    sample.firstChange = now - sample.start;
+                }
+                if (message.notice && message.message != null) {
+                    for (String error : errorNotices) {
+                        if (message.message.startsWith(error)) {
+                            sample.errorShown = true;
+                        }
+                    }
+                }
+                lastEvent = Math.max(lastEvent, now);
+            }
+        }
+    }
+
+    private static final class Sample {
+        final String phase;
+        final String text;
+        final long start = System.nanoTime();
+        final long[] allocated; // Per ThreadRole; at start, then the difference
+        long collections;
+        String route = "unrouted";
+        boolean settled;
+        boolean errorShown;
+        int exchanges;
+        long routed;
+        long firstChange;
+        long network;
+        long transfer;
+        long lastBodyEnd;
+        long parse;
+        long write;
+        long lastCommit;
+        long refresh;
+        long total;
+
+        Sample(String phase, String text, long[] allocated, long collections) {
+            this.phase = phase;
+            this.text = text;
+            this.allocated = allocated;
+            this.collections = collections;
+        }
+    }
+
+    private enum ThreadRole { MAIN, NETWORK, DATABASE, OTHER }
+
+    // Bytes allocated so far by live threads, per role; the stand-in server's own threads don't count
+    private static long[] allocatedBytes() {
+        long[] bytes = new long[ThreadRole.values().length];
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            Arrays.fill(bytes, -1);
+            return bytes;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        long[] allocated = threads.getThreadAllocatedBytes(ids);
+        ThreadInfo[] infos = threads.getThreadInfo(ids);
+        long mainThread = Looper.getMainLooper().getThread().getId();
+        for (int i = 0; i < ids.length; i++) {
+            if (infos[i] == null || allocated[i] < 0) {
+                continue;
+            }
+            String name = infos[i].getThreadName();
+            ThreadRole role;
+            if (ids[i] == mainThread) {
+                role = ThreadRole.MAIN;
+            } else if (name.startsWith("OkHttp")) {
+                role = ThreadRole.NETWORK;
+            } else if (name.startsWith("user-writer")) {
+                role = ThreadRole.DATABASE;
+            } else if (name.startsWith("gemini-stand-in") || name.startsWith("HTTP-Dispatcher")) {
+                continue;
+            } else {
+                role = ThreadRole.OTHER;
+            }
+            bytes[role.ordinal()] += allocated[i];
+        }
+        return bytes;
+    }
+
+    private static long collections() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+
+    private void report() {
+        Map<String, List<Sample>> groups = new LinkedHashMap<>();
+        for (Sample sample : samples) {
+            groups.computeIfAbsent(sample.phase + " " + sample.route, key -> new ArrayList<>()).add(sample);
+        }
+        System.out.println("Chat command latency, p50/p95 ms (" + TRANSACTIONS + " transactions, "
+                + server.faultsInjected() + " faults injected):");
+        System.out.println(String.format(Locale.ROOT, "  %-34s %3s %11s %11s %11s %11s %11s %11s %11s %11s %11s   %s",
+                "phase route", "n", "route", "first", "network", "transfer", "parse", "write", "refresh", "total",
+                "exchanges", "KB main/net/db/other"));
+        for (Map.Entry<String, List<Sample>> group : groups.entrySet()) {
+            List<Sample> list = group.getValue();
+            StringBuilder allocation = new StringBuilder();
+            for (ThreadRole role : ThreadRole.values()) {
+                long sum = 0;
+                for (Sample sample : list) {
+                    sum += sample.allocated[role.ordinal()];
+                }
+                allocation.append(role == ThreadRole.MAIN ? "" : "/").append(sum / list.size() / 1024);
+            }
+            System.out.println(String.format(Locale.ROOT, "  %-34s %3d %11s %11s %11s %11s %11s %11s %11s %11s %11s   %s",
+                    group.getKey(), list.size(),
+                    percentiles(list, s -> s.routed), percentiles(list, s -> s.firstChange),
+                    percentiles(list, s -> s.network), percentiles(list, s -> s.transfer),
+                    percentiles(list, s -> s.parse), percentiles(list, s -> s.write),
+                    percentiles(list, s -> s.refresh), percentiles(list, s -> s.total),
+                    counts(list, s -> s.exchanges), allocation));
+        }
+    }
+
+    private static String percentiles(List<Sample> list, ToLongFunction<Sample> stage) {
+        long[] nanos = list.stream().mapToLong(stage).sorted().toArray();
+        double p50 = nanos[nanos.length / 2] / 1e6;
+        double p95 = nanos[(int) Math.ceil(nanos.length * 0.95) - 1] / 1e6;
+        return String.format(Locale.ROOT, "%.1f/%.1f", p50, p95);
+    }
+
+    private static String counts(List<Sample> list, ToLongFunction<Sample> count) {
+        long[] values = list.stream().mapToLong(count).sorted().toArray();
+        return values[0] + ".." + values[values.length - 1];
+    }
+
+    /**
+     * What streaming would change: time to the first server-sent event against the whole reply,
+     * for the same requests the app sent with generateContent
+     */
+    private void reportStreaming(List<String> bodies) throws IOException {
+        if (bodies.isEmpty()) {
+            return;
+        }
+        String url = server.baseUrl() + "/v1beta/models/gemini-2.0-flash:streamGenerateContent?alt=sse";
+        long[] first = new long[bodies.size()];
+        long[] complete = new long[bodies.size()];
+        for (int i = 0; i < bodies.size(); i++) {
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(bodies.get(i), MediaType.parse("application/json")))
+                    .build();
+            long start = System.nanoTime();
+            try (Response response = client.newCall(request).execute()) {
+                BufferedSource source = response.body().source();
+                for (String line; (line = source.readUtf8Line()) != null; ) {
+                    if (first[i] == 0 && line.startsWith("data:")) {
+                        first[i] = System.nanoTime() - start;
+                    }
+                }
+            }
+            complete[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(first);
+        Arrays.sort(complete);
+        System.out.println(String.format(Locale.ROOT,
+                "Streamed replay of %d requests, p50/p95 ms: first event %.1f/%.1f, complete %.1f/%.1f",
+                bodies.size(), first[first.length / 2] / 1e6, first[(int) Math.ceil(first.length * 0.95) - 1] / 1e6,
+                complete[complete.length / 2] / 1e6, complete[(int) Math.ceil(complete.length * 0.95) - 1] / 1e6));
+    }
+
+    private void saveSamples() throws IOException {
+        File directory = SAMPLES.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        try (PrintWriter out = new PrintWriter(SAMPLES, StandardCharsets.UTF_8.name())) {
+            out.println("phase,route,text,settled,error,exchanges,route_us,first_us,network_us,transfer_us,"
+                    + "parse_us,write_us,refresh_us,total_us,main_bytes,network_bytes,db_bytes,other_bytes,gcs");
+            for (Sample s : samples) {
+                out.println(String.join(",", s.phase, s.route, "\"" + s.text.replace("\"", "\"\"") + "\"",
+                        String.valueOf(s.settled), String.valueOf(s.errorShown), String.valueOf(s.exchanges),
+                        micros(s.routed), micros(s.firstChange), micros(s.network), micros(s.transfer),
+                        micros(s.parse), micros(s.write), micros(s.refresh), micros(s.total),
+                        String.valueOf(s.allocated[0]), String.valueOf(s.allocated[1]),
+                        String.valueOf(s.allocated[2]), String.valueOf(s.allocated[3]),
+                        String.valueOf(s.collections)));
+            }
+        }
+    }
+
+    private static String micros(long nanos) {
+        return String.valueOf(nanos / 1_000);
+    }
+}
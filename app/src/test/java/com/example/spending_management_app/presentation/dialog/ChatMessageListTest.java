@@ -0,0 +1,192 @@
+package com.example.spending_management_app.presentation.dialog;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.example.spending_management_app.data.local.database.AppDatabase;
+import com.example.spending_management_app.data.local.database.TestDatabases;
+import com.example.spending_management_app.data.local.database.UserWriteQueue;
+import com.example.spending_management_app.data.local.entity.ChatMessageEntity;
+import com.example.spending_management_app.data.repository.ChatHistoryRepositoryImpl;
+import com.example.spending_management_app.domain.usecase.ai.ChatHistoryBuilder;
+import com.example.spending_management_app.presentation.dialog.AiChatBottomSheet.ChatMessage;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * ChatMessageList on an in-memory database: add and set write through (the welcome line never),
+ * older pages load oldest first without gaps or repeats, and loaded history reaches the prompt
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34, application = Application.class) // Plain Application: no locale, hashing or network setup
+public class ChatMessageListTest {
+
+    private static final int USER = 1;
+    private static final String MODE = "expense";
+
+    private final ExecutorService writers = Executors.newCachedThreadPool();
+    private AppDatabase db;
+    private ChatHistoryRepositoryImpl repository;
+    private UserWriteQueue writeQueue;
+
+    @Before
+    public void setUp() {
+        db = TestDatabases.inMemory(ApplicationProvider.getApplicationContext());
+        repository = new ChatHistoryRepositoryImpl(db);
+        writeQueue = TestDatabases.writeQueue(db, writers);
+    }
+
+    @After
+    public void tearDown() {
+        writers.shutdownNow();
+        db.close();
+    }
+
+    @Test
+    public void addAndSet_areStoredButNotTheWelcome() throws Exception {
+        ChatMessageList messages = newList();
+        messages.add(new ChatMessage("Xin chào! Tôi có thể giúp gì?", false, "09:00"));
+        ChatMessage question = new ChatMessage("ăn sáng 35k", true, "09:01");
+        messages.add(question);
+        ChatMessage analyzing = ChatMessage.notice("Đang phân tích...", "09:01");
+        messages.add(analyzing);
+        messages.set(2, new ChatMessage("Đã ghi nhận 35.000 VND", false, "09:01"));
+        messages.set(0, new ChatMessage("Chào mừng trở lại!", false, "09:02"));
+        drain();
+
+        List<ChatMessageEntity> rows = stored();
+        assertEquals(2, rows.size());
+        assertEquals(ChatMessageEntity.ROLE_USER, rows.get(0).role);
+        assertEquals("ăn sáng 35k", rows.get(0).text);
+        assertEquals(ChatMessageEntity.ROLE_MODEL, rows.get(1).role); // The notice became the answer
+        assertEquals("Đã ghi nhận 35.000 VND", rows.get(1).text);
+        assertEquals(ChatMessageEntity.estimateTokens("Đã ghi nhận 35.000 VND"), rows.get(1).tokenCount);
+
+        assertEquals(rows.get(0).id, question.id);
+        assertEquals(rows.get(1).id, messages.get(2).id); // The replacement kept the row it replaced
+        assertEquals(0, messages.get(0).id);
+        assertTrue(messages.get(0).notice);
+    }
+
+    @Test
+    public void notices_areStoredAsNotices() throws Exception {
+        ChatMessageList messages = newList();
+        messages.add(new ChatMessage("Xin chào!", false, "09:00"));
+        messages.add(ChatMessage.notice("Không có kết nối mạng", "09:01"));
+        drain();
+
+        List<ChatMessageEntity> rows = stored();
+        assertEquals(1, rows.size());
+        assertEquals(ChatMessageEntity.ROLE_NOTICE, rows.get(0).role);
+    }
+
+    @Test
+    public void loadOlder_pagesOldestFirstUntilNothingIsLeft() throws Exception {
+        int conversation = repository.getOrCreateConversation(USER, MODE);
+        Date sameSecond = new Date(1_740_000_000_000L); // Paging must not rely on timestamps
+        int total = 2 * ChatMessageList.PAGE_SIZE + 5;
+        for (int i = 0; i < total; i++) {
+            repository.addMessage(conversation, ChatMessageEntity.ROLE_USER, "m" + i, sameSecond);
+        }
+
+        ChatMessageList messages = newList();
+        messages.add(new ChatMessage("Xin chào!", false, "09:00"));
+        List<Integer> pages = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<Integer> loaded = new CompletableFuture<>();
+            messages.loadOlder(Runnable::run, loaded::complete);
+            pages.add(loaded.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(ChatMessageList.PAGE_SIZE, ChatMessageList.PAGE_SIZE, 5), pages);
+
+        List<String> texts = new ArrayList<>();
+        for (ChatMessage message : messages.history()) {
+            assertTrue(message.isUser);
+            texts.add(message.message);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            expected.add("m" + i);
+        }
+        assertEquals(expected, texts);
+        assertEquals(1, messages.size()); // History stays out of the live list
+
+        // The short page was the last one; nothing more is read
+        messages.loadOlder(Runnable::run, count -> fail("Nothing older to load"));
+        assertEquals(total, messages.history().size());
+    }
+
+    @Test
+    public void loadOlder_firstPageExcludesMessagesAddedSinceOpening() throws Exception {
+        int conversation = repository.getOrCreateConversation(USER, MODE);
+        repository.addMessage(conversation, ChatMessageEntity.ROLE_USER, "hôm qua", new Date());
+
+        ChatMessageList messages = newList();
+        messages.add(new ChatMessage("Xin chào!", false, "09:00"));
+        CompletableFuture<Integer> loaded = new CompletableFuture<>();
+        messages.loadOlder(Runnable::run, loaded::complete);
+        messages.add(new ChatMessage("hôm nay", true, "09:01"));
+
+        // The first page is read on the write lane ahead of the add, so the new message isn't shown twice
+        assertEquals(1, (int) loaded.get(5, TimeUnit.SECONDS));
+        assertEquals("hôm qua", messages.history().get(0).message);
+        drain();
+        assertEquals(2, stored().size());
+    }
+
+    @Test
+    public void loadedHistory_fillsTheGeminiContentsBeforeTheLiveTurns() throws Exception {
+        int conversation = repository.getOrCreateConversation(USER, MODE);
+        repository.addMessage(conversation, ChatMessageEntity.ROLE_USER, "ăn sáng 35k", new Date());
+        repository.addMessage(conversation, ChatMessageEntity.ROLE_NOTICE, "Không có kết nối mạng", new Date());
+        repository.addMessage(conversation, ChatMessageEntity.ROLE_MODEL, "Đã ghi nhận", new Date());
+
+        ChatMessageList messages = newList();
+        messages.add(new ChatMessage("Xin chào!", false, "09:00"));
+        CompletableFuture<Integer> loaded = new CompletableFuture<>();
+        messages.loadOlder(Runnable::run, loaded::complete);
+        assertEquals(3, (int) loaded.get(5, TimeUnit.SECONDS));
+        messages.add(new ChatMessage("cà phê 30k", true, "09:01"));
+
+        JSONArray contents = ChatHistoryBuilder.contents(messages, messages.size(), "cà phê 30k");
+        assertEquals(3, contents.length());
+        assertEquals("ăn sáng 35k", text(contents, 0));
+        assertEquals("model", contents.getJSONObject(1).getString("role"));
+        assertEquals("Đã ghi nhận", text(contents, 1));
+        assertEquals("cà phê 30k", text(contents, 2));
+    }
+
+    private static String text(JSONArray contents, int index) throws Exception {
+        return contents.getJSONObject(index).getJSONArray("parts").getJSONObject(0).getString("text");
+    }
+
+    private ChatMessageList newList() {
+        return new ChatMessageList(repository, writeQueue, USER, MODE);
+    }
+
+    // Writes go through the user's lane; a no-op behind them waits for all of them
+    private void drain() throws Exception {
+        writeQueue.execute(USER, () -> { }).get(5, TimeUnit.SECONDS);
+    }
+
+    private List<ChatMessageEntity> stored() {
+        return repository.getMessagesBefore(repository.getOrCreateConversation(USER, MODE), Long.MAX_VALUE, 100);
+    }
+}
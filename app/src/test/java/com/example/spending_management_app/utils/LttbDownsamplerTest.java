@@ -0,0 +1,84 @@
+package com.example.spending_management_app.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LttbDownsamplerTest {
+
+    @Test
+    public void shortSeries_isCopiedAsIs() {
+        float[] xs = {0, 1, 2, 3};
+        float[] ys = {5, 1, 7, 2};
+        float[] outX = new float[4];
+        float[] outY = new float[4];
+
+        assertEquals(4, LttbDownsampler.downsample(xs, ys, 4, 10, outX, outY));
+        assertArrayEquals(xs, outX, 0f);
+        assertArrayEquals(ys, outY, 0f);
+    }
+
+    @Test
+    public void longSeries_keepsEndsOrderAndThreshold() {
+        int length = 5 * 366;
+        float[] xs = new float[length];
+        float[] ys = new float[length];
+        Random random = new Random(1);
+        for (int i = 0; i < length; i++) {
+            xs[i] = 19000 + i;
+            ys[i] = random.nextInt(500_000);
+        }
+        int threshold = 400;
+        float[] outX = new float[threshold];
+        float[] outY = new float[threshold];
+
+        int count = LttbDownsampler.downsample(xs, ys, length, threshold, outX, outY);
+
+        assertEquals(threshold, count);
+        assertEquals(xs[0], outX[0], 0f);
+        assertEquals(xs[length - 1], outX[count - 1], 0f);
+        for (int i = 1; i < count; i++) {
+            assertTrue(outX[i] > outX[i - 1]);
+        }
+    }
+
+    @Test
+    public void spikes_surviveDownsampling() {
+        int length = 10_000;
+        float[] xs = new float[length];
+        float[] ys = new float[length];
+        for (int i = 0; i < length; i++) {
+            xs[i] = i;
+            ys[i] = 100;
+        }
+        ys[1234] = 90_000; // e.g. rent day in an otherwise flat series
+        ys[8765] = 0;
+        float[] outX = new float[50];
+        float[] outY = new float[50];
+
+        int count = LttbDownsampler.downsample(xs, ys, length, 50, outX, outY);
+
+        boolean peak = false;
+        boolean dip = false;
+        for (int i = 0; i < count; i++) {
+            peak |= outX[i] == 1234f;
+            dip |= outX[i] == 8765f;
+        }
+        assertTrue(peak);
+        assertTrue(dip);
+    }
+
+    @Test
+    public void tinyThreshold_keepsOnlyTheEnds() {
+        float[] xs = {0, 1, 2, 3, 4};
+        float[] ys = {1, 9, 1, 9, 1};
+        float[] outX = new float[2];
+        float[] outY = new float[2];
+
+        assertEquals(2, LttbDownsampler.downsample(xs, ys, 5, 2, outX, outY));
+        assertEquals(0f, outX[0], 0f);
+        assertEquals(4f, outX[1], 0f);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.spending_management_app.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Key derivation latency at the calibrated cost on this host: hash, and verify of a current hash
+ * Fails when the median drifts past twice PasswordHashingEngine.TARGET_MILLIS, i.e. calibration no
+ * longer predicts the cost users wait for at login and sign-up
+ *
+ * Runs only when asked for, with the number of timed runs per operation:
+ *     ./gradlew :app:testDebugUnitTest --tests '*PasswordHashingBenchmarkTest' -PhashBenchRuns=20
+ */
+public class PasswordHashingBenchmarkTest {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    private final PasswordHashingEngine engine = PasswordHashingEngine.getInstance();
+    private final int runs = Integer.getInteger("hash.bench.runs", 10);
+
+    @Test
+    public void medianWithinCalibrationTarget() throws Exception {
+        int iterations = engine.calibrate();
+        String stored = engine.hash(PASSWORD).get(); // Warm-up, and the hash verify times
+        long[] hash = new long[runs];
+        long[] verify = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            engine.hash(PASSWORD).get();
+            hash[i] = (System.nanoTime() - start) / 1_000_000;
+            start = System.nanoTime();
+            assertTrue(engine.verify(PASSWORD, stored).get().matches);
+            verify[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(hash);
+        Arrays.sort(verify);
+
+        System.out.println("PBKDF2 " + iterations + " iterations over " + runs + " runs (p50 / max ms):");
+        System.out.println("  hash     " + hash[runs / 2] + " / " + hash[runs - 1]);
+        System.out.println("  verify   " + verify[runs / 2] + " / " + verify[runs - 1]);
+        if (iterations > PasswordHashingEngine.MIN_ITERATIONS) { // At the floor a slow host is allowed to take longer
+            long limit = 2 * PasswordHashingEngine.TARGET_MILLIS;
+            assertTrue("hash p50 " + hash[runs / 2] + " ms > " + limit + " ms", hash[runs / 2] <= limit);
+            assertTrue("verify p50 " + verify[runs / 2] + " ms > " + limit + " ms", verify[runs / 2] <= limit);
+        }
+    }
+}
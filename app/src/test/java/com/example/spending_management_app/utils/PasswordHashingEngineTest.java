@@ -0,0 +1,86 @@
+package com.example.spending_management_app.utils;
+
+import org.junit.Test;
+
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for PasswordHashingEngine: calibration, hash format, rehash on login
+ */
+public class PasswordHashingEngineTest {
+
+    private final PasswordHashingEngine engine = PasswordHashingEngine.getInstance();
+
+    @Test
+    public void calibrate_staysWithinBounds() {
+        int iterations = engine.calibrate();
+        assertTrue(iterations >= PasswordUtils.ITERATIONS);
+        assertTrue(iterations <= 1_000_000);
+        assertEquals(0, iterations % 1024);
+    }
+
+    @Test
+    public void hash_usesCalibratedIterations() throws Exception {
+        engine.setIterations(70_000);
+        String stored = engine.hash("secret123").get();
+
+        assertEquals(3, stored.split(":").length);
+        assertEquals(engine.getIterations(), PasswordUtils.getIterations(stored));
+        assertTrue(PasswordUtils.verifyPassword("secret123", stored));
+    }
+
+    @Test
+    public void verify_rehashesLegacyHash() throws Exception {
+        engine.setIterations(70_000);
+        String legacy = PasswordUtils.hashPassword("secret123");
+
+        PasswordHashingEngine.VerifyResult result = engine.verify("secret123", legacy).get();
+        assertTrue(result.matches);
+        assertNotNull(result.upgradedHash);
+        assertEquals(engine.getIterations(), PasswordUtils.getIterations(result.upgradedHash));
+        assertTrue(PasswordUtils.verifyPassword("secret123", result.upgradedHash));
+
+        PasswordHashingEngine.VerifyResult again = engine.verify("secret123", result.upgradedHash).get();
+        assertTrue(again.matches);
+        assertNull(again.upgradedHash);
+    }
+
+    @Test
+    public void verify_wrongPasswordDoesNotRehash() throws Exception {
+        engine.setIterations(70_000);
+        String legacy = PasswordUtils.hashPassword("secret123");
+
+        PasswordHashingEngine.VerifyResult result = engine.verify("wrong", legacy).get();
+        assertFalse(result.matches);
+        assertNull(result.upgradedHash);
+    }
+
+    @Test
+    public void matchesNow_checksWithoutUpgrading() {
+        engine.setIterations(70_000);
+        String legacy = PasswordUtils.hashPassword("secret123");
+
+        assertTrue(engine.matchesNow("secret123", legacy));
+        assertFalse(engine.matchesNow("wrong", legacy));
+        assertFalse(engine.matchesNow("secret123", null));
+    }
+
+    @Test
+    public void submit_runsOffCallerThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        Future<Thread> worker = engine.submit(Thread::currentThread);
+        assertNotSame(caller, worker.get());
+        assertEquals("password-kdf", worker.get().getName());
+    }
+
+    @Test
+    public void hash_atCalibratedCostVerifies() throws Exception {
+        int iterations = engine.calibrate();
+        String stored = engine.hash("benchmark-password").get();
+
+        assertEquals(iterations, PasswordUtils.getIterations(stored));
+        assertTrue(engine.verify("benchmark-password", stored).get().matches);
+    }
+}
@@ -0,0 +1,28 @@
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+// Parsers and formatters without Android dependencies, so they can be tested and benchmarked on a plain JVM
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+// ./gradlew :core:jmh  (add -Pjmh.includes=ParserBenchmark.amount to run one benchmark)
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc") // Allocation rate per operation next to throughput
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    project.findProperty("jmh.includes")?.let { includes.add(it.toString()) }
+}
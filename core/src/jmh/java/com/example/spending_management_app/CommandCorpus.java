@@ -0,0 +1,85 @@
+package com.example.spending_management_app;
+
+/**
+ * Chat commands and AI replies shaped like what users and Gemini actually send, Vietnamese first
+ */
+final class CommandCorpus {
+
+    // Sizes of the arrays below, as constants for @OperationsPerInvocation
+    static final int EXPENSE_COUNT = 15;
+    static final int BULK_COUNT = 10;
+    static final int BUDGET_COUNT = 10;
+    static final int REPLY_COUNT = 4;
+
+    private CommandCorpus() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Single and multi-item expenses, with and without dates
+    static final String[] EXPENSES = {
+            "ăn sáng 35k",
+            "Hôm nay ăn trưa 50k",
+            "hôm qua đổ xăng 80 nghìn",
+            "ngày 12/10 mua sách 120k",
+            "ăn sáng 25k và cafe 30k",
+            "grab đi làm 45k, ăn trưa 55k, trà sữa 40k",
+            "tiền điện tháng 10 1 triệu 250",
+            "mua điện thoại 8 triệu 5",
+            "hôm kia đi xem phim 2 vé 180k",
+            "đóng học phí 3 triệu cho con",
+            "lunch 120k today",
+            "coffee with friends 65k yesterday",
+            "taxi to airport 350k",
+            "groceries 1.2 triệu on 05/10",
+            "netflix subscription 260k",
+    };
+
+    // Edits and deletes handled by ExpenseBulkParser
+    static final String[] BULK = {
+            "xóa chi tiêu #152",
+            "xóa tất cả chi tiêu hôm qua",
+            "xóa chi tiêu tháng 9",
+            "xóa chi tiêu năm 2024",
+            "sửa chi tiêu #87 thành 45k",
+            "sửa ăn trưa hôm nay thành 60k",
+            "ăn sáng 30k\nhôm qua cafe 25k\nngày 10/10 đổ xăng 70k",
+            "delete expense id 42",
+            "remove all expenses last week",
+            "edit transaction #12 to 90k",
+    };
+
+    // Monthly and category budget commands
+    static final String[] BUDGETS = {
+            "đặt ngân sách tháng này 15 triệu",
+            "tăng ngân sách thêm 2 triệu",
+            "giảm ngân sách 500k",
+            "ngân sách ăn uống 3 triệu",
+            "thêm ngân sách di chuyển 1 triệu 5 và giải trí 800k",
+            "sửa ngân sách danh mục mua sắm thành 2 triệu",
+            "xóa ngân sách danh mục du lịch",
+            "xóa tất cả ngân sách danh mục",
+            "set food budget 4 million",
+            "delete all category budgets",
+    };
+
+    // Replies as they come back from the expense prompt and the analysis prompts
+    static final String[] REPLIES = {
+            "Đã ghi nhận chi tiêu của bạn!\n```json\n{\"type\":\"expense\",\"name\":\"Ăn sáng\",\"amount\":35000,"
+                    + "\"currency\":\"VND\",\"category\":\"Ăn uống\",\"day\":15,\"month\":10,\"year\":2025}\n```",
+            "Mình đã thêm 2 khoản:\n{\"type\":\"expense\",\"name\":\"Cafe\",\"amount\":30000,\"category\":\"Ăn ngoài & Cafe\"}\n"
+                    + "{\"type\":\"expense\",\"name\":\"Grab\",\"amount\":45000,\"category\":\"Di chuyển\"}",
+            "## Tổng quan tháng 10\n\n**Tổng chi tiêu:** 12.450.000 VND\n**Thu nhập:** 20.000.000 VND\n\n"
+                    + "### Chi tiêu theo danh mục\n* **Ăn uống**: 4.200.000 VND (33,7%)\n* **Di chuyển**: 1.850.000 VND\n"
+                    + "* *Giải trí*: 950.000 VND\n\n---\n\n💡 Bạn đang chi cho `Ăn uống` nhiều hơn tháng trước **18%**. "
+                    + "Hãy thử nấu ăn ở nhà 2-3 bữa mỗi tuần.",
+            "### Budget status\n- Monthly budget: **15,000,000 VND**\n- Spent so far: **9,820,000 VND** (65%)\n"
+                    + "- Days left: 16\n\nYou are *on track*. Keep daily spending under `323,750 VND`.",
+    };
+
+    static {
+        if (EXPENSES.length != EXPENSE_COUNT || BULK.length != BULK_COUNT
+                || BUDGETS.length != BUDGET_COUNT || REPLIES.length != REPLY_COUNT) {
+            throw new IllegalStateException("Update the CommandCorpus counts");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.spending_management_app;
+
+import com.example.spending_management_app.utils.ExtractorHelper;
+import com.example.spending_management_app.utils.MarkdownScanner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of what runs on every AI reply: JSON extraction, display text and markdown to plain text
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FormatterBenchmark {
+
+    // A reply far longer than a usual answer, ~68k chars
+    private final String longReply = longReply(400);
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.REPLY_COUNT)
+    public void jsonObjects(Blackhole blackhole) {
+        for (String reply : CommandCorpus.REPLIES) {
+            blackhole.consume(ExtractorHelper.extractAllJsonFromText(reply));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.REPLY_COUNT)
+    public void displayText(Blackhole blackhole) {
+        for (String reply : CommandCorpus.REPLIES) {
+            blackhole.consume(ExtractorHelper.extractDisplayText(reply));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.REPLY_COUNT)
+    public void markdownPlainText(Blackhole blackhole) {
+        for (String reply : CommandCorpus.REPLIES) {
+            blackhole.consume(MarkdownScanner.toPlainText(reply));
+        }
+    }
+
+    @Benchmark
+    public String markdownLongReply() {
+        return MarkdownScanner.toPlainText(longReply);
+    }
+
+    // The regex chain TextFormatHelper used before MarkdownScanner, as the baseline
+    @Benchmark
+    public String regexChainLongReply() {
+        String text = longReply;
+        text = text.replaceAll("\\*\\*(.*?)\\*\\*", "$1");
+        text = text.replaceAll("(?<!\\*)\\*(?!\\*)([^*]+)\\*(?!\\*)", "$1");
+        text = text.replaceAll("^#{1,6}\\s+", "");
+        text = text.replaceAll("\\n#{1,6}\\s+", "\n");
+        text = text.replaceAll("\\n{3,}", "\n\n");
+        text = text.replaceAll("(?<!\\S)\\*(?!\\S)", "");
+        return text.trim();
+    }
+
+    private static String longReply(int sections) {
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < sections; i++) {
+            reply.append("### Phần ").append(i).append("\n\n")
+                    .append("Tháng này bạn đã chi **").append(i * 1000).append(" ₫** cho *ăn uống*, ")
+                    .append("cao hơn tháng trước. Hãy xem lại `budget` của bạn.\n")
+                    .append("- Ăn uống: **40%**\n")
+                    .append("- Di chuyển: *15%*\n")
+                    .append("* Giải trí: 10%\n\n\n");
+        }
+        return reply.toString();
+    }
+}
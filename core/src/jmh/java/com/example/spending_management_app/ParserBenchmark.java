@@ -0,0 +1,84 @@
+package com.example.spending_management_app;
+
+import com.example.spending_management_app.domain.usecase.category.CategoryBudgetParserUseCase;
+import com.example.spending_management_app.domain.usecase.expense.ExpenseBulkParser;
+import com.example.spending_management_app.utils.BudgetAmountParser;
+import com.example.spending_management_app.utils.DateParser;
+import com.example.spending_management_app.utils.ExpenseDescriptionParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the chat command parsers over CommandCorpus, one operation per command
+ * Run with the gc profiler (configured in build.gradle.kts) for bytes allocated per command
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.EXPENSE_COUNT)
+    public void dateFromText(Blackhole blackhole) {
+        for (String command : CommandCorpus.EXPENSES) {
+            blackhole.consume(DateParser.extractDateFromText(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.BUDGET_COUNT)
+    public void monthYear(Blackhole blackhole) {
+        for (String command : CommandCorpus.BUDGETS) {
+            blackhole.consume(DateParser.extractMonthYear(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.EXPENSE_COUNT)
+    public void amount(Blackhole blackhole) {
+        for (String command : CommandCorpus.EXPENSES) {
+            blackhole.consume(BudgetAmountParser.extractBudgetAmount(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.EXPENSE_COUNT)
+    public void offlineDescription(Blackhole blackhole) {
+        for (String command : CommandCorpus.EXPENSES) {
+            blackhole.consume(ExpenseDescriptionParser.extractDescriptionOffline(command, "Ăn uống", 50_000));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.EXPENSE_COUNT)
+    public void expensesFromText(Blackhole blackhole) {
+        for (String command : CommandCorpus.EXPENSES) {
+            blackhole.consume(ExpenseBulkParser.parseExpensesFromText(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.BULK_COUNT)
+    public void bulkOperations(Blackhole blackhole) {
+        for (String command : CommandCorpus.BULK) {
+            blackhole.consume(ExpenseBulkParser.parseMultipleExpenseOperations(command));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CommandCorpus.BUDGET_COUNT)
+    public void categoryBudgetOperations(Blackhole blackhole) {
+        for (String command : CommandCorpus.BUDGETS) {
+            blackhole.consume(CategoryBudgetParserUseCase.parseMultipleCategoryOperations(command));
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.example.spending_management_app.domain.usecase.expense;
+
+import com.example.spending_management_app.utils.BudgetAmountParser;
+import com.example.spending_management_app.utils.CorePlatform;
+import com.example.spending_management_app.utils.DateParser;
+import com.example.spending_management_app.utils.ExtractorHelper;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Parses expense bulk commands (add several, edit or delete by id, date, month, year or description)
+ * ExpenseBulkUseCase applies the operations
+ */
+public final class ExpenseBulkParser {
+
+    private ExpenseBulkParser() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    // Helper class for expense operations
+    public static class ExpenseOperation {
+        public String type; // "add", "edit", "delete", "error"
+        public String description;
+        public String category;
+        public long amount;
+        public Date date;
+        public int transactionId; // For edit/delete operations (legacy)
+        public String identifier; // For delete/edit: "id:123", "date:timestamp", "desc:description", or error message
+
+        ExpenseOperation(String type, String description, String category, long amount, Date date) {
+            this.type = type;
+            this.description = description;
+            this.category = category;
+            this.amount = amount;
+            this.date = date;
+            this.transactionId = -1;
+            this.identifier = "";
+        }
+
+        ExpenseOperation(String type, int transactionId) {
+            this.type = type;
+            this.transactionId = transactionId;
+            this.description = "";
+            this.category = "";
+            this.amount = 0;
+            this.date = new Date();
+            this.identifier = "";
+        }
+
+        ExpenseOperation(String type, String identifier) {
+            this.type = type;
+            this.identifier = identifier;
+            this.transactionId = -1;
+            this.description = "";
+            this.category = "";
+            this.amount = 0;
+            this.date = new Date();
+        }
+
+        // New constructor for edit operations with new amount
+        ExpenseOperation(String type, String identifier, long newAmount) {
+            this.type = type;
+            this.identifier = identifier;
+            this.transactionId = -1;
+            this.description = "";
+            this.category = "";
+            this.amount = newAmount; // New amount for edit
+            this.date = new Date();
+        }
+    }
+
+    public static List<ExpenseOperation> parseMultipleExpenseOperations(String text) {
+        List<ExpenseOperation> operations = new ArrayList<>();
+        String lowerText = text.toLowerCase();
+
+        CorePlatform.d("ExpenseBulkService", "=== parseMultipleExpenseOperations START ===");
+        CorePlatform.d("ExpenseBulkService", "Input text: [" + text + "]");
+        CorePlatform.d("ExpenseBulkService", "Lower text: [" + lowerText + "]");
+
+        // Determine operation type
+        String operationType = "add"; // default
+        if (lowerText.contains("xóa") || lowerText.contains("xoá") || lowerText.contains("xoa") ||
+            lowerText.contains("delete") || lowerText.contains("remove")) {
+            operationType = "delete";
+            CorePlatform.d("ExpenseBulkService", "Detected DELETE operation");
+        } else if (lowerText.contains("sửa") || lowerText.contains("thay đổi") || lowerText.contains("cập nhật") ||
+                   lowerText.contains("edit") || lowerText.contains("update") || lowerText.contains("change") || lowerText.contains("modify")) {
+            operationType = "edit";
+            CorePlatform.d("ExpenseBulkService", "Detected EDIT operation");
+        } else {
+            CorePlatform.d("ExpenseBulkService", "Default ADD operation");
+        }
+
+        // For edit/delete, try to extract transaction ID or description or date
+        if (operationType.equals("delete") || operationType.equals("edit")) {
+            CorePlatform.d("ExpenseBulkService", "Processing delete/edit operation");
+
+            // Try to find ID pattern like "#123", "ID 123", "id:123"
+            Pattern idPattern = Pattern.compile("(?:#|id[:\\s]+)(\\d+)", Pattern.CASE_INSENSITIVE);
+            Matcher matcher = idPattern.matcher(lowerText);
+
+            while (matcher.find()) {
+                int transactionId = Integer.parseInt(matcher.group(1));
+                operations.add(new ExpenseOperation(operationType, transactionId));
+                CorePlatform.d("ExpenseBulkService", "Found ID pattern: " + transactionId);
+            }
+
+            // If no ID found, try to extract date, month, or year for bulk operations
+            if (operations.isEmpty()) {
+                CorePlatform.d("ExpenseBulkService", "No ID found, trying to extract date/month/year");
+
+                // Priority order: year -> month -> date (most specific to least specific)
+                // This prevents "tháng này" from being interpreted as "ngày này"
+
+                // First check if text contains year-related keywords
+                boolean hasYearKeywords = lowerText.contains("năm") || lowerText.contains("nam") || lowerText.contains("year");
+                CorePlatform.d("ExpenseBulkService", "Has year keywords: " + hasYearKeywords);
+
+                if (hasYearKeywords) {
+                    // Try to extract year
+                    int year = DateParser.extractYear(lowerText);
+                    CorePlatform.d("ExpenseBulkService", "DateParser.extractYear result: " + year);
+
+                    if (year > 0) {
+                        CorePlatform.d("ExpenseBulkService", "Valid year extracted: " + year);
+
+                        // Allow operations on any year (past, present, future)
+                        // Add operation with year
+                        operations.add(new ExpenseOperation(operationType, "year:" + year));
+                        CorePlatform.d("ExpenseBulkService", "Created year operation: year:" + year);
+                    } else {
+                        CorePlatform.d("ExpenseBulkService", "No valid year extracted");
+                    }
+                }
+
+                // If no year found or no year keywords, check for month keywords
+                if (operations.isEmpty()) {
+                    boolean hasMonthKeywords = lowerText.contains("tháng") || lowerText.contains("thang") || lowerText.contains("month");
+                    CorePlatform.d("ExpenseBulkService", "Has month keywords: " + hasMonthKeywords);
+
+                    if (hasMonthKeywords) {
+                        // Try to extract month/year
+                        int[] monthYear = DateParser.extractMonthYear(lowerText);
+                        CorePlatform.d("ExpenseBulkService", "DateParser.extractMonthYear result: " + monthYear[0] + "/" + monthYear[1]);
+
+                        if (monthYear != null && monthYear.length == 2) {
+                            CorePlatform.d("ExpenseBulkService", "Valid month/year extracted: " + monthYear[0] + "/" + monthYear[1]);
+
+                            // Allow operations on any month (past, present, future)
+                            // Add operation with month-year
+                            operations.add(new ExpenseOperation(operationType, "month:" + monthYear[0] + "-" + monthYear[1]));
+                            CorePlatform.d("ExpenseBulkService", "Created month operation: month:" + monthYear[0] + "-" + monthYear[1]);
+                        } else {
+                            CorePlatform.d("ExpenseBulkService", "No valid month/year extracted");
+                        }
+                    }
+                }
+
+                // If no month found or no month keywords, try to extract specific date
+                if (operations.isEmpty()) {
+                    Date operationDate = DateParser.extractDateFromText(lowerText);
+                    CorePlatform.d("ExpenseBulkService", "DateParser.extractDateFromText result: " + operationDate);
+
+                    if (operationDate != null) {
+                        CorePlatform.d("ExpenseBulkService", "Valid date extracted: " + operationDate);
+
+                        // Allow operations on any date (past, present, future)
+                        // Add operation with date
+                        operations.add(new ExpenseOperation(operationType, "date:" + operationDate.getTime()));
+                        CorePlatform.d("ExpenseBulkService", "Created date operation: date:" + operationDate.getTime());
+                    } else {
+                        CorePlatform.d("ExpenseBulkService", "No valid date extracted");
+                    }
+                }
+            }
+
+            // For edit operations, try to extract new amount
+            if (operationType.equals("edit") && !operations.isEmpty()) {
+                CorePlatform.d("ExpenseBulkService", "Processing edit operation - trying to extract new amount");
+
+                // Extract new amount from text (look for patterns like "thành 50k", "là 30k", etc.)
+                long newAmount = BudgetAmountParser.extractBudgetAmount(text);
+                CorePlatform.d("ExpenseBulkService", "Extracted new amount for edit: " + newAmount);
+
+                if (newAmount > 0) {
+                    // Update the last operation with new amount
+                    ExpenseOperation lastOp = operations.get(operations.size() - 1);
+                    operations.set(operations.size() - 1, new ExpenseOperation(lastOp.type, lastOp.identifier, newAmount));
+                    CorePlatform.d("ExpenseBulkService", "Updated edit operation with new amount: " + newAmount);
+                }
+            }
+
+            // If still no operations but user said delete/edit, try to find by description
+            if (operations.isEmpty()) {
+                CorePlatform.d("ExpenseBulkService", "No date found, trying description extraction");
+                // Extract potential description from text (remove keywords)
+                String description = lowerText.replaceAll("(xóa|xoa|xoá|sửa|thay đổi|cập nhật|chi tiêu|giao dịch|tất cả|toàn bộ|thành|thanh|delete|remove|edit|update|change|modify|expense|transaction|all|everything|to|into)", "").trim();
+                CorePlatform.d("ExpenseBulkService", "Extracted description: [" + description + "]");
+                if (!description.isEmpty() && description.length() > 2) {
+                    operations.add(new ExpenseOperation(operationType, "desc:" + description));
+                    CorePlatform.d("ExpenseBulkService", "Created description operation: desc:" + description);
+                } else {
+                    CorePlatform.d("ExpenseBulkService", "Description too short or empty");
+                }
+            }
+
+            // If no operations found but user said delete/edit, inform them
+            if (operations.isEmpty()) {
+                CorePlatform.d("ExpenseBulkService", "No operations created for delete/edit");
+                // Return empty - will show error message
+                return operations;
+            }
+        }
+
+        // For add operations, parse expenses from text
+        if (operationType.equals("add")) {
+            CorePlatform.d("ExpenseBulkService", "Processing add operations");
+            operations = parseExpensesFromText(text);
+        }
+
+        CorePlatform.d("ExpenseBulkService", "Final operations count: " + operations.size());
+        CorePlatform.d("ExpenseBulkService", "=== parseMultipleExpenseOperations END ===");
+
+        return operations;
+    }
+
+    public static List<ExpenseOperation> parseExpensesFromText(String text) {
+        List<ExpenseOperation> operations = new ArrayList<>();
+
+        CorePlatform.d("ExpenseBulkService", "=== parseExpensesFromText START ===");
+        CorePlatform.d("ExpenseBulkService", "Input text: [" + text + "]");
+
+        // List of all categories with their aliases
+        java.util.Map<String, String> categoryAliases = new java.util.HashMap<>();
+
+        // Full category names
+        String[] allCategories = {
+            "Ăn uống", "Di chuyển", "Tiện ích", "Y tế", "Nhà ở",
+            "Mua sắm", "Giáo dục", "Sách & Học tập", "Thể thao", "Sức khỏe & Làm đẹp",
+            "Giải trí", "Du lịch", "Ăn ngoài & Cafe", "Quà tặng & Từ thiện", "Hội họp & Tiệc tụng",
+            "Điện thoại & Internet", "Đăng ký & Dịch vụ", "Phần mềm & Apps", "Ngân hàng & Phí",
+            "Con cái", "Thú cưng", "Gia đình", "Khác"
+        };
+
+        // Add aliases
+        categoryAliases.put("ăn sáng", "Ăn uống");
+        categoryAliases.put("ăn trưa", "Ăn uống");
+        categoryAliases.put("ăn tối", "Ăn uống");
+        categoryAliases.put("cafe", "Ăn ngoài & Cafe");
+        categoryAliases.put("cà phê", "Ăn ngoài & Cafe");
+        categoryAliases.put("cơm", "Ăn uống");
+        categoryAliases.put("xăng", "Di chuyển");
+        categoryAliases.put("xe", "Di chuyển");
+        categoryAliases.put("taxi", "Di chuyển");
+        categoryAliases.put("grab", "Di chuyển");
+        categoryAliases.put("bus", "Di chuyển");
+        categoryAliases.put("điện", "Tiện ích");
+        categoryAliases.put("nước", "Tiện ích");
+        categoryAliases.put("internet", "Điện thoại & Internet");
+        categoryAliases.put("điện thoại", "Điện thoại & Internet");
+        categoryAliases.put("phim", "Giải trí");
+        categoryAliases.put("game", "Giải trí");
+
+        // First, split by newlines to handle multi-line input
+        String[] lines = text.split("\\r?\\n");
+
+        CorePlatform.d("ExpenseBulkService", "Number of lines: " + lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            CorePlatform.d("ExpenseBulkService", "Line " + i + ": [" + lines[i] + "]");
+        }
+
+        // Process each line separately
+        for (String line : lines) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            CorePlatform.d("ExpenseBulkService", "Processing line: [" + line + "]");
+
+            // Extract date from this line (each line can have its own date)
+            Date expenseDate = DateParser.extractDateFromText(line);
+            CorePlatform.d("ExpenseBulkService", "Extracted date: " + expenseDate);
+
+            // Validate date for add operations - allow past dates but not too far back (max 1 year)
+            if (expenseDate != null) {
+                Calendar now = Calendar.getInstance();
+                Calendar expenseCal = Calendar.getInstance();
+                expenseCal.setTime(expenseDate);
+
+                // Allow future dates without restriction
+                if (expenseDate.after(now.getTime())) {
+                    CorePlatform.d("ExpenseBulkService", "Future date allowed: " + expenseDate);
+                } else {
+                    // For past dates, check if not more than 1 year ago
+                    now.add(Calendar.YEAR, -1);
+                    if (expenseDate.before(now.getTime())) {
+                        CorePlatform.d("ExpenseBulkService", "Date too far in past, using today: " + expenseDate);
+                        expenseDate = new Date(); // Use today for dates more than 1 year ago
+                    }
+                    now.add(Calendar.YEAR, 1); // Reset calendar
+                }
+            } else {
+                expenseDate = new Date(); // Default to today if no date found
+            }
+
+            // Split each line by common separators (và, ,, ;)
+            String[] segments = line.split("\\s+(và|,|;)\\s+");
+
+            CorePlatform.d("ExpenseBulkService", "Number of segments in this line: " + segments.length);
+            for (int i = 0; i < segments.length; i++) {
+                CorePlatform.d("ExpenseBulkService", "  Segment " + i + ": [" + segments[i] + "]");
+            }
+
+            for (String segment : segments) {
+                segment = segment.trim();
+                if (segment.isEmpty()) continue;
+
+                CorePlatform.d("ExpenseBulkService", "  Processing segment: [" + segment + "]");
+
+                // Try to extract: description, amount, and category
+                String description = "";
+                String category = "Khác"; // default
+                long amount = 0;
+
+                // Extract amount
+                amount = BudgetAmountParser.extractBudgetAmount(segment);
+                CorePlatform.d("ExpenseBulkService", "    Extracted amount: " + amount);
+
+                if (amount <= 0) {
+                    CorePlatform.d("ExpenseBulkService", "    Skipping - no valid amount");
+                    continue; // Skip if no valid amount
+                }
+
+                // Try to match category
+                String matchedCategory = null;
+
+                // First try full category names
+                for (String cat : allCategories) {
+                    if (segment.toLowerCase().contains(cat.toLowerCase())) {
+                        matchedCategory = cat;
+                        break;
+                    }
+                }
+
+                // If no match, try aliases
+                if (matchedCategory == null) {
+                    for (java.util.Map.Entry<String, String> alias : categoryAliases.entrySet()) {
+                        if (segment.toLowerCase().contains(alias.getKey())) {
+                            matchedCategory = alias.getValue();
+                            break;
+                        }
+                    }
+                }
+
+                if (matchedCategory != null) {
+                    category = matchedCategory;
+                }
+
+                CorePlatform.d("ExpenseBulkService", "    Matched category: " + category);
+
+                // Extract description (everything except amount and category keywords)
+                description = ExtractorHelper.extractDescription(segment, category, amount);
+
+                if (description.isEmpty()) {
+                    description = category; // Use category as description if no description found
+                }
+
+                CorePlatform.d("ExpenseBulkService", "    Final description: " + description);
+                CorePlatform.d("ExpenseBulkService", "    Creating expense: " + description + " - " + amount + " - " + category + " - " + expenseDate);
+
+                operations.add(new ExpenseOperation("add", description, category, amount, expenseDate));
+            }
+        }
+
+        CorePlatform.d("ExpenseBulkService", "Total operations created: " + operations.size());
+        CorePlatform.d("ExpenseBulkService", "=== parseExpensesFromText END ===");
+
+        return operations;
+    }
+}
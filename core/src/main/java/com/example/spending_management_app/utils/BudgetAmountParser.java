@@ -33,7 +33,7 @@ public class BudgetAmountParser {
                     }
                 }
                 
-                android.util.Log.d("AiChatBottomSheet", "Parsed amount (tỷ): " + amount + " from text: " + text);
+                CorePlatform.d("AiChatBottomSheet", "Parsed amount (tỷ): " + amount + " from text: " + text);
                 return amount;
             }
             
@@ -58,7 +58,7 @@ public class BudgetAmountParser {
                     }
                 }
                 
-                android.util.Log.d("AiChatBottomSheet", "Parsed amount (triệu): " + amount + " from text: " + text);
+                CorePlatform.d("AiChatBottomSheet", "Parsed amount (triệu): " + amount + " from text: " + text);
                 return amount;
             }
             
@@ -82,7 +82,7 @@ public class BudgetAmountParser {
                     amount = (long) baseAmount;
                 }
                 
-                android.util.Log.d("AiChatBottomSheet", "Parsed amount (simple): " + amount + " from text: " + text);
+                CorePlatform.d("AiChatBottomSheet", "Parsed amount (simple): " + amount + " from text: " + text);
                 return amount;
             }
             
@@ -92,13 +92,13 @@ public class BudgetAmountParser {
             if (numberMatcher.find()) {
                 String amountStr = numberMatcher.group(1).replace(",", ".");
                 long amount = (long) Double.parseDouble(amountStr);
-                android.util.Log.d("AiChatBottomSheet", "Parsed amount (no unit): " + amount + " from text: " + text);
+                CorePlatform.d("AiChatBottomSheet", "Parsed amount (no unit): " + amount + " from text: " + text);
                 return amount;
             }
             
             return null;
         } catch (Exception e) {
-            android.util.Log.e("AiChatBottomSheet", "Error parsing amount from: " + text, e);
+            CorePlatform.e("AiChatBottomSheet", "Error parsing amount from: " + text, e);
             return null;
         }
     }
@@ -153,7 +153,7 @@ public class BudgetAmountParser {
             return 0;
             
         } catch (Exception e) {
-            android.util.Log.e("AiChatBottomSheet", "Error extracting budget amount", e);
+            CorePlatform.e("AiChatBottomSheet", "Error extracting budget amount", e);
             return 0;
         }
     }
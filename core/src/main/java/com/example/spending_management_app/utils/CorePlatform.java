@@ -0,0 +1,64 @@
+package com.example.spending_management_app.utils;
+
+/**
+ * What the plain-Java parsers need from the platform: a log and a few user-facing strings
+ * The app installs Android implementations at startup; on a plain JVM (tests, benchmarks) logging
+ * is dropped and the Vietnamese defaults are used
+ */
+public final class CorePlatform {
+
+    public interface Logger {
+        void d(String tag, String message);
+
+        void e(String tag, String message, Throwable error);
+    }
+
+    public enum Text {
+        REPLY_PROCESSED("✅ Đã xử lý!"); // AI reply with nothing to show besides its JSON
+
+        final String fallback;
+
+        Text(String fallback) {
+            this.fallback = fallback;
+        }
+    }
+
+    public interface Texts {
+        String get(Text text);
+    }
+
+    private static final Logger SILENT = new Logger() {
+        @Override
+        public void d(String tag, String message) {
+        }
+
+        @Override
+        public void e(String tag, String message, Throwable error) {
+        }
+    };
+
+    private static volatile Logger logger = SILENT;
+    private static volatile Texts texts = text -> text.fallback;
+
+    private CorePlatform() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    public static void install(Logger logger, Texts texts) {
+        CorePlatform.logger = logger != null ? logger : SILENT;
+        CorePlatform.texts = texts != null ? texts : text -> text.fallback;
+    }
+
+    public static void d(String tag, String message) {
+        logger.d(tag, message);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        logger.e(tag, message, error);
+    }
+
+    public static String text(Text text) {
+        String value = texts.get(text);
+        return value != null ? value : text.fallback;
+    }
+}
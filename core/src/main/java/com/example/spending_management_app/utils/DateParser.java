@@ -133,7 +133,7 @@ public final class DateParser {
             return new int[]{currentMonth, currentYear};
 
         } catch (Exception e) {
-            android.util.Log.e("DateParser", "Error extracting month/year", e);
+            CorePlatform.e("DateParser", "Error extracting month/year", e);
             Calendar currentCal = Calendar.getInstance();
             return new int[]{currentCal.get(Calendar.MONTH) + 1, currentCal.get(Calendar.YEAR)};
         }
@@ -202,7 +202,7 @@ public final class DateParser {
             return currentYear;
 
         } catch (Exception e) {
-            android.util.Log.e("DateParser", "Error extracting year", e);
+            CorePlatform.e("DateParser", "Error extracting year", e);
             return Calendar.getInstance().get(Calendar.YEAR);
         }
     }
@@ -214,28 +214,28 @@ public final class DateParser {
         // Check for specific date patterns
         if (lowerText.contains("hôm nay") || lowerText.contains("today")) {
             // Today - no change needed
-            android.util.Log.d("DateParser", "Parsed: today");
+            CorePlatform.d("DateParser", "Parsed: today");
         } else if (lowerText.contains("hôm qua") || lowerText.contains("yesterday")) {
             cal.add(Calendar.DAY_OF_MONTH, -1);
-            android.util.Log.d("DateParser", "Parsed: yesterday");
+            CorePlatform.d("DateParser", "Parsed: yesterday");
         } else if (lowerText.contains("hôm kia") || lowerText.contains("2 ngày trước")) {
             cal.add(Calendar.DAY_OF_MONTH, -2);
-            android.util.Log.d("DateParser", "Parsed: 2 days ago");
+            CorePlatform.d("DateParser", "Parsed: 2 days ago");
         } else if (lowerText.contains("hôm trước") || lowerText.contains("3 ngày trước")) {
             cal.add(Calendar.DAY_OF_MONTH, -3);
-            android.util.Log.d("DateParser", "Parsed: 3 days ago");
+            CorePlatform.d("DateParser", "Parsed: 3 days ago");
         } else if (lowerText.contains("ngày mai") || lowerText.contains("tomorrow")) {
             cal.add(Calendar.DAY_OF_MONTH, 1);
-            android.util.Log.d("DateParser", "Parsed: tomorrow");
+            CorePlatform.d("DateParser", "Parsed: tomorrow");
         } else if (lowerText.contains("ngày kia") || lowerText.contains("2 ngày sau")) {
             cal.add(Calendar.DAY_OF_MONTH, 2);
-            android.util.Log.d("DateParser", "Parsed: 2 days later");
+            CorePlatform.d("DateParser", "Parsed: 2 days later");
         } else if (lowerText.contains("tuần trước") || lowerText.contains("last week")) {
             cal.add(Calendar.DAY_OF_MONTH, -7);
-            android.util.Log.d("DateParser", "Parsed: last week");
+            CorePlatform.d("DateParser", "Parsed: last week");
         } else if (lowerText.contains("tuần sau") || lowerText.contains("next week")) {
             cal.add(Calendar.DAY_OF_MONTH, 7);
-            android.util.Log.d("DateParser", "Parsed: next week");
+            CorePlatform.d("DateParser", "Parsed: next week");
         } else {
             // Try to find date pattern: "ngày 10/11" or "10/11" or "10-11"
             Pattern datePattern = Pattern.compile("(?:ngày\\s+)?(\\d{1,2})[/-](\\d{1,2})(?:[/-](\\d{2,4}))?");
@@ -256,16 +256,16 @@ public final class DateParser {
                 cal.set(Calendar.YEAR, year);
                 cal.set(Calendar.MONTH, month - 1);
                 cal.set(Calendar.DAY_OF_MONTH, day);
-                android.util.Log.d("DateParser", "Parsed date pattern: " + day + "/" + month + "/" + year);
+                CorePlatform.d("DateParser", "Parsed date pattern: " + day + "/" + month + "/" + year);
             } else {
-                android.util.Log.d("DateParser", "No date pattern found, defaulting to today");
+                CorePlatform.d("DateParser", "No date pattern found, defaulting to today");
                 // Default: today (no changes to cal)
             }
         }
 
         // Set time to current time
         Date result = cal.getTime();
-        android.util.Log.d("DateParser", "Final extracted date: " + result);
+        CorePlatform.d("DateParser", "Final extracted date: " + result);
         return result;
     }
 }
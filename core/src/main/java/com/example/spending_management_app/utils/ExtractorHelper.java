@@ -10,7 +10,7 @@ public class ExtractorHelper {
     }
 
     public static List<String> extractAllJsonFromText(String text) {
-        android.util.Log.d("AiChatBottomSheet", "Extracting ALL JSON objects from text");
+        CorePlatform.d("AiChatBottomSheet", "Extracting ALL JSON objects from text");
         List<String> jsonList = new ArrayList<>();
         
         int pos = 0;
@@ -57,7 +57,7 @@ public class ExtractorHelper {
             
             if (braceCount == 0 && end > start) {
                 String json = text.substring(start, end + 1);
-                android.util.Log.d("AiChatBottomSheet", "Found JSON object: " + json);
+                CorePlatform.d("AiChatBottomSheet", "Found JSON object: " + json);
                 jsonList.add(json);
                 pos = end + 1;
             } else {
@@ -65,7 +65,7 @@ public class ExtractorHelper {
             }
         }
         
-        android.util.Log.d("AiChatBottomSheet", "Total JSON objects found: " + jsonList.size());
+        CorePlatform.d("AiChatBottomSheet", "Total JSON objects found: " + jsonList.size());
         return jsonList;
     }
 
@@ -87,7 +87,7 @@ public class ExtractorHelper {
         result = result.replaceAll("\\n{3,}", "\n\n"); // Max 2 consecutive newlines
         result = result.trim();
 
-        return result.isEmpty() ? "✅ Đã xử lý!" : result;
+        return result.isEmpty() ? CorePlatform.text(CorePlatform.Text.REPLY_PROCESSED) : result;
     }
 
     public static String extractDescription(String text, String category, long amount) {
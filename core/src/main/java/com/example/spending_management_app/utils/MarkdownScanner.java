@@ -0,0 +1,294 @@
+package com.example.spending_management_app.utils;
+
+/**
+ * Linear-time scanner for the markdown subset Gemini replies use
+ * Handles **bold**, *italic*, `code`, # headings, "-", "*", "+" bullets and rules; markers are
+ * dropped from the text and reported to the sink as spans over the output. Runs of blank lines
+ * collapse to one and leading/trailing blank lines are trimmed.
+ * Input can be fed in chunks as it streams in: complete lines are emitted right away, the
+ * unfinished last line waits for its newline or for finish(). Not thread-safe
+ */
+public final class MarkdownScanner {
+
+    public static final int STYLE_BOLD = 1;
+    public static final int STYLE_ITALIC = 2;
+    public static final int STYLE_CODE = 3;
+
+    /**
+     * Receives the text without markers and the styled ranges, in output offsets
+     */
+    public interface Sink {
+        void text(CharSequence source, int start, int end);
+
+        void span(int style, int start, int end);
+
+        void heading(int level, int start, int end);
+    }
+
+    private static final String BULLET = "• ";
+
+    private final Sink sink;
+    private final StringBuilder pending = new StringBuilder();
+    private int written;
+    private int pendingNewlines;
+
+    // Per-line pairing state, reused between lines
+    private byte[] kinds = new byte[64];
+    private int[] partners = new int[64];
+    private int[] outStarts = new int[64];
+
+    public MarkdownScanner(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Markdown to plain text in one pass, e.g. for text-to-speech or storage
+     */
+    public static String toPlainText(CharSequence markdown) {
+        StringBuilder out = new StringBuilder(markdown.length());
+        MarkdownScanner scanner = new MarkdownScanner(new Sink() {
+            @Override
+            public void text(CharSequence source, int start, int end) {
+                out.append(source, start, end);
+            }
+
+            @Override
+            public void span(int style, int start, int end) {
+            }
+
+            @Override
+            public void heading(int level, int start, int end) {
+            }
+        });
+        scanner.scan(markdown, 0, markdown.length(), true);
+        return out.toString();
+    }
+
+    /**
+     * Feed the next chunk of a streamed reply
+     */
+    public void append(CharSequence chunk) {
+        pending.append(chunk);
+        int lineStart = 0;
+        for (int i = 0; i < pending.length(); i++) {
+            if (pending.charAt(i) == '\n') {
+                line(pending, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        pending.delete(0, lineStart); // Only the unfinished line stays
+    }
+
+    /**
+     * Flush the last line once the reply is complete
+     */
+    public void finish() {
+        line(pending, 0, pending.length());
+        pending.setLength(0);
+    }
+
+    /**
+     * Number of characters emitted so far
+     */
+    public int length() {
+        return written;
+    }
+
+    private void scan(CharSequence text, int start, int end, boolean last) {
+        int lineStart = start;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '\n') {
+                line(text, lineStart, i);
+                lineStart = i + 1;
+            }
+        }
+        if (last) {
+            line(text, lineStart, end);
+        }
+    }
+
+    private void line(CharSequence text, int start, int end) {
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--; // Also drops '\r'
+        }
+        int indent = start;
+        while (indent < end && (text.charAt(indent) == ' ' || text.charAt(indent) == '\t')) {
+            indent++;
+        }
+        if (indent == end || isRule(text, indent, end)) {
+            if (written > 0) {
+                pendingNewlines = 2; // At most one blank line between blocks
+            }
+            return;
+        }
+
+        while (pendingNewlines > 0) {
+            emit("\n", 0, 1);
+            pendingNewlines--;
+        }
+        pendingNewlines = 1;
+
+        int headingLevel = headingLevel(text, indent, end);
+        if (headingLevel > 0) {
+            int contentStart = indent + headingLevel;
+            while (contentStart < end && text.charAt(contentStart) == ' ') {
+                contentStart++;
+            }
+            int spanStart = written;
+            inline(text, contentStart, end);
+            if (written > spanStart) {
+                sink.heading(headingLevel, spanStart, written);
+            }
+            return;
+        }
+
+        emit(text, start, indent);
+        char first = text.charAt(indent);
+        if ((first == '-' || first == '*' || first == '+') && indent + 1 < end && text.charAt(indent + 1) == ' ') {
+            emit(BULLET, 0, BULLET.length());
+            int contentStart = indent + 2;
+            while (contentStart < end && text.charAt(contentStart) == ' ') {
+                contentStart++;
+            }
+            inline(text, contentStart, end);
+        } else {
+            inline(text, indent, end);
+        }
+    }
+
+    // "#" to "######" followed by a space (or nothing); 0 if the line isn't a heading
+    private static int headingLevel(CharSequence text, int start, int end) {
+        int level = 0;
+        while (start + level < end && text.charAt(start + level) == '#') {
+            level++;
+        }
+        if (level == 0 || level > 6) {
+            return 0;
+        }
+        return start + level == end || text.charAt(start + level) == ' ' ? level : 0;
+    }
+
+    // "---", "***", "___" (spaces allowed) separate blocks like a blank line
+    private static boolean isRule(CharSequence text, int start, int end) {
+        char marker = text.charAt(start);
+        if (marker != '-' && marker != '*' && marker != '_') {
+            return false;
+        }
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == marker) {
+                count++;
+            } else if (c != ' ') {
+                return false;
+            }
+        }
+        return count >= 3;
+    }
+
+    // Pair delimiters within [start, end), then emit text and spans; both steps are linear
+    private void inline(CharSequence text, int start, int end) {
+        int length = end - start;
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            kinds[i] = 0;
+            partners[i] = -1;
+        }
+
+        // Backticks pair in order; emphasis inside code stays literal
+        int codeOpen = -1;
+        for (int i = 0; i < length; i++) {
+            if (text.charAt(start + i) == '`') {
+                if (codeOpen < 0) {
+                    codeOpen = i;
+                } else {
+                    pair(codeOpen, i, STYLE_CODE);
+                    codeOpen = -1;
+                }
+            }
+        }
+
+        int boldOpen = -1;
+        int italicOpen = -1;
+        for (int i = 0; i < length; ) {
+            if (kinds[i] == STYLE_CODE) {
+                i = partners[i] + 1;
+                continue;
+            }
+            if (text.charAt(start + i) != '*') {
+                i++;
+                continue;
+            }
+            boolean doubled = i + 1 < length && text.charAt(start + i + 1) == '*';
+            int width = doubled ? 2 : 1;
+            boolean canOpen = i + width < length && !Character.isWhitespace(text.charAt(start + i + width));
+            boolean canClose = i > 0 && !Character.isWhitespace(text.charAt(start + i - 1));
+            if (doubled) {
+                if (canClose && boldOpen >= 0) {
+                    pair(boldOpen, i, STYLE_BOLD);
+                    boldOpen = -1;
+                } else if (canOpen && boldOpen < 0) {
+                    boldOpen = i;
+                }
+            } else {
+                if (canClose && italicOpen >= 0) {
+                    pair(italicOpen, i, STYLE_ITALIC);
+                    italicOpen = -1;
+                } else if (canOpen && italicOpen < 0) {
+                    italicOpen = i;
+                }
+            }
+            i += width;
+        }
+
+        int runStart = start;
+        for (int i = 0; i < length; ) {
+            byte kind = kinds[i];
+            if (kind == 0) {
+                i++;
+                continue;
+            }
+            emit(text, runStart, start + i);
+            int partner = partners[i];
+            int width = kind == STYLE_BOLD ? 2 : 1;
+            if (partner > i) {
+                outStarts[i] = written;
+                if (kind == STYLE_CODE) {
+                    emit(text, start + i + 1, start + partner);
+                    sink.span(STYLE_CODE, outStarts[i], written);
+                    i = partner + 1;
+                    runStart = start + i;
+                    continue;
+                }
+            } else if (written > outStarts[partner]) {
+                sink.span(kind, outStarts[partner], written);
+            }
+            i += width;
+            runStart = start + i;
+        }
+        emit(text, runStart, end);
+    }
+
+    private void pair(int open, int close, int style) {
+        kinds[open] = (byte) style;
+        kinds[close] = (byte) style;
+        partners[open] = close;
+        partners[close] = open;
+    }
+
+    private void emit(CharSequence source, int start, int end) {
+        if (end > start) {
+            sink.text(source, start, end);
+            written += end - start;
+        }
+    }
+
+    private void ensureCapacity(int length) {
+        if (kinds.length < length) {
+            int size = Math.max(length, kinds.length * 2);
+            kinds = new byte[size];
+            partners = new int[size];
+            outStarts = new int[size];
+        }
+    }
+}
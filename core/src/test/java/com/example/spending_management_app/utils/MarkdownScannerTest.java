@@ -0,0 +1,104 @@
+package com.example.spending_management_app.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MarkdownScannerTest {
+
+    @Test
+    public void inlineMarkers_becomeSpans() {
+        Recorder recorder = new Recorder();
+        MarkdownScanner scanner = new MarkdownScanner(recorder);
+        scanner.append("Bạn đã chi **1.200.000 ₫** cho *ăn uống*, xem `budgets`");
+        scanner.finish();
+
+        assertEquals("Bạn đã chi 1.200.000 ₫ cho ăn uống, xem budgets", recorder.text.toString());
+        assertTrue(recorder.spans.contains("b:11-22"));
+        assertTrue(recorder.spans.contains("i:27-34"));
+        assertTrue(recorder.spans.contains("c:40-47"));
+    }
+
+    @Test
+    public void blocks_headingsBulletsAndBlankLines() {
+        Recorder recorder = new Recorder();
+        MarkdownScanner scanner = new MarkdownScanner(recorder);
+        scanner.append("\n\n## Tổng kết\n\n\n\n- Ăn uống: 40%\n* Di chuyển\n---\n1. Giữ nguyên\n\n");
+        scanner.finish();
+
+        assertEquals("Tổng kết\n\n• Ăn uống: 40%\n• Di chuyển\n\n1. Giữ nguyên", recorder.text.toString());
+        assertTrue(recorder.spans.contains("h2:0-8"));
+    }
+
+    @Test
+    public void unmatchedMarkers_stayLiteral() {
+        assertEquals("2 * 3 = 6 and **open", MarkdownScanner.toPlainText("2 * 3 = 6 and **open"));
+        assertEquals("a *b* c", MarkdownScanner.toPlainText("a `*b*` c")); // Code keeps its stars
+        assertEquals("`x", MarkdownScanner.toPlainText("`x"));
+        assertEquals("#hashtag", MarkdownScanner.toPlainText("#hashtag"));
+    }
+
+    @Test
+    public void streamedChunks_matchWholeInput() {
+        String reply = longReply(40);
+        String whole = MarkdownScanner.toPlainText(reply);
+
+        Recorder recorder = new Recorder();
+        MarkdownScanner scanner = new MarkdownScanner(recorder);
+        for (int i = 0; i < reply.length(); i += 7) {
+            scanner.append(reply.substring(i, Math.min(reply.length(), i + 7)));
+        }
+        scanner.finish();
+
+        assertEquals(whole, recorder.text.toString());
+        assertEquals(whole.length(), scanner.length());
+    }
+
+    @Test
+    public void longReply_leavesNoMarkers() {
+        String plain = MarkdownScanner.toPlainText(longReply(400)); // ~68k chars, far longer than a usual answer
+
+        assertFalse(plain.contains("*"));
+        assertFalse(plain.contains("`"));
+        assertFalse(plain.contains("#"));
+        assertFalse(plain.contains("\n\n\n"));
+        assertTrue(plain.startsWith("Phần 0\n\nTháng này bạn đã chi 0 ₫ cho ăn uống"));
+    }
+
+    private static String longReply(int sections) {
+        StringBuilder reply = new StringBuilder();
+        for (int i = 0; i < sections; i++) {
+            reply.append("### Phần ").append(i).append("\n\n")
+                    .append("Tháng này bạn đã chi **").append(i * 1000).append(" ₫** cho *ăn uống*, ")
+                    .append("cao hơn tháng trước. Hãy xem lại `budget` của bạn.\n")
+                    .append("- Ăn uống: **40%**\n")
+                    .append("- Di chuyển: *15%*\n")
+                    .append("* Giải trí: 10%\n\n\n");
+        }
+        return reply.toString();
+    }
+
+    private static final class Recorder implements MarkdownScanner.Sink {
+        final StringBuilder text = new StringBuilder();
+        final List<String> spans = new ArrayList<>();
+
+        @Override
+        public void text(CharSequence source, int start, int end) {
+            text.append(source, start, end);
+        }
+
+        @Override
+        public void span(int style, int start, int end) {
+            String name = style == MarkdownScanner.STYLE_BOLD ? "b" : style == MarkdownScanner.STYLE_ITALIC ? "i" : "c";
+            spans.add(name + ":" + start + "-" + end);
+        }
+
+        @Override
+        public void heading(int level, int start, int end) {
+            spans.add("h" + level + ":" + start + "-" + end);
+        }
+    }
+}
@@ -22,3 +22,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "spending-management-app"
 include(":app")
+include(":core")